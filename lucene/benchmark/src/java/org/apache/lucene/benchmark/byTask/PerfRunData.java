@@ -44,6 +44,12 @@ import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCache;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.ShardedLRUQueryCache;
+import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
 import org.apache.lucene.store.ByteBuffersDirectory;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
@@ -72,6 +78,11 @@ import org.apache.lucene.util.IOUtils;
  *  <li><b>log.queries</b>=&lt;whether queries should be printed| Default: false&gt;
  *  <li><b>directory</b>=&lt;type of directory to use for the index| Default: ByteBuffersDirectory&gt;
  *  <li><b>taxonomy.directory</b>=&lt;type of directory for taxonomy index| Default: ByteBuffersDirectory&gt;
+ *  <li><b>query.cache</b>=&lt;query cache of the searcher: none, lru or sharded| Default: none&gt;
+ *  <li><b>query.cache.size</b>=&lt;maximum number of cached queries| Default: 1000&gt;
+ *  <li><b>query.cache.ram.mb</b>=&lt;maximum RAM usage of the query cache| Default: 32&gt;
+ *  <li><b>query.cache.shards</b>=&lt;number of shards of the sharded query cache| Default: 8&gt;
+ *  <li><b>query.cache.policy</b>=&lt;caching policy: usage or always| Default: usage&gt;
  * </ul>
  */
 public class PerfRunData implements Closeable {
@@ -359,13 +370,49 @@ public class PerfRunData implements Closeable {
       // Hold reference to new IR
       indexReader.incRef();
       indexSearcher = new IndexSearcher(indexReader);
-      // TODO Some day we should make the query cache in this module configurable and control clearing the cache
-      indexSearcher.setQueryCache(null);
+      indexSearcher.setQueryCache(createQueryCache());
+      indexSearcher.setQueryCachingPolicy(createQueryCachingPolicy());
     } else {
       indexSearcher = null;
     }
   }
 
+  private QueryCache createQueryCache() {
+    String cache = config.get("query.cache", "none");
+    int maxSize = config.get("query.cache.size", 1000);
+    long maxRamBytesUsed = (long) (config.get("query.cache.ram.mb", 32.0) * 1024 * 1024);
+    switch (cache) {
+      case "none":
+        return null;
+      case "lru":
+        return new LRUQueryCache(maxSize, maxRamBytesUsed);
+      case "sharded":
+        return new ShardedLRUQueryCache(config.get("query.cache.shards", 8), maxSize, maxRamBytesUsed);
+      default:
+        throw new IllegalArgumentException("Unknown query.cache: " + cache + "; must be one of none, lru or sharded");
+    }
+  }
+
+  private QueryCachingPolicy createQueryCachingPolicy() {
+    String policy = config.get("query.cache.policy", "usage");
+    switch (policy) {
+      case "usage":
+        return new UsageTrackingQueryCachingPolicy();
+      case "always":
+        return new QueryCachingPolicy() {
+          @Override
+          public void onUse(Query query) {}
+
+          @Override
+          public boolean shouldCache(Query query) {
+            return true;
+          }
+        };
+      default:
+        throw new IllegalArgumentException("Unknown query.cache.policy: " + policy + "; must be one of usage or always");
+    }
+  }
+
   /**
    * @return Returns the indexWriter.
    */
@@ -583,6 +583,15 @@
  *     </li></ul>
  *   </li>
  * 
+ *   <li><b>Searching</b>:
+ *     <ul><li>query.cache
+ *     </li><li>query.cache.size
+ *     </li><li>query.cache.ram.mb
+ *     </li><li>query.cache.shards
+ *     </li><li>query.cache.policy
+ *     </li></ul>
+ *   </li>
+ * 
  *   <li><b>Doc deletion</b>:
  *     <ul><li>doc.delete.step
  *     </li></ul>
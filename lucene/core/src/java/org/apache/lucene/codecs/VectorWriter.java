@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.codecs;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.index.DocIDMerger;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.MergeState;
+import org.apache.lucene.index.VectorValues;
+import org.apache.lucene.util.BytesRef;
+
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+
+/**
+ * Writes vectors to an index.
+ * @lucene.experimental
+ */
+public abstract class VectorWriter implements Closeable {
+
+  /** Sole constructor. (For invocation by subclass
+   *  constructors, typically implicit.) */
+  protected VectorWriter() {
+  }
+
+  /** Write all values contained in the provided reader */
+  public abstract void writeField(FieldInfo fieldInfo, VectorValues values) throws IOException;
+
+  /** Called once at the end before close */
+  public abstract void finish() throws IOException;
+
+  /** Merge the vector values from multiple segments, for all fields */
+  public void merge(MergeState mergeState) throws IOException {
+    // check each incoming reader
+    for (VectorReader reader : mergeState.vectorReaders) {
+      if (reader != null) {
+        reader.checkIntegrity();
+      }
+    }
+    // merge field at a time
+    for (FieldInfo fieldInfo : mergeState.mergeFieldInfos) {
+      if (fieldInfo.hasVectorValues()) {
+        mergeVectors(fieldInfo, mergeState);
+      }
+    }
+    finish();
+  }
+
+  /** Default naive merge implementation for one field: it just re-indexes all the values
+   *  from the incoming segments. Codecs that maintain search structures may override this
+   *  to reuse work that was already done for the incoming segments. */
+  protected void mergeVectors(FieldInfo mergeFieldInfo, final MergeState mergeState) throws IOException {
+    if (mergeState.infoStream.isEnabled("VV")) {
+      mergeState.infoStream.message("VV", "merging " + mergeState.segmentInfo);
+    }
+    writeField(mergeFieldInfo, mergedVectorValues(mergeFieldInfo, mergeState));
+    if (mergeState.infoStream.isEnabled("VV")) {
+      mergeState.infoStream.message("VV", "merge done " + mergeState.segmentInfo);
+    }
+  }
+
+  /** Returns a view over the vector values of all the incoming segments of a merge, remapped to the
+   *  merged segment's doc IDs and skipping deleted documents. */
+  protected static VectorValues mergedVectorValues(FieldInfo mergeFieldInfo, MergeState mergeState) throws IOException {
+    List<VectorValuesSub> subs = new ArrayList<>();
+    int dimension = -1;
+    int cost = 0;
+    for (int i = 0; i < mergeState.vectorReaders.length; i++) {
+      VectorReader vectorReader = mergeState.vectorReaders[i];
+      if (vectorReader != null) {
+        FieldInfo readerFieldInfo = mergeState.fieldInfos[i].fieldInfo(mergeFieldInfo.name);
+        if (readerFieldInfo != null && readerFieldInfo.hasVectorValues()) {
+          int segmentDimension = readerFieldInfo.getVectorDimension();
+          if (dimension == -1) {
+            dimension = segmentDimension;
+          } else if (dimension != segmentDimension) {
+            throw new IllegalStateException("Varying dimensions for vector-valued field " + mergeFieldInfo.name
+                + ": " + dimension + "!=" + segmentDimension);
+          }
+          VectorValues values = vectorReader.getVectorValues(mergeFieldInfo.name);
+          if (values != null) {
+            subs.add(new VectorValuesSub(mergeState.docMaps[i], values));
+            cost += values.size();
+          }
+        }
+      }
+    }
+    return new MergerVectorValues(subs, mergeState, dimension, cost);
+  }
+
+  /** Tracks state of one sub-reader that we are merging */
+  private static class VectorValuesSub extends DocIDMerger.Sub {
+
+    final VectorValues values;
+
+    VectorValuesSub(MergeState.DocMap docMap, VectorValues values) {
+      super(docMap);
+      this.values = values;
+      assert values.docID() == -1;
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+      return values.nextDoc();
+    }
+  }
+
+  /**
+   * View over multiple VectorValues supporting iterator-style access via DocIdMerger.
+   */
+  private static class MergerVectorValues extends VectorValues {
+    private final DocIDMerger<VectorValuesSub> docIdMerger;
+    private final int dimension;
+    private final int cost;
+
+    private int docId;
+    private VectorValuesSub current;
+
+    MergerVectorValues(List<VectorValuesSub> subs, MergeState mergeState, int dimension, int cost) throws IOException {
+      this.docIdMerger = DocIDMerger.of(subs, mergeState.needsIndexSort);
+      this.dimension = dimension;
+      this.cost = cost;
+      docId = -1;
+    }
+
+    @Override
+    public int docID() {
+      return docId;
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+      current = docIdMerger.next();
+      if (current == null) {
+        docId = NO_MORE_DOCS;
+      } else {
+        docId = current.mappedDocID;
+      }
+      return docId;
+    }
+
+    @Override
+    public float[] vectorValue() throws IOException {
+      return current.values.vectorValue();
+    }
+
+    @Override
+    public BytesRef binaryValue() throws IOException {
+      return current.values.binaryValue();
+    }
+
+    @Override
+    public int advance(int target) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int size() {
+      // an upper bound: deleted documents are only skipped while iterating
+      return cost;
+    }
+
+    @Override
+    public int dimension() {
+      return dimension;
+    }
+  }
+}
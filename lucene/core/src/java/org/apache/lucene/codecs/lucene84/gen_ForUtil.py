@@ -15,8 +15,6 @@
 # See the License for the specific language governing permissions and
 # limitations under the License.
 
-from fractions import gcd
-
 """Code generation for ForUtil.java"""
 
 MAX_SPECIALIZED_BITS_PER_VALUE = 24
@@ -368,10 +366,10 @@ final class ForUtil {
 
 def writeRemainder(bpv, next_primitive, remaining_bits_per_long, o, num_values, f):
   iteration = 1
-  num_longs = bpv * num_values / remaining_bits_per_long
+  num_longs = bpv * num_values // remaining_bits_per_long
   while num_longs % 2 == 0 and num_values % 2 == 0:
-    num_longs /= 2
-    num_values /= 2
+    num_longs //= 2
+    num_values //= 2
     iteration *= 2
   f.write('    for (int iter = 0, tmpIdx = 0, longsIdx = %d; iter < %d; ++iter, tmpIdx += %d, longsIdx += %d) {\n' %(o, iteration, num_longs, num_values))
   i = 0
@@ -405,7 +403,7 @@ def writeDecode(bpv, f):
   elif bpv <= 16:
     next_primitive = 16
   f.write('  private static void decode%d(DataInput in, long[] tmp, long[] longs) throws IOException {\n' %bpv)
-  num_values_per_long = 64 / next_primitive
+  num_values_per_long = 64 // next_primitive
   if bpv == next_primitive:
     f.write('    in.readLELongs(longs, 0, %d);\n' %(bpv*2))
   else:
@@ -417,7 +415,7 @@ def writeDecode(bpv, f):
       o += bpv*2
       shift -= bpv
     if shift + bpv > 0:
-      writeRemainder(bpv, next_primitive, shift + bpv, o, 128/num_values_per_long - o, f)
+      writeRemainder(bpv, next_primitive, shift + bpv, o, 128//num_values_per_long - o, f)
   f.write('  }\n')
   f.write('\n')
 
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.codecs.lucene90;
+
+import java.io.IOException;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.VectorFormat;
+import org.apache.lucene.codecs.VectorReader;
+import org.apache.lucene.codecs.VectorWriter;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.util.hnsw.HnswGraph;
+import org.apache.lucene.util.hnsw.HnswGraphBuilder;
+
+/**
+ * Lucene 9.0 vector format, which encodes numeric vector values and an optional associated graph
+ * connecting the documents having values. The graph is used to power HNSW search. The format
+ * consists of three files:
+ * <ol>
+ *   <li><a id="vec"></a>
+ *   <p>The vector data or .vec file.</p>
+ *   <p>For each field, this stores the raw vector values as little-endian floats, in the order of
+ *      the (dense) vector ordinals, which follow the order of the documents that have a value.</p>
+ *   <p>Vector data (.vec) --&gt; Header,&lt; VectorValue<sup>Dimension</sup> &gt;<sup>Size</sup>,Footer</p>
+ *   <li><a id="vex"></a>
+ *   <p>The vector index or .vex file.</p>
+ *   <p>For each field, this stores the neighbors of every node of the {@link HnswGraph}, one level
+ *      after the other. Every node has a fixed-size slot on a level, so that its neighbors can be
+ *      found without an additional index:</p>
+ *   <p>Vector index (.vex) --&gt; Header,&lt; &lt; NumNeighbors, Neighbor<sup>MaxConnOnLevel</sup> &gt;<sup>NumNodesOnLevel</sup> &gt;<sup>NumLevels</sup>,Footer</p>
+ *   <ul>
+ *     <li>NumNeighbors, Neighbor --&gt; {@link DataOutput#writeInt Int32}</li>
+ *     <li>MaxConnOnLevel is twice the MaxConn of the field on level 0, and MaxConn on upper levels.
+ *         Unused neighbor slots are left as zeros.</li>
+ *   </ul>
+ *   <li><a id="vem"></a>
+ *   <p>The vector metadata or .vem file.</p>
+ *   <p>For each field, this stores where to find its vectors and graph, the mapping from vector
+ *      ordinals to documents, and the nodes of the upper levels of the graph:</p>
+ *   <p>Vector metadata (.vem) --&gt; Header,&lt; FieldNumber, SimilarityFunction, VectorDataOffset,
+ *      VectorDataLength, VectorIndexOffset, VectorIndexLength, Dimension, Size, DocID<sup>Size</sup>,
+ *      MaxConn, NumLevels, &lt; NumNodesOnLevel, Node<sup>NumNodesOnLevel</sup> &gt;<sup>NumLevels-1</sup>,
+ *      EntryNode &gt;<sup>NumFields</sup>,-1,Footer</p>
+ *   <ul>
+ *     <li>FieldNumber, SimilarityFunction, Dimension, Size, DocID, MaxConn, NumLevels, NumNodesOnLevel,
+ *         Node, EntryNode --&gt; {@link DataOutput#writeInt Int32}</li>
+ *     <li>VectorDataOffset, VectorDataLength, VectorIndexOffset, VectorIndexLength --&gt;
+ *         {@link DataOutput#writeVLong VLong}</li>
+ *   </ul>
+ * </ol>
+ * <p>Headers are {@link CodecUtil#writeIndexHeader IndexHeader}s, and footers are
+ * {@link CodecUtil#writeFooter CodecFooter}s.</p>
+ *
+ * @lucene.experimental
+ */
+public final class Lucene90VectorFormat extends VectorFormat {
+
+  static final String META_CODEC_NAME = "Lucene90VectorFormatMeta";
+  static final String VECTOR_DATA_CODEC_NAME = "Lucene90VectorFormatData";
+  static final String VECTOR_INDEX_CODEC_NAME = "Lucene90VectorFormatIndex";
+  static final String META_EXTENSION = "vem";
+  static final String VECTOR_DATA_EXTENSION = "vec";
+  static final String VECTOR_INDEX_EXTENSION = "vex";
+
+  static final int VERSION_START = 0;
+  static final int VERSION_CURRENT = VERSION_START;
+
+  private final int maxConn;
+  private final int beamWidth;
+
+  /** Creates a format with the default HNSW hyperparameters */
+  public Lucene90VectorFormat() {
+    this(HnswGraphBuilder.DEFAULT_MAX_CONN, HnswGraphBuilder.DEFAULT_BEAM_WIDTH);
+  }
+
+  /**
+   * Creates a format with the given HNSW hyperparameters.
+   *
+   * @param maxConn the maximum number of connections of a node on the upper levels of the graph;
+   *     nodes may have twice as many connections on level 0
+   * @param beamWidth the number of candidates explored while inserting a node in the graph
+   */
+  public Lucene90VectorFormat(int maxConn, int beamWidth) {
+    if (maxConn <= 0) {
+      throw new IllegalArgumentException("maxConn must be positive; got " + maxConn);
+    }
+    if (beamWidth <= 0) {
+      throw new IllegalArgumentException("beamWidth must be positive; got " + beamWidth);
+    }
+    this.maxConn = maxConn;
+    this.beamWidth = beamWidth;
+  }
+
+  @Override
+  public VectorWriter fieldsWriter(SegmentWriteState state) throws IOException {
+    return new Lucene90VectorWriter(state, maxConn, beamWidth);
+  }
+
+  @Override
+  public VectorReader fieldsReader(SegmentReadState state) throws IOException {
+    return new Lucene90VectorReader(state);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(maxConn=" + maxConn + ", beamWidth=" + beamWidth + ")";
+  }
+}
@@ -0,0 +1,526 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.codecs.lucene90;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.VectorReader;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.RandomAccessVectorValues;
+import org.apache.lucene.index.RandomAccessVectorValuesProducer;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.index.VectorValues;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.hnsw.HnswGraph;
+import org.apache.lucene.util.hnsw.HnswGraphSearcher;
+import org.apache.lucene.util.hnsw.NeighborQueue;
+
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+
+/**
+ * Reads vectors from the index segments along with index data structures supporting KNN search.
+ * Vectors and graphs are read off-heap; only the ordinal to document mapping and the nodes of the
+ * upper levels of the graphs are held in memory.
+ *
+ * @lucene.experimental
+ */
+public final class Lucene90VectorReader extends VectorReader {
+
+  private static final long SHALLOW_SIZE = RamUsageEstimator.shallowSizeOfInstance(Lucene90VectorReader.class);
+
+  private final FieldInfos fieldInfos;
+  private final Map<String, FieldEntry> fields = new HashMap<>();
+  private final IndexInput vectorData;
+  private final IndexInput vectorIndex;
+
+  Lucene90VectorReader(SegmentReadState state) throws IOException {
+    this.fieldInfos = state.fieldInfos;
+
+    int versionMeta = readMetadata(state);
+    boolean success = false;
+    try {
+      vectorData = openDataInput(state, versionMeta, Lucene90VectorFormat.VECTOR_DATA_EXTENSION, Lucene90VectorFormat.VECTOR_DATA_CODEC_NAME);
+      vectorIndex = openDataInput(state, versionMeta, Lucene90VectorFormat.VECTOR_INDEX_EXTENSION, Lucene90VectorFormat.VECTOR_INDEX_CODEC_NAME);
+      success = true;
+    } finally {
+      if (success == false) {
+        IOUtils.closeWhileHandlingException(this);
+      }
+    }
+  }
+
+  private int readMetadata(SegmentReadState state) throws IOException {
+    String metaFileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, Lucene90VectorFormat.META_EXTENSION);
+    int versionMeta = -1;
+    try (ChecksumIndexInput meta = state.directory.openChecksumInput(metaFileName, state.context)) {
+      Throwable priorE = null;
+      try {
+        versionMeta = CodecUtil.checkIndexHeader(meta,
+            Lucene90VectorFormat.META_CODEC_NAME,
+            Lucene90VectorFormat.VERSION_START,
+            Lucene90VectorFormat.VERSION_CURRENT,
+            state.segmentInfo.getId(),
+            state.segmentSuffix);
+        readFields(meta, state.fieldInfos);
+      } catch (Throwable exception) {
+        priorE = exception;
+      } finally {
+        CodecUtil.checkFooter(meta, priorE);
+      }
+    }
+    return versionMeta;
+  }
+
+  private static IndexInput openDataInput(SegmentReadState state, int versionMeta, String fileExtension, String codecName) throws IOException {
+    String fileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, fileExtension);
+    IndexInput in = state.directory.openInput(fileName, state.context);
+    boolean success = false;
+    try {
+      int versionData = CodecUtil.checkIndexHeader(in,
+          codecName,
+          Lucene90VectorFormat.VERSION_START,
+          Lucene90VectorFormat.VERSION_CURRENT,
+          state.segmentInfo.getId(),
+          state.segmentSuffix);
+      if (versionMeta != versionData) {
+        throw new CorruptIndexException("Format versions mismatch: meta=" + versionMeta + ", " + codecName + "=" + versionData, in);
+      }
+      // NOTE: data files are too costly to verify checksum against all the bytes on open,
+      // but for now we at least verify proper structure of the checksum footer: which looks
+      // for FOOTER_MAGIC + algorithmID. This is cheap and can detect some forms of corruption
+      // such as file truncation.
+      CodecUtil.retrieveChecksum(in);
+      success = true;
+      return in;
+    } finally {
+      if (success == false) {
+        IOUtils.closeWhileHandlingException(in);
+      }
+    }
+  }
+
+  private void readFields(ChecksumIndexInput meta, FieldInfos infos) throws IOException {
+    for (int fieldNumber = meta.readInt(); fieldNumber != -1; fieldNumber = meta.readInt()) {
+      FieldInfo info = infos.fieldInfo(fieldNumber);
+      if (info == null) {
+        throw new CorruptIndexException("Invalid field number: " + fieldNumber, meta);
+      }
+      FieldEntry fieldEntry = readField(meta, info);
+      validateFieldEntry(info, fieldEntry, meta);
+      fields.put(info.name, fieldEntry);
+    }
+  }
+
+  private static FieldEntry readField(IndexInput input, FieldInfo info) throws IOException {
+    int similarityFunctionId = input.readInt();
+    if (similarityFunctionId < 0 || similarityFunctionId >= VectorSimilarityFunction.values().length) {
+      throw new CorruptIndexException("Invalid similarity function id: " + similarityFunctionId, input);
+    }
+    VectorSimilarityFunction similarityFunction = VectorSimilarityFunction.values()[similarityFunctionId];
+    if (similarityFunction != info.getVectorSimilarityFunction()) {
+      throw new CorruptIndexException("Inconsistent similarity function for field=\"" + info.name + "\"; "
+          + similarityFunction + " != " + info.getVectorSimilarityFunction(), input);
+    }
+    return new FieldEntry(input, similarityFunction);
+  }
+
+  private static void validateFieldEntry(FieldInfo info, FieldEntry fieldEntry, IndexInput meta) throws CorruptIndexException {
+    int dimension = info.getVectorDimension();
+    if (dimension != fieldEntry.dimension) {
+      throw new CorruptIndexException("Inconsistent vector dimension for field=\"" + info.name + "\"; "
+          + dimension + " != " + fieldEntry.dimension, meta);
+    }
+    long numBytes = (long) fieldEntry.size() * dimension * Float.BYTES;
+    if (numBytes != fieldEntry.vectorDataLength) {
+      throw new CorruptIndexException("Vector data length " + fieldEntry.vectorDataLength
+          + " not matching size=" + fieldEntry.size() + " * dim=" + dimension + " * 4 = " + numBytes, meta);
+    }
+    long indexBytes = fieldEntry.levelOffsets[fieldEntry.numLevels];
+    if (indexBytes != fieldEntry.vectorIndexLength) {
+      throw new CorruptIndexException("Vector index length " + fieldEntry.vectorIndexLength
+          + " not matching the expected graph size " + indexBytes + " for field=\"" + info.name + "\"", meta);
+    }
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    long totalBytes = SHALLOW_SIZE;
+    totalBytes += RamUsageEstimator.sizeOfMap(fields, RamUsageEstimator.shallowSizeOfInstance(FieldEntry.class));
+    for (FieldEntry entry : fields.values()) {
+      totalBytes += RamUsageEstimator.sizeOf(entry.ordToDoc);
+      totalBytes += RamUsageEstimator.sizeOf(entry.levelOffsets);
+      for (int level = 1; level < entry.numLevels; level++) {
+        totalBytes += RamUsageEstimator.sizeOf(entry.nodesByLevel[level]);
+      }
+    }
+    return totalBytes;
+  }
+
+  @Override
+  public void checkIntegrity() throws IOException {
+    CodecUtil.checksumEntireFile(vectorData);
+    CodecUtil.checksumEntireFile(vectorIndex);
+  }
+
+  @Override
+  public VectorValues getVectorValues(String field) throws IOException {
+    FieldInfo info = fieldInfos.fieldInfo(field);
+    if (info == null) {
+      return null;
+    }
+    int dimension = info.getVectorDimension();
+    if (dimension == 0) {
+      return VectorValues.EMPTY;
+    }
+    FieldEntry fieldEntry = fields.get(field);
+    if (fieldEntry == null) {
+      // There is a FieldInfo, but no vectors. Should we have deleted the FieldInfo?
+      return null;
+    }
+    return getOffHeapVectorValues(fieldEntry);
+  }
+
+  @Override
+  public TopDocs search(String field, float[] target, int k, Bits acceptDocs) throws IOException {
+    FieldEntry fieldEntry = fields.get(field);
+    if (fieldEntry == null || fieldEntry.dimension == 0 || fieldEntry.size() == 0) {
+      return new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]);
+    }
+    if (target.length != fieldEntry.dimension) {
+      throw new IllegalArgumentException("vector query dimension: " + target.length
+          + " differs from field dimension: " + fieldEntry.dimension);
+    }
+    OffHeapVectorValues vectorValues = getOffHeapVectorValues(fieldEntry);
+    int topK = Math.min(k, fieldEntry.size());
+    NeighborQueue results = HnswGraphSearcher.search(target, topK, vectorValues, fieldEntry.similarityFunction,
+        getGraphValues(fieldEntry), getAcceptOrds(acceptDocs, fieldEntry));
+    int visitedCount = results.visitedCount();
+    // the queue is a min-heap: pop the least similar results first and fill the hits from the end
+    ScoreDoc[] scoreDocs = new ScoreDoc[results.size()];
+    for (int i = scoreDocs.length - 1; i >= 0; i--) {
+      float score = results.topScore();
+      int node = results.pop();
+      scoreDocs[i] = new ScoreDoc(fieldEntry.ordToDoc[node], score);
+    }
+    return new TopDocs(new TotalHits(visitedCount, TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO), scoreDocs);
+  }
+
+  /**
+   * Returns the graph of the given field, if it has one that was built with the given maximum
+   * number of connections per node, or null otherwise.
+   */
+  HnswGraph getGraph(String field, int maxConn) throws IOException {
+    FieldEntry fieldEntry = fields.get(field);
+    if (fieldEntry == null || fieldEntry.maxConn != maxConn) {
+      return null;
+    }
+    return getGraphValues(fieldEntry);
+  }
+
+  private OffHeapVectorValues getOffHeapVectorValues(FieldEntry fieldEntry) throws IOException {
+    IndexInput bytesSlice = vectorData.slice("vector-data", fieldEntry.vectorDataOffset, fieldEntry.vectorDataLength);
+    return new OffHeapVectorValues(fieldEntry.dimension, fieldEntry.ordToDoc, bytesSlice);
+  }
+
+  private HnswGraph getGraphValues(FieldEntry fieldEntry) throws IOException {
+    IndexInput bytesSlice = vectorIndex.slice("graph-data", fieldEntry.vectorIndexOffset, fieldEntry.vectorIndexLength);
+    return new OffHeapHnswGraph(fieldEntry, bytesSlice);
+  }
+
+  private static Bits getAcceptOrds(Bits acceptDocs, FieldEntry fieldEntry) {
+    if (acceptDocs == null) {
+      return null;
+    }
+    return new Bits() {
+      @Override
+      public boolean get(int index) {
+        return acceptDocs.get(fieldEntry.ordToDoc[index]);
+      }
+
+      @Override
+      public int length() {
+        return fieldEntry.ordToDoc.length;
+      }
+    };
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOUtils.close(vectorData, vectorIndex);
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(fields=" + fields.size() + ")";
+  }
+
+  private static class FieldEntry {
+
+    final int dimension;
+    final VectorSimilarityFunction similarityFunction;
+    final long vectorDataOffset;
+    final long vectorDataLength;
+    final long vectorIndexOffset;
+    final long vectorIndexLength;
+    final int[] ordToDoc;
+    final int maxConn;
+    final int numLevels;
+    // the nodes of each level, in increasing order; level 0 holds all the nodes and is left null
+    final int[][] nodesByLevel;
+    // the offset of each level in the graph data, plus the total length of the graph data at the end
+    final long[] levelOffsets;
+    final int entryNode;
+
+    FieldEntry(IndexInput input, VectorSimilarityFunction similarityFunction) throws IOException {
+      this.similarityFunction = similarityFunction;
+      vectorDataOffset = input.readVLong();
+      vectorDataLength = input.readVLong();
+      vectorIndexOffset = input.readVLong();
+      vectorIndexLength = input.readVLong();
+      dimension = input.readInt();
+      int size = input.readInt();
+      if (size < 0) {
+        throw new CorruptIndexException("Invalid vector count: " + size, input);
+      }
+      ordToDoc = new int[size];
+      for (int i = 0; i < size; i++) {
+        ordToDoc[i] = input.readInt();
+      }
+      maxConn = input.readInt();
+      numLevels = input.readInt();
+      if (maxConn <= 0 || numLevels < 0 || (numLevels == 0 && size != 0)) {
+        throw new CorruptIndexException("Invalid graph: maxConn=" + maxConn + ", numLevels=" + numLevels, input);
+      }
+      nodesByLevel = new int[numLevels][];
+      levelOffsets = new long[numLevels + 1];
+      for (int level = 0; level < numLevels; level++) {
+        int numNodesOnLevel;
+        if (level == 0) {
+          numNodesOnLevel = size;
+        } else {
+          numNodesOnLevel = input.readInt();
+          if (numNodesOnLevel <= 0 || numNodesOnLevel > size) {
+            throw new CorruptIndexException("Invalid number of nodes on level " + level + ": " + numNodesOnLevel, input);
+          }
+          nodesByLevel[level] = new int[numNodesOnLevel];
+          for (int i = 0; i < numNodesOnLevel; i++) {
+            nodesByLevel[level][i] = input.readInt();
+          }
+        }
+        levelOffsets[level + 1] = levelOffsets[level] + (long) numNodesOnLevel * slotBytes(level, maxConn);
+      }
+      entryNode = input.readInt();
+    }
+
+    int size() {
+      return ordToDoc.length;
+    }
+  }
+
+  /** Number of bytes used to store the neighbors of a single node on the given level */
+  static int slotBytes(int level, int maxConn) {
+    int maxConnOnLevel = level == 0 ? maxConn * 2 : maxConn;
+    return (1 + maxConnOnLevel) * Integer.BYTES;
+  }
+
+  /** Read the vector values from the index input. This supports both iterated and random access. */
+  static class OffHeapVectorValues extends VectorValues implements RandomAccessVectorValues, RandomAccessVectorValuesProducer {
+
+    final int dimension;
+    final int[] ordToDoc;
+    final IndexInput dataIn;
+
+    final BytesRef binaryValue;
+    final ByteBuffer byteBuffer;
+    final FloatBuffer floatBuffer;
+    final int byteSize;
+    final float[] value;
+
+    int ord = -1;
+    int doc = -1;
+
+    OffHeapVectorValues(int dimension, int[] ordToDoc, IndexInput dataIn) {
+      this.dimension = dimension;
+      this.ordToDoc = ordToDoc;
+      this.dataIn = dataIn;
+      byteSize = Float.BYTES * dimension;
+      byteBuffer = ByteBuffer.allocate(byteSize);
+      floatBuffer = byteBuffer.order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+      value = new float[dimension];
+      binaryValue = new BytesRef(byteBuffer.array(), byteBuffer.arrayOffset(), byteSize);
+    }
+
+    @Override
+    public int dimension() {
+      return dimension;
+    }
+
+    @Override
+    public int size() {
+      return ordToDoc.length;
+    }
+
+    @Override
+    public float[] vectorValue() throws IOException {
+      return vectorValue(ord);
+    }
+
+    @Override
+    public BytesRef binaryValue() throws IOException {
+      return binaryValue(ord);
+    }
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public int nextDoc() {
+      if (++ord >= size()) {
+        doc = NO_MORE_DOCS;
+      } else {
+        doc = ordToDoc[ord];
+      }
+      return doc;
+    }
+
+    @Override
+    public int advance(int target) {
+      assert docID() < target;
+      ord = Arrays.binarySearch(ordToDoc, ord + 1, ordToDoc.length, target);
+      if (ord < 0) {
+        ord = -(ord + 1);
+      }
+      assert ord <= ordToDoc.length;
+      if (ord == ordToDoc.length) {
+        doc = NO_MORE_DOCS;
+      } else {
+        doc = ordToDoc[ord];
+      }
+      return doc;
+    }
+
+    @Override
+    public RandomAccessVectorValues randomAccess() {
+      return new OffHeapVectorValues(dimension, ordToDoc, dataIn.clone());
+    }
+
+    @Override
+    public float[] vectorValue(int targetOrd) throws IOException {
+      readValue(targetOrd);
+      floatBuffer.position(0);
+      floatBuffer.get(value, 0, dimension);
+      return value;
+    }
+
+    @Override
+    public BytesRef binaryValue(int targetOrd) throws IOException {
+      readValue(targetOrd);
+      return binaryValue;
+    }
+
+    private void readValue(int targetOrd) throws IOException {
+      dataIn.seek((long) targetOrd * byteSize);
+      dataIn.readBytes(byteBuffer.array(), byteBuffer.arrayOffset(), byteSize);
+    }
+  }
+
+  /** Read the nearest-neighbors graph from the index input */
+  private static final class OffHeapHnswGraph extends HnswGraph {
+
+    final FieldEntry entry;
+    final IndexInput dataIn;
+
+    int arcCount;
+    int arcUpTo;
+
+    OffHeapHnswGraph(FieldEntry entry, IndexInput dataIn) {
+      this.entry = entry;
+      this.dataIn = dataIn;
+    }
+
+    @Override
+    public void seek(int level, int target) throws IOException {
+      long slot;
+      if (level == 0) {
+        slot = target;
+      } else {
+        slot = Arrays.binarySearch(entry.nodesByLevel[level], target);
+        assert slot >= 0 : "node " + target + " is not on level " + level;
+      }
+      dataIn.seek(entry.levelOffsets[level] + slot * slotBytes(level, entry.maxConn));
+      arcCount = dataIn.readInt();
+      arcUpTo = 0;
+    }
+
+    @Override
+    public int size() {
+      return entry.size();
+    }
+
+    @Override
+    public int nextNeighbor() throws IOException {
+      if (arcUpTo >= arcCount) {
+        return NO_MORE_DOCS;
+      }
+      ++arcUpTo;
+      return dataIn.readInt();
+    }
+
+    @Override
+    public int numLevels() {
+      return entry.numLevels;
+    }
+
+    @Override
+    public int entryNode() {
+      return entry.entryNode;
+    }
+
+    @Override
+    public int[] nodesOnLevel(int level) {
+      if (level == 0) {
+        int[] nodes = new int[entry.size()];
+        for (int i = 0; i < nodes.length; i++) {
+          nodes[i] = i;
+        }
+        return nodes;
+      }
+      return entry.nodesByLevel[level].clone();
+    }
+  }
+}
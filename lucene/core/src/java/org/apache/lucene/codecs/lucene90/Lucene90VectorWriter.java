@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.codecs.lucene90;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.codecs.VectorReader;
+import org.apache.lucene.codecs.VectorWriter;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.MergeState;
+import org.apache.lucene.index.RandomAccessVectorValuesProducer;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.VectorValues;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.hnsw.HnswGraph;
+import org.apache.lucene.util.hnsw.HnswGraphBuilder;
+import org.apache.lucene.util.hnsw.NeighborArray;
+import org.apache.lucene.util.hnsw.OnHeapHnswGraph;
+
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+
+/**
+ * Writes vector values and knn graphs to index segments.
+ *
+ * @lucene.experimental
+ */
+public final class Lucene90VectorWriter extends VectorWriter {
+
+  private final SegmentWriteState segmentWriteState;
+  private final IndexOutput meta, vectorData, vectorIndex;
+  private final int maxConn;
+  private final int beamWidth;
+
+  private boolean finished;
+
+  Lucene90VectorWriter(SegmentWriteState state, int maxConn, int beamWidth) throws IOException {
+    this.maxConn = maxConn;
+    this.beamWidth = beamWidth;
+    segmentWriteState = state;
+
+    String metaFileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, Lucene90VectorFormat.META_EXTENSION);
+    String vectorDataFileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, Lucene90VectorFormat.VECTOR_DATA_EXTENSION);
+    String indexDataFileName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, Lucene90VectorFormat.VECTOR_INDEX_EXTENSION);
+
+    boolean success = false;
+    try {
+      meta = state.directory.createOutput(metaFileName, state.context);
+      vectorData = state.directory.createOutput(vectorDataFileName, state.context);
+      vectorIndex = state.directory.createOutput(indexDataFileName, state.context);
+
+      CodecUtil.writeIndexHeader(meta,
+          Lucene90VectorFormat.META_CODEC_NAME,
+          Lucene90VectorFormat.VERSION_CURRENT,
+          state.segmentInfo.getId(), state.segmentSuffix);
+      CodecUtil.writeIndexHeader(vectorData,
+          Lucene90VectorFormat.VECTOR_DATA_CODEC_NAME,
+          Lucene90VectorFormat.VERSION_CURRENT,
+          state.segmentInfo.getId(), state.segmentSuffix);
+      CodecUtil.writeIndexHeader(vectorIndex,
+          Lucene90VectorFormat.VECTOR_INDEX_CODEC_NAME,
+          Lucene90VectorFormat.VERSION_CURRENT,
+          state.segmentInfo.getId(), state.segmentSuffix);
+      success = true;
+    } finally {
+      if (success == false) {
+        IOUtils.closeWhileHandlingException(this);
+      }
+    }
+  }
+
+  @Override
+  public void writeField(FieldInfo fieldInfo, VectorValues vectors) throws IOException {
+    writeField(fieldInfo, vectors, null);
+  }
+
+  /**
+   * Merges the vectors of a field. If the vectors of the first incoming segment keep their ordinals
+   * in the merged segment, which is the case when that segment has no deletions and the index is
+   * not sorted, its graph is reused as a starting point and only the vectors of the other segments
+   * are inserted into it.
+   */
+  @Override
+  protected void mergeVectors(FieldInfo mergeFieldInfo, MergeState mergeState) throws IOException {
+    HnswGraph initializer = getInitializerGraph(mergeFieldInfo, mergeState);
+    if (mergeState.infoStream.isEnabled("VV")) {
+      mergeState.infoStream.message("VV", "merging " + mergeState.segmentInfo
+          + (initializer == null ? "" : " starting from a graph of " + initializer.size() + " nodes"));
+    }
+    writeField(mergeFieldInfo, mergedVectorValues(mergeFieldInfo, mergeState), initializer);
+    if (mergeState.infoStream.isEnabled("VV")) {
+      mergeState.infoStream.message("VV", "merge done " + mergeState.segmentInfo);
+    }
+  }
+
+  private HnswGraph getInitializerGraph(FieldInfo mergeFieldInfo, MergeState mergeState) throws IOException {
+    if (mergeState.needsIndexSort || mergeState.vectorReaders.length == 0 || mergeState.liveDocs[0] != null) {
+      return null;
+    }
+    VectorReader reader = mergeState.vectorReaders[0];
+    if (reader instanceof Lucene90VectorReader) {
+      return ((Lucene90VectorReader) reader).getGraph(mergeFieldInfo.name, maxConn);
+    }
+    return null;
+  }
+
+  private void writeField(FieldInfo fieldInfo, VectorValues vectors, HnswGraph initializer) throws IOException {
+    if (vectors instanceof RandomAccessVectorValuesProducer) {
+      long vectorDataOffset = vectorData.getFilePointer();
+      int[] docIds = writeVectorData(vectorData, vectors);
+      long vectorDataLength = vectorData.getFilePointer() - vectorDataOffset;
+      writeGraphAndMeta(fieldInfo, (RandomAccessVectorValuesProducer) vectors, initializer, docIds, vectorDataOffset, vectorDataLength);
+      return;
+    }
+
+    // Building the graph requires random access to the vectors, so we write them to a temporary
+    // file first, and read them back from there.
+    IndexOutput tempVectorData = segmentWriteState.directory.createTempOutput(vectorData.getName(), "temp", segmentWriteState.context);
+    IndexInput tempVectorInput = null;
+    boolean success = false;
+    try {
+      int[] docIds = writeVectorData(tempVectorData, vectors);
+      CodecUtil.writeFooter(tempVectorData);
+      IOUtils.close(tempVectorData);
+
+      tempVectorInput = segmentWriteState.directory.openInput(tempVectorData.getName(), segmentWriteState.context);
+      long tempLength = tempVectorInput.length() - CodecUtil.footerLength();
+      long vectorDataOffset = vectorData.getFilePointer();
+      vectorData.copyBytes(tempVectorInput, tempLength);
+      CodecUtil.retrieveChecksum(tempVectorInput);
+      long vectorDataLength = vectorData.getFilePointer() - vectorDataOffset;
+
+      Lucene90VectorReader.OffHeapVectorValues offHeapVectors = new Lucene90VectorReader.OffHeapVectorValues(
+          vectors.dimension(), docIds, tempVectorInput.slice("temp-vector-data", 0, tempLength));
+      writeGraphAndMeta(fieldInfo, offHeapVectors, initializer, docIds, vectorDataOffset, vectorDataLength);
+      success = true;
+    } finally {
+      if (success) {
+        IOUtils.close(tempVectorInput);
+      } else {
+        IOUtils.closeWhileHandlingException(tempVectorData, tempVectorInput);
+      }
+      IOUtils.deleteFilesIgnoringExceptions(segmentWriteState.directory, tempVectorData.getName());
+    }
+  }
+
+  /** Writes the vector values to the output and returns the documents that have them, in order. */
+  private static int[] writeVectorData(IndexOutput output, VectorValues vectors) throws IOException {
+    // size() is only an upper bound when merging segments that have deletions
+    int[] docIds = new int[vectors.size()];
+    int count = 0;
+    ByteBuffer buffer = ByteBuffer.allocate(vectors.dimension() * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    for (int docV = vectors.nextDoc(); docV != NO_MORE_DOCS; docV = vectors.nextDoc(), count++) {
+      buffer.asFloatBuffer().put(vectors.vectorValue());
+      output.writeBytes(buffer.array(), buffer.array().length);
+      docIds[count] = docV;
+    }
+    if (count < docIds.length) {
+      docIds = ArrayUtil.copyOfSubArray(docIds, 0, count);
+    }
+    return docIds;
+  }
+
+  private void writeGraphAndMeta(FieldInfo fieldInfo, RandomAccessVectorValuesProducer vectors, HnswGraph initializer,
+                                 int[] docIds, long vectorDataOffset, long vectorDataLength) throws IOException {
+    HnswGraphBuilder builder = new HnswGraphBuilder(vectors, fieldInfo.getVectorSimilarityFunction(),
+        maxConn, beamWidth, HnswGraphBuilder.DEFAULT_RAND_SEED);
+    builder.setInfoStream(segmentWriteState.infoStream);
+    if (initializer != null) {
+      builder.initializeFromGraph(initializer);
+    }
+    OnHeapHnswGraph graph = builder.build(vectors.randomAccess());
+
+    long vectorIndexOffset = vectorIndex.getFilePointer();
+    writeGraph(graph);
+    long vectorIndexLength = vectorIndex.getFilePointer() - vectorIndexOffset;
+
+    meta.writeInt(fieldInfo.number);
+    meta.writeInt(fieldInfo.getVectorSimilarityFunction().ordinal());
+    meta.writeVLong(vectorDataOffset);
+    meta.writeVLong(vectorDataLength);
+    meta.writeVLong(vectorIndexOffset);
+    meta.writeVLong(vectorIndexLength);
+    meta.writeInt(fieldInfo.getVectorDimension());
+    meta.writeInt(docIds.length);
+    for (int docId : docIds) {
+      // TODO: delta-encode, or write as bitset
+      meta.writeInt(docId);
+    }
+    meta.writeInt(maxConn);
+    int numLevels = graph.numLevels();
+    meta.writeInt(numLevels);
+    for (int level = 1; level < numLevels; level++) {
+      int[] nodes = graph.nodesOnLevel(level);
+      meta.writeInt(nodes.length);
+      for (int node : nodes) {
+        meta.writeInt(node);
+      }
+    }
+    meta.writeInt(graph.entryNode());
+  }
+
+  /** Writes the neighbors of each node into a fixed-size slot, level by level */
+  private void writeGraph(OnHeapHnswGraph graph) throws IOException {
+    int numLevels = graph.numLevels();
+    for (int level = 0; level < numLevels; level++) {
+      int maxConnOnLevel = level == 0 ? maxConn * 2 : maxConn;
+      for (int node : graph.nodesOnLevel(level)) {
+        NeighborArray neighbors = graph.getNeighbors(level, node);
+        int size = neighbors.size();
+        assert size <= maxConnOnLevel : "node " + node + " has " + size + " neighbors on level " + level;
+        vectorIndex.writeInt(size);
+        for (int i = 0; i < size; i++) {
+          vectorIndex.writeInt(neighbors.node(i));
+        }
+        for (int i = size; i < maxConnOnLevel; i++) {
+          vectorIndex.writeInt(0);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void finish() throws IOException {
+    if (finished) {
+      throw new IllegalStateException("already finished");
+    }
+    finished = true;
+
+    if (meta != null) {
+      // write end of fields marker
+      meta.writeInt(-1);
+      CodecUtil.writeFooter(meta);
+    }
+    if (vectorData != null) {
+      CodecUtil.writeFooter(vectorData);
+      CodecUtil.writeFooter(vectorIndex);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    IOUtils.close(meta, vectorData, vectorIndex);
+  }
+}
@@ -218,6 +218,9 @@ public final class CheckIndex implements Closeable {
       /** Status for testing of PointValues (null if PointValues could not be tested). */
       public PointsStatus pointsStatus;
 
+      /** Status for testing of VectorValues (null if VectorValues could not be tested). */
+      public VectorValuesStatus vectorValuesStatus;
+
       /** Status of index sort */
       public IndexSortStatus indexSortStatus;
     }
@@ -378,6 +381,24 @@ public final class CheckIndex implements Closeable {
       public Throwable error = null;
     }
 
+    /**
+     * Status from testing VectorValues
+     */
+    public static final class VectorValuesStatus {
+
+      VectorValuesStatus() {
+      }
+
+      /** Total number of vector values tested. */
+      public long totalVectorValues;
+
+      /** Total number of fields with vectors. */
+      public int totalVectorFields;
+
+      /** Exception thrown during vector values test (null on success) */
+      public Throwable error = null;
+    }
+
     /**
      * Status from testing index sort
      */
@@ -731,6 +752,9 @@ public final class CheckIndex implements Closeable {
           // Test PointValues
           segInfoStat.pointsStatus = testPoints(reader, infoStream, failFast);
 
+          // Test VectorValues
+          segInfoStat.vectorValuesStatus = testVectors(reader, infoStream, failFast);
+
           // Test index sort
           segInfoStat.indexSortStatus = testSort(reader, indexSort, infoStream, failFast);
 
@@ -752,6 +776,8 @@ public final class CheckIndex implements Closeable {
             throw new RuntimeException("DocValues test failed");
           } else if (segInfoStat.pointsStatus.error != null) {
             throw new RuntimeException("Points test failed");
+          } else if (segInfoStat.vectorValuesStatus.error != null) {
+            throw new RuntimeException("Vectors test failed");
           }
         }
         final String softDeletesField = reader.getFieldInfos().getSoftDeletesField();
@@ -1955,6 +1981,73 @@ public final class CheckIndex implements Closeable {
     return status;
   }
 
+  /**
+   * Test the vectors index
+   * @lucene.experimental
+   */
+  public static Status.VectorValuesStatus testVectors(CodecReader reader, PrintStream infoStream, boolean failFast) throws IOException {
+    if (infoStream != null) {
+      infoStream.print("    test: vectors.............");
+    }
+    long startNS = System.nanoTime();
+    FieldInfos fieldInfos = reader.getFieldInfos();
+    Status.VectorValuesStatus status = new Status.VectorValuesStatus();
+    try {
+
+      if (fieldInfos.hasVectorValues()) {
+        for (FieldInfo fieldInfo : fieldInfos) {
+          if (fieldInfo.hasVectorValues()) {
+            int dimension = fieldInfo.getVectorDimension();
+            if (dimension <= 0) {
+              throw new RuntimeException("Field \"" + fieldInfo.name + "\" has vector values but dimension is " + dimension);
+            }
+            VectorValues values = reader.getVectorValues(fieldInfo.name);
+            if (values == null) {
+              continue;
+            }
+
+            status.totalVectorFields++;
+
+            int docCount = 0;
+            int lastDoc = -1;
+            for (int doc = values.nextDoc(); doc != NO_MORE_DOCS; doc = values.nextDoc()) {
+              if (doc <= lastDoc) {
+                throw new RuntimeException("Field \"" + fieldInfo.name + "\" has out of order docs: " + doc + " after " + lastDoc);
+              }
+              if (doc >= reader.maxDoc()) {
+                throw new RuntimeException("Field \"" + fieldInfo.name + "\" has doc " + doc + " beyond maxDoc=" + reader.maxDoc());
+              }
+              float[] vectorValue = values.vectorValue();
+              if (vectorValue.length != dimension) {
+                throw new RuntimeException("Field \"" + fieldInfo.name + "\" has a value whose dimension=" + vectorValue.length + " not matching field dimension=" + dimension);
+              }
+              lastDoc = doc;
+              ++docCount;
+            }
+            if (docCount != values.size()) {
+              throw new RuntimeException("Field \"" + fieldInfo.name + "\" has size=" + values.size() + " but when iterated, returns " + docCount + " docs with values");
+            }
+            status.totalVectorValues += docCount;
+          }
+        }
+      }
+
+      msg(infoStream, String.format(Locale.ROOT, "OK [%d fields, %d vectors] [took %.3f sec]", status.totalVectorFields, status.totalVectorValues, nsToSec(System.nanoTime()-startNS)));
+
+    } catch (Throwable e) {
+      if (failFast) {
+        throw IOUtils.rethrowAlways(e);
+      }
+      msg(infoStream, "ERROR: " + e);
+      status.error = e;
+      if (infoStream != null) {
+        e.printStackTrace(infoStream);
+      }
+    }
+
+    return status;
+  }
+
   /** Walks the entire N-dimensional points space, verifying that all points fall within the last cell's boundaries.
    *
    * @lucene.internal */
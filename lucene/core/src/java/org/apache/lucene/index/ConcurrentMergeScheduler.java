@@ -21,8 +21,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.index.MergePolicy.OneMerge;
+import org.apache.lucene.index.MergePolicy.OneMergeProgress.PauseReason;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FilterDirectory;
@@ -60,6 +62,13 @@ import org.apache.lucene.util.ThreadInterruptedException;
  *  disk for backwards compatibility.  To enable default
  *  settings for spinning or solid state disks for such
  *  operating systems, use {@link #setDefaultMaxMergesAndThreads(boolean)}.
+ *
+ *  <p>Applications that search the index while merges are running may
+ *  report search latencies with {@link #recordSearchLatency(long)}. When
+ *  the average latency exceeds {@link #setSearchLatencyThresholdMillis the
+ *  configured threshold}, big merges are preempted until the search load
+ *  goes down, unless indexing would have to stall on them. Small and forced
+ *  merges are never preempted.</p>
  */ 
 
 public class ConcurrentMergeScheduler extends MergeScheduler {
@@ -121,6 +130,30 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
 
   private double forceMergeMBPerSec = Double.POSITIVE_INFINITY;
 
+  /** Moving average of the write rate of finished big merges while they were not paused, or 0 if unknown */
+  private double measuredMBPerSec;
+
+  /** Total time that merges have been preempted for searches */
+  private long totalPreemptedNS;
+
+  /** Set when the writer is closing, in which case merges should complete as fast as possible */
+  private boolean closing;
+
+  /** Searches are considered under load for this long after the last search latency was recorded */
+  private static final long SEARCH_LOAD_EXPIRY_NS = TimeUnit.SECONDS.toNanos(1);
+
+  /** How long preempted merges sleep before checking the search load again */
+  private static final long PREEMPT_CHECK_NS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  /** Weight of a new search latency in the moving average */
+  private static final double SEARCH_LATENCY_ALPHA = 0.1;
+
+  // searches record their latency concurrently with merge scheduling, so they use a separate lock
+  private final Object searchLoadLock = new Object();
+  private volatile double searchLatencyThresholdMillis = Double.POSITIVE_INFINITY;
+  private double avgSearchLatencyMillis;
+  private long lastSearchLatencyNS;
+
   /** Sole constructor, with all settings set to default
    *  values. */
   public ConcurrentMergeScheduler() {
@@ -224,6 +257,88 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
     return doAutoIOThrottle;
   }
 
+  /** Set the average search latency above which big merges are preempted in
+   *  order to leave resources to searches, see {@link #recordSearchLatency(long)}.
+   *  By default this is {@code Double.POSITIVE_INFINITY}, meaning that merges
+   *  are never preempted. */
+  public void setSearchLatencyThresholdMillis(double v) {
+    if (v <= 0 || Double.isNaN(v)) {
+      throw new IllegalArgumentException("searchLatencyThresholdMillis must be positive; got: " + v);
+    }
+    searchLatencyThresholdMillis = v;
+  }
+
+  /** Get the average search latency above which big merges are preempted. */
+  public double getSearchLatencyThresholdMillis() {
+    return searchLatencyThresholdMillis;
+  }
+
+  /** Record the latency of a search, in nanoseconds. This may be called
+   *  concurrently by search threads, and is only useful if
+   *  {@link #setSearchLatencyThresholdMillis} has been set. */
+  public void recordSearchLatency(long latencyNS) {
+    final double latencyMillis = latencyNS / 1000000.0;
+    final long now = System.nanoTime();
+    synchronized (searchLoadLock) {
+      if (lastSearchLatencyNS == 0 || now - lastSearchLatencyNS > SEARCH_LOAD_EXPIRY_NS) {
+        // no recent searches, start over
+        avgSearchLatencyMillis = latencyMillis;
+      } else {
+        avgSearchLatencyMillis += SEARCH_LATENCY_ALPHA * (latencyMillis - avgSearchLatencyMillis);
+      }
+      lastSearchLatencyNS = now;
+    }
+  }
+
+  /** Returns true if recently recorded search latencies are above the
+   *  {@link #setSearchLatencyThresholdMillis threshold}, in which case big
+   *  merges are preempted. */
+  public boolean isSearchUnderLoad() {
+    final long now = System.nanoTime();
+    synchronized (searchLoadLock) {
+      return lastSearchLatencyNS != 0
+          && now - lastSearchLatencyNS <= SEARCH_LOAD_EXPIRY_NS
+          && avgSearchLatencyMillis > searchLatencyThresholdMillis;
+    }
+  }
+
+  /** Returns the estimated number of bytes that running merges still have to write. */
+  public synchronized long getMergeBacklogBytes() {
+    long bytes = 0;
+    for (MergeThread mergeThread : mergeThreads) {
+      if (mergeThread.isAlive()) {
+        bytes += Math.max(0, mergeThread.merge.estimatedMergeBytes - mergeThread.rateLimiter.getTotalBytesWritten());
+      }
+    }
+    return bytes;
+  }
+
+  /** Returns the number of merges that are currently paused, either because
+   *  more than {@link #getMaxThreadCount} merges are running or because they
+   *  are preempted for searches. */
+  public synchronized int getPausedMergeCount() {
+    int count = 0;
+    for (MergeThread mergeThread : mergeThreads) {
+      if (mergeThread.isAlive() && (mergeThread.preempted || mergeThread.rateLimiter.getMBPerSec() == 0.0)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Returns the total time that merges have been preempted for searches, in nanoseconds. */
+  public synchronized long getTotalPreemptedNS() {
+    return totalPreemptedNS;
+  }
+
+  /** Returns the write rate that big merges achieved when they were not
+   *  paused, in MB/sec, or 0 if no big merge has finished yet. The auto IO
+   *  throttle never goes above this rate, as this would only delay throttling
+   *  when it is needed again. */
+  public synchronized double getMeasuredMergeMBPerSec() {
+    return measuredMBPerSec;
+  }
+
   /** Returns the currently set per-merge IO writes rate limit, if {@link #enableAutoIOThrottle}
    *  was called, else {@code Double.POSITIVE_INFINITY}. */
   public synchronized double getIORateLimitMBPerSec() {
@@ -269,7 +384,29 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
     }
 
     // Return a wrapped Directory which has rate-limited output.
-    RateLimiter rateLimiter = ((MergeThread) mergeThread).rateLimiter;
+    final MergeRateLimiter mergeRateLimiter = ((MergeThread) mergeThread).rateLimiter;
+    final RateLimiter rateLimiter = new RateLimiter() {
+      @Override
+      public void setMBPerSec(double mbPerSec) {
+        mergeRateLimiter.setMBPerSec(mbPerSec);
+      }
+
+      @Override
+      public double getMBPerSec() {
+        return mergeRateLimiter.getMBPerSec();
+      }
+
+      @Override
+      public long pause(long bytes) throws IOException {
+        final long preemptedNS = maybePreempt((MergeThread) mergeThread);
+        return preemptedNS + mergeRateLimiter.pause(bytes);
+      }
+
+      @Override
+      public long getMinPauseCheckBytes() {
+        return mergeRateLimiter.getMinPauseCheckBytes();
+      }
+    };
     return new FilterDirectory(in) {
       @Override
       public IndexOutput createOutput(String name, IOContext context) throws IOException {
@@ -290,6 +427,75 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
     };
   }
   
+  /** Returns true if the given merge thread should be preempted for searches. */
+  private synchronized boolean shouldPreempt(MergeThread mergeThread) {
+    final OneMerge merge = mergeThread.merge;
+    if (closing || merge.isAborted() || merge.maxNumSegments != -1
+        || merge.estimatedMergeBytes < MIN_BIG_MERGE_MB*1024*1024) {
+      return false;
+    }
+    if (mergeThreads.size() >= maxMergeCount) {
+      // indexing is stalled or about to stall on merges, which would hurt more than the merge
+      return false;
+    }
+    return isSearchUnderLoad();
+  }
+
+  /** Pauses the calling merge thread while it should be preempted for searches,
+   *  and returns the number of nanoseconds it was paused for. */
+  private long maybePreempt(MergeThread mergeThread) {
+    if (searchLatencyThresholdMillis == Double.POSITIVE_INFINITY || shouldPreempt(mergeThread) == false) {
+      return 0;
+    }
+    if (verbose()) {
+      message("preempt merge thread " + mergeThread.getName() + ": searches are under load");
+    }
+    final long start = System.nanoTime();
+    mergeThread.preempted = true;
+    try {
+      do {
+        mergeThread.merge.getMergeProgress().pauseNanos(PREEMPT_CHECK_NS, PauseReason.STOPPED, () -> true);
+      } while (shouldPreempt(mergeThread));
+    } catch (InterruptedException ie) {
+      throw new ThreadInterruptedException(ie);
+    } finally {
+      mergeThread.preempted = false;
+    }
+    final long preemptedNS = System.nanoTime() - start;
+    synchronized (this) {
+      totalPreemptedNS += preemptedNS;
+    }
+    if (verbose()) {
+      message(String.format(Locale.ROOT, "resume merge thread %s after %.1fs", mergeThread.getName(), nsToSec(preemptedNS)));
+    }
+    return preemptedNS;
+  }
+
+  /** Records the write rate of a finished merge, excluding the time it was paused. */
+  private synchronized void updateMeasuredMBPerSec(MergeThread mergeThread) {
+    final OneMerge merge = mergeThread.merge;
+    final MergeRateLimiter rateLimiter = mergeThread.rateLimiter;
+    final long bytesWritten = rateLimiter.getTotalBytesWritten();
+    if (merge.mergeStartNS == -1 || bytesToMB(bytesWritten) < MIN_BIG_MERGE_MB) {
+      // small merges don't run long enough to give a meaningful rate
+      return;
+    }
+    final long activeNS = System.nanoTime() - merge.mergeStartNS - rateLimiter.getTotalStoppedNS() - rateLimiter.getTotalPausedNS();
+    if (activeNS <= 0) {
+      return;
+    }
+    final double mbPerSec = bytesToMB(bytesWritten) / nsToSec(activeNS);
+    if (measuredMBPerSec == 0) {
+      measuredMBPerSec = mbPerSec;
+    } else {
+      measuredMBPerSec = (measuredMBPerSec + mbPerSec) / 2;
+    }
+    if (verbose()) {
+      message(String.format(Locale.ROOT, "merge thread %s wrote at %.1f MB/sec when not paused; measured rate is now %.1f MB/sec",
+                            mergeThread.getName(), mbPerSec, measuredMBPerSec));
+    }
+  }
+
   /**
    * Called whenever the running merges have changed, to set merge IO limits.
    * This method sorts the merge threads by their merge size in
@@ -501,8 +707,9 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
     initDynamicDefaults(writer);
 
     if (trigger == MergeTrigger.CLOSING) {
-      // Disable throttling on close:
+      // Disable throttling and preemption on close:
       targetMBPerSec = MAX_MERGE_MB_PER_SEC;
+      closing = true;
       updateMergeThreads();
     }
 
@@ -638,6 +845,7 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
     final IndexWriter writer;
     final OneMerge merge;
     final MergeRateLimiter rateLimiter;
+    volatile boolean preempted;
 
     /** Sole constructor. */
     public MergeThread(IndexWriter writer, OneMerge merge) {
@@ -665,6 +873,8 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
           message("  merge thread: done");
         }
 
+        updateMeasuredMBPerSec(this);
+
         // Let CMS run new merges if necessary:
         try {
           merge(writer, MergeTrigger.MERGE_FINISHED, true);
@@ -728,6 +938,9 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
     sb.append("maxThreadCount=").append(maxThreadCount).append(", ");    
     sb.append("maxMergeCount=").append(maxMergeCount).append(", ");    
     sb.append("ioThrottle=").append(doAutoIOThrottle);
+    if (searchLatencyThresholdMillis != Double.POSITIVE_INFINITY) {
+      sb.append(", searchLatencyThresholdMillis=").append(searchLatencyThresholdMillis);
+    }
     return sb.toString();
   }
 
@@ -790,10 +1003,15 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
     double curMBPerSec = targetMBPerSec;
 
     if (newBacklog) {
-      // This new merge adds to the backlog: increase IO throttle by 20%
+      // This new merge adds to the backlog: increase IO throttle by 20%, but
+      // not above what merges can actually write, if we know it:
       targetMBPerSec *= 1.20;
-      if (targetMBPerSec > MAX_MERGE_MB_PER_SEC) {
-        targetMBPerSec = MAX_MERGE_MB_PER_SEC;
+      double maxMBPerSec = MAX_MERGE_MB_PER_SEC;
+      if (measuredMBPerSec != 0) {
+        maxMBPerSec = Math.max(MIN_MERGE_MB_PER_SEC, Math.min(maxMBPerSec, measuredMBPerSec));
+      }
+      if (targetMBPerSec > maxMBPerSec) {
+        targetMBPerSec = Math.max(curMBPerSec, maxMBPerSec);
       }
       if (verbose()) {
         if (curMBPerSec == targetMBPerSec) {
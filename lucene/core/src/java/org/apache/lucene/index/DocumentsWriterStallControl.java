@@ -40,6 +40,8 @@ import org.apache.lucene.util.ThreadInterruptedException;
 final class DocumentsWriterStallControl {
   
   private volatile boolean stalled;
+  private long stallCount;
+  private long stallTimeNanos;
   private int numWaiting; // only with assert
   private boolean wasStalled; // only with assert
   private final Map<Thread, Boolean> waiting = new IdentityHashMap<>(); // only with assert
@@ -73,9 +75,12 @@ final class DocumentsWriterStallControl {
           // don't loop here, higher level logic will re-stall!
           try {
             incWaiters();
+            final long startNS = System.nanoTime();
             // Defensive, in case we have a concurrency bug that fails to .notify/All our thread:
             // just wait for up to 1 second here, and let caller re-stall if it's still needed:
             wait(1000);
+            stallTimeNanos += System.nanoTime() - startNS;
+            stallCount++;
             decrWaiters();
           } catch (InterruptedException e) {
             throw new ThreadInterruptedException(e);
@@ -88,6 +93,16 @@ final class DocumentsWriterStallControl {
   boolean anyStalledThreads() {
     return stalled;
   }
+
+  /** Returns how many times a thread blocked in {@link #waitIfStalled()}. */
+  synchronized long getStallCount() {
+    return stallCount;
+  }
+
+  /** Returns the total time that threads spent blocked in {@link #waitIfStalled()}. */
+  synchronized long getStallTimeNanos() {
+    return stallTimeNanos;
+  }
   
   private void incWaiters() {
     numWaiting++;
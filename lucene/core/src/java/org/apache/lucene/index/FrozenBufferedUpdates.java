@@ -26,6 +26,10 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.IntConsumer;
@@ -42,6 +46,7 @@ import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
 import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.ThreadInterruptedException;
 
 /**
  * Holds buffered deletes and updates by term or query, once pushed. Pushed
@@ -246,7 +251,7 @@ final class FrozenBufferedUpdates {
         try (Closeable finalizer = () -> finishApply(writer, segStates, success.get(), delFiles)) {
           assert finalizer != null; // access the finalizer to prevent a warning
           // don't hold IW monitor lock here so threads are free concurrently resolve deletes/updates:
-          delCount = apply(segStates);
+          delCount = apply(segStates, writer.config.getApplyUpdatesExecutor());
           success.set(true);
         }
 
@@ -401,8 +406,8 @@ final class FrozenBufferedUpdates {
   }
 
   /** Applies pending delete-by-term, delete-by-query and doc values updates to all segments in the index, returning
-   *  the number of new deleted or updated documents. */
-  private long apply(BufferedUpdatesStream.SegmentState[] segStates) throws IOException {
+   *  the number of new deleted or updated documents. Segments are processed concurrently if an executor is given. */
+  private long apply(BufferedUpdatesStream.SegmentState[] segStates, Executor executor) throws IOException {
     assert applyLock.isHeldByCurrentThread();
     if (delGen == -1) {
       // we were not yet pushed
@@ -416,13 +421,57 @@ final class FrozenBufferedUpdates {
       assert privateSegment == segStates[0].reader.getOriginalSegmentInfo();
     }
 
-    totalDelCount += applyTermDeletes(segStates);
-    totalDelCount += applyQueryDeletes(segStates);
-    totalDelCount += applyDocValuesUpdates(segStates);
+    if (executor == null || segStates.length <= 1) {
+      totalDelCount += applyTermDeletes(segStates);
+      totalDelCount += applyQueryDeletes(segStates);
+      totalDelCount += applyDocValuesUpdates(segStates);
+    } else {
+      totalDelCount += applyConcurrently(segStates, executor);
+    }
 
     return totalDelCount;
   }
 
+  /** Applies this packet to each segment in its own task. Segments are independent of each other, and each segment still
+   *  sees term deletes, then query deletes, then doc values updates, like when applied sequentially. */
+  private long applyConcurrently(BufferedUpdatesStream.SegmentState[] segStates, Executor executor) throws IOException {
+    final List<FutureTask<Long>> tasks = new ArrayList<>(segStates.length);
+    for (BufferedUpdatesStream.SegmentState segState : segStates) {
+      final BufferedUpdatesStream.SegmentState[] oneSegState = new BufferedUpdatesStream.SegmentState[] {segState};
+      tasks.add(new FutureTask<>(() ->
+          applyTermDeletes(oneSegState) + applyQueryDeletes(oneSegState) + applyDocValuesUpdates(oneSegState)));
+    }
+    for (int i = 1; i < tasks.size(); i++) {
+      try {
+        executor.execute(tasks.get(i));
+      } catch (RejectedExecutionException e) {
+        // we run it ourselves below
+      }
+    }
+    // Run every task that the executor did not pick up yet, so that we never wait for a busy executor. This is a no-op
+    // for tasks that are already running or done:
+    for (FutureTask<Long> task : tasks) {
+      task.run();
+    }
+
+    // We must wait for all tasks even if one failed, since segment states get closed once we return:
+    long delCount = 0;
+    Throwable th = null;
+    for (FutureTask<Long> task : tasks) {
+      try {
+        delCount += task.get();
+      } catch (InterruptedException e) {
+        th = IOUtils.useOrSuppress(th, new ThreadInterruptedException(e));
+      } catch (ExecutionException e) {
+        th = IOUtils.useOrSuppress(th, e.getCause());
+      }
+    }
+    if (th != null) {
+      throw IOUtils.rethrowAlways(th);
+    }
+    return delCount;
+  }
+
   private long applyDocValuesUpdates(BufferedUpdatesStream.SegmentState[] segStates) throws IOException {
 
     if (fieldUpdates.isEmpty()) {
@@ -33,6 +33,7 @@ import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -408,6 +409,10 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable,
 
   final AtomicInteger flushDeletesCount = new AtomicInteger();
 
+  // stalls because pending deletes and updates exceeded LiveIndexWriterConfig#getMaxPendingUpdatesRAMMB()
+  private final AtomicLong pendingUpdatesStallCount = new AtomicLong();
+  private final AtomicLong pendingUpdatesStallTimeNanos = new AtomicLong();
+
   private final ReaderPool readerPool;
   final BufferedUpdatesStream bufferedUpdatesStream;
 
@@ -417,7 +422,7 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable,
 
   // The instance that was passed to the constructor. It is saved only in order
   // to allow users to query an IndexWriter settings.
-  private final LiveIndexWriterConfig config;
+  final LiveIndexWriterConfig config;
 
   /** System.nanoTime() when commit started; used to write
    *  an infoStream message about how long commit took. */
@@ -659,6 +664,38 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable,
     return docWriter.getFlushingBytes();
   }
 
+  /**
+   * Returns the number of bytes used by deletes and doc values updates that
+   * have been pushed by a flush but not yet applied to all segments.
+   * @see LiveIndexWriterConfig#setMaxPendingUpdatesRAMMB(double)
+   * @lucene.experimental
+   */
+  public final long getPendingUpdatesBytes() {
+    ensureOpen();
+    return bufferedUpdatesStream.ramBytesUsed();
+  }
+
+  /**
+   * Returns how many times indexing threads have been stalled, either because
+   * flushing could not keep up with indexing, or because pending deletes and
+   * updates exceeded {@link LiveIndexWriterConfig#getMaxPendingUpdatesRAMMB()}.
+   * @lucene.experimental
+   */
+  public final long getStallCount() {
+    return docWriter.flushControl.stallControl.getStallCount() + pendingUpdatesStallCount.get();
+  }
+
+  /**
+   * Returns the total time, in milliseconds, that indexing threads have spent
+   * stalled.
+   * @see #getStallCount()
+   * @lucene.experimental
+   */
+  public final long getStallTimeMillis() {
+    final long stallTimeNanos = docWriter.flushControl.stallControl.getStallTimeNanos() + pendingUpdatesStallTimeNanos.get();
+    return TimeUnit.NANOSECONDS.toMillis(stallTimeNanos);
+  }
+
   final long getReaderPoolRamBytesUsed() {
     return readerPool.ramBytesUsed();
   }
@@ -1071,7 +1108,8 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable,
     for(SegmentCommitInfo info : segmentInfos) {
       FieldInfos fis = readFieldInfos(info);
       for(FieldInfo fi : fis) {
-        map.addOrGet(fi.name, fi.number, fi.getIndexOptions(), fi.getDocValuesType(), fi.getPointDimensionCount(), fi.getPointIndexDimensionCount(), fi.getPointNumBytes(), fi.isSoftDeletesField());
+        map.addOrGet(fi.name, fi.number, fi.getIndexOptions(), fi.getDocValuesType(), fi.getPointDimensionCount(), fi.getPointIndexDimensionCount(), fi.getPointNumBytes(),
+            fi.getVectorDimension(), fi.getVectorSimilarityFunction(), fi.isSoftDeletesField());
       }
     }
 
@@ -1813,7 +1851,7 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable,
       if (globalFieldNumberMap.contains(f.name(), dvType) == false) {
         // if this field doesn't exists we try to add it. if it exists and the DV type doesn't match we
         // get a consistent error message as if you try to do that during an indexing operation.
-        globalFieldNumberMap.addOrGet(f.name(), -1, IndexOptions.NONE, dvType, 0, 0, 0, f.name().equals(config.softDeletesField));
+        globalFieldNumberMap.addOrGet(f.name(), -1, IndexOptions.NONE, dvType, 0, 0, 0, 0, VectorSimilarityFunction.EUCLIDEAN, f.name().equals(config.softDeletesField));
         assert globalFieldNumberMap.contains(f.name(), dvType);
       }
       if (config.getIndexSortFields().contains(f.name())) {
@@ -2594,9 +2632,11 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable,
     // Do this as an event so it applies higher in the stack when we are not holding DocumentsWriterFlushQueue.purgeLock:
     eventQueue.add(w -> {
       try {
-        // we call tryApply here since we don't want to block if a refresh or a flush is already applying the
-        // packet. The flush will retry this packet anyway to ensure all of them are applied
-        packet.tryApply(w);
+        if (w.maybeStallOnPendingUpdates() == false) {
+          // we call tryApply here since we don't want to block if a refresh or a flush is already applying the
+          // packet. The flush will retry this packet anyway to ensure all of them are applied
+          packet.tryApply(w);
+        }
       } catch (Throwable t) {
         try {
           w.onTragicEvent(t, "applyUpdatesPacket");
@@ -2610,6 +2650,26 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable,
     return nextGen;
   }
 
+  /** Blocks the calling thread while it helps applying all pending deletes and updates if they use more RAM than
+   *  {@link LiveIndexWriterConfig#getMaxPendingUpdatesRAMMB()}, so that indexing can't outpace resolving them.
+   *  Returns true if the thread stalled, in which case all packets pushed so far have been applied. */
+  private boolean maybeStallOnPendingUpdates() throws IOException {
+    final double maxRAMMB = config.getMaxPendingUpdatesRAMMB();
+    if (maxRAMMB != IndexWriterConfig.DISABLE_AUTO_FLUSH
+        && bufferedUpdatesStream.ramBytesUsed() > maxRAMMB * 1024 * 1024) {
+      if (infoStream.isEnabled("IW")) {
+        infoStream.message("IW", String.format(Locale.ROOT, "stall: pending updates use %.3f MB > maxPendingUpdatesRAMMB=%.3f MB",
+            bufferedUpdatesStream.ramBytesUsed() / 1024. / 1024., maxRAMMB));
+      }
+      final long startNS = System.nanoTime();
+      bufferedUpdatesStream.waitApplyAll(this);
+      pendingUpdatesStallTimeNanos.addAndGet(System.nanoTime() - startNS);
+      pendingUpdatesStallCount.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
   /**
    * Atomically adds the segment private delete packet and publishes the flushed
    * segments SegmentInfo to the index writer.
@@ -2838,7 +2898,8 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable,
             FieldInfos fis = readFieldInfos(info);
             for(FieldInfo fi : fis) {
               // This will throw exceptions if any of the incoming fields have an illegal schema change:
-              globalFieldNumberMap.addOrGet(fi.name, fi.number, fi.getIndexOptions(), fi.getDocValuesType(), fi.getPointDimensionCount(), fi.getPointIndexDimensionCount(), fi.getPointNumBytes(), fi.isSoftDeletesField());
+              globalFieldNumberMap.addOrGet(fi.name, fi.number, fi.getIndexOptions(), fi.getDocValuesType(), fi.getPointDimensionCount(), fi.getPointIndexDimensionCount(), fi.getPointNumBytes(),
+                  fi.getVectorDimension(), fi.getVectorSimilarityFunction(), fi.isSoftDeletesField());
             }
             infos.add(copySegmentAsIs(info, newSegName, context));
           }
@@ -4497,6 +4558,7 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable,
                              (mergeState.mergeFieldInfos.hasProx() ? "prox" : "no prox") + "; " + 
                              (mergeState.mergeFieldInfos.hasProx() ? "freqs" : "no freqs") + "; " +
                              (mergeState.mergeFieldInfos.hasPointValues() ? "points" : "no points") + "; " +
+                             (mergeState.mergeFieldInfos.hasVectorValues() ? "vector values" : "no vector values") + "; " +
                              String.format(Locale.ROOT,
                                            "%.1f sec%s to merge segment [%.2f MB, %.2f MB/sec]",
                                            sec,
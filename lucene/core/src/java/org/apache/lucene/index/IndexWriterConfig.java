@@ -20,6 +20,7 @@ package org.apache.lucene.index;
 import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import org.apache.lucene.analysis.Analyzer;
@@ -110,6 +111,9 @@ public final class IndexWriterConfig extends LiveIndexWriterConfig {
   
   /** Default value for whether calls to {@link IndexWriter#close()} include a commit. */
   public final static boolean DEFAULT_COMMIT_ON_CLOSE = true;
+
+  /** Pending deletes and updates are not limited by default. */
+  public final static double DEFAULT_MAX_PENDING_UPDATES_RAM_MB = DISABLE_AUTO_FLUSH;
   
   // indicates whether this config instance is already attached to a writer.
   // not final so that it can be cloned properly.
@@ -516,6 +520,29 @@ public final class IndexWriterConfig extends LiveIndexWriterConfig {
     return (IndexWriterConfig) super.setCheckPendingFlushUpdate(checkPendingFlushOnUpdate);
   }
 
+  @Override
+  public IndexWriterConfig setMaxPendingUpdatesRAMMB(double maxPendingUpdatesRAMMB) {
+    return (IndexWriterConfig) super.setMaxPendingUpdatesRAMMB(maxPendingUpdatesRAMMB);
+  }
+
+  /**
+   * Expert: sets the {@link Executor} that is used to apply deletes and doc
+   * values updates to several segments concurrently. Each packet of updates
+   * is resolved against every segment of the index, and segments are
+   * independent of each other, so resolving a packet can use up to one thread
+   * per segment. The thread that resolves a packet also works on its
+   * segments, so a busy or saturated executor only slows resolution down.
+   *
+   * <p>The default is <code>null</code>, which applies updates to all segments
+   * sequentially. {@link IndexWriter} does not shut the executor down.
+   *
+   * @lucene.experimental
+   */
+  public IndexWriterConfig setApplyUpdatesExecutor(Executor applyUpdatesExecutor) {
+    this.applyUpdatesExecutor = applyUpdatesExecutor;
+    return this;
+  }
+
   /**
    * Sets the soft deletes field. A soft delete field in lucene is a doc-values field that marks a document as soft-deleted if a
    * document has at least one value in that field. If a document is marked as soft-deleted the document is treated as
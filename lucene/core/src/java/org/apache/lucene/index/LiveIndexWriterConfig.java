@@ -19,6 +19,7 @@ package org.apache.lucene.index;
 
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.codecs.Codec;
@@ -113,6 +114,12 @@ public class LiveIndexWriterConfig {
   /** soft deletes field */
   protected String softDeletesField = null;
 
+  /** {@link Executor} to apply deletes and updates to several segments concurrently, or null */
+  protected Executor applyUpdatesExecutor = null;
+
+  /** Maximum RAM used by deletes and updates that were pushed but not yet applied */
+  protected volatile double maxPendingUpdatesRAMMB = IndexWriterConfig.DEFAULT_MAX_PENDING_UPDATES_RAM_MB;
+
 
   // used by IndexWriterConfig
   LiveIndexWriterConfig(Analyzer analyzer) {
@@ -476,6 +483,52 @@ public class LiveIndexWriterConfig {
     return softDeletesField;
   }
 
+  /**
+   * Returns the {@link Executor} that is used to apply deletes and doc values
+   * updates to several segments concurrently, or <code>null</code> if they are
+   * applied sequentially by the thread that resolves them.
+   * See {@link IndexWriterConfig#setApplyUpdatesExecutor(Executor)} for details.
+   * @lucene.experimental
+   */
+  public Executor getApplyUpdatesExecutor() {
+    return applyUpdatesExecutor;
+  }
+
+  /**
+   * Expert: sets the maximum RAM that deletes and doc values updates may use
+   * once they have been pushed by a flush but before they have been applied
+   * to all segments. When exceeded, indexing threads stall and help applying
+   * pending updates until they are all applied, which bounds memory usage
+   * under heavy update or delete workloads. Stalls are reported by
+   * {@link IndexWriter#getStallCount()} and {@link IndexWriter#getStallTimeMillis()}.
+   *
+   * <p>Pass {@link IndexWriterConfig#DISABLE_AUTO_FLUSH} to disable this limit,
+   * which is the default.
+   *
+   * <p>Takes effect immediately, but only the next time a packet of updates
+   * gets pushed.
+   *
+   * @lucene.experimental
+   */
+  public LiveIndexWriterConfig setMaxPendingUpdatesRAMMB(double maxPendingUpdatesRAMMB) {
+    if (maxPendingUpdatesRAMMB != IndexWriterConfig.DISABLE_AUTO_FLUSH && maxPendingUpdatesRAMMB <= 0.0) {
+      throw new IllegalArgumentException("maxPendingUpdatesRAMMB should be > 0.0 MB when enabled");
+    }
+    this.maxPendingUpdatesRAMMB = maxPendingUpdatesRAMMB;
+    return this;
+  }
+
+  /**
+   * Returns the maximum RAM that pushed but not yet applied deletes and
+   * updates may use, or {@link IndexWriterConfig#DISABLE_AUTO_FLUSH} if this
+   * is unlimited.
+   * @see #setMaxPendingUpdatesRAMMB(double)
+   * @lucene.experimental
+   */
+  public double getMaxPendingUpdatesRAMMB() {
+    return maxPendingUpdatesRAMMB;
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
@@ -500,6 +553,8 @@ public class LiveIndexWriterConfig {
     sb.append("indexSort=").append(getIndexSort()).append("\n");
     sb.append("checkPendingFlushOnUpdate=").append(isCheckPendingFlushOnUpdate()).append("\n");
     sb.append("softDeletesField=").append(getSoftDeletesField()).append("\n");
+    sb.append("applyUpdatesExecutor=").append(getApplyUpdatesExecutor()).append("\n");
+    sb.append("maxPendingUpdatesRAMMB=").append(getMaxPendingUpdatesRAMMB()).append("\n");
     return sb.toString();
   }
 }
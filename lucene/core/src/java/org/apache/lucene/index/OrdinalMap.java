@@ -28,6 +28,7 @@ import org.apache.lucene.util.Accountables;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.InPlaceMergeSorter;
+import org.apache.lucene.util.LongBitSet;
 import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.PriorityQueue;
 import org.apache.lucene.util.RamUsageEstimator;
@@ -168,6 +169,238 @@ public class OrdinalMap implements Accountable {
     return new OrdinalMap(owner, subs, segmentMap, acceptableOverheadRatio);
   }
 
+  /**
+   * Create an ordinal map like {@link #build(IndexReader.CacheKey, SortedDocValues[], float)}, reusing the
+   * ordinal map of a previous view of the same index for the segments that both views share. Only the terms of the
+   * new segments are looked up, which makes this much cheaper than a full build when only a few small segments
+   * were added, eg. after a refresh.
+   * @param previous the ordinal map of the previous view
+   * @param previousSegments for every value, the index of the same segment in <code>previous</code>, or -1 if the
+   *             segment is new. Shared segments must have exactly the same values in both views.
+   */
+  public static OrdinalMap build(IndexReader.CacheKey owner, SortedDocValues[] values, OrdinalMap previous, int[] previousSegments,
+                                 float acceptableOverheadRatio) throws IOException {
+    final TermsEnum[] subs = new TermsEnum[values.length];
+    final long[] valueCounts = new long[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      subs[i] = values[i].termsEnum();
+      valueCounts[i] = values[i].getValueCount();
+    }
+    return build(owner, subs, valueCounts, previous, previousSegments, acceptableOverheadRatio);
+  }
+
+  /**
+   * Create an ordinal map like {@link #build(IndexReader.CacheKey, SortedSetDocValues[], float)}, reusing the
+   * ordinal map of a previous view of the same index for the segments that both views share.
+   * @see #build(IndexReader.CacheKey, SortedDocValues[], OrdinalMap, int[], float)
+   */
+  public static OrdinalMap build(IndexReader.CacheKey owner, SortedSetDocValues[] values, OrdinalMap previous, int[] previousSegments,
+                                 float acceptableOverheadRatio) throws IOException {
+    final TermsEnum[] subs = new TermsEnum[values.length];
+    final long[] valueCounts = new long[values.length];
+    for (int i = 0; i < values.length; ++i) {
+      subs[i] = values[i].termsEnum();
+      valueCounts[i] = values[i].getValueCount();
+    }
+    return build(owner, subs, valueCounts, previous, previousSegments, acceptableOverheadRatio);
+  }
+
+  /** Rough number of terms that need to be read to seek a terms enum, relative to the cost of a merge. */
+  private static final int SEEK_COST = 32;
+
+  private static OrdinalMap build(IndexReader.CacheKey owner, TermsEnum[] subs, long[] valueCounts, OrdinalMap previous,
+                                  int[] previousSegments, float acceptableOverheadRatio) throws IOException {
+    if (subs.length != previousSegments.length) {
+      throw new IllegalArgumentException("subs and previousSegments must have the same length");
+    }
+    int numReused = 0;
+    long reusedTerms = 0, newTerms = 0;
+    for (int i = 0; i < subs.length; ++i) {
+      if (previousSegments[i] >= previous.segmentToGlobalOrds.length) {
+        throw new IllegalArgumentException("previous segment " + previousSegments[i] + " does not exist");
+      } else if (previousSegments[i] >= 0) {
+        numReused++;
+        reusedTerms += valueCounts[i];
+      } else {
+        newTerms += valueCounts[i];
+      }
+    }
+    final SegmentMap segmentMap = new SegmentMap(valueCounts);
+    if (numReused == 0 || newTerms * numReused * SEEK_COST >= reusedTerms + newTerms) {
+      // cheaper to merge everything again
+      return new OrdinalMap(owner, subs, segmentMap, acceptableOverheadRatio);
+    }
+    return new OrdinalMap(owner, segmentMap,
+        remapTerms(subs, valueCounts, previous, previousSegments, segmentMap, acceptableOverheadRatio),
+        acceptableOverheadRatio);
+  }
+
+  private static Mapping remapTerms(TermsEnum[] subs, long[] valueCounts, OrdinalMap previous, int[] previousSegments,
+                                    SegmentMap segmentMap, float acceptableOverheadRatio) throws IOException {
+    final long previousValueCount = previous.getValueCount();
+    final LongValues[] previousOrds = new LongValues[subs.length];
+    // previous global ords that still exist in the shared segments
+    final LongBitSet live = new LongBitSet(previousValueCount);
+    for (int i = 0; i < subs.length; ++i) {
+      if (previousSegments[i] >= 0) {
+        previousOrds[i] = previous.getGlobalOrds(previousSegments[i]);
+        for (long ord = 0; ord < valueCounts[i]; ++ord) {
+          live.set(previousOrds[i].get(ord));
+        }
+      }
+    }
+
+    // Merge the terms of the new segments and look them up in the shared segments. Values of the new segments
+    // are either a previous global ord, or -1-i for the i-th term that wasn't in the shared segments.
+    final long[][] newValues = new long[subs.length][];
+    PriorityQueue<TermsEnumIndex> queue = new PriorityQueue<TermsEnumIndex>(subs.length) {
+        @Override
+        protected boolean lessThan(TermsEnumIndex a, TermsEnumIndex b) {
+          return a.currentTerm.compareTo(b.currentTerm) < 0;
+        }
+      };
+    for (int i = 0; i < subs.length; ++i) {
+      if (previousSegments[i] < 0) {
+        newValues[i] = new long[Math.toIntExact(valueCounts[i])];
+        TermsEnumIndex sub = new TermsEnumIndex(subs[i], i);
+        if (sub.next() != null) {
+          queue.add(sub);
+        }
+      }
+    }
+    // for every added term, the previous global ord it is inserted before
+    final PackedLongValues.Builder insertions = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+    final BytesRefBuilder scratch = new BytesRefBuilder();
+    long addedTerms = 0;
+    while (queue.size() != 0) {
+      scratch.copyBytes(queue.top().currentTerm);
+      long value = -1;
+      long insertBefore = previousValueCount;
+      for (int i = 0; i < subs.length; ++i) {
+        if (previousSegments[i] >= 0) {
+          TermsEnum.SeekStatus status = subs[i].seekCeil(scratch.get());
+          if (status == TermsEnum.SeekStatus.FOUND) {
+            value = previousOrds[i].get(subs[i].ord());
+            break;
+          } else if (status == TermsEnum.SeekStatus.NOT_FOUND) {
+            insertBefore = Math.min(insertBefore, previousOrds[i].get(subs[i].ord()));
+          }
+        }
+      }
+      if (value == -1) {
+        insertions.add(insertBefore);
+        value = -1 - addedTerms++;
+      }
+      do {
+        TermsEnumIndex top = queue.top();
+        newValues[top.subIndex][Math.toIntExact(top.termsEnum.ord())] = value;
+        if (top.next() == null) {
+          queue.pop();
+        } else {
+          queue.updateTop();
+        }
+      } while (queue.size() != 0 && queue.top().currentTerm.equals(scratch.get()));
+    }
+
+    // new global ords of the previous global ords and of the added terms
+    final PackedLongValues.Builder previousToGlobal = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+    final PackedLongValues.Builder addedToGlobal = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+    final PackedLongValues.Iterator insertionsIt = insertions.build().iterator();
+    long nextInsertion = insertionsIt.hasNext() ? insertionsIt.next() : Long.MAX_VALUE;
+    long globalOrd = 0;
+    for (long previousOrd = 0; previousOrd < previousValueCount; ++previousOrd) {
+      while (nextInsertion <= previousOrd) {
+        addedToGlobal.add(globalOrd++);
+        nextInsertion = insertionsIt.hasNext() ? insertionsIt.next() : Long.MAX_VALUE;
+      }
+      // ords that no longer exist get the global ord of the next term to keep this monotonic
+      previousToGlobal.add(globalOrd);
+      if (live.get(previousOrd)) {
+        globalOrd++;
+      }
+    }
+    while (nextInsertion != Long.MAX_VALUE) {
+      addedToGlobal.add(globalOrd++);
+      nextInsertion = insertionsIt.hasNext() ? insertionsIt.next() : Long.MAX_VALUE;
+    }
+    final PackedLongValues previousGlobalOrds = previousToGlobal.build();
+    final PackedLongValues addedGlobalOrds = addedToGlobal.build();
+
+    // per-segment deltas, in the order of the segment map
+    final PackedLongValues[] ordDeltas = new PackedLongValues[subs.length];
+    final long[] ordDeltaBits = new long[subs.length];
+    for (int i = 0; i < subs.length; ++i) {
+      final int sub = segmentMap.newToOld(i);
+      final PackedLongValues.Builder deltas = PackedLongValues.monotonicBuilder(acceptableOverheadRatio);
+      for (long ord = 0; ord < valueCounts[sub]; ++ord) {
+        final long global;
+        if (previousSegments[sub] >= 0) {
+          global = previousGlobalOrds.get(previousOrds[sub].get(ord));
+        } else {
+          final long value = newValues[sub][(int) ord];
+          global = value >= 0 ? previousGlobalOrds.get(value) : addedGlobalOrds.get(-1 - value);
+        }
+        final long delta = global - ord;
+        ordDeltaBits[i] |= delta;
+        deltas.add(delta);
+      }
+      ordDeltas[i] = deltas.build();
+    }
+
+    // finally find the first segment of every global ord by merging the segments' global ords
+    final PackedLongValues.Builder globalOrdDeltas = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+    final PackedLongValues.Builder firstSegments = PackedLongValues.packedBuilder(PackedInts.COMPACT);
+    PriorityQueue<SegmentOrds> segments = new PriorityQueue<SegmentOrds>(subs.length) {
+        @Override
+        protected boolean lessThan(SegmentOrds a, SegmentOrds b) {
+          return a.globalOrd < b.globalOrd || (a.globalOrd == b.globalOrd && a.segmentIndex < b.segmentIndex);
+        }
+      };
+    for (int i = 0; i < subs.length; ++i) {
+      SegmentOrds ords = new SegmentOrds(ordDeltas[i], i);
+      if (ords.next()) {
+        segments.add(ords);
+      }
+    }
+    for (long ord = 0; ord < globalOrd; ++ord) {
+      SegmentOrds top = segments.top();
+      assert top.globalOrd == ord;
+      firstSegments.add(top.segmentIndex);
+      globalOrdDeltas.add(ord - top.segmentOrd);
+      while (segments.size() != 0 && segments.top().globalOrd == ord) {
+        if (segments.top().next()) {
+          segments.updateTop();
+        } else {
+          segments.pop();
+        }
+      }
+    }
+    assert segments.size() == 0;
+    return new Mapping(globalOrdDeltas.build(), firstSegments.build(), ordDeltas, ordDeltaBits);
+  }
+
+  /** Iterates over the global ords of a segment. */
+  private static class SegmentOrds {
+    final PackedLongValues.Iterator deltas;
+    final int segmentIndex;
+    long segmentOrd = -1;
+    long globalOrd;
+
+    SegmentOrds(PackedLongValues deltas, int segmentIndex) {
+      this.deltas = deltas.iterator();
+      this.segmentIndex = segmentIndex;
+    }
+
+    boolean next() {
+      if (deltas.hasNext() == false) {
+        return false;
+      }
+      segmentOrd++;
+      globalOrd = segmentOrd + deltas.next();
+      return true;
+    }
+  }
+
   private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(OrdinalMap.class);
 
   /** Cache key of whoever asked for this awful thing */
@@ -184,10 +417,80 @@ public class OrdinalMap implements Accountable {
   final long ramBytesUsed;
     
   OrdinalMap(IndexReader.CacheKey owner, TermsEnum subs[], SegmentMap segmentMap, float acceptableOverheadRatio) throws IOException {
-    // create the ordinal mappings by pulling a termsenum over each sub's 
-    // unique terms, and walking a multitermsenum over those
+    this(owner, segmentMap, mergeTerms(subs, segmentMap, acceptableOverheadRatio), acceptableOverheadRatio);
+  }
+
+  private OrdinalMap(IndexReader.CacheKey owner, SegmentMap segmentMap, Mapping mapping, float acceptableOverheadRatio) {
     this.owner = owner;
     this.segmentMap = segmentMap;
+    this.firstSegments = mapping.firstSegments;
+    this.globalOrdDeltas = mapping.globalOrdDeltas;
+    final long[] ordDeltaBits = mapping.ordDeltaBits;
+    // ordDeltas is typically the bottleneck, so let's see what we can do to make it faster
+    segmentToGlobalOrds = new LongValues[mapping.ordDeltas.length];
+    long ramBytesUsed = BASE_RAM_BYTES_USED + this.globalOrdDeltas.ramBytesUsed()
+      + this.firstSegments.ramBytesUsed() + RamUsageEstimator.shallowSizeOf(segmentToGlobalOrds)
+      + segmentMap.ramBytesUsed();
+    for (int i = 0; i < mapping.ordDeltas.length; ++i) {
+      final PackedLongValues deltas = mapping.ordDeltas[i];
+      if (ordDeltaBits[i] == 0L) {
+        // segment ords perfectly match global ordinals
+        // likely in case of low cardinalities and large segments
+        segmentToGlobalOrds[i] = LongValues.IDENTITY;
+      } else {
+        final int bitsRequired = ordDeltaBits[i] < 0 ? 64 : PackedInts.bitsRequired(ordDeltaBits[i]);
+        final long monotonicBits = deltas.ramBytesUsed() * 8;
+        final long packedBits = bitsRequired * deltas.size();
+        if (deltas.size() <= Integer.MAX_VALUE
+            && packedBits <= monotonicBits * (1 + acceptableOverheadRatio)) {
+          // monotonic compression mostly adds overhead, let's keep the mapping in plain packed ints
+          final int size = (int) deltas.size();
+          final PackedInts.Mutable newDeltas = PackedInts.getMutable(size, bitsRequired, acceptableOverheadRatio);
+          final PackedLongValues.Iterator it = deltas.iterator();
+          for (int ord = 0; ord < size; ++ord) {
+            newDeltas.set(ord, it.next());
+          }
+          assert it.hasNext() == false;
+          segmentToGlobalOrds[i] = new LongValues() {
+              @Override
+              public long get(long ord) {
+                return ord + newDeltas.get((int) ord);
+              }
+            };
+          ramBytesUsed += newDeltas.ramBytesUsed();
+        } else {
+          segmentToGlobalOrds[i] = new LongValues() {
+              @Override
+              public long get(long ord) {
+                return ord + deltas.get(ord);
+              }
+            };
+          ramBytesUsed += deltas.ramBytesUsed();
+        }
+        ramBytesUsed += RamUsageEstimator.shallowSizeOf(segmentToGlobalOrds[i]);
+      }
+    }
+    this.ramBytesUsed = ramBytesUsed;
+  }
+
+  /** Global ordinal space and per-segment ordinal deltas, before the latter get compressed. */
+  private static class Mapping {
+    final PackedLongValues globalOrdDeltas;
+    final PackedLongValues firstSegments;
+    final PackedLongValues[] ordDeltas;
+    final long[] ordDeltaBits;
+
+    Mapping(PackedLongValues globalOrdDeltas, PackedLongValues firstSegments, PackedLongValues[] ordDeltas, long[] ordDeltaBits) {
+      this.globalOrdDeltas = globalOrdDeltas;
+      this.firstSegments = firstSegments;
+      this.ordDeltas = ordDeltas;
+      this.ordDeltaBits = ordDeltaBits;
+    }
+  }
+
+  private static Mapping mergeTerms(TermsEnum subs[], SegmentMap segmentMap, float acceptableOverheadRatio) throws IOException {
+    // create the ordinal mappings by pulling a termsenum over each sub's 
+    // unique terms, and walking a multitermsenum over those
     // even though we accept an overhead ratio, we keep these ones with COMPACT
     // since they are only used to resolve values given a global ord, which is
     // slow anyway
@@ -271,53 +574,11 @@ public class OrdinalMap implements Accountable {
       globalOrd++;
     }
 
-    this.firstSegments = firstSegments.build();
-    this.globalOrdDeltas = globalOrdDeltas.build();
-    // ordDeltas is typically the bottleneck, so let's see what we can do to make it faster
-    segmentToGlobalOrds = new LongValues[subs.length];
-    long ramBytesUsed = BASE_RAM_BYTES_USED + this.globalOrdDeltas.ramBytesUsed()
-      + this.firstSegments.ramBytesUsed() + RamUsageEstimator.shallowSizeOf(segmentToGlobalOrds)
-      + segmentMap.ramBytesUsed();
+    final PackedLongValues[] deltas = new PackedLongValues[ordDeltas.length];
     for (int i = 0; i < ordDeltas.length; ++i) {
-      final PackedLongValues deltas = ordDeltas[i].build();
-      if (ordDeltaBits[i] == 0L) {
-        // segment ords perfectly match global ordinals
-        // likely in case of low cardinalities and large segments
-        segmentToGlobalOrds[i] = LongValues.IDENTITY;
-      } else {
-        final int bitsRequired = ordDeltaBits[i] < 0 ? 64 : PackedInts.bitsRequired(ordDeltaBits[i]);
-        final long monotonicBits = deltas.ramBytesUsed() * 8;
-        final long packedBits = bitsRequired * deltas.size();
-        if (deltas.size() <= Integer.MAX_VALUE
-            && packedBits <= monotonicBits * (1 + acceptableOverheadRatio)) {
-          // monotonic compression mostly adds overhead, let's keep the mapping in plain packed ints
-          final int size = (int) deltas.size();
-          final PackedInts.Mutable newDeltas = PackedInts.getMutable(size, bitsRequired, acceptableOverheadRatio);
-          final PackedLongValues.Iterator it = deltas.iterator();
-          for (int ord = 0; ord < size; ++ord) {
-            newDeltas.set(ord, it.next());
-          }
-          assert it.hasNext() == false;
-          segmentToGlobalOrds[i] = new LongValues() {
-              @Override
-              public long get(long ord) {
-                return ord + newDeltas.get((int) ord);
-              }
-            };
-          ramBytesUsed += newDeltas.ramBytesUsed();
-        } else {
-          segmentToGlobalOrds[i] = new LongValues() {
-              @Override
-              public long get(long ord) {
-                return ord + deltas.get(ord);
-              }
-            };
-          ramBytesUsed += deltas.ramBytesUsed();
-        }
-        ramBytesUsed += RamUsageEstimator.shallowSizeOf(segmentToGlobalOrds[i]);
-      }
+      deltas[i] = ordDeltas[i].build();
     }
-    this.ramBytesUsed = ramBytesUsed;
+    return new Mapping(globalOrdDeltas.build(), firstSegments.build(), deltas, ordDeltaBits);
   }
 
   /** 
@@ -24,6 +24,7 @@ import java.util.Map;
 
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.ByteBuffersDataInput;
 import org.apache.lucene.store.ByteBuffersDataOutput;
 import org.apache.lucene.store.DataOutput;
@@ -296,6 +297,63 @@ class SortingLeafReader extends FilterLeafReader {
     }
   }
 
+  /** Vector values in the new doc ID order. Vectors are copied, which is acceptable since this reader
+   *  is only used to sort old segments. */
+  static class SortingVectorValues extends VectorValues {
+
+    private final int dimension;
+    private final int size;
+    private final float[][] vectors; // indexed by new doc ID
+    private int docID = -1;
+
+    SortingVectorValues(VectorValues in, Sorter.DocMap docMap) throws IOException {
+      dimension = in.dimension();
+      vectors = new float[docMap.size()][];
+      int count = 0;
+      for (int doc = in.nextDoc(); doc != NO_MORE_DOCS; doc = in.nextDoc()) {
+        float[] vector = in.vectorValue();
+        vectors[docMap.oldToNew(doc)] = ArrayUtil.copyOfSubArray(vector, 0, vector.length);
+        count++;
+      }
+      size = count;
+    }
+
+    @Override
+    public int dimension() {
+      return dimension;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public float[] vectorValue() {
+      return vectors[docID];
+    }
+
+    @Override
+    public int docID() {
+      return docID;
+    }
+
+    @Override
+    public int nextDoc() {
+      return advance(docID + 1);
+    }
+
+    @Override
+    public int advance(int target) {
+      for (int doc = target; doc < vectors.length; doc++) {
+        if (vectors[doc] != null) {
+          return docID = doc;
+        }
+      }
+      return docID = NO_MORE_DOCS;
+    }
+  }
+
   private static class SortingPointValues extends PointValues {
 
     private final PointValues in;
@@ -1099,6 +1157,21 @@ class SortingLeafReader extends FilterLeafReader {
     }
   }
 
+  @Override
+  public VectorValues getVectorValues(String fieldName) throws IOException {
+    final VectorValues inVectorValues = in.getVectorValues(fieldName);
+    if (inVectorValues == null) {
+      return null;
+    } else {
+      return new SortingVectorValues(inVectorValues, docMap);
+    }
+  }
+
+  @Override
+  public TopDocs searchNearestVectors(String field, float[] target, int k, Bits acceptDocs) {
+    throw new UnsupportedOperationException("cannot search nearest vectors on a sorting reader");
+  }
+
   private final Map<String,CachedNumericDVs> cachedNorms = new HashMap<>();
 
   @Override
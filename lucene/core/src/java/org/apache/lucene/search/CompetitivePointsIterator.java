@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.PointValues.IntersectVisitor;
+import org.apache.lucene.index.PointValues.Relation;
+import org.apache.lucene.util.DocIdSetBuilder;
+import org.apache.lucene.util.NumericUtils;
+
+/**
+ * A {@link DocIdSetIterator} over the documents of a segment that may still
+ * be competitive for a sort on a numeric field that is indexed with both doc
+ * values and points. All documents are competitive at first. Once the hits
+ * threshold is reached, every time that the bottom value of the queue
+ * changes, points are used to only keep documents whose value sorts before
+ * the bottom value, and after the top value when paging.
+ *
+ * <p>Values are passed in their sortable long representation: ints and longs
+ * as-is, floats and doubles as returned by
+ * {@link NumericUtils#floatToSortableInt} and
+ * {@link NumericUtils#doubleToSortableLong}, which is how points encode them.
+ */
+final class CompetitivePointsIterator extends DocIdSetIterator {
+
+  // the set of competitive docs is only updated if this makes it this many times smaller
+  private static final int MIN_SKIP_RATIO = 8;
+  // updates are sampled after this number of calls
+  private static final int MAX_UNSAMPLED_UPDATES = 256;
+
+  /**
+   * Return a new instance, or {@code null} if the field is not indexed with
+   * one-dimensional points of {@code bytesPerDim} bytes in this segment.
+   * @param reverse whether the sort is in reverse order
+   * @param singleSort whether the sort has no other sort field, in which case
+   *        documents whose value is equal to the bottom value are not competitive
+   * @param missingValue the value of documents that do not have a value
+   */
+  static CompetitivePointsIterator create(LeafReaderContext context, String field, int bytesPerDim,
+                                          boolean reverse, boolean singleSort, long missingValue) throws IOException {
+    final FieldInfo fieldInfo = context.reader().getFieldInfos().fieldInfo(field);
+    if (fieldInfo == null || fieldInfo.getPointDimensionCount() != 1 || fieldInfo.getPointNumBytes() != bytesPerDim) {
+      return null;
+    }
+    final PointValues pointValues = context.reader().getPointValues(field);
+    if (pointValues == null) {
+      return null;
+    }
+    return new CompetitivePointsIterator(pointValues, context.reader().maxDoc(), bytesPerDim, reverse, singleSort,
+        missingValue);
+  }
+
+  private final PointValues pointValues;
+  private final int maxDoc;
+  private final int bytesPerDim;
+  private final boolean reverse;
+  private final boolean singleSort;
+  private final long missingValue;
+  private final boolean hasMissingValues;
+
+  private final byte[] lowerPoint, upperPoint;
+  private boolean hasTop, hasBottom;
+  private long top, bottom;
+  private boolean hitsThresholdReached;
+  private int updateCount;
+
+  private DocIdSetIterator competitiveIterator;
+  private int docID = -1;
+
+  private CompetitivePointsIterator(PointValues pointValues, int maxDoc, int bytesPerDim,
+                                    boolean reverse, boolean singleSort, long missingValue) throws IOException {
+    this.pointValues = pointValues;
+    this.maxDoc = maxDoc;
+    this.bytesPerDim = bytesPerDim;
+    this.reverse = reverse;
+    this.singleSort = singleSort;
+    this.missingValue = missingValue;
+    this.hasMissingValues = pointValues.getDocCount() < maxDoc;
+    this.lowerPoint = new byte[bytesPerDim];
+    this.upperPoint = new byte[bytesPerDim];
+    this.competitiveIterator = DocIdSetIterator.all(maxDoc);
+  }
+
+  /** Set the top value, only documents that sort after it may be competitive. */
+  void setTopValue(long top) {
+    this.top = top;
+    this.hasTop = true;
+  }
+
+  /** Notify that the queue is full and that its least competitive value changed. */
+  void setBottom(long bottom) throws IOException {
+    this.bottom = bottom;
+    this.hasBottom = true;
+    update();
+  }
+
+  /** Notify that enough hits have been counted, so that documents may be skipped from now on. */
+  void setHitsThresholdReached() throws IOException {
+    if (hitsThresholdReached == false) {
+      hitsThresholdReached = true;
+      update();
+    }
+  }
+
+  private boolean isMissingValueCompetitive() {
+    final int cmp = Long.compare(missingValue, bottom);
+    if (cmp == 0) {
+      return singleSort == false;
+    }
+    return reverse ? cmp > 0 : cmp < 0;
+  }
+
+  private void encode(long value, byte[] dest) {
+    if (bytesPerDim == Integer.BYTES) {
+      NumericUtils.intToSortableBytes((int) value, dest, 0);
+    } else {
+      NumericUtils.longToSortableBytes(value, dest, 0);
+    }
+  }
+
+  private void update() throws IOException {
+    if (hitsThresholdReached == false || hasBottom == false) {
+      return;
+    }
+    if (hasMissingValues && isMissingValueCompetitive()) {
+      // documents that have no point could be competitive
+      return;
+    }
+    updateCount++;
+    if (updateCount > MAX_UNSAMPLED_UPDATES && (updateCount & 0x1f) != 0x1f) {
+      // the bottom value changes often, only recompute competitive documents from time to time
+      return;
+    }
+
+    final boolean hasLower, hasUpper;
+    final boolean lowerInclusive, upperInclusive;
+    if (reverse) {
+      hasLower = true;
+      encode(bottom, lowerPoint);
+      lowerInclusive = singleSort == false;
+      hasUpper = hasTop;
+      if (hasTop) {
+        encode(top, upperPoint);
+      }
+      upperInclusive = true;
+    } else {
+      hasUpper = true;
+      encode(bottom, upperPoint);
+      upperInclusive = singleSort == false;
+      hasLower = hasTop;
+      if (hasTop) {
+        encode(top, lowerPoint);
+      }
+      lowerInclusive = true;
+    }
+
+    final int minDoc = docID + 1; // documents up to the current one have been collected already
+    final DocIdSetBuilder result = new DocIdSetBuilder(maxDoc);
+    final IntersectVisitor visitor = new IntersectVisitor() {
+
+      DocIdSetBuilder.BulkAdder adder;
+
+      private boolean matches(byte[] packedValue) {
+        if (hasLower) {
+          final int cmp = Arrays.compareUnsigned(packedValue, 0, bytesPerDim, lowerPoint, 0, bytesPerDim);
+          if (cmp < 0 || (cmp == 0 && lowerInclusive == false)) {
+            return false;
+          }
+        }
+        if (hasUpper) {
+          final int cmp = Arrays.compareUnsigned(packedValue, 0, bytesPerDim, upperPoint, 0, bytesPerDim);
+          if (cmp > 0 || (cmp == 0 && upperInclusive == false)) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public void grow(int count) {
+        adder = result.grow(count);
+      }
+
+      @Override
+      public void visit(int docID) {
+        if (docID >= minDoc) {
+          adder.add(docID);
+        }
+      }
+
+      @Override
+      public void visit(int docID, byte[] packedValue) {
+        if (docID >= minDoc && matches(packedValue)) {
+          adder.add(docID);
+        }
+      }
+
+      @Override
+      public Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+        if (hasLower) {
+          final int cmp = Arrays.compareUnsigned(maxPackedValue, 0, bytesPerDim, lowerPoint, 0, bytesPerDim);
+          if (cmp < 0 || (cmp == 0 && lowerInclusive == false)) {
+            return Relation.CELL_OUTSIDE_QUERY;
+          }
+        }
+        if (hasUpper) {
+          final int cmp = Arrays.compareUnsigned(minPackedValue, 0, bytesPerDim, upperPoint, 0, bytesPerDim);
+          if (cmp > 0 || (cmp == 0 && upperInclusive == false)) {
+            return Relation.CELL_OUTSIDE_QUERY;
+          }
+        }
+        if (matches(minPackedValue) && matches(maxPackedValue)) {
+          return Relation.CELL_INSIDE_QUERY;
+        }
+        return Relation.CELL_CROSSES_QUERY;
+      }
+    };
+
+    // estimating runs in O(log(numPoints)), only materialize documents if this is selective enough
+    final long estimatedCount = pointValues.estimatePointCount(visitor);
+    if (estimatedCount >= competitiveIterator.cost() / MIN_SKIP_RATIO) {
+      return;
+    }
+    pointValues.intersect(visitor);
+    competitiveIterator = result.build().iterator();
+  }
+
+  @Override
+  public int docID() {
+    return docID;
+  }
+
+  @Override
+  public int nextDoc() throws IOException {
+    return advance(docID + 1);
+  }
+
+  @Override
+  public int advance(int target) throws IOException {
+    // the competitive iterator may have been replaced by an iterator that is behind
+    return docID = competitiveIterator.advance(target);
+  }
+
+  @Override
+  public long cost() {
+    return competitiveIterator.cost();
+  }
+}
@@ -27,6 +27,7 @@ import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.NumericUtils;
 
 /**
  * Expert: a FieldComparator compares hits so as to determine their
@@ -136,6 +137,15 @@ public abstract class FieldComparator<T> {
     }
   }
 
+  /**
+   * Informs the comparator that it is the only sort field, so that documents
+   * whose value is equal to the bottom value can't be competitive since ties
+   * are broken by doc ID. Comparators may use this to skip more documents.
+   * @lucene.experimental
+   */
+  public void setSingleSort() {
+  }
+
 
   /**
    * Base FieldComparator class for numeric types
@@ -144,15 +154,85 @@ public abstract class FieldComparator<T> {
     protected final T missingValue;
     protected final String field;
     protected NumericDocValues currentReaderValues;
+
+    // skipping of non-competitive documents using points, see SortField#setCanUsePoints
+    private boolean canUsePoints;
+    private boolean reverse;
+    private boolean singleSort;
+    private boolean hasTopValue, hasBottom;
+    private long sortableTopValue, sortableBottom;
+    private CompetitivePointsIterator competitiveIterator;
     
     public NumericComparator(String field, T missingValue) {
       this.field = field;
       this.missingValue = missingValue;
     }
 
+    /** Use points to skip non-competitive documents, given the order of the sort. */
+    void setCanUsePoints(boolean reverse) {
+      this.canUsePoints = true;
+      this.reverse = reverse;
+    }
+
+    /** The number of bytes of the points that index this type, or 0 if there are none. */
+    int getPointNumBytes() {
+      return 0;
+    }
+
+    /** Encode a value of this type like points do, see {@link CompetitivePointsIterator}. */
+    long toSortableLong(T value) {
+      throw new UnsupportedOperationException();
+    }
+
+    /** Called by sub classes when the top value changes. */
+    void updateCompetitiveTopValue(long sortableTopValue) {
+      this.hasTopValue = true;
+      this.sortableTopValue = sortableTopValue;
+    }
+
+    /** Called by sub classes when the bottom value changes. */
+    void updateCompetitiveBottom(long sortableBottom) throws IOException {
+      this.hasBottom = true;
+      this.sortableBottom = sortableBottom;
+      if (competitiveIterator != null) {
+        competitiveIterator.setBottom(sortableBottom);
+      }
+    }
+
+    @Override
+    public void setSingleSort() {
+      singleSort = true;
+    }
+
     @Override
     protected void doSetNextReader(LeafReaderContext context) throws IOException {
       currentReaderValues = getNumericDocValues(context, field);
+      competitiveIterator = null;
+      if (canUsePoints && getPointNumBytes() > 0) {
+        competitiveIterator = CompetitivePointsIterator.create(context, field, getPointNumBytes(), reverse, singleSort,
+            toSortableLong(missingValue));
+        if (competitiveIterator != null) {
+          if (hasTopValue) {
+            competitiveIterator.setTopValue(sortableTopValue);
+          }
+          if (hasBottom) {
+            // the queue is full already
+            competitiveIterator.setBottom(sortableBottom);
+          }
+        }
+      }
+    }
+
+    @Override
+    public DocIdSetIterator competitiveIterator() {
+      return competitiveIterator;
+    }
+
+    @Override
+    public void setHitsThresholdReached() throws IOException {
+      if (competitiveIterator != null) {
+        competitiveIterator.setHitsThresholdReached();
+      }
     }
     
     /** Retrieves the NumericDocValues for the field in this segment */
@@ -201,13 +281,25 @@ public abstract class FieldComparator<T> {
     }
     
     @Override
-    public void setBottom(final int bottom) {
+    public void setBottom(final int bottom) throws IOException {
       this.bottom = values[bottom];
+      updateCompetitiveBottom(NumericUtils.doubleToSortableLong(this.bottom));
     }
 
     @Override
     public void setTopValue(Double value) {
       topValue = value;
+      updateCompetitiveTopValue(NumericUtils.doubleToSortableLong(topValue));
+    }
+
+    @Override
+    int getPointNumBytes() {
+      return Double.BYTES;
+    }
+
+    @Override
+    long toSortableLong(Double value) {
+      return NumericUtils.doubleToSortableLong(value);
     }
 
     @Override
@@ -261,13 +353,25 @@ public abstract class FieldComparator<T> {
     }
     
     @Override
-    public void setBottom(final int bottom) {
+    public void setBottom(final int bottom) throws IOException {
       this.bottom = values[bottom];
+      updateCompetitiveBottom(NumericUtils.floatToSortableInt(this.bottom));
     }
 
     @Override
     public void setTopValue(Float value) {
       topValue = value;
+      updateCompetitiveTopValue(NumericUtils.floatToSortableInt(topValue));
+    }
+
+    @Override
+    int getPointNumBytes() {
+      return Float.BYTES;
+    }
+
+    @Override
+    long toSortableLong(Float value) {
+      return NumericUtils.floatToSortableInt(value);
     }
 
     @Override
@@ -323,13 +427,25 @@ public abstract class FieldComparator<T> {
     }
     
     @Override
-    public void setBottom(final int bottom) {
+    public void setBottom(final int bottom) throws IOException {
       this.bottom = values[bottom];
+      updateCompetitiveBottom(this.bottom);
     }
 
     @Override
     public void setTopValue(Integer value) {
       topValue = value;
+      updateCompetitiveTopValue(topValue);
+    }
+
+    @Override
+    int getPointNumBytes() {
+      return Integer.BYTES;
+    }
+
+    @Override
+    long toSortableLong(Integer value) {
+      return value;
     }
 
     @Override
@@ -383,13 +499,25 @@ public abstract class FieldComparator<T> {
     }
     
     @Override
-    public void setBottom(final int bottom) {
+    public void setBottom(final int bottom) throws IOException {
       this.bottom = values[bottom];
+      updateCompetitiveBottom(this.bottom);
     }
 
     @Override
     public void setTopValue(Long value) {
       topValue = value;
+      updateCompetitiveTopValue(topValue);
+    }
+
+    @Override
+    int getPointNumBytes() {
+      return Long.BYTES;
+    }
+
+    @Override
+    long toSortableLong(Long value) {
+      return value;
     }
 
     @Override
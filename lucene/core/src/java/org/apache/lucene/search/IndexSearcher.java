@@ -304,7 +304,8 @@ public class IndexSearcher {
   /**
    * Expert: Creates an array of leaf slices each holding a subset of the given leaves.
    * Each {@link LeafSlice} is executed in a single thread. By default, segments with more than
-   * MAX_DOCS_PER_SLICE will get their own thread
+   * MAX_DOCS_PER_SLICE will get their own thread. Override this method and call
+   * {@link #slices(List, int, int, boolean)} to split them into ranges of doc IDs instead.
    */
   protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
     return slices(leaves, MAX_DOCS_PER_SLICE, MAX_SEGMENTS_PER_SLICE);
@@ -315,6 +316,23 @@ public class IndexSearcher {
    */
   public static LeafSlice[] slices (List<LeafReaderContext> leaves, int maxDocsPerSlice,
                                     int maxSegmentsPerSlice) {
+    return slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice, false);
+  }
+
+  /**
+   * Static method to segregate LeafReaderContexts amongst multiple slices. If
+   * {@code allowSegmentPartitions} is true, segments that have more than
+   * {@code maxDocsPerSlice} documents are split into ranges of doc IDs of
+   * roughly equal sizes, each of them in its own slice, so that a single large
+   * segment can be searched by several threads. Note that the work that a
+   * {@link Weight} does up-front for a segment, such as intersecting the points
+   * of a range query, is repeated for each range, and that collectors then see
+   * the same leaf several times.
+   *
+   * @lucene.experimental
+   */
+  public static LeafSlice[] slices (List<LeafReaderContext> leaves, int maxDocsPerSlice,
+                                    int maxSegmentsPerSlice, boolean allowSegmentPartitions) {
     // Make a copy so we can sort:
     List<LeafReaderContext> sortedLeaves = new ArrayList<>(leaves);
 
@@ -323,12 +341,23 @@ public class IndexSearcher {
         Collections.reverseOrder(Comparator.comparingInt(l -> l.reader().maxDoc())));
 
     final List<List<LeafReaderContext>> groupedLeaves = new ArrayList<>();
+    final List<LeafSlice> partitions = new ArrayList<>();
     long docSum = 0;
     List<LeafReaderContext> group = null;
     for (LeafReaderContext ctx : sortedLeaves) {
-      if (ctx.reader().maxDoc() > maxDocsPerSlice) {
+      final int maxDoc = ctx.reader().maxDoc();
+      if (maxDoc > maxDocsPerSlice) {
         assert group == null;
-        groupedLeaves.add(Collections.singletonList(ctx));
+        if (allowSegmentPartitions) {
+          final int numPartitions = (int) ((maxDoc + (long) maxDocsPerSlice - 1) / maxDocsPerSlice);
+          for (int i = 0; i < numPartitions; ++i) {
+            final int minDocId = (int) ((long) maxDoc * i / numPartitions);
+            final int maxDocId = (int) ((long) maxDoc * (i + 1) / numPartitions);
+            partitions.add(new LeafSlice(ctx, minDocId, maxDocId));
+          }
+        } else {
+          groupedLeaves.add(Collections.singletonList(ctx));
+        }
       } else {
         if (group == null) {
           group = new ArrayList<>();
@@ -347,8 +376,12 @@ public class IndexSearcher {
       }
     }
 
-    LeafSlice[] slices = new LeafSlice[groupedLeaves.size()];
+    LeafSlice[] slices = new LeafSlice[partitions.size() + groupedLeaves.size()];
     int upto = 0;
+    for (LeafSlice partition : partitions) {
+      slices[upto] = partition;
+      ++upto;
+    }
     for (List<LeafReaderContext> currentLeaf : groupedLeaves) {
       slices[upto] = new LeafSlice(currentLeaf);
       ++upto;
@@ -448,7 +481,8 @@ public class IndexSearcher {
   }
 
   /** Returns the leaf slices used for concurrent searching, or null if no {@code Executor} was
-   *  passed to the constructor.
+   *  passed to the constructor. Large leaves may be split into several slices that each
+   *  cover a range of doc IDs, see {@link LeafSlice#isPartition()}.
    *
    * @lucene.experimental */
   public LeafSlice[] getSlices() {
@@ -674,10 +708,14 @@ public class IndexSearcher {
       final Weight weight = createWeight(query, scoreMode, 1);
       final List<FutureTask<C>> listTasks = new ArrayList<>();
       for (int i = 0; i < leafSlices.length; ++i) {
-        final LeafReaderContext[] leaves = leafSlices[i].leaves;
+        final LeafSlice slice = leafSlices[i];
         final C collector = collectors.get(i);
         FutureTask<C> task = new FutureTask<>(() -> {
-          search(Arrays.asList(leaves), weight, collector);
+          if (slice.isPartition()) {
+            searchLeaf(slice.leaves[0], slice.minDocId, slice.maxDocId, weight, collector);
+          } else {
+            search(Arrays.asList(slice.leaves), weight, collector);
+          }
           return collector;
         });
 
@@ -725,22 +763,52 @@ public class IndexSearcher {
     // threaded...?  the Collector could be sync'd?
     // always use single thread:
     for (LeafReaderContext ctx : leaves) { // search each subreader
-      final LeafCollector leafCollector;
+      searchLeaf(ctx, 0, DocIdSetIterator.NO_MORE_DOCS, weight, collector);
+    }
+  }
+
+  /**
+   * Lower-level search API.
+   * <p>
+   * Collects the documents of the given leaf whose doc ID is in
+   * {@code [minDocId, maxDocId)}. This is called for every leaf by
+   * {@link #search(List, Weight, Collector)}, with the full range of doc IDs,
+   * and directly for the slices that only cover a range of doc IDs of a leaf
+   * when searching concurrently.
+   *
+   * @param ctx
+   *          the leaf to execute the search on
+   * @param minDocId
+   *          the minimum doc ID to collect, inclusive
+   * @param maxDocId
+   *          the maximum doc ID to collect, exclusive
+   * @param weight
+   *          to match documents
+   * @param collector
+   *          to receive hits
+   * @lucene.experimental
+   */
+  protected void searchLeaf(LeafReaderContext ctx, int minDocId, int maxDocId, Weight weight, Collector collector)
+      throws IOException {
+    final LeafCollector leafCollector;
+    try {
+      leafCollector = collector.getLeafCollector(ctx);
+    } catch (CollectionTerminatedException e) {
+      // there is no doc of interest in this reader context
+      // continue with the following leaf
+      return;
+    }
+    BulkScorer scorer = weight.bulkScorer(ctx);
+    if (scorer != null) {
       try {
-        leafCollector = collector.getLeafCollector(ctx);
-      } catch (CollectionTerminatedException e) {
-        // there is no doc of interest in this reader context
-        // continue with the following leaf
-        continue;
-      }
-      BulkScorer scorer = weight.bulkScorer(ctx);
-      if (scorer != null) {
-        try {
+        if (minDocId == 0 && maxDocId == DocIdSetIterator.NO_MORE_DOCS) {
           scorer.score(leafCollector, ctx.reader().getLiveDocs());
-        } catch (CollectionTerminatedException e) {
-          // collection was terminated prematurely
-          // continue with the following leaf
+        } else {
+          scorer.score(leafCollector, ctx.reader().getLiveDocs(), minDocId, maxDocId);
         }
+      } catch (CollectionTerminatedException e) {
+        // collection was terminated prematurely
+        // continue with the following leaf
       }
     }
   }
@@ -854,7 +922,8 @@ public class IndexSearcher {
 
   /**
    * A class holding a subset of the {@link IndexSearcher}s leaf contexts to be
-   * executed within a single thread.
+   * executed within a single thread. A slice either holds whole leaves, or a
+   * range of doc IDs of a single leaf, see {@link #isPartition()}.
    * 
    * @lucene.experimental
    */
@@ -864,10 +933,45 @@ public class IndexSearcher {
      *
      *  @lucene.experimental */
     public final LeafReaderContext[] leaves;
+
+    /** The first doc ID of the leaf that this slice covers, inclusive, or 0 if
+     *  this slice covers whole leaves.
+     *
+     *  @lucene.experimental */
+    public final int minDocId;
+
+    /** The last doc ID of the leaf that this slice covers, exclusive, or
+     *  {@link DocIdSetIterator#NO_MORE_DOCS} if this slice covers whole leaves.
+     *
+     *  @lucene.experimental */
+    public final int maxDocId;
     
     public LeafSlice(List<LeafReaderContext> leavesList) {
       Collections.sort(leavesList, Comparator.comparingInt(l -> l.docBase));
       this.leaves = leavesList.toArray(new LeafReaderContext[0]);
+      this.minDocId = 0;
+      this.maxDocId = DocIdSetIterator.NO_MORE_DOCS;
+    }
+
+    /** Create a slice that covers doc IDs in {@code [minDocId, maxDocId)} of
+     *  the given leaf.
+     *
+     *  @lucene.experimental */
+    public LeafSlice(LeafReaderContext leaf, int minDocId, int maxDocId) {
+      if (minDocId < 0 || minDocId >= maxDocId || maxDocId > leaf.reader().maxDoc()) {
+        throw new IllegalArgumentException("Illegal range of doc IDs [" + minDocId + ", " + maxDocId
+            + ") for a leaf with maxDoc=" + leaf.reader().maxDoc());
+      }
+      this.leaves = new LeafReaderContext[] { leaf };
+      this.minDocId = minDocId;
+      this.maxDocId = maxDocId;
+    }
+
+    /** Whether this slice only covers a range of doc IDs of a single leaf.
+     *
+     *  @lucene.experimental */
+    public boolean isPartition() {
+      return maxDocId != DocIdSetIterator.NO_MORE_DOCS;
     }
   }
 
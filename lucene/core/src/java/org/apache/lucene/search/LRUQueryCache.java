@@ -657,9 +657,10 @@ public class LRUQueryCache implements QueryCache, Accountable {
 
   }
 
-  private class CachingWrapperWeight extends ConstantScoreWeight {
+  // pkg-private so that ShardedLRUQueryCache can unwrap it
+  class CachingWrapperWeight extends ConstantScoreWeight {
 
-    private final Weight in;
+    final Weight in;
     private final QueryCachingPolicy policy;
     // we use an AtomicBoolean because Weight.scorer may be called from multiple
     // threads when IndexSearcher is created with threads
@@ -93,4 +93,16 @@ public interface LeafCollector {
    */
   void collect(int doc) throws IOException;
 
+  /**
+   * Optionally returns an iterator over competitive documents: documents that
+   * are not returned by this iterator will not be collected. Bulk scorers may
+   * intersect it with the query in order to skip non-competitive documents.
+   * The default implementation returns {@code null}, meaning that all
+   * documents may be competitive.
+   * @lucene.experimental
+   */
+  default DocIdSetIterator competitiveIterator() throws IOException {
+    return null;
+  }
+
 }
@@ -116,4 +116,25 @@ public interface LeafFieldComparator {
    * obtain the current hit's score, if necessary. */
   void setScorer(Scorable scorer) throws IOException;
 
+  /**
+   * Returns a competitive iterator: an iterator over the documents of the
+   * segment that may still be competitive given the current bottom value, or
+   * {@code null} if this comparator does not skip documents. Collectors may
+   * intersect it with the query so that non-competitive documents are not
+   * even collected. The iterator is updated in place as the bottom value
+   * improves.
+   * @lucene.experimental
+   */
+  default DocIdSetIterator competitiveIterator() throws IOException {
+    return null;
+  }
+
+  /**
+   * Informs this comparator that the total hit count no longer needs to be
+   * accurate, so that it may start skipping non-competitive documents.
+   * @lucene.experimental
+   */
+  default void setHitsThresholdReached() throws IOException {
+  }
+
 }
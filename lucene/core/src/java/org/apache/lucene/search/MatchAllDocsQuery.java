@@ -58,6 +58,21 @@ public final class MatchAllDocsQuery extends Query {
             ScoreAndDoc scorer = new ScoreAndDoc();
             scorer.score = score;
             collector.setScorer(scorer);
+            DocIdSetIterator competitiveIterator = collector.competitiveIterator();
+            if (competitiveIterator != null) {
+              // only visit documents that the collector considers competitive
+              int doc = competitiveIterator.docID();
+              if (doc < min) {
+                doc = competitiveIterator.advance(min);
+              }
+              for (; doc < max; doc = competitiveIterator.nextDoc()) {
+                scorer.doc = doc;
+                if (acceptDocs == null || acceptDocs.get(doc)) {
+                  collector.collect(doc);
+                }
+              }
+              return doc >= maxDoc ? DocIdSetIterator.NO_MORE_DOCS : doc;
+            }
             for (int doc = min; doc < max; ++doc) {
               scorer.doc = doc;
               if (acceptDocs == null || acceptDocs.get(doc)) {
@@ -89,4 +89,15 @@ final class MultiLeafFieldComparator implements LeafFieldComparator {
     }
   }
 
+  @Override
+  public DocIdSetIterator competitiveIterator() throws IOException {
+    // only the primary sort can narrow down the set of competitive documents
+    return firstComparator.competitiveIterator();
+  }
+
+  @Override
+  public void setHitsThresholdReached() throws IOException {
+    firstComparator.setHitsThresholdReached();
+  }
+
 }
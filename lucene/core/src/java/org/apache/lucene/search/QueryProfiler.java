@@ -0,0 +1,398 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.lucene.util.IOSupplier;
+
+/**
+ * Records where the time of a query goes. A profiler builds a tree of
+ * {@link Node}s that mirrors the tree of {@link Weight}s of the queries that
+ * are run with it: weights are wrapped so that creating them, building
+ * scorers, iterating over documents, checking matches, scoring and bulk
+ * scoring are timed and counted per node. Allocations of the current thread
+ * are also recorded while weights are created, scorers are built and
+ * documents are bulk scored, if the JVM supports it.
+ *
+ * <p>The easiest way to use a profiler is through a
+ * {@link QueryProfilerIndexSearcher}. Searchers that need to decide on a per
+ * request basis may instead wrap calls to
+ * {@link IndexSearcher#createWeight(Query, ScoreMode, float)} and
+ * {@link IndexSearcher#rewrite(Query)} with
+ * {@link #createWeight(Query, IOSupplier)} and {@link #rewrite(IOSupplier)}.
+ *
+ * <p>Timings of operations that are called once per document are sampled in
+ * order to limit the overhead of profiling, and extrapolated. Timings of a
+ * node include the timings of its children. Profilers are thread-safe: the
+ * weights that a thread creates while it creates another weight become
+ * children of the node of this weight, other weights become roots of the
+ * tree.
+ *
+ * @lucene.experimental
+ */
+public final class QueryProfiler {
+
+  /** The operations that are timed. */
+  public enum TimingType {
+    /** {@link IndexSearcher#createWeight(Query, ScoreMode, float)} */
+    CREATE_WEIGHT,
+    /** {@link Weight#scorer}, {@link Weight#scorerSupplier} and {@link Weight#bulkScorer} */
+    BUILD_SCORER,
+    /** {@link DocIdSetIterator#nextDoc()} */
+    NEXT_DOC,
+    /** {@link DocIdSetIterator#advance(int)} */
+    ADVANCE,
+    /** {@link TwoPhaseIterator#matches()} */
+    MATCH,
+    /** {@link Scorable#score()} */
+    SCORE,
+    /** {@link Scorer#advanceShallow(int)} */
+    SHALLOW_ADVANCE,
+    /** {@link Scorer#getMaxScore(int)} */
+    COMPUTE_MAX_SCORE,
+    /** {@link Scorable#setMinCompetitiveScore(float)} */
+    SET_MIN_COMPETITIVE_SCORE,
+    /** {@link BulkScorer#score(LeafCollector, org.apache.lucene.util.Bits, int, int)}, including collection */
+    BULK_SCORE;
+
+    @Override
+    public String toString() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  // operations are always timed for this number of calls, and then sampled
+  private static final int MAX_UNSAMPLED_CALLS = 256;
+  private static final int SAMPLING_MASK = 0x0F;
+
+  // com.sun.management.ThreadMXBean#getThreadAllocatedBytes, or null if not available
+  private static final MethodHandle THREAD_ALLOCATED_BYTES = threadAllocatedBytesHandle();
+
+  private static MethodHandle threadAllocatedBytesHandle() {
+    try {
+      final Object threadMXBean = ManagementFactory.getThreadMXBean();
+      final Class<?> clazz = Class.forName("com.sun.management.ThreadMXBean");
+      if (clazz.isInstance(threadMXBean) == false
+          || (Boolean) clazz.getMethod("isThreadAllocatedMemorySupported").invoke(threadMXBean) == false
+          || (Boolean) clazz.getMethod("isThreadAllocatedMemoryEnabled").invoke(threadMXBean) == false) {
+        return null;
+      }
+      return MethodHandles.publicLookup()
+          .findVirtual(clazz, "getThreadAllocatedBytes", MethodType.methodType(long.class, long.class))
+          .bindTo(threadMXBean);
+    } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+      return null;
+    }
+  }
+
+  /** Return the number of bytes allocated by the current thread so far, or -1 if unsupported. */
+  static long threadAllocatedBytes() {
+    if (THREAD_ALLOCATED_BYTES == null) {
+      return -1;
+    }
+    try {
+      return (long) THREAD_ALLOCATED_BYTES.invokeExact(Thread.currentThread().getId());
+    } catch (Throwable t) {
+      return -1;
+    }
+  }
+
+  /** Whether the current JVM can report allocations per thread. */
+  public static boolean isAllocationTrackingSupported() {
+    return THREAD_ALLOCATED_BYTES != null;
+  }
+
+  /**
+   * Timings and counts of a node that are recorded by a single thread, for
+   * instance the scorer of a segment. Nodes sum up their breakdowns.
+   */
+  static final class Breakdown {
+
+    private final long[] timeNanos = new long[TimingType.values().length];
+    private final long[] counts = new long[TimingType.values().length];
+    private final long[] sampledCounts = new long[TimingType.values().length];
+    long docsVisited;
+    long allocatedBytes;
+
+    /** Return the start time of an operation, or 0 if this call is not sampled. */
+    long start(TimingType type) {
+      final long count = counts[type.ordinal()];
+      if (count < MAX_UNSAMPLED_CALLS || (count & SAMPLING_MASK) == 0) {
+        // 0 is a possible value of nanoTime, but the odds are low and the impact negligible
+        return System.nanoTime();
+      }
+      return 0L;
+    }
+
+    void stop(TimingType type, long start) {
+      final int ord = type.ordinal();
+      counts[ord]++;
+      if (start != 0L) {
+        timeNanos[ord] += System.nanoTime() - start;
+        sampledCounts[ord]++;
+      }
+    }
+
+    long timeNanos(TimingType type) {
+      final int ord = type.ordinal();
+      if (sampledCounts[ord] == 0) {
+        return 0L;
+      }
+      // extrapolate sampled timings
+      return (long) ((double) timeNanos[ord] * counts[ord] / sampledCounts[ord]);
+    }
+
+    long count(TimingType type) {
+      return counts[type.ordinal()];
+    }
+  }
+
+  /**
+   * A node of the profile tree, which records timings of a query.
+   */
+  public static final class Node {
+
+    private final Query query;
+    private final List<Node> children = new ArrayList<>();
+    private final List<Breakdown> breakdowns = new ArrayList<>();
+
+    Node(Query query) {
+      this.query = query;
+    }
+
+    synchronized Breakdown newBreakdown() {
+      final Breakdown breakdown = new Breakdown();
+      breakdowns.add(breakdown);
+      return breakdown;
+    }
+
+    /** Return the query of this node. */
+    public Query getQuery() {
+      return query;
+    }
+
+    /** Return the simple class name of the query. */
+    public String getType() {
+      Class<?> clazz = query.getClass();
+      while (clazz.isAnonymousClass()) {
+        clazz = clazz.getSuperclass();
+      }
+      return clazz.getSimpleName();
+    }
+
+    /** Return the description of the query. */
+    public String getDescription() {
+      return query.toString();
+    }
+
+    synchronized void addChild(Node child) {
+      children.add(child);
+    }
+
+    /** Return the nodes of the queries whose weights were created by the weight of this query. */
+    public synchronized List<Node> getChildren() {
+      return Collections.unmodifiableList(new ArrayList<>(children));
+    }
+
+    /** Return the time spent on operations of the given type, in nanoseconds. */
+    public synchronized long getTimeNanos(TimingType type) {
+      long time = 0;
+      for (Breakdown breakdown : breakdowns) {
+        time += breakdown.timeNanos(type);
+      }
+      return time;
+    }
+
+    /** Return the number of operations of the given type. */
+    public synchronized long getCount(TimingType type) {
+      long count = 0;
+      for (Breakdown breakdown : breakdowns) {
+        count += breakdown.count(type);
+      }
+      return count;
+    }
+
+    /** Return the total time spent on this query, in nanoseconds. */
+    public long getTotalTimeNanos() {
+      long time = 0;
+      for (TimingType type : TimingType.values()) {
+        time += getTimeNanos(type);
+      }
+      return time;
+    }
+
+    /** Return the number of documents that iterators of this query moved to, or that its bulk scorers collected. */
+    public synchronized long getDocsVisited() {
+      long docsVisited = 0;
+      for (Breakdown breakdown : breakdowns) {
+        docsVisited += breakdown.docsVisited;
+      }
+      return docsVisited;
+    }
+
+    /**
+     * Return the number of bytes that were allocated while creating the
+     * weight, building scorers and bulk scoring, or -1 if allocations can't
+     * be tracked on this JVM.
+     */
+    public synchronized long getAllocatedBytes() {
+      if (isAllocationTrackingSupported() == false) {
+        return -1;
+      }
+      long allocatedBytes = 0;
+      for (Breakdown breakdown : breakdowns) {
+        allocatedBytes += breakdown.allocatedBytes;
+      }
+      return allocatedBytes;
+    }
+
+    private void toString(StringBuilder sb, int depth) {
+      for (int i = 0; i < depth; ++i) {
+        sb.append("  ");
+      }
+      sb.append(getType()).append(' ').append(getDescription())
+          .append(" time=").append(getTotalTimeNanos()).append("ns")
+          .append(" docs=").append(getDocsVisited());
+      if (isAllocationTrackingSupported()) {
+        sb.append(" allocated=").append(getAllocatedBytes()).append('B');
+      }
+      for (TimingType type : TimingType.values()) {
+        final long count = getCount(type);
+        if (count > 0) {
+          sb.append(' ').append(type).append('=').append(getTimeNanos(type)).append("ns/").append(count);
+        }
+      }
+      sb.append('\n');
+      for (Node child : getChildren()) {
+        child.toString(sb, depth + 1);
+      }
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder sb = new StringBuilder();
+      toString(sb, 0);
+      return sb.toString();
+    }
+  }
+
+  /** The state of a thread that is creating weights or rewriting queries. */
+  private static final class ThreadState {
+    final Deque<Node> stack = new ArrayDeque<>();
+    int rewriteDepth;
+  }
+
+  private final List<Node> roots = new ArrayList<>(); // guarded by this
+  private final Map<Thread, ThreadState> threadStates = new ConcurrentHashMap<>();
+  private final LongAdder rewriteTimeNanos = new LongAdder();
+
+  /** Sole constructor. */
+  public QueryProfiler() {}
+
+  /**
+   * Create a weight with the given supplier and wrap it so that its usage is
+   * recorded into a new node. Nodes of the weights that are created by the
+   * supplier become children of this node.
+   */
+  public Weight createWeight(Query query, IOSupplier<Weight> weightSupplier) throws IOException {
+    final Node node = new Node(query);
+    final ThreadState state = threadState();
+    final Node parent = state.stack.peek();
+    if (parent == null) {
+      synchronized (this) {
+        roots.add(node);
+      }
+    } else {
+      parent.addChild(node);
+    }
+    state.stack.push(node);
+    final Breakdown breakdown = node.newBreakdown();
+    final long startBytes = threadAllocatedBytes();
+    final long start = breakdown.start(TimingType.CREATE_WEIGHT);
+    final Weight weight;
+    try {
+      weight = weightSupplier.get();
+    } finally {
+      breakdown.stop(TimingType.CREATE_WEIGHT, start);
+      breakdown.allocatedBytes += threadAllocatedBytes() - startBytes;
+      state.stack.pop();
+      release(state);
+    }
+    return new QueryProfilerWeight(query, weight, node);
+  }
+
+  /** Rewrite a query with the given supplier and record the time it took. */
+  public Query rewrite(IOSupplier<Query> rewriter) throws IOException {
+    final ThreadState state = threadState();
+    // rewriting may be nested, only time the outer call
+    final long start = state.rewriteDepth++ == 0 ? System.nanoTime() : 0L;
+    try {
+      return rewriter.get();
+    } finally {
+      if (--state.rewriteDepth == 0) {
+        rewriteTimeNanos.add(System.nanoTime() - start);
+      }
+      release(state);
+    }
+  }
+
+  private ThreadState threadState() {
+    return threadStates.computeIfAbsent(Thread.currentThread(), t -> new ThreadState());
+  }
+
+  // only the current thread uses its state, which is dropped once the thread is done so that threads aren't leaked
+  private void release(ThreadState state) {
+    if (state.stack.isEmpty() && state.rewriteDepth == 0) {
+      threadStates.remove(Thread.currentThread());
+    }
+  }
+
+  /** Return the nodes of the top-level weights that have been created with this profiler. */
+  public synchronized List<Node> getTree() {
+    return Collections.unmodifiableList(new ArrayList<>(roots));
+  }
+
+  /** Return the total time spent rewriting queries, summed over threads, in nanoseconds. */
+  public long getRewriteTimeNanos() {
+    return rewriteTimeNanos.sum();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("rewrite time=").append(getRewriteTimeNanos()).append("ns\n");
+    for (Node root : getTree()) {
+      root.toString(sb, 0);
+    }
+    return sb.toString();
+  }
+}
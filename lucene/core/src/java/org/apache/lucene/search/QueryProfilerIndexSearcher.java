@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+
+import org.apache.lucene.index.IndexReader;
+
+/**
+ * An {@link IndexSearcher} that records the execution of queries into a
+ * {@link QueryProfiler}. Since a profiler collects data about all queries
+ * that are run with it, a new instance should be created for each query
+ * to profile, for instance:
+ * <pre class="prettyprint">
+ * QueryProfilerIndexSearcher searcher = new QueryProfilerIndexSearcher(reader);
+ * TopDocs topDocs = searcher.search(query, 10);
+ * System.out.println(searcher.getProfiler());
+ * </pre>
+ *
+ * @lucene.experimental
+ */
+public class QueryProfilerIndexSearcher extends IndexSearcher {
+
+  private final QueryProfiler profiler = new QueryProfiler();
+
+  /** Creates a searcher that profiles queries against the given reader. */
+  public QueryProfilerIndexSearcher(IndexReader reader) {
+    super(reader);
+  }
+
+  /** Creates a searcher that profiles queries against the given reader and searches segments with the given executor. */
+  public QueryProfilerIndexSearcher(IndexReader reader, Executor executor) {
+    super(reader, executor);
+  }
+
+  @Override
+  public Query rewrite(Query original) throws IOException {
+    return profiler.rewrite(() -> super.rewrite(original));
+  }
+
+  @Override
+  public Weight createWeight(Query query, ScoreMode scoreMode, float boost) throws IOException {
+    return profiler.createWeight(query, () -> super.createWeight(query, scoreMode, boost));
+  }
+
+  /** Return the profiler that records queries that are run with this searcher. */
+  public QueryProfiler getProfiler() {
+    return profiler;
+  }
+}
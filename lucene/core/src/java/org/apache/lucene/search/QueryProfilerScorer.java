@@ -0,0 +1,172 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.apache.lucene.search.QueryProfiler.Breakdown;
+import org.apache.lucene.search.QueryProfiler.TimingType;
+
+/**
+ * A {@link Scorer} that records the usage of another scorer into a
+ * {@link Breakdown}.
+ */
+final class QueryProfilerScorer extends Scorer {
+
+  private final Scorer scorer;
+  private final Breakdown breakdown;
+
+  QueryProfilerScorer(QueryProfilerWeight weight, Scorer scorer, Breakdown breakdown) {
+    super(weight);
+    this.scorer = scorer;
+    this.breakdown = breakdown;
+  }
+
+  @Override
+  public int docID() {
+    return scorer.docID();
+  }
+
+  @Override
+  public float score() throws IOException {
+    final long start = breakdown.start(TimingType.SCORE);
+    try {
+      return scorer.score();
+    } finally {
+      breakdown.stop(TimingType.SCORE, start);
+    }
+  }
+
+  @Override
+  public Collection<ChildScorable> getChildren() throws IOException {
+    return scorer.getChildren();
+  }
+
+  @Override
+  public int advanceShallow(int target) throws IOException {
+    final long start = breakdown.start(TimingType.SHALLOW_ADVANCE);
+    try {
+      return scorer.advanceShallow(target);
+    } finally {
+      breakdown.stop(TimingType.SHALLOW_ADVANCE, start);
+    }
+  }
+
+  @Override
+  public float getMaxScore(int upTo) throws IOException {
+    final long start = breakdown.start(TimingType.COMPUTE_MAX_SCORE);
+    try {
+      return scorer.getMaxScore(upTo);
+    } finally {
+      breakdown.stop(TimingType.COMPUTE_MAX_SCORE, start);
+    }
+  }
+
+  @Override
+  public void setMinCompetitiveScore(float minScore) throws IOException {
+    final long start = breakdown.start(TimingType.SET_MIN_COMPETITIVE_SCORE);
+    try {
+      scorer.setMinCompetitiveScore(minScore);
+    } finally {
+      breakdown.stop(TimingType.SET_MIN_COMPETITIVE_SCORE, start);
+    }
+  }
+
+  @Override
+  public DocIdSetIterator iterator() {
+    final TwoPhaseIterator twoPhase = twoPhaseIterator();
+    if (twoPhase != null) {
+      return TwoPhaseIterator.asDocIdSetIterator(twoPhase);
+    }
+    return new ProfilerIterator(scorer.iterator(), breakdown);
+  }
+
+  @Override
+  public TwoPhaseIterator twoPhaseIterator() {
+    final TwoPhaseIterator in = scorer.twoPhaseIterator();
+    if (in == null) {
+      return null;
+    }
+    return new TwoPhaseIterator(new ProfilerIterator(in.approximation(), breakdown)) {
+      @Override
+      public boolean matches() throws IOException {
+        final long start = breakdown.start(TimingType.MATCH);
+        try {
+          return in.matches();
+        } finally {
+          breakdown.stop(TimingType.MATCH, start);
+        }
+      }
+
+      @Override
+      public float matchCost() {
+        return in.matchCost();
+      }
+    };
+  }
+
+  private static final class ProfilerIterator extends DocIdSetIterator {
+
+    private final DocIdSetIterator in;
+    private final Breakdown breakdown;
+
+    ProfilerIterator(DocIdSetIterator in, Breakdown breakdown) {
+      this.in = in;
+      this.breakdown = breakdown;
+    }
+
+    @Override
+    public int docID() {
+      return in.docID();
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+      final long start = breakdown.start(TimingType.NEXT_DOC);
+      try {
+        final int doc = in.nextDoc();
+        if (doc != NO_MORE_DOCS) {
+          breakdown.docsVisited++;
+        }
+        return doc;
+      } finally {
+        breakdown.stop(TimingType.NEXT_DOC, start);
+      }
+    }
+
+    @Override
+    public int advance(int target) throws IOException {
+      final long start = breakdown.start(TimingType.ADVANCE);
+      try {
+        final int doc = in.advance(target);
+        if (doc != NO_MORE_DOCS) {
+          breakdown.docsVisited++;
+        }
+        return doc;
+      } finally {
+        breakdown.stop(TimingType.ADVANCE, start);
+      }
+    }
+
+    @Override
+    public long cost() {
+      return in.cost();
+    }
+  }
+}
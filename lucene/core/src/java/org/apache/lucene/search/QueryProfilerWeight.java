@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.QueryProfiler.Breakdown;
+import org.apache.lucene.search.QueryProfiler.TimingType;
+import org.apache.lucene.util.Bits;
+
+/**
+ * A {@link Weight} that records the usage of another weight into a
+ * {@link QueryProfiler.Node}.
+ */
+final class QueryProfilerWeight extends Weight {
+
+  private final Weight in;
+  private final QueryProfiler.Node node;
+
+  QueryProfilerWeight(Query query, Weight in, QueryProfiler.Node node) {
+    super(query);
+    this.in = in;
+    this.node = node;
+  }
+
+  @Override
+  public Scorer scorer(LeafReaderContext context) throws IOException {
+    final ScorerSupplier supplier = scorerSupplier(context);
+    if (supplier == null) {
+      return null;
+    }
+    return supplier.get(Long.MAX_VALUE);
+  }
+
+  @Override
+  public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+    final Breakdown breakdown = node.newBreakdown();
+    final long startBytes = QueryProfiler.threadAllocatedBytes();
+    final long start = breakdown.start(TimingType.BUILD_SCORER);
+    final ScorerSupplier supplier;
+    try {
+      supplier = in.scorerSupplier(context);
+    } finally {
+      breakdown.stop(TimingType.BUILD_SCORER, start);
+      breakdown.allocatedBytes += QueryProfiler.threadAllocatedBytes() - startBytes;
+    }
+    if (supplier == null) {
+      return null;
+    }
+
+    final QueryProfilerWeight weight = this;
+    return new ScorerSupplier() {
+
+      @Override
+      public Scorer get(long leadCost) throws IOException {
+        final long startBytes = QueryProfiler.threadAllocatedBytes();
+        final long start = breakdown.start(TimingType.BUILD_SCORER);
+        try {
+          return new QueryProfilerScorer(weight, supplier.get(leadCost), breakdown);
+        } finally {
+          breakdown.stop(TimingType.BUILD_SCORER, start);
+          breakdown.allocatedBytes += QueryProfiler.threadAllocatedBytes() - startBytes;
+        }
+      }
+
+      @Override
+      public long cost() {
+        return supplier.cost();
+      }
+    };
+  }
+
+  @Override
+  public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
+    // the wrapped weight may have a specialized bulk scorer, keep it and only record its total time
+    final Breakdown breakdown = node.newBreakdown();
+    final long startBytes = QueryProfiler.threadAllocatedBytes();
+    final long start = breakdown.start(TimingType.BUILD_SCORER);
+    final BulkScorer bulkScorer;
+    try {
+      bulkScorer = in.bulkScorer(context);
+    } finally {
+      breakdown.stop(TimingType.BUILD_SCORER, start);
+      breakdown.allocatedBytes += QueryProfiler.threadAllocatedBytes() - startBytes;
+    }
+    if (bulkScorer == null) {
+      return null;
+    }
+    return new ProfilerBulkScorer(bulkScorer, breakdown);
+  }
+
+  @Override
+  public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+    return in.explain(context, doc);
+  }
+
+  @Override
+  public Matches matches(LeafReaderContext context, int doc) throws IOException {
+    return in.matches(context, doc);
+  }
+
+  @Override
+  public boolean isCacheable(LeafReaderContext ctx) {
+    return in.isCacheable(ctx);
+  }
+
+  private static final class ProfilerBulkScorer extends BulkScorer {
+
+    private final BulkScorer in;
+    private final Breakdown breakdown;
+
+    ProfilerBulkScorer(BulkScorer in, Breakdown breakdown) {
+      this.in = in;
+      this.breakdown = breakdown;
+    }
+
+    @Override
+    public int score(LeafCollector collector, Bits acceptDocs, int min, int max) throws IOException {
+      final long startBytes = QueryProfiler.threadAllocatedBytes();
+      final long start = breakdown.start(TimingType.BULK_SCORE);
+      try {
+        return in.score(new FilterLeafCollector(collector) {
+          @Override
+          public void collect(int doc) throws IOException {
+            breakdown.docsVisited++;
+            in.collect(doc);
+          }
+
+          @Override
+          public DocIdSetIterator competitiveIterator() throws IOException {
+            return in.competitiveIterator();
+          }
+        }, acceptDocs, min, max);
+      } finally {
+        breakdown.stop(TimingType.BULK_SCORE, start);
+        breakdown.allocatedBytes += QueryProfiler.threadAllocatedBytes() - startBytes;
+      }
+    }
+
+    @Override
+    public long cost() {
+      return in.cost();
+    }
+  }
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Accountables;
+
+/**
+ * A {@link QueryCache} that spreads queries over several {@link LRUQueryCache}
+ * shards, each with its own lock, in order to reduce lock contention when many
+ * threads search concurrently.
+ *
+ * A query is always routed to the same shard, based on its hash code. Each
+ * shard gets an equal slice of the maximum number of cached queries and of the
+ * RAM budget, and evicts its least-recently-used queries independently of the
+ * other shards. Recency is hence only approximate across the whole cache: the
+ * query that gets evicted is the least-recently-used one of its shard, which
+ * is not necessarily the least-recently-used one overall.
+ *
+ * Since a shard refuses to cache entries that could exceed a fifth of its own
+ * RAM budget (see {@link LRUQueryCache}), large indices are better served by
+ * fewer shards.
+ *
+ * This cache can be used with any {@link QueryCachingPolicy}, including
+ * {@link UsageTrackingQueryCachingPolicy}, which is notified once per
+ * {@link Weight} exactly like with {@link LRUQueryCache}:
+ * <pre class="prettyprint">
+ *   final QueryCache queryCache = new ShardedLRUQueryCache(8, 256, 50 * 1024L * 1024L);
+ *   indexSearcher.setQueryCache(queryCache);
+ *   indexSearcher.setQueryCachingPolicy(new UsageTrackingQueryCachingPolicy());
+ * </pre>
+ *
+ * This class is thread-safe.
+ *
+ * @see LRUQueryCache
+ * @lucene.experimental
+ */
+public class ShardedLRUQueryCache implements QueryCache, Accountable {
+
+  private final LRUQueryCache[] shards;
+
+  /**
+   * Expert: Create a new instance with <code>numShards</code> shards that will
+   * cache at most <code>maxSize</code> queries with at most
+   * <code>maxRamBytesUsed</code> bytes of memory, only on leaves that satisfy
+   * {@code leavesToCache}.
+   *
+   * @see LRUQueryCache#LRUQueryCache(int, long, Predicate, float)
+   */
+  public ShardedLRUQueryCache(int numShards, int maxSize, long maxRamBytesUsed,
+                              Predicate<LeafReaderContext> leavesToCache, float skipCacheFactor) {
+    if (numShards < 1) {
+      throw new IllegalArgumentException("numShards must be at least 1, got " + numShards);
+    }
+    if (maxSize < numShards) {
+      throw new IllegalArgumentException("maxSize must be no less than numShards, got maxSize=" + maxSize
+          + ", numShards=" + numShards);
+    }
+    shards = new LRUQueryCache[numShards];
+    for (int i = 0; i < numShards; ++i) {
+      // spread the remainder so that shards sum up to maxSize
+      final int shardMaxSize = maxSize / numShards + (i < maxSize % numShards ? 1 : 0);
+      shards[i] = newShard(shardMaxSize, maxRamBytesUsed / numShards, leavesToCache, skipCacheFactor);
+    }
+  }
+
+  /**
+   * Create a new instance with <code>numShards</code> shards that will cache
+   * at most <code>maxSize</code> queries with at most
+   * <code>maxRamBytesUsed</code> bytes of memory, using the same leaf
+   * selection and skip factor as {@link LRUQueryCache#LRUQueryCache(int, long)}.
+   */
+  public ShardedLRUQueryCache(int numShards, int maxSize, long maxRamBytesUsed) {
+    this(numShards, maxSize, maxRamBytesUsed, new LRUQueryCache.MinSegmentSizePredicate(10000, .03f), 250);
+  }
+
+  /**
+   * Expert: create one shard of this cache. This can be overridden in order to
+   * return a {@link LRUQueryCache} sub-class that overrides the statistics
+   * callbacks. Note that this method is called from the constructor.
+   */
+  protected LRUQueryCache newShard(int maxSize, long maxRamBytesUsed,
+                                   Predicate<LeafReaderContext> leavesToCache, float skipCacheFactor) {
+    return new LRUQueryCache(maxSize, maxRamBytesUsed, leavesToCache, skipCacheFactor);
+  }
+
+  /** Return the number of shards of this cache. */
+  public final int getNumShards() {
+    return shards.length;
+  }
+
+  // pkg-private for testing
+  LRUQueryCache shard(Query query) {
+    int h = query.hashCode();
+    // spread high bits since many queries only differ in their low bits
+    h ^= h >>> 16;
+    h *= 0x9E3779B9;
+    return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+  }
+
+  @Override
+  public Weight doCache(Weight weight, QueryCachingPolicy policy) {
+    // the key of the cache is the query of the wrapped weight, so route on it
+    Weight in = weight;
+    while (in instanceof LRUQueryCache.CachingWrapperWeight) {
+      in = ((LRUQueryCache.CachingWrapperWeight) in).in;
+    }
+    return shard(in.getQuery()).doCache(in, policy);
+  }
+
+  /**
+   * Remove all cache entries for the given core cache key.
+   */
+  public void clearCoreCacheKey(Object coreKey) {
+    for (LRUQueryCache shard : shards) {
+      shard.clearCoreCacheKey(coreKey);
+    }
+  }
+
+  /**
+   * Remove all cache entries for the given query.
+   */
+  public void clearQuery(Query query) {
+    shard(query).clearQuery(query);
+  }
+
+  /**
+   * Clear the content of this cache.
+   */
+  public void clear() {
+    for (LRUQueryCache shard : shards) {
+      shard.clear();
+    }
+  }
+
+  // pkg-private for testing
+  void assertConsistent() {
+    for (LRUQueryCache shard : shards) {
+      shard.assertConsistent();
+    }
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    long ramBytesUsed = 0;
+    for (LRUQueryCache shard : shards) {
+      ramBytesUsed += shard.ramBytesUsed();
+    }
+    return ramBytesUsed;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    Map<Integer, LRUQueryCache> children = new LinkedHashMap<>();
+    for (int i = 0; i < shards.length; ++i) {
+      children.put(i, shards[i]);
+    }
+    return Accountables.namedAccountables("shard", children);
+  }
+
+  /**
+   * Return the total number of times that a {@link Query} has been looked up
+   * in this {@link QueryCache}.
+   * @see LRUQueryCache#getTotalCount()
+   */
+  public final long getTotalCount() {
+    return getHitCount() + getMissCount();
+  }
+
+  /**
+   * Return the number of lookups that found a cached {@link DocIdSet}.
+   * @see LRUQueryCache#getHitCount()
+   */
+  public final long getHitCount() {
+    long hitCount = 0;
+    for (LRUQueryCache shard : shards) {
+      hitCount += shard.getHitCount();
+    }
+    return hitCount;
+  }
+
+  /**
+   * Return the number of lookups that did not find a cached {@link DocIdSet}.
+   * @see LRUQueryCache#getMissCount()
+   */
+  public final long getMissCount() {
+    long missCount = 0;
+    for (LRUQueryCache shard : shards) {
+      missCount += shard.getMissCount();
+    }
+    return missCount;
+  }
+
+  /**
+   * Return the total number of {@link DocIdSet}s which are currently stored
+   * in the cache.
+   * @see LRUQueryCache#getCacheSize()
+   */
+  public final long getCacheSize() {
+    long cacheSize = 0;
+    for (LRUQueryCache shard : shards) {
+      cacheSize += shard.getCacheSize();
+    }
+    return cacheSize;
+  }
+
+  /**
+   * Return the total number of cache entries that have been generated and put
+   * in the cache.
+   * @see LRUQueryCache#getCacheCount()
+   */
+  public final long getCacheCount() {
+    long cacheCount = 0;
+    for (LRUQueryCache shard : shards) {
+      cacheCount += shard.getCacheCount();
+    }
+    return cacheCount;
+  }
+
+  /**
+   * Return the number of cache entries that have been removed from the cache.
+   * @see LRUQueryCache#getEvictionCount()
+   */
+  public final long getEvictionCount() {
+    return getCacheCount() - getCacheSize();
+  }
+
+}
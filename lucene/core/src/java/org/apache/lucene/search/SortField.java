@@ -98,6 +98,9 @@ public class SortField {
   // Used for 'sortMissingFirst/Last'
   protected Object missingValue = null;
 
+  // Whether numeric sorts may skip non-competitive documents using points
+  private boolean canUsePoints = false;
+
   /** Creates a sort by terms in the given field with the type of term
    * values explicitly given.
    * @param field  Name of field to sort by.  Can be <code>null</code> if
@@ -168,6 +171,27 @@ public class SortField {
     this.missingValue = missingValue;
   }
 
+  /**
+   * Allow numeric sorts to use points in order to skip documents that can't
+   * be competitive. This requires the field to be indexed with both a
+   * {@link org.apache.lucene.document.NumericDocValuesField} and a
+   * one-dimensional point of the same type ({@link org.apache.lucene.document.IntPoint},
+   * {@link org.apache.lucene.document.LongPoint}, {@link org.apache.lucene.document.FloatPoint}
+   * or {@link org.apache.lucene.document.DoublePoint}) that holds the same
+   * value. Skipping only starts once the total hits threshold of the collector
+   * is reached, so hit counts are lower bounds from then on.
+   * @lucene.experimental
+   */
+  public void setCanUsePoints() {
+    this.canUsePoints = true;
+  }
+
+  /** Returns whether this sort may use points to skip non-competitive documents.
+   * @see #setCanUsePoints() */
+  public boolean getCanUsePoints() {
+    return canUsePoints;
+  }
+
   /** Creates a sort with a custom comparison function.
    * @param field Name of field to sort by; cannot be <code>null</code>.
    * @param comparator Returns a comparator for sorting hits.
@@ -345,16 +369,16 @@ public class SortField {
       return new FieldComparator.DocComparator(numHits);
 
     case INT:
-      return new FieldComparator.IntComparator(numHits, field, (Integer) missingValue);
+      return maybeUsePoints(new FieldComparator.IntComparator(numHits, field, (Integer) missingValue), sortPos);
 
     case FLOAT:
-      return new FieldComparator.FloatComparator(numHits, field, (Float) missingValue);
+      return maybeUsePoints(new FieldComparator.FloatComparator(numHits, field, (Float) missingValue), sortPos);
 
     case LONG:
-      return new FieldComparator.LongComparator(numHits, field, (Long) missingValue);
+      return maybeUsePoints(new FieldComparator.LongComparator(numHits, field, (Long) missingValue), sortPos);
 
     case DOUBLE:
-      return new FieldComparator.DoubleComparator(numHits, field, (Double) missingValue);
+      return maybeUsePoints(new FieldComparator.DoubleComparator(numHits, field, (Double) missingValue), sortPos);
 
     case CUSTOM:
       assert comparatorSource != null;
@@ -374,6 +398,14 @@ public class SortField {
     }
   }
 
+  private FieldComparator<?> maybeUsePoints(FieldComparator.NumericComparator<?> comparator, int sortPos) {
+    // only the primary sort can skip documents
+    if (canUsePoints && sortPos == 0) {
+      comparator.setCanUsePoints(reverse);
+    }
+    return comparator;
+  }
+
   /**
    * Rewrites this SortField, returning a new SortField if a change is made.
    * Subclasses should override this define their rewriting behavior when this
@@ -24,15 +24,20 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.search.FieldValueHitQueue.Entry;
 import org.apache.lucene.search.MaxScoreAccumulator.DocAndScore;
 import org.apache.lucene.search.TotalHits.Relation;
+import org.apache.lucene.util.NumericUtils;
 
 /**
  * A {@link Collector} that sorts by {@link SortField} using
- * {@link FieldComparator}s.
+ * {@link FieldComparator}s. Sorts on a single numeric field, optionally
+ * followed by {@link SortField#FIELD_SCORE}, are collected into primitive
+ * arrays rather than through comparators.
  * <p>
  * See the {@link #create(org.apache.lucene.search.Sort, int, int)} method
  * for instantiating a TopFieldCollector.
@@ -73,16 +78,31 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
     final boolean canEarlyTerminate;
     boolean collectedAllCompetitiveHits = false;
+    // non-null if the comparator may skip non-competitive documents
+    final DocIdSetIterator competitiveIterator;
+    boolean hitsThresholdReached = false;
 
     TopFieldLeafCollector(FieldValueHitQueue<Entry> queue, Sort sort, LeafReaderContext context) throws IOException {
       super(queue.getComparators(context), queue.getReverseMul());
       final Sort indexSort = context.reader().getMetaData().getSort();
       canEarlyTerminate = canEarlyTerminate(sort, indexSort);
+      competitiveIterator = comparator.competitiveIterator();
+      maybeSetHitsThresholdReached();
+    }
+
+    // let the comparator start skipping documents once hit counts don't need to be accurate anymore
+    void maybeSetHitsThresholdReached() throws IOException {
+      if (competitiveIterator != null && hitsThresholdReached == false && hitsThresholdChecker.isThresholdReached()) {
+        hitsThresholdReached = true;
+        totalHitsRelation = Relation.GREATER_THAN_OR_EQUAL_TO;
+        comparator.setHitsThresholdReached();
+      }
     }
 
     void countHit(int doc) throws IOException {
       ++totalHits;
       hitsThresholdChecker.incrementHitCount();
+      maybeSetHitsThresholdReached();
 
       if (minScoreAcc != null && (totalHits & minScoreAcc.modInterval) == 0) {
         updateGlobalMinCompetitiveScore(scorer);
@@ -131,6 +151,11 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
       }
     }
 
+    @Override
+    public DocIdSetIterator competitiveIterator() {
+      return competitiveIterator;
+    }
+
     @Override
     public void setScorer(Scorable scorer) throws IOException {
       super.setScorer(scorer);
@@ -270,6 +295,325 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
   }
 
+  /*
+   * Implements a TopFieldCollector over a single numeric SortField, optionally
+   * followed by the score, when after == null. Sort values are kept in
+   * primitive arrays that are organized as a heap, so that collecting a hit
+   * doesn't go through FieldComparators and the score is only computed to
+   * break ties.
+   */
+  private final static class NumericFieldCollector extends TopFieldCollector {
+
+    final Sort sort;
+    final String field;
+    final SortField.Type type;
+    final long reverseMask; // -1 to reverse the sort order since ~x sorts in the reverse order of x, 0 otherwise
+    final long missingValue; // encoded
+
+    // a heap of the collected hits, the least competitive one at index 0
+    int size;
+    final long[] values;
+    final int[] docs;
+    final float[] scores; // null if scores are not part of the sort
+
+    NumericFieldCollector(Sort sort, FieldValueHitQueue<Entry> queue, int numHits,
+                          HitsThresholdChecker hitsThresholdChecker, MaxScoreAccumulator minScoreAcc) {
+      super(queue, numHits, hitsThresholdChecker, sort.needsScores(), minScoreAcc);
+      this.sort = sort;
+      final SortField sortField = sort.getSort()[0];
+      this.field = sortField.getField();
+      this.type = sortField.getType();
+      this.reverseMask = sortField.getReverse() ? -1L : 0L;
+      this.missingValue = encodeMissingValue(type, sortField.getMissingValue()) ^ reverseMask;
+      this.values = new long[numHits];
+      this.docs = new int[numHits];
+      this.scores = sort.getSort().length > 1 ? new float[numHits] : null;
+    }
+
+    /** Whether a collector may collect the given sort without using {@link FieldComparator}s. */
+    static boolean canCollect(Sort sort) {
+      final SortField[] fields = sort.getSort();
+      if (fields.length > 2 || (fields.length == 2 && SortField.FIELD_SCORE.equals(fields[1]) == false)) {
+        return false;
+      }
+      // sub classes may have a different comparator
+      if (fields[0].getClass() != SortField.class) {
+        return false;
+      }
+      switch (fields[0].getType()) {
+        case INT:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+          return true;
+        default:
+          return false;
+      }
+    }
+
+    /** Encode a value from doc values into a long that compares like the sort value, ignoring the sort order. */
+    private static long encode(SortField.Type type, long rawValue) {
+      switch (type) {
+        case INT:
+          return (int) rawValue;
+        case LONG:
+          return rawValue;
+        case FLOAT:
+          return NumericUtils.floatToSortableInt(Float.intBitsToFloat((int) rawValue));
+        case DOUBLE:
+          return NumericUtils.doubleToSortableLong(Double.longBitsToDouble(rawValue));
+        default:
+          throw new AssertionError();
+      }
+    }
+
+    /** The number of bytes of the points that index the given type. */
+    private static int getPointNumBytes(SortField.Type type) {
+      switch (type) {
+        case INT:
+        case FLOAT:
+          return Integer.BYTES;
+        case LONG:
+        case DOUBLE:
+          return Long.BYTES;
+        default:
+          throw new AssertionError();
+      }
+    }
+
+    private static long encodeMissingValue(SortField.Type type, Object missingValue) {
+      if (missingValue == null) {
+        return 0L; // same as FieldComparator, 0 in all encodings
+      }
+      switch (type) {
+        case INT:
+          return (Integer) missingValue;
+        case LONG:
+          return (Long) missingValue;
+        case FLOAT:
+          return NumericUtils.floatToSortableInt((Float) missingValue);
+        case DOUBLE:
+          return NumericUtils.doubleToSortableLong((Double) missingValue);
+        default:
+          throw new AssertionError();
+      }
+    }
+
+    private Object decode(long value) {
+      value ^= reverseMask;
+      switch (type) {
+        case INT:
+          return (int) value;
+        case LONG:
+          return value;
+        case FLOAT:
+          return NumericUtils.sortableIntToFloat((int) value);
+        case DOUBLE:
+          return NumericUtils.sortableLongToDouble(value);
+        default:
+          throw new AssertionError();
+      }
+    }
+
+    /** Whether the hit at index i sorts after the hit at index j. */
+    private boolean lessThan(int i, int j) {
+      final int cmp = Long.compare(values[i], values[j]);
+      if (cmp != 0) {
+        return cmp > 0;
+      }
+      if (scores != null) {
+        final int scoreCmp = Float.compare(scores[i], scores[j]);
+        if (scoreCmp != 0) {
+          return scoreCmp < 0;
+        }
+      }
+      return docs[i] > docs[j];
+    }
+
+    private void swap(int i, int j) {
+      final long value = values[i];
+      values[i] = values[j];
+      values[j] = value;
+      final int doc = docs[i];
+      docs[i] = docs[j];
+      docs[j] = doc;
+      if (scores != null) {
+        final float score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+      }
+    }
+
+    private void upHeap(int i) {
+      while (i > 0) {
+        final int parent = (i - 1) >>> 1;
+        if (lessThan(i, parent) == false) {
+          break;
+        }
+        swap(i, parent);
+        i = parent;
+      }
+    }
+
+    private void downHeap(int i) {
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && lessThan(child + 1, child)) {
+          child++;
+        }
+        if (lessThan(child, i) == false) {
+          break;
+        }
+        swap(i, child);
+        i = child;
+      }
+    }
+
+    /** Remove the least competitive hit and return it as a FieldDoc. */
+    private FieldDoc pop() {
+      final Object[] fields = scores == null
+          ? new Object[] { decode(values[0]) }
+          : new Object[] { decode(values[0]), scores[0] };
+      final FieldDoc fieldDoc = new FieldDoc(docs[0], Float.NaN, fields);
+      size--;
+      if (size > 0) {
+        swap(0, size);
+        downHeap(0);
+      }
+      return fieldDoc;
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+      docBase = context.docBase;
+      final NumericDocValues docValues = DocValues.getNumeric(context.reader(), field);
+      final boolean canEarlyTerminate = canEarlyTerminate(sort, context.reader().getMetaData().getSort());
+      final SortField sortField = sort.getSort()[0];
+      final CompetitivePointsIterator competitiveIterator = sortField.getCanUsePoints()
+          ? CompetitivePointsIterator.create(context, field, getPointNumBytes(type), sortField.getReverse(),
+              scores == null, missingValue ^ reverseMask)
+          : null;
+      if (competitiveIterator != null && size == numHits) {
+        competitiveIterator.setBottom(values[0] ^ reverseMask);
+      }
+
+      return new LeafCollector() {
+
+        Scorable scorer;
+        boolean collectedAllCompetitiveHits = false;
+        boolean hitsThresholdReached = false;
+        // the value of the least competitive hit, only valid if the queue is full
+        long bottom = size == numHits ? values[0] : 0L;
+
+        @Override
+        public void setScorer(Scorable scorer) {
+          this.scorer = scorer;
+        }
+
+        @Override
+        public DocIdSetIterator competitiveIterator() {
+          return competitiveIterator;
+        }
+
+        private void updateBottom() throws IOException {
+          bottom = values[0];
+          if (competitiveIterator != null && size == numHits) {
+            competitiveIterator.setBottom(bottom ^ reverseMask);
+          }
+        }
+
+        // called on non-competitive hits when the index is sorted like the query
+        private void earlyTerminate() {
+          if (hitsThresholdChecker.isThresholdReached()) {
+            totalHitsRelation = Relation.GREATER_THAN_OR_EQUAL_TO;
+            throw new CollectionTerminatedException();
+          } else {
+            collectedAllCompetitiveHits = true;
+          }
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+          ++totalHits;
+          hitsThresholdChecker.incrementHitCount();
+          if (competitiveIterator != null && hitsThresholdReached == false && hitsThresholdChecker.isThresholdReached()) {
+            // hit counts don't need to be accurate anymore, start skipping non-competitive documents
+            hitsThresholdReached = true;
+            totalHitsRelation = Relation.GREATER_THAN_OR_EQUAL_TO;
+            competitiveIterator.setHitsThresholdReached();
+          }
+          if (collectedAllCompetitiveHits) {
+            earlyTerminate();
+            return;
+          }
+
+          final long value = docValues.advanceExact(doc) ? encode(type, docValues.longValue()) ^ reverseMask : missingValue;
+          if (size == numHits) {
+            float score = Float.NaN;
+            if (value > bottom || (value == bottom && (scores == null || Float.compare(score = scorer.score(), scores[0]) <= 0))) {
+              // since docs are visited in doc Id order, if compare is 0, it means
+              // this document is largest than anything else in the queue, and
+              // therefore not competitive.
+              if (canEarlyTerminate) {
+                earlyTerminate();
+              }
+              return;
+            }
+            // This hit is competitive - replace the least competitive hit
+            values[0] = value;
+            docs[0] = docBase + doc;
+            if (scores != null) {
+              scores[0] = value == bottom ? score : scorer.score();
+            }
+            downHeap(0);
+            updateBottom();
+          } else {
+            values[size] = value;
+            docs[size] = docBase + doc;
+            if (scores != null) {
+              scores[size] = scorer.score();
+            }
+            upHeap(size++);
+            updateBottom();
+          }
+        }
+      };
+    }
+
+    @Override
+    protected int topDocsSize() {
+      return size;
+    }
+
+    @Override
+    public TopDocs topDocs(int start, int howMany) {
+      if (howMany < 0) {
+        throw new IllegalArgumentException("Number of hits requested must be greater than 0 but value was " + howMany);
+      }
+      if (start < 0) {
+        throw new IllegalArgumentException("Expected value of starting position is between 0 and " + size +
+            ", got " + start);
+      }
+      if (start >= size || howMany == 0) {
+        return newTopDocs(null, start);
+      }
+
+      howMany = Math.min(size - start, howMany);
+      final ScoreDoc[] results = new ScoreDoc[howMany];
+      // discard the least competitive hits, until we reach the requested range
+      for (int i = size - start - howMany; i > 0; i--) {
+        pop();
+      }
+      for (int i = howMany - 1; i >= 0; i--) {
+        results[i] = pop();
+      }
+      return newTopDocs(results, start);
+    }
+  }
+
   private static final ScoreDoc[] EMPTY_SCOREDOCS = new ScoreDoc[0];
 
   final int numHits;
@@ -432,6 +776,12 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
       throw new IllegalArgumentException("hitsThresholdChecker should not be null");
     }
 
+    if (after == null && NumericFieldCollector.canCollect(sort)) {
+      // the queue is only used for its sort fields, hits are kept in primitive arrays
+      FieldValueHitQueue<Entry> queue = FieldValueHitQueue.create(sort.fields, 1);
+      return new NumericFieldCollector(sort, queue, numHits, hitsThresholdChecker, minScoreAcc);
+    }
+
     FieldValueHitQueue<Entry> queue = FieldValueHitQueue.create(sort.fields, numHits);
 
     if (after == null) {
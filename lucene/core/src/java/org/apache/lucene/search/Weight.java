@@ -18,6 +18,7 @@ package org.apache.lucene.search;
 
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.LeafReader;
@@ -201,26 +202,41 @@ public abstract class Weight implements SegmentCacheable {
     @Override
     public int score(LeafCollector collector, Bits acceptDocs, int min, int max) throws IOException {
       collector.setScorer(scorer);
-      if (scorer.docID() == -1 && min == 0 && max == DocIdSetIterator.NO_MORE_DOCS) {
-        scoreAll(collector, iterator, twoPhase, acceptDocs);
+      DocIdSetIterator scorerIterator = twoPhase == null ? iterator : twoPhase.approximation();
+      DocIdSetIterator competitiveIterator = collector.competitiveIterator();
+      DocIdSetIterator filteredIterator;
+      if (competitiveIterator == null) {
+        filteredIterator = scorerIterator;
+      } else {
+        // only iterate over documents that the collector considers competitive. When scoring a new range, either
+        // iterator may already be on a doc that the conjunction advanced to but didn't score because it was out of
+        // the previous range, so start both from their current doc rather than advancing them past it
+        if (scorerIterator.docID() != -1) {
+          scorerIterator = new StartDISIWrapper(scorerIterator);
+        }
+        if (competitiveIterator.docID() != -1) {
+          competitiveIterator = new StartDISIWrapper(competitiveIterator);
+        }
+        filteredIterator = ConjunctionDISI.intersectIterators(Arrays.asList(scorerIterator, competitiveIterator));
+      }
+      if (filteredIterator.docID() == -1 && min == 0 && max == DocIdSetIterator.NO_MORE_DOCS) {
+        scoreAll(collector, filteredIterator, twoPhase, acceptDocs);
         return DocIdSetIterator.NO_MORE_DOCS;
       } else {
-        int doc = scorer.docID();
+        int doc = filteredIterator.docID();
         if (doc < min) {
-          if (twoPhase == null) {
-            doc = iterator.advance(min);
-          } else {
-            doc = twoPhase.approximation().advance(min);
-          }
+          doc = filteredIterator.advance(min);
         }
-        return scoreRange(collector, iterator, twoPhase, acceptDocs, doc, max);
+        return scoreRange(collector, filteredIterator, twoPhase, acceptDocs, doc, max);
       }
     }
 
     /** Specialized method to bulk-score a range of hits; we
      *  separate this from {@link #scoreAll} to help out
      *  hotspot.
-     *  See <a href="https://issues.apache.org/jira/browse/LUCENE-5487">LUCENE-5487</a> */
+     *  See <a href="https://issues.apache.org/jira/browse/LUCENE-5487">LUCENE-5487</a>
+     *  The iterator is either the scorer's iterator or the approximation of the two-phase
+     *  iterator, possibly intersected with the collector's competitive iterator. */
     static int scoreRange(LeafCollector collector, DocIdSetIterator iterator, TwoPhaseIterator twoPhase,
         Bits acceptDocs, int currentDoc, int end) throws IOException {
       if (twoPhase == null) {
@@ -232,21 +248,60 @@ public abstract class Weight implements SegmentCacheable {
         }
         return currentDoc;
       } else {
-        final DocIdSetIterator approximation = twoPhase.approximation();
         while (currentDoc < end) {
           if ((acceptDocs == null || acceptDocs.get(currentDoc)) && twoPhase.matches()) {
             collector.collect(currentDoc);
           }
-          currentDoc = approximation.nextDoc();
+          currentDoc = iterator.nextDoc();
         }
         return currentDoc;
       }
     }
+
+    /**
+     * Wraps an iterator that is already positioned so that it starts again from its current doc: it returns
+     * this doc when advanced to any target up to it, and only moves the wrapped iterator forward.
+     */
+    static final class StartDISIWrapper extends DocIdSetIterator {
+      private final DocIdSetIterator in;
+      private final int startDoc;
+      private int doc = -1;
+
+      StartDISIWrapper(DocIdSetIterator in) {
+        this.in = in;
+        this.startDoc = in.docID();
+      }
+
+      @Override
+      public int docID() {
+        return doc;
+      }
+
+      @Override
+      public int nextDoc() throws IOException {
+        return advance(doc + 1);
+      }
+
+      @Override
+      public int advance(int target) throws IOException {
+        if (target <= startDoc) {
+          return doc = startDoc;
+        }
+        return doc = in.advance(target);
+      }
+
+      @Override
+      public long cost() {
+        return in.cost();
+      }
+    }
     
     /** Specialized method to bulk-score all hits; we
      *  separate this from {@link #scoreRange} to help out
      *  hotspot.
-     *  See <a href="https://issues.apache.org/jira/browse/LUCENE-5487">LUCENE-5487</a> */
+     *  See <a href="https://issues.apache.org/jira/browse/LUCENE-5487">LUCENE-5487</a>
+     *  The iterator is either the scorer's iterator or the approximation of the two-phase
+     *  iterator, possibly intersected with the collector's competitive iterator. */
     static void scoreAll(LeafCollector collector, DocIdSetIterator iterator, TwoPhaseIterator twoPhase, Bits acceptDocs) throws IOException {
       if (twoPhase == null) {
         for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
@@ -256,8 +311,7 @@ public abstract class Weight implements SegmentCacheable {
         }
       } else {
         // The scorer has an approximation, so run the approximation first, then check acceptDocs, then confirm
-        final DocIdSetIterator approximation = twoPhase.approximation();
-        for (int doc = approximation.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = approximation.nextDoc()) {
+        for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
           if ((acceptDocs == null || acceptDocs.get(doc)) && twoPhase.matches()) {
             collector.collect(doc);
           }
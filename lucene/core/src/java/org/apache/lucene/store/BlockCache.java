@@ -0,0 +1,324 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.store;
+
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A size-bounded cache of fixed-size file blocks, stored in direct (off-heap)
+ * or heap {@link ByteBuffer}s that are allocated up-front. This is the storage
+ * behind {@link BlockCacheDirectory}, and a single instance may be shared by
+ * several directories in order to give them a common memory budget.
+ *
+ * <p>Eviction follows a CLOCK policy where each cached block has a number of
+ * credits that is reset to the priority of the block whenever it is read.
+ * The clock hand consumes one credit per pass and evicts blocks that have
+ * none left, so blocks with a higher priority survive more passes without
+ * being read than blocks with a lower priority.
+ *
+ * <p>Lookups do not take any lock. Loading a block into the cache only holds
+ * a lock while looking for a free slot, not while copying the data.
+ *
+ * <p>Memory is released when this instance is garbage collected.
+ *
+ * @lucene.experimental
+ */
+public final class BlockCache implements Accountable {
+
+  /** Default block size: 8KB. */
+  public static final int DEFAULT_BLOCK_SHIFT = 13;
+
+  /** Maximum priority of a block. */
+  public static final int MAX_PRIORITY = 16;
+
+  // each slab of memory is at most 128MB
+  private static final int MAX_SLAB_SHIFT = 27;
+
+  // rough cost of a mapping in the index: hash entry, key and boxed slot
+  private static final long INDEX_ENTRY_BYTES = 2 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+      + 4 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + 32;
+
+  // marks a slot whose content is being written
+  private static final BlockKey LOADING = new BlockKey(new FileKey("<loading>"), -1);
+
+  private final int blockShift;
+  private final int blockSize;
+  private final int numBlocks;
+  private final int slabShift;
+  private final int slabMask;
+  private final ByteBuffer[] slabs;
+
+  private final ConcurrentHashMap<BlockKey, Integer> index;
+  private final AtomicReferenceArray<BlockKey> slotKeys;
+  private final AtomicIntegerArray credits;
+  private int clockHand; // guarded by this
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder insertCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+
+  /**
+   * Create a new cache of at most <code>maxBytes</code> bytes that stores
+   * blocks of {@code 1 << DEFAULT_BLOCK_SHIFT} bytes in direct memory.
+   */
+  public BlockCache(long maxBytes) {
+    this(maxBytes, DEFAULT_BLOCK_SHIFT, true);
+  }
+
+  /**
+   * Create a new cache of at most <code>maxBytes</code> bytes that stores
+   * blocks of {@code 1 << blockShift} bytes, either in direct memory if
+   * <code>directAllocation</code> is true, or on the heap otherwise.
+   */
+  public BlockCache(long maxBytes, int blockShift, boolean directAllocation) {
+    if (blockShift < 10 || blockShift > 20) {
+      throw new IllegalArgumentException("blockShift must be in [10, 20], got " + blockShift);
+    }
+    final long numBlocks = maxBytes >>> blockShift;
+    if (maxBytes <= 0 || numBlocks < 1) {
+      throw new IllegalArgumentException("maxBytes must be at least one block of " + (1 << blockShift)
+          + " bytes, got " + maxBytes);
+    }
+    if (numBlocks > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("maxBytes is too large for blocks of " + (1 << blockShift)
+          + " bytes, got " + maxBytes);
+    }
+    this.blockShift = blockShift;
+    this.blockSize = 1 << blockShift;
+    this.numBlocks = (int) numBlocks;
+
+    // number of blocks per slab, as a power of two
+    slabShift = Math.max(0, Math.min(MAX_SLAB_SHIFT - blockShift, 32 - Integer.numberOfLeadingZeros(this.numBlocks - 1)));
+    slabMask = (1 << slabShift) - 1;
+    final int numSlabs = ((this.numBlocks - 1) >>> slabShift) + 1;
+    slabs = new ByteBuffer[numSlabs];
+    for (int i = 0; i < numSlabs; ++i) {
+      final int blocksInSlab = Math.min(1 << slabShift, this.numBlocks - (i << slabShift));
+      final int slabBytes = blocksInSlab << blockShift;
+      slabs[i] = directAllocation ? ByteBuffer.allocateDirect(slabBytes) : ByteBuffer.allocate(slabBytes);
+    }
+
+    index = new ConcurrentHashMap<>();
+    slotKeys = new AtomicReferenceArray<>(this.numBlocks);
+    credits = new AtomicIntegerArray(this.numBlocks);
+  }
+
+  /** Return the size of blocks, in bytes. */
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  int getBlockShift() {
+    return blockShift;
+  }
+
+  /**
+   * Read {@code length} bytes at offset {@code blockOffset} of the given
+   * block into {@code dst}. Returns {@code false} and leaves {@code dst}
+   * untouched if the block is not cached.
+   */
+  boolean fetch(BlockKey key, int blockOffset, ByteBuffer dst, int length, int priority) {
+    assert blockOffset + length <= blockSize;
+    final Integer slot = index.get(key);
+    if (slot == null) {
+      missCount.increment();
+      return false;
+    }
+
+    final int start = dst.position();
+    final ByteBuffer slab = slabs[slot >>> slabShift].duplicate();
+    final int offset = ((slot & slabMask) << blockShift) + blockOffset;
+    slab.position(offset).limit(offset + length);
+    dst.put(slab);
+
+    // the slot might have been reused for another block while we were copying
+    VarHandle.acquireFence();
+    if (key.equals(slotKeys.get(slot)) == false) {
+      dst.position(start);
+      missCount.increment();
+      return false;
+    }
+
+    if (credits.get(slot) < priority) {
+      credits.set(slot, priority);
+    }
+    hitCount.increment();
+    return true;
+  }
+
+  /**
+   * Cache the first {@code length} bytes of {@code block} as the content of
+   * the given block. This is best-effort: the block might not be cached if
+   * it already is, or if no slot could be reclaimed.
+   */
+  void store(BlockKey key, byte[] block, int length, int priority) {
+    assert length <= blockSize;
+    assert priority >= 1 && priority <= MAX_PRIORITY;
+    if (key.file.deleted || index.containsKey(key)) {
+      return;
+    }
+    final int slot = acquireSlot();
+    if (slot == -1) {
+      return;
+    }
+    // readers of the previous block of this slot must not see the new bytes before they see that the slot is loading
+    VarHandle.storeStoreFence();
+
+    final ByteBuffer slab = slabs[slot >>> slabShift].duplicate();
+    slab.position((slot & slabMask) << blockShift);
+    slab.put(block, 0, length);
+
+    credits.set(slot, priority);
+    slotKeys.set(slot, key);
+    if (index.putIfAbsent(key, slot) == null) {
+      insertCount.increment();
+    } else {
+      // another thread cached the same block concurrently
+      slotKeys.set(slot, null);
+    }
+  }
+
+  /**
+   * Find a free slot, evicting a block if necessary, and mark it as loading.
+   * Returns -1 if no slot could be found, which only happens if all slots are
+   * being loaded concurrently.
+   */
+  private synchronized int acquireSlot() {
+    final long maxSteps = (long) numBlocks * (MAX_PRIORITY + 2);
+    for (long step = 0; step < maxSteps; ++step) {
+      final int slot = clockHand;
+      clockHand = slot + 1 == numBlocks ? 0 : slot + 1;
+
+      final BlockKey key = slotKeys.get(slot);
+      if (key == LOADING) {
+        continue;
+      }
+      if (key != null) {
+        final int c = credits.get(slot);
+        if (c > 0 && key.file.deleted == false) {
+          credits.set(slot, c - 1);
+          continue;
+        }
+        index.remove(key, slot);
+        if (key.file.deleted == false) {
+          evictionCount.increment();
+        }
+      }
+      slotKeys.set(slot, LOADING);
+      return slot;
+    }
+    return -1;
+  }
+
+  /** Return the number of lookups that found the block in the cache. */
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /** Return the number of lookups that did not find the block in the cache. */
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  /** Return the number of blocks that have been added to the cache. */
+  public long getInsertCount() {
+    return insertCount.sum();
+  }
+
+  /**
+   * Return the number of blocks that have been evicted in order to make room
+   * for other blocks. Blocks of deleted files are reclaimed without being
+   * counted as evictions.
+   */
+  public long getEvictionCount() {
+    return evictionCount.sum();
+  }
+
+  /** Return the number of blocks that are currently cached. */
+  public int getBlockCount() {
+    return index.size();
+  }
+
+  /** Return the maximum number of blocks that this cache can hold. */
+  public int getMaxBlockCount() {
+    return numBlocks;
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    // buffers are allocated up-front
+    return ((long) numBlocks << blockShift)
+        + RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) numBlocks * RamUsageEstimator.NUM_BYTES_OBJECT_REF)
+        + RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) numBlocks * Integer.BYTES)
+        + (long) index.size() * INDEX_ENTRY_BYTES;
+  }
+
+  @Override
+  public String toString() {
+    return "BlockCache(blockSize=" + blockSize + ", maxBlockCount=" + numBlocks + ")";
+  }
+
+  /** Identity of a cached file. Blocks of deleted files get reclaimed first. */
+  static final class FileKey {
+    final String name;
+    volatile boolean deleted;
+
+    FileKey(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  /** Identity of a block: a file and the index of the block in the file. */
+  static final class BlockKey {
+    final FileKey file;
+    final long block;
+
+    BlockKey(FileKey file, long block) {
+      this.file = file;
+      this.block = block;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == null || obj.getClass() != BlockKey.class) {
+        return false;
+      }
+      final BlockKey that = (BlockKey) obj;
+      return file == that.file && block == that.block;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(file) + Long.hashCode(block);
+    }
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.store;
+
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.store.BlockCache.BlockKey;
+import org.apache.lucene.store.BlockCache.FileKey;
+
+/**
+ * A {@link Directory} wrapper that caches blocks of the files that it reads
+ * in a {@link BlockCache}, ie. in memory that is managed by the application
+ * rather than by the operating system. This makes it possible to give each
+ * index, or group of indices, its own memory budget.
+ *
+ * <p>Each file extension is given a priority, and blocks of files with a
+ * higher priority are kept longer in the cache. By default, the terms index
+ * has the highest priority, followed by doc values, then terms dictionaries
+ * and postings, then all other files. A priority of 0 disables caching.
+ *
+ * <p>Inputs that are opened for merging or that are read only once are not
+ * cached, in order not to evict blocks that are useful to searches.
+ *
+ * <p>The cache duplicates the OS page cache if the wrapped directory
+ * memory-maps files, so it is best used on top of {@link NIOFSDirectory}:
+ *
+ * <pre class="prettyprint">
+ *   BlockCache cache = new BlockCache(512 * 1024L * 1024L);
+ *   Directory dir = new BlockCacheDirectory(new NIOFSDirectory(path), cache);
+ * </pre>
+ *
+ * @lucene.experimental
+ */
+public class BlockCacheDirectory extends FilterDirectory {
+
+  /** Default priorities, per file extension. */
+  public static final Map<String, Integer> DEFAULT_PRIORITIES;
+  static {
+    Map<String, Integer> priorities = new HashMap<>();
+    // terms index
+    priorities.put("tip", 4);
+    // doc values and points index
+    priorities.put("dvd", 3);
+    priorities.put("kdi", 3);
+    // terms dictionary and postings
+    priorities.put("tim", 2);
+    priorities.put("doc", 2);
+    priorities.put("pos", 2);
+    priorities.put("pay", 2);
+    DEFAULT_PRIORITIES = Map.copyOf(priorities);
+  }
+
+  /** Default priority of files whose extension is not in {@link #DEFAULT_PRIORITIES}. */
+  public static final int DEFAULT_PRIORITY = 1;
+
+  private final BlockCache cache;
+  private final Map<String, Integer> priorities;
+  private final int defaultPriority;
+  private final Map<String, FileKey> fileKeys = new ConcurrentHashMap<>();
+
+  /**
+   * Wrap the given directory, using {@link #DEFAULT_PRIORITIES} and
+   * {@link #DEFAULT_PRIORITY}.
+   */
+  public BlockCacheDirectory(Directory in, BlockCache cache) {
+    this(in, cache, DEFAULT_PRIORITIES, DEFAULT_PRIORITY);
+  }
+
+  /**
+   * Wrap the given directory. Priorities are given per file extension, and
+   * {@code defaultPriority} applies to extensions that do not have a
+   * priority. Priorities must be between 0, which disables caching, and
+   * {@link BlockCache#MAX_PRIORITY}.
+   */
+  public BlockCacheDirectory(Directory in, BlockCache cache, Map<String, Integer> priorities, int defaultPriority) {
+    super(in);
+    this.cache = cache;
+    for (Map.Entry<String, Integer> entry : priorities.entrySet()) {
+      checkPriority(entry.getKey(), entry.getValue());
+    }
+    checkPriority("default", defaultPriority);
+    this.priorities = Map.copyOf(priorities);
+    this.defaultPriority = defaultPriority;
+  }
+
+  private static void checkPriority(String extension, int priority) {
+    if (priority < 0 || priority > BlockCache.MAX_PRIORITY) {
+      throw new IllegalArgumentException("priority must be in [0, " + BlockCache.MAX_PRIORITY + "], got "
+          + priority + " for " + extension);
+    }
+  }
+
+  /** Return the cache that stores blocks of this directory. */
+  public BlockCache getCache() {
+    return cache;
+  }
+
+  /** Return the priority of blocks of the given file. */
+  public int getPriority(String name) {
+    final String extension = IndexFileNames.getExtension(name);
+    if (extension == null) {
+      return defaultPriority;
+    }
+    return priorities.getOrDefault(extension, defaultPriority);
+  }
+
+  /** Return whether inputs that are opened with the given context should be cached. */
+  protected boolean useCache(String name, IOContext context) {
+    return context.context != IOContext.Context.MERGE && context.readOnce == false;
+  }
+
+  @Override
+  public IndexInput openInput(String name, IOContext context) throws IOException {
+    final int priority = getPriority(name);
+    if (priority == 0 || useCache(name, context) == false) {
+      return in.openInput(name, context);
+    }
+    final IndexInput source = in.openInput(name, context);
+    final FileKey fileKey = fileKeys.computeIfAbsent(name, FileKey::new);
+    return new BlockCacheIndexInput("BlockCacheIndexInput(" + source + ")", source, this, fileKey, priority,
+        0L, source.length(), BufferedIndexInput.bufferSize(context));
+  }
+
+  @Override
+  public IndexOutput createOutput(String name, IOContext context) throws IOException {
+    // files are write-once, but be safe in case a name gets reused
+    invalidate(name);
+    return in.createOutput(name, context);
+  }
+
+  @Override
+  public void deleteFile(String name) throws IOException {
+    invalidate(name);
+    in.deleteFile(name);
+  }
+
+  @Override
+  public void rename(String source, String dest) throws IOException {
+    invalidate(source);
+    invalidate(dest);
+    in.rename(source, dest);
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      Collection<String> names = fileKeys.keySet();
+      for (String name : names) {
+        invalidate(name);
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /** Forget about cached blocks of the given file, they will be reclaimed first. */
+  private void invalidate(String name) {
+    final FileKey fileKey = fileKeys.remove(name);
+    if (fileKey != null) {
+      fileKey.deleted = true;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "BlockCacheDirectory(" + in + ", " + cache + ")";
+  }
+
+  /** Reads blocks through the cache, and from the wrapped input on cache misses. */
+  static final class BlockCacheIndexInput extends BufferedIndexInput {
+
+    private final BlockCacheDirectory directory;
+    private final FileKey fileKey;
+    private final int priority;
+    /** start offset: non-zero in the slice case */
+    private final long off;
+    /** end offset (start+length) */
+    private final long end;
+    private final int blockShift;
+    private final int blockSize;
+
+    private IndexInput source;
+    private boolean isClone;
+    private byte[] blockBuffer; // lazily allocated on the first cache miss
+
+    BlockCacheIndexInput(String resourceDesc, IndexInput source, BlockCacheDirectory directory, FileKey fileKey,
+                         int priority, long off, long length, int bufferSize) {
+      super(resourceDesc, bufferSize);
+      this.source = source;
+      this.directory = directory;
+      this.fileKey = fileKey;
+      this.priority = priority;
+      this.off = off;
+      this.end = off + length;
+      this.blockShift = directory.cache.getBlockShift();
+      this.blockSize = directory.cache.getBlockSize();
+    }
+
+    @Override
+    protected void readInternal(ByteBuffer b) throws IOException {
+      long pos = getFilePointer() + off;
+      if (pos + b.remaining() > end) {
+        throw new EOFException("read past EOF: " + this);
+      }
+      final BlockCache cache = directory.cache;
+      while (b.hasRemaining()) {
+        final long block = pos >>> blockShift;
+        final int blockOffset = (int) (pos & (blockSize - 1));
+        final int length = Math.min(b.remaining(), blockSize - blockOffset);
+        final BlockKey key = new BlockKey(fileKey, block);
+        if (cache.fetch(key, blockOffset, b, length, priority) == false) {
+          // read the whole block so that it can be cached
+          final long blockStart = block << blockShift;
+          final int blockLength = (int) Math.min(blockSize, source.length() - blockStart);
+          if (blockBuffer == null) {
+            blockBuffer = new byte[blockSize];
+          }
+          source.seek(blockStart);
+          source.readBytes(blockBuffer, 0, blockLength);
+          cache.store(key, blockBuffer, blockLength, priority);
+          b.put(blockBuffer, blockOffset, length);
+        }
+        pos += length;
+      }
+    }
+
+    @Override
+    protected void seekInternal(long pos) throws IOException {
+      if (pos > length()) {
+        throw new EOFException("read past EOF: pos=" + pos + " vs length=" + length() + ": " + this);
+      }
+    }
+
+    @Override
+    public long length() {
+      return end - off;
+    }
+
+    @Override
+    public BlockCacheIndexInput clone() {
+      BlockCacheIndexInput clone = (BlockCacheIndexInput) super.clone();
+      clone.source = source.clone();
+      clone.isClone = true;
+      clone.blockBuffer = null;
+      return clone;
+    }
+
+    @Override
+    public IndexInput slice(String sliceDescription, long offset, long length) throws IOException {
+      if (offset < 0 || length < 0 || offset + length > this.length()) {
+        throw new IllegalArgumentException("slice() " + sliceDescription + " out of bounds: offset=" + offset
+            + ",length=" + length + ",fileLength=" + this.length() + ": " + this);
+      }
+      // slices of compound files are named after the file that they contain
+      int slicePriority = priority;
+      if (sliceDescription != null && IndexFileNames.getExtension(sliceDescription) != null) {
+        slicePriority = directory.getPriority(sliceDescription);
+      }
+      if (slicePriority == 0) {
+        return source.slice(sliceDescription, off + offset, length);
+      }
+      BlockCacheIndexInput slice = new BlockCacheIndexInput(getFullSliceDescription(sliceDescription),
+          source.clone(), directory, fileKey, slicePriority, off + offset, length, getBufferSize());
+      slice.isClone = true;
+      return slice;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (isClone == false) {
+        source.close();
+      }
+    }
+  }
+}
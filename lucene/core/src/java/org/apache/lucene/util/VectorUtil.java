@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.util;
+
+/**
+ * Utilities for computations with numeric arrays
+ *
+ * @lucene.internal
+ */
+public final class VectorUtil {
+
+  private VectorUtil() {
+  }
+
+  /**
+   * Returns the vector dot product of the two vectors.
+   *
+   * @throws IllegalArgumentException if the vectors' dimensions differ.
+   */
+  public static float dotProduct(float[] a, float[] b) {
+    if (a.length != b.length) {
+      throw new IllegalArgumentException("vector dimensions differ: " + a.length + "!=" + b.length);
+    }
+    float res = 0f;
+    // unrolled by 4 so that the JIT can keep several independent accumulators in flight
+    int i = 0;
+    final int upperBound = a.length & ~3;
+    float acc0 = 0, acc1 = 0, acc2 = 0, acc3 = 0;
+    for (; i < upperBound; i += 4) {
+      acc0 += a[i] * b[i];
+      acc1 += a[i + 1] * b[i + 1];
+      acc2 += a[i + 2] * b[i + 2];
+      acc3 += a[i + 3] * b[i + 3];
+    }
+    for (; i < a.length; ++i) {
+      res += a[i] * b[i];
+    }
+    return res + acc0 + acc1 + acc2 + acc3;
+  }
+
+  /**
+   * Returns the cosine similarity between the two vectors.
+   *
+   * @throws IllegalArgumentException if the vectors' dimensions differ.
+   */
+  public static float cosine(float[] a, float[] b) {
+    if (a.length != b.length) {
+      throw new IllegalArgumentException("vector dimensions differ: " + a.length + "!=" + b.length);
+    }
+    float sum = 0f;
+    float norm1 = 0f;
+    float norm2 = 0f;
+    for (int i = 0; i < a.length; i++) {
+      final float elem1 = a[i];
+      final float elem2 = b[i];
+      sum += elem1 * elem2;
+      norm1 += elem1 * elem1;
+      norm2 += elem2 * elem2;
+    }
+    if (norm1 == 0f || norm2 == 0f) {
+      return 0f;
+    }
+    return (float) (sum / Math.sqrt((double) norm1 * (double) norm2));
+  }
+
+  /**
+   * Returns the sum of squared differences of the two vectors.
+   *
+   * @throws IllegalArgumentException if the vectors' dimensions differ.
+   */
+  public static float squareDistance(float[] a, float[] b) {
+    if (a.length != b.length) {
+      throw new IllegalArgumentException("vector dimensions differ: " + a.length + "!=" + b.length);
+    }
+    float squareSum = 0.0f;
+    for (int i = 0; i < a.length; i++) {
+      final float diff = a[i] - b[i];
+      squareSum += diff * diff;
+    }
+    return squareSum;
+  }
+
+  /**
+   * Modifies the argument to be unit length, dividing by its l2-norm.
+   * IllegalArgumentException is thrown for zero vectors.
+   *
+   * @return the input array after normalization
+   */
+  public static float[] l2normalize(float[] v) {
+    double squareSum = 0.0;
+    for (float x : v) {
+      squareSum += x * x;
+    }
+    if (squareSum == 0) {
+      throw new IllegalArgumentException("Cannot normalize a zero-length vector");
+    }
+    final double length = Math.sqrt(squareSum);
+    for (int i = 0; i < v.length; i++) {
+      v[i] /= length;
+    }
+    return v;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.util.hnsw;
+
+import java.io.IOException;
+
+/**
+ * Hierarchical Navigable Small World graph. Provides efficient approximate nearest neighbor search
+ * for high dimensional vectors. See <a href="https://arxiv.org/abs/1603.09320">Efficient and robust
+ * approximate nearest neighbor search using Hierarchical Navigable Small World graphs [2018]</a>
+ * paper for details.
+ *
+ * <p>The graph is organized in levels. Every node is present on level 0, and each node is also
+ * present on a random number of upper levels, with exponentially decreasing probability. Search
+ * starts from the single entry node on the top level and greedily descends level by level, before
+ * performing a beam search on level 0.
+ *
+ * <p>Nodes are identified by their dense ordinal in [0, {@link #size()}), which is the ordinal of
+ * the corresponding vector in a {@link org.apache.lucene.index.RandomAccessVectorValues}.
+ *
+ * <p>Instances are stateful: {@link #seek(int, int)} positions the graph on the neighbors of a node,
+ * which are then iterated with {@link #nextNeighbor()}. Instances must therefore not be shared
+ * across threads.
+ *
+ * @lucene.experimental
+ */
+public abstract class HnswGraph {
+
+  /** Sole constructor */
+  protected HnswGraph() {}
+
+  /**
+   * Move the pointer to exactly the given {@code level}'s {@code target}. After this method
+   * returns, call {@link #nextNeighbor()} to return successive (ordered) connected node ordinals.
+   *
+   * @param level level of the graph
+   * @param target ordinal of a node in the graph, must be &ge; 0 and &lt; {@link #size()}.
+   */
+  public abstract void seek(int level, int target) throws IOException;
+
+  /** Returns the number of nodes in the graph */
+  public abstract int size();
+
+  /**
+   * Iterates over the neighbor list. It is illegal to call this method after it returns
+   * NO_MORE_DOCS without calling {@link #seek(int, int)}, which resets the iterator.
+   *
+   * @return a node ordinal in the graph, or NO_MORE_DOCS if the iteration is complete.
+   */
+  public abstract int nextNeighbor() throws IOException;
+
+  /** Returns the number of levels of the graph */
+  public abstract int numLevels() throws IOException;
+
+  /** Returns graph's entry point on the top level, or -1 if the graph is empty */
+  public abstract int entryNode() throws IOException;
+
+  /**
+   * Returns the ordinals of the nodes on the given level, in increasing order. All nodes are
+   * present on level 0.
+   */
+  public abstract int[] nodesOnLevel(int level) throws IOException;
+}
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.util.hnsw;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+import org.apache.lucene.index.RandomAccessVectorValues;
+import org.apache.lucene.index.RandomAccessVectorValuesProducer;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.util.InfoStream;
+
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+
+/**
+ * Builder for HNSW graph. See {@link HnswGraph} for a gloss on the algorithm and the meaning of the
+ * hyperparameters.
+ *
+ * @lucene.experimental
+ */
+public final class HnswGraphBuilder {
+
+  /** Default maximum number of connections per node on the upper levels; level 0 allows twice as many */
+  public static final int DEFAULT_MAX_CONN = 16;
+
+  /** Default size of the queue of candidates explored while inserting a node */
+  public static final int DEFAULT_BEAM_WIDTH = 100;
+
+  /** Default random seed for level generation */
+  public static final long DEFAULT_RAND_SEED = 42;
+
+  /** A name for the HNSW component for the info-stream */
+  public static final String HNSW_COMPONENT = "HNSW";
+
+  private final int maxConn;
+  private final int beamWidth;
+  private final double ml;
+  private final SplittableRandom random;
+  private final VectorSimilarityFunction similarityFunction;
+  // one instance to compare against the node being inserted, and one to compare candidates with each other
+  private final RandomAccessVectorValues vectorValues;
+  private final RandomAccessVectorValues buildVectors;
+  private final OnHeapHnswGraph hnsw;
+
+  private InfoStream infoStream = InfoStream.getDefault();
+
+  /**
+   * Reads all the vectors from a VectorValues, builds a graph connecting them by their dense
+   * ordinals, using the given hyperparameter settings, and returns the resulting graph.
+   *
+   * @param vectors the vectors whose relations are represented by the graph - must provide a
+   *     different view over those vectors than the one used to add via addGraphNode.
+   * @param similarityFunction the function used to compare vectors
+   * @param maxConn the number of connections to make when adding a new graph node; roughly speaking
+   *     the graph fanout.
+   * @param beamWidth the size of the beam search to use when finding nearest neighbors.
+   * @param seed the seed for a random number generator used during graph construction. Provide this
+   *     to ensure repeatable construction.
+   */
+  public HnswGraphBuilder(RandomAccessVectorValuesProducer vectors, VectorSimilarityFunction similarityFunction,
+                          int maxConn, int beamWidth, long seed) {
+    this.vectorValues = vectors.randomAccess();
+    this.buildVectors = vectors.randomAccess();
+    this.similarityFunction = Objects.requireNonNull(similarityFunction);
+    if (maxConn <= 0) {
+      throw new IllegalArgumentException("maxConn must be positive");
+    }
+    if (beamWidth <= 0) {
+      throw new IllegalArgumentException("beamWidth must be positive");
+    }
+    this.maxConn = maxConn;
+    this.beamWidth = beamWidth;
+    // normalization factor for level generation; the probability of a node reaching the next level is 1/maxConn
+    this.ml = maxConn == 1 ? 1 : 1 / Math.log(1.0 * maxConn);
+    this.random = new SplittableRandom(seed);
+    this.hnsw = new OnHeapHnswGraph(maxConn);
+  }
+
+  /**
+   * Creates a builder with the default hyperparameters.
+   *
+   * @see #HnswGraphBuilder(RandomAccessVectorValuesProducer, VectorSimilarityFunction, int, int, long)
+   */
+  public HnswGraphBuilder(RandomAccessVectorValuesProducer vectors, VectorSimilarityFunction similarityFunction) {
+    this(vectors, similarityFunction, DEFAULT_MAX_CONN, DEFAULT_BEAM_WIDTH, DEFAULT_RAND_SEED);
+  }
+
+  /**
+   * Seeds the graph being built with all the nodes and connections of an existing graph, so that
+   * building only needs to insert the vectors that are not part of it. The existing graph's nodes
+   * must have the same ordinals, and refer to the same vectors, in the new graph. This must be
+   * called before any node is added.
+   *
+   * @param initializer the graph to copy
+   */
+  public void initializeFromGraph(HnswGraph initializer) throws IOException {
+    if (hnsw.size() != 0) {
+      throw new IllegalStateException("the graph must be initialized before any node is added");
+    }
+    int size = initializer.size();
+    if (size > vectorValues.size()) {
+      throw new IllegalArgumentException("the initializer graph has more nodes (" + size
+          + ") than there are vectors (" + vectorValues.size() + ")");
+    }
+    int numLevels = initializer.numLevels();
+    for (int level = 0; level < numLevels; level++) {
+      for (int node : initializer.nodesOnLevel(level)) {
+        hnsw.addNode(level, node);
+      }
+    }
+    float[] value = new float[vectorValues.dimension()];
+    for (int level = 0; level < numLevels; level++) {
+      for (int node : initializer.nodesOnLevel(level)) {
+        System.arraycopy(vectorValues.vectorValue(node), 0, value, 0, value.length);
+        NeighborArray neighbors = hnsw.getNeighbors(level, node);
+        initializer.seek(level, node);
+        int friend;
+        while ((friend = initializer.nextNeighbor()) != NO_MORE_DOCS) {
+          neighbors.add(friend, similarityFunction.compare(value, buildVectors.vectorValue(friend)));
+        }
+      }
+    }
+    hnsw.setEntryNode(initializer.entryNode());
+  }
+
+  /**
+   * Adds all the vectors that are not yet part of the graph, and returns the graph.
+   *
+   * @param vectors the vectors for which to build a nearest neighbors graph. Must be an independent
+   *     accessor for the vectors
+   */
+  public OnHeapHnswGraph build(RandomAccessVectorValues vectors) throws IOException {
+    if (vectors == vectorValues || vectors == buildVectors) {
+      throw new IllegalArgumentException("Vectors to build must be independent of the source of vectors provided to HnswGraphBuilder()");
+    }
+    long start = System.nanoTime();
+    long t = start;
+    for (int node = hnsw.size(); node < vectors.size(); node++) {
+      addGraphNode(node, vectors.vectorValue(node));
+      if ((node % 10000 == 0) && infoStream.isEnabled(HNSW_COMPONENT)) {
+        long now = System.nanoTime();
+        infoStream.message(HNSW_COMPONENT, String.format(Locale.ROOT, "built %d in %d/%d ms",
+            node, ((now - t) / 1_000_000), ((now - start) / 1_000_000)));
+        t = now;
+      }
+    }
+    return hnsw;
+  }
+
+  /** Set info-stream to output debugging information */
+  public void setInfoStream(InfoStream infoStream) {
+    this.infoStream = infoStream;
+  }
+
+  /** Returns the graph being built */
+  public OnHeapHnswGraph getGraph() {
+    return hnsw;
+  }
+
+  /** Inserts a doc with vector value to the graph */
+  void addGraphNode(int node, float[] value) throws IOException {
+    final int nodeLevel = randomLevel();
+    final int curMaxLevel = hnsw.numLevels() - 1;
+    final int entryNode = hnsw.entryNode();
+
+    for (int level = 0; level <= nodeLevel; level++) {
+      hnsw.addNode(level, node);
+    }
+    if (entryNode == -1) {
+      // first node: it is the entry point on all its levels
+      hnsw.setEntryNode(node);
+      return;
+    }
+
+    int[] eps = new int[] {entryNode};
+    // for levels > nodeLevel we only need to find the closest entry point for the next level
+    for (int level = curMaxLevel; level > nodeLevel; level--) {
+      NeighborQueue candidates = HnswGraphSearcher.searchLevel(value, 1, level, eps, vectorValues, similarityFunction, hnsw, null);
+      eps = new int[] {candidates.pop()};
+    }
+    // for levels <= nodeLevel, find the best neighbors and link them to the new node
+    for (int level = Math.min(nodeLevel, curMaxLevel); level >= 0; level--) {
+      NeighborQueue candidates = HnswGraphSearcher.searchLevel(value, beamWidth, level, eps, vectorValues, similarityFunction, hnsw, null);
+      eps = candidates.nodes();
+      addDiverseNeighbors(level, node, candidates);
+    }
+    if (nodeLevel > curMaxLevel) {
+      // the new node is the only one on its top levels
+      hnsw.setEntryNode(node);
+    }
+  }
+
+  /** Links the new node to the most diverse of the candidates, and links them back. */
+  private void addDiverseNeighbors(int level, int node, NeighborQueue candidates) throws IOException {
+    int maxConnOnLevel = level == 0 ? maxConn * 2 : maxConn;
+    NeighborArray neighbors = hnsw.getNeighbors(level, node);
+    // pop candidates from worst to best and reverse so that they are sorted by decreasing similarity
+    int size = candidates.size();
+    int[] candidateNodes = new int[size];
+    float[] candidateScores = new float[size];
+    for (int i = size - 1; i >= 0; i--) {
+      candidateScores[i] = candidates.topScore();
+      candidateNodes[i] = candidates.pop();
+    }
+    selectDiverse(neighbors, candidateNodes, candidateScores, maxConnOnLevel);
+
+    // Link the selected nodes to the new node, and the new node to the selected nodes (again
+    // applying diversity heuristic)
+    for (int i = 0; i < neighbors.size(); i++) {
+      int nbr = neighbors.node(i);
+      NeighborArray nbrNbr = hnsw.getNeighbors(level, nbr);
+      nbrNbr.add(node, neighbors.score(i));
+      if (nbrNbr.size() > maxConnOnLevel) {
+        nbrNbr.removeIndex(findWorstNonDiverse(nbrNbr));
+      }
+    }
+  }
+
+  /**
+   * Adds candidates to the neighbors array, best first, skipping those that are closer to an
+   * already selected neighbor than to the new node. This keeps the graph navigable across clusters
+   * instead of connecting each node only to its (mutually close) nearest neighbors.
+   */
+  private void selectDiverse(NeighborArray neighbors, int[] candidateNodes, float[] candidateScores,
+                             int maxConnOnLevel) throws IOException {
+    for (int i = 0; i < candidateNodes.length && neighbors.size() < maxConnOnLevel; i++) {
+      int cNode = candidateNodes[i];
+      float cScore = candidateScores[i];
+      if (diversityCheck(buildVectors.vectorValue(cNode), cScore, neighbors, neighbors.size())) {
+        neighbors.add(cNode, cScore);
+      }
+    }
+  }
+
+  /**
+   * Returns true if the candidate, whose similarity to the node is {@code score}, is less similar
+   * to each of the first {@code upto} neighbors than it is to the node.
+   */
+  private boolean diversityCheck(float[] candidate, float score, NeighborArray neighbors, int upto) throws IOException {
+    for (int i = 0; i < upto; i++) {
+      float neighborSimilarity = similarityFunction.compare(candidate, vectorValues.vectorValue(neighbors.node(i)));
+      if (neighborSimilarity >= score) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Find first non-diverse neighbour among the list of neighbors starting from the most distant
+   * neighbours; if all are diverse, returns the most distant one.
+   */
+  private int findWorstNonDiverse(NeighborArray neighbors) throws IOException {
+    for (int i = neighbors.size() - 1; i > 0; i--) {
+      float[] candidate = buildVectors.vectorValue(neighbors.node(i));
+      if (diversityCheck(candidate, neighbors.score(i), neighbors, i) == false) {
+        return i;
+      }
+    }
+    return neighbors.size() - 1;
+  }
+
+  private int randomLevel() {
+    double randDouble;
+    do {
+      // avoid 0 value, as log(0) is undefined
+      randDouble = random.nextDouble();
+    } while (randDouble == 0.0);
+    return (int) (-Math.log(randDouble) * ml);
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.util.hnsw;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.RandomAccessVectorValues;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.SparseFixedBitSet;
+
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+
+/**
+ * Searches an {@link HnswGraph} for the nearest neighbors of a query vector.
+ *
+ * @lucene.experimental
+ */
+public final class HnswGraphSearcher {
+
+  private HnswGraphSearcher() {}
+
+  /**
+   * Searches the graph for the nodes closest to the given target vector.
+   *
+   * @param query search query vector
+   * @param topK the number of nodes to be returned
+   * @param vectors the vector values
+   * @param similarityFunction the similarity function to compare vectors
+   * @param graph the graph values. May represent the entire graph, or a level in a hierarchical graph.
+   * @param acceptOrds {@link Bits} that represents the allowed document ordinals to match, or
+   *     {@code null} if they are all allowed to match.
+   * @return a min-heap of the topK closest neighbors: its top is the least similar result
+   */
+  public static NeighborQueue search(float[] query, int topK, RandomAccessVectorValues vectors,
+                                     VectorSimilarityFunction similarityFunction, HnswGraph graph,
+                                     Bits acceptOrds) throws IOException {
+    int entryNode = graph.entryNode();
+    if (entryNode == -1) {
+      return new NeighborQueue(1, false);
+    }
+    int[] eps = new int[] {entryNode};
+    int visitedCount = 0;
+    // greedy descent through the upper levels, using a single entry point per level
+    for (int level = graph.numLevels() - 1; level >= 1; level--) {
+      NeighborQueue results = searchLevel(query, 1, level, eps, vectors, similarityFunction, graph, null);
+      visitedCount += results.visitedCount();
+      eps[0] = results.topNode();
+    }
+    NeighborQueue results = searchLevel(query, topK, 0, eps, vectors, similarityFunction, graph, acceptOrds);
+    results.setVisitedCount(results.visitedCount() + visitedCount);
+    return results;
+  }
+
+  /**
+   * Searches for the nearest neighbors of a query vector on a single level of the graph, starting
+   * from the given entry points. The search is a best-first expansion that stops once the closest
+   * unexpanded candidate is further than the furthest of the {@code topK} results found so far.
+   *
+   * @return a min-heap of the topK closest neighbors on this level
+   */
+  static NeighborQueue searchLevel(float[] query, int topK, int level, int[] eps, RandomAccessVectorValues vectors,
+                                   VectorSimilarityFunction similarityFunction, HnswGraph graph,
+                                   Bits acceptOrds) throws IOException {
+    int size = graph.size();
+    NeighborQueue results = new NeighborQueue(topK, false);
+    // candidates are expanded best-first
+    NeighborQueue candidates = new NeighborQueue(topK, true);
+    SparseFixedBitSet visited = new SparseFixedBitSet(size);
+    int visitedCount = 0;
+    for (int ep : eps) {
+      if (visited.get(ep) == false) {
+        visited.set(ep);
+        float score = similarityFunction.compare(query, vectors.vectorValue(ep));
+        visitedCount++;
+        candidates.add(ep, score);
+        if (acceptOrds == null || acceptOrds.get(ep)) {
+          results.insertWithOverflow(ep, score, topK);
+        }
+      }
+    }
+
+    // Set the bound to the worst current result and below reject any newly-generated candidates
+    // failing to exceed this bound
+    float minAcceptedSimilarity = results.size() >= topK ? results.topScore() : Float.NEGATIVE_INFINITY;
+    while (candidates.size() > 0) {
+      // get the best candidate (closest or best scoring)
+      float topCandidateScore = candidates.topScore();
+      if (topCandidateScore < minAcceptedSimilarity) {
+        break;
+      }
+      int topCandidateNode = candidates.pop();
+      graph.seek(level, topCandidateNode);
+      int friendOrd;
+      while ((friendOrd = graph.nextNeighbor()) != NO_MORE_DOCS) {
+        assert friendOrd < size : "friendOrd=" + friendOrd + "; size=" + size;
+        if (visited.get(friendOrd)) {
+          continue;
+        }
+        visited.set(friendOrd);
+
+        float score = similarityFunction.compare(query, vectors.vectorValue(friendOrd));
+        visitedCount++;
+        if (score >= minAcceptedSimilarity) {
+          candidates.add(friendOrd, score);
+          if (acceptOrds == null || acceptOrds.get(friendOrd)) {
+            if (results.insertWithOverflow(friendOrd, score, topK) && results.size() >= topK) {
+              minAcceptedSimilarity = results.topScore();
+            }
+          }
+        }
+      }
+    }
+    results.setVisitedCount(visitedCount);
+    return results;
+  }
+}
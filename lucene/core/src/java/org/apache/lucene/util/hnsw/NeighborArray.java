@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.util.hnsw;
+
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * NeighborArray encodes the neighbors of a node in the HNSW graph, along with the similarity of
+ * each neighbor to that node. Neighbors are kept sorted by decreasing similarity, so that the
+ * first neighbor is the closest one.
+ *
+ * @lucene.internal
+ */
+public final class NeighborArray {
+
+  private int size;
+  float[] score;
+  int[] node;
+
+  /** Create an empty array with space for the given number of neighbors */
+  public NeighborArray(int maxSize) {
+    node = new int[maxSize];
+    score = new float[maxSize];
+  }
+
+  /**
+   * Add a new node to the NeighborArray, keeping neighbors sorted by decreasing score. The storage
+   * is extended as needed.
+   */
+  public void add(int newNode, float newScore) {
+    if (size == node.length) {
+      node = ArrayUtil.grow(node);
+      score = ArrayUtil.growExact(score, node.length);
+    }
+    int insertionPoint = size;
+    while (insertionPoint > 0 && score[insertionPoint - 1] < newScore) {
+      insertionPoint--;
+    }
+    System.arraycopy(node, insertionPoint, node, insertionPoint + 1, size - insertionPoint);
+    System.arraycopy(score, insertionPoint, score, insertionPoint + 1, size - insertionPoint);
+    node[insertionPoint] = newNode;
+    score[insertionPoint] = newScore;
+    ++size;
+  }
+
+  /** Returns the number of neighbors */
+  public int size() {
+    return size;
+  }
+
+  /** Returns the neighbor at the given index; neighbors are sorted by decreasing similarity */
+  public int node(int i) {
+    return node[i];
+  }
+
+  /** Returns the similarity of the neighbor at the given index */
+  public float score(int i) {
+    return score[i];
+  }
+
+  /** Removes all neighbors */
+  public void clear() {
+    size = 0;
+  }
+
+  /** Removes the neighbor at the given index */
+  public void removeIndex(int idx) {
+    System.arraycopy(node, idx + 1, node, idx, size - idx - 1);
+    System.arraycopy(score, idx + 1, score, idx, size - idx - 1);
+    size--;
+  }
+
+  @Override
+  public String toString() {
+    return "NeighborArray[" + size + "]";
+  }
+}
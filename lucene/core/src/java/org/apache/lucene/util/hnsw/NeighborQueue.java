@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.util.hnsw;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.NumericUtils;
+
+/**
+ * NeighborQueue uses a binary heap of longs to store node+score pairs, encoding the score in the
+ * high 32 bits and the node id in the low 32 bits, which avoids allocating an object per entry.
+ * It can be used either as a min-heap (the top is the least similar node, useful for keeping the
+ * best k results) or as a max-heap (the top is the most similar node, useful for expanding
+ * candidates best-first).
+ *
+ * @lucene.internal
+ */
+public final class NeighborQueue {
+
+  private final boolean maxHeap;
+  // 1-based binary heap
+  private long[] heap;
+  private int size;
+  // Used to track the number of neighbors visited during a single graph traversal
+  private int visitedCount;
+
+  /**
+   * Create a new queue.
+   *
+   * @param initialSize the initial capacity of the queue
+   * @param maxHeap if true, {@link #topNode()} returns the most similar node, otherwise the least
+   *     similar one
+   */
+  public NeighborQueue(int initialSize, boolean maxHeap) {
+    this.heap = new long[Math.max(1, initialSize) + 1];
+    this.maxHeap = maxHeap;
+  }
+
+  /** Returns the number of elements in the heap */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Adds a new graph arc, extending the storage as needed.
+   *
+   * @param newNode the neighbor node
+   * @param newScore the score of the neighbor, relative to some other node
+   */
+  public void add(int newNode, float newScore) {
+    push(encode(newNode, newScore));
+  }
+
+  /**
+   * If the heap is not full (size is less than the given maxSize), then add the node to the heap.
+   * Otherwise, replace the top of the heap if the new node sorts after it.
+   *
+   * @param newNode the neighbor node
+   * @param newScore the score of the neighbor, relative to some other node
+   * @param maxSize the maximum number of nodes to keep
+   * @return true if the node was added
+   */
+  public boolean insertWithOverflow(int newNode, float newScore, int maxSize) {
+    long encoded = encode(newNode, newScore);
+    if (size < maxSize) {
+      push(encoded);
+      return true;
+    } else if (encoded > heap[1]) {
+      heap[1] = encoded;
+      downHeap(1);
+      return true;
+    }
+    return false;
+  }
+
+  /** Removes the top element and returns its node id. */
+  public int pop() {
+    if (size == 0) {
+      throw new IllegalStateException("The heap is empty");
+    }
+    long result = heap[1];
+    heap[1] = heap[size];
+    size--;
+    downHeap(1);
+    return decodeNode(result);
+  }
+
+  /** Returns a copy of the internal nodes array. Not sorted by score! */
+  public int[] nodes() {
+    int[] nodes = new int[size];
+    for (int i = 0; i < size; i++) {
+      nodes[i] = decodeNode(heap[i + 1]);
+    }
+    return nodes;
+  }
+
+  /** Returns the top element's node id. */
+  public int topNode() {
+    return decodeNode(heap[1]);
+  }
+
+  /** Returns the top element's node score. */
+  public float topScore() {
+    return decodeScore(heap[1]);
+  }
+
+  /** Removes all elements */
+  public void clear() {
+    size = 0;
+    visitedCount = 0;
+  }
+
+  /** Returns the number of nodes whose similarity was computed while filling this queue */
+  public int visitedCount() {
+    return visitedCount;
+  }
+
+  /** Sets the number of nodes whose similarity was computed while filling this queue */
+  public void setVisitedCount(int visitedCount) {
+    this.visitedCount = visitedCount;
+  }
+
+  // Encodes the node and the score in a single long, so that comparing two encoded values orders
+  // them according to this queue's direction. Nodes are stored complemented so that, for equal
+  // scores, lower node ids are considered better.
+  private long encode(int node, float score) {
+    long encoded = (((long) NumericUtils.floatToSortableInt(score)) << 32) | (0xFFFFFFFFL & ~node);
+    // The heap is a min-heap of encoded values; a max-heap is obtained by complementing them
+    return maxHeap ? ~encoded : encoded;
+  }
+
+  private int decodeNode(long heapValue) {
+    long encoded = maxHeap ? ~heapValue : heapValue;
+    return ~((int) encoded);
+  }
+
+  private float decodeScore(long heapValue) {
+    long encoded = maxHeap ? ~heapValue : heapValue;
+    return NumericUtils.sortableIntToFloat((int) (encoded >> 32));
+  }
+
+  private void push(long element) {
+    size++;
+    if (size == heap.length) {
+      heap = ArrayUtil.grow(heap, size + 1);
+    }
+    heap[size] = element;
+    upHeap(size);
+  }
+
+  private void upHeap(int origPos) {
+    int i = origPos;
+    long value = heap[i];
+    int j = i >>> 1;
+    while (j > 0 && value < heap[j]) {
+      heap[i] = heap[j];
+      i = j;
+      j = j >>> 1;
+    }
+    heap[i] = value;
+  }
+
+  private void downHeap(int i) {
+    long value = heap[i];
+    int j = i << 1;
+    int k = j + 1;
+    if (k <= size && heap[k] < heap[j]) {
+      j = k;
+    }
+    while (j <= size && heap[j] < value) {
+      heap[i] = heap[j];
+      i = j;
+      j = i << 1;
+      k = j + 1;
+      if (k <= size && heap[k] < heap[j]) {
+        j = k;
+      }
+    }
+    heap[i] = value;
+  }
+
+  @Override
+  public String toString() {
+    return "Neighbors[" + size + "]";
+  }
+}
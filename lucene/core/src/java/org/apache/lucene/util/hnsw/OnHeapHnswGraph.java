@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.util.hnsw;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+
+/**
+ * An {@link HnswGraph} where all nodes and connections are held in memory. This is the form in
+ * which graphs are built by {@link HnswGraphBuilder}.
+ *
+ * @lucene.internal
+ */
+public final class OnHeapHnswGraph extends HnswGraph implements Accountable {
+
+  private final int maxConn;
+  private int entryNode = -1;
+
+  // every node has neighbors on level 0, indexed by node ordinal
+  private final List<NeighborArray> graphLevel0 = new ArrayList<>();
+  // upper levels only hold a small fraction of the nodes, so they are kept sparse and sorted by node
+  private final List<TreeMap<Integer, NeighborArray>> graphUpperLevels = new ArrayList<>();
+
+  // current neighbors, for iteration
+  private NeighborArray cur;
+  private int upto;
+
+  OnHeapHnswGraph(int maxConn) {
+    this.maxConn = maxConn;
+  }
+
+  /**
+   * Returns the {@link NeighborArray} of the given node on the given level.
+   *
+   * @param level level of the graph
+   * @param node the node whose neighbors are returned
+   */
+  public NeighborArray getNeighbors(int level, int node) {
+    if (level == 0) {
+      return graphLevel0.get(node);
+    }
+    return graphUpperLevels.get(level - 1).get(node);
+  }
+
+  @Override
+  public int size() {
+    return graphLevel0.size();
+  }
+
+  /**
+   * Adds a node to the graph on the given level; nodes must be added to level 0 in increasing
+   * ordinal order, without gaps.
+   */
+  void addNode(int level, int node) {
+    if (level == 0) {
+      if (node != graphLevel0.size()) {
+        throw new IllegalStateException("nodes must be added in order: expected " + graphLevel0.size() + " but got " + node);
+      }
+      graphLevel0.add(new NeighborArray(maxConn * 2 + 1));
+    } else {
+      while (graphUpperLevels.size() < level) {
+        graphUpperLevels.add(new TreeMap<>());
+      }
+      graphUpperLevels.get(level - 1).put(node, new NeighborArray(maxConn + 1));
+    }
+  }
+
+  void setEntryNode(int node) {
+    entryNode = node;
+  }
+
+  @Override
+  public void seek(int level, int target) {
+    cur = getNeighbors(level, target);
+    upto = -1;
+  }
+
+  @Override
+  public int nextNeighbor() {
+    if (++upto < cur.size()) {
+      return cur.node(upto);
+    }
+    return NO_MORE_DOCS;
+  }
+
+  @Override
+  public int numLevels() {
+    return graphLevel0.isEmpty() ? 0 : graphUpperLevels.size() + 1;
+  }
+
+  @Override
+  public int entryNode() {
+    return entryNode;
+  }
+
+  @Override
+  public int[] nodesOnLevel(int level) {
+    if (level == 0) {
+      int[] nodes = new int[graphLevel0.size()];
+      for (int i = 0; i < nodes.length; i++) {
+        nodes[i] = i;
+      }
+      return nodes;
+    }
+    Map<Integer, NeighborArray> levelNodes = graphUpperLevels.get(level - 1);
+    int[] nodes = new int[levelNodes.size()];
+    int i = 0;
+    for (int node : levelNodes.keySet()) {
+      nodes[i++] = node;
+    }
+    return nodes;
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    // only an estimate: neighbor arrays grow as connections are added
+    long neighborArrayBytes0 = (long) (maxConn * 2 + 1) * (Integer.BYTES + Float.BYTES)
+        + 2 * RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + RamUsageEstimator.NUM_BYTES_OBJECT_HEADER;
+    long neighborArrayBytes = (long) (maxConn + 1) * (Integer.BYTES + Float.BYTES)
+        + 2 * RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + RamUsageEstimator.NUM_BYTES_OBJECT_HEADER;
+    long total = graphLevel0.size() * (neighborArrayBytes0 + RamUsageEstimator.NUM_BYTES_OBJECT_REF);
+    for (TreeMap<Integer, NeighborArray> level : graphUpperLevels) {
+      // TreeMap entries hold a boxed key, a value and three references
+      total += level.size() * (neighborArrayBytes + 64L);
+    }
+    return total;
+  }
+}
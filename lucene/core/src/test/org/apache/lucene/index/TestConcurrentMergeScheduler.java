@@ -610,6 +610,56 @@ public class TestConcurrentMergeScheduler extends LuceneTestCase {
     assertTrue(cms.getAutoIOThrottle());
   }
 
+  public void testSearchLoad() throws Exception {
+    ConcurrentMergeScheduler cms = new ConcurrentMergeScheduler();
+    assertEquals(Double.POSITIVE_INFINITY, cms.getSearchLatencyThresholdMillis(), 0d);
+    cms.recordSearchLatency(TimeUnit.SECONDS.toNanos(10));
+    // no threshold
+    assertFalse(cms.isSearchUnderLoad());
+
+    cms.setSearchLatencyThresholdMillis(100);
+    assertEquals(100, cms.getSearchLatencyThresholdMillis(), 0d);
+    cms.recordSearchLatency(TimeUnit.SECONDS.toNanos(10));
+    assertTrue(cms.isSearchUnderLoad());
+    // a single fast search doesn't end the load
+    cms.recordSearchLatency(TimeUnit.MILLISECONDS.toNanos(1));
+    assertTrue(cms.isSearchUnderLoad());
+    // but many of them do
+    for (int i = 0; i < 100; ++i) {
+      cms.recordSearchLatency(TimeUnit.MILLISECONDS.toNanos(1));
+    }
+    assertFalse(cms.isSearchUnderLoad());
+
+    expectThrows(IllegalArgumentException.class, () -> cms.setSearchLatencyThresholdMillis(0));
+    expectThrows(IllegalArgumentException.class, () -> cms.setSearchLatencyThresholdMillis(Double.NaN));
+  }
+
+  public void testMergeMetrics() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    ConcurrentMergeScheduler cms = new ConcurrentMergeScheduler();
+    cms.setSearchLatencyThresholdMillis(1);
+    iwc.setMergeScheduler(cms);
+    iwc.setMaxBufferedDocs(2);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    for (int i = 0; i < 100; i++) {
+      if (random().nextBoolean()) {
+        cms.recordSearchLatency(TimeUnit.MILLISECONDS.toNanos(10));
+      }
+      Document doc = new Document();
+      doc.add(newStringField("field", ""+i, Field.Store.YES));
+      w.addDocument(doc);
+    }
+    w.close();
+    dir.close();
+
+    // small merges are never preempted, nor measured
+    assertEquals(0, cms.getTotalPreemptedNS());
+    assertEquals(0, cms.getPausedMergeCount());
+    assertEquals(0, cms.getMergeBacklogBytes());
+    assertEquals(0, cms.getMeasuredMergeMBPerSec(), 0d);
+  }
+
   public void testNonSpinningDefaults() throws Exception {
     ConcurrentMergeScheduler cms = new ConcurrentMergeScheduler();
     cms.setDefaultMaxMergesAndThreads(false);
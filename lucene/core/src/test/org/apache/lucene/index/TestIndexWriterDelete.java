@@ -25,6 +25,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -42,7 +44,9 @@ import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MockDirectoryWrapper;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.LuceneTestCase.SuppressCodecs;
 import org.apache.lucene.util.LuceneTestCase;
 import org.apache.lucene.util.TestUtil;
@@ -1395,4 +1399,94 @@ public class TestIndexWriterDelete extends LuceneTestCase {
     w.close();
     dir.close();
   }
+
+  public void testApplyDeletesAndUpdatesConcurrently() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(TestUtil.nextInt(random(), 1, 4),
+        new NamedThreadFactory("TestApplyDeletesAndUpdatesConcurrently"));
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()))
+        .setApplyUpdatesExecutor(executor)
+        .setMergePolicy(NoMergePolicy.INSTANCE);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("id", "" + i, Field.Store.NO));
+      doc.add(newStringField("mod", "" + (i % 7), Field.Store.NO));
+      doc.add(new NumericDocValuesField("val", i));
+      w.addDocument(doc);
+      if (random().nextInt(20) == 0) {
+        // create many segments
+        w.flush();
+      }
+    }
+    w.flush();
+
+    // deletes and updates that target all segments
+    w.deleteDocuments(new Term("mod", "3"));
+    w.deleteDocuments(new TermQuery(new Term("mod", "5")));
+    w.updateNumericDocValue(new Term("mod", "1"), "val", -1L);
+    w.commit();
+
+    DirectoryReader r = DirectoryReader.open(w);
+    int expectedNumDocs = 0;
+    for (int i = 0; i < numDocs; i++) {
+      if (i % 7 != 3 && i % 7 != 5) {
+        expectedNumDocs++;
+      }
+    }
+    assertEquals(expectedNumDocs, r.numDocs());
+    for (LeafReaderContext context : r.leaves()) {
+      LeafReader reader = context.reader();
+      Bits liveDocs = reader.getLiveDocs();
+      NumericDocValues values = reader.getNumericDocValues("val");
+      for (int doc = 0; doc < reader.maxDoc(); doc++) {
+        assertEquals(doc, values.nextDoc());
+        if (liveDocs == null || liveDocs.get(doc)) {
+          long value = values.longValue();
+          if (value != -1) {
+            assertTrue(value % 7 != 1 && value % 7 != 3 && value % 7 != 5);
+          }
+        }
+      }
+    }
+    assertEquals(numDocs / 7 + (numDocs % 7 > 1 ? 1 : 0),
+        new IndexSearcher(r).count(new TermQuery(new Term("mod", "1"))));
+    r.close();
+
+    w.close();
+    dir.close();
+    TestUtil.shutdownExecutorService(executor);
+  }
+
+  public void testStallOnPendingUpdates() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()))
+        .setMaxPendingUpdatesRAMMB(Double.MIN_VALUE)
+        .setMaxBufferedDocs(2);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    assertEquals(0, w.getStallCount());
+    assertEquals(0, w.getStallTimeMillis());
+    for (int i = 0; i < 20; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("id", "" + i, Field.Store.NO));
+      w.updateDocument(new Term("id", "" + i), doc);
+      w.deleteDocuments(new Term("id", "" + (i - 1)));
+    }
+    w.flush();
+    // every pushed packet exceeds the budget, so they get applied eagerly
+    assertTrue(w.getStallCount() > 0);
+    assertEquals(0, w.getPendingUpdatesBytes());
+
+    w.getConfig().setMaxPendingUpdatesRAMMB(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+    final long stallCount = w.getStallCount();
+    for (int i = 0; i < 20; i++) {
+      w.deleteDocuments(new Term("id", "" + i));
+      w.flush();
+    }
+    assertEquals(stallCount, w.getStallCount());
+
+    w.close();
+    dir.close();
+  }
 }
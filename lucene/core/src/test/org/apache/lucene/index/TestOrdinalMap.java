@@ -23,14 +23,17 @@ import java.util.HashMap;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongValues;
 import org.apache.lucene.util.LuceneTestCase;
 import org.apache.lucene.util.RamUsageTester;
 import org.apache.lucene.util.TestUtil;
+import org.apache.lucene.util.packed.PackedInts;
 
 public class TestOrdinalMap extends LuceneTestCase {
 
@@ -95,4 +98,105 @@ public class TestOrdinalMap extends LuceneTestCase {
     dir.close();
   }
 
+  public void testIncrementalBuild() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriterConfig cfg = new IndexWriterConfig(new MockAnalyzer(random()))
+        .setCodec(TestUtil.alwaysDocValuesFormat(TestUtil.getDefaultDocValuesFormat()))
+        .setMergePolicy(NoMergePolicy.INSTANCE);
+    IndexWriter w = new IndexWriter(dir, cfg);
+    final int numSegments = TestUtil.nextInt(random(), 3, 6);
+    for (int i = 0; i < numSegments; ++i) {
+      addDocs(w, i, TestUtil.nextInt(random(), 200, 400));
+      w.flush();
+    }
+    DirectoryReader r1 = DirectoryReader.open(w);
+    OrdinalMap sortedMap = OrdinalMap.build(null, sortedValues(r1), PackedInts.DEFAULT);
+    OrdinalMap sortedSetMap = OrdinalMap.build(null, sortedSetValues(r1), PackedInts.DEFAULT);
+
+    // drop a segment and add a few small ones
+    w.deleteDocuments(new Term("segment", Integer.toString(random().nextInt(numSegments))));
+    final int numNewSegments = TestUtil.nextInt(random(), 1, 3);
+    for (int i = 0; i < numNewSegments; ++i) {
+      addDocs(w, numSegments + i, TestUtil.nextInt(random(), 1, 3));
+      w.flush();
+    }
+    DirectoryReader r2 = DirectoryReader.openIfChanged(r1);
+    assertNotNull(r2);
+    final int[] previousSegments = new int[r2.leaves().size()];
+    for (int i = 0; i < previousSegments.length; ++i) {
+      previousSegments[i] = -1;
+      for (LeafReaderContext previous : r1.leaves()) {
+        if (previous.reader().getCoreCacheHelper().getKey() == r2.leaves().get(i).reader().getCoreCacheHelper().getKey()) {
+          previousSegments[i] = previous.ord;
+        }
+      }
+    }
+
+    SortedDocValues[] sorted = sortedValues(r2);
+    long[] valueCounts = new long[sorted.length];
+    for (int i = 0; i < sorted.length; ++i) {
+      valueCounts[i] = sorted[i].getValueCount();
+    }
+    assertSameMapping(OrdinalMap.build(null, sorted, PackedInts.DEFAULT),
+        OrdinalMap.build(null, sortedValues(r2), sortedMap, previousSegments, PackedInts.DEFAULT), valueCounts);
+    SortedSetDocValues[] sortedSet = sortedSetValues(r2);
+    for (int i = 0; i < sortedSet.length; ++i) {
+      valueCounts[i] = sortedSet[i].getValueCount();
+    }
+    assertSameMapping(OrdinalMap.build(null, sortedSet, PackedInts.DEFAULT),
+        OrdinalMap.build(null, sortedSetValues(r2), sortedSetMap, previousSegments, PackedInts.DEFAULT), valueCounts);
+
+    r2.close();
+    r1.close();
+    w.close();
+    dir.close();
+  }
+
+  private static void addDocs(IndexWriter w, int segment, int numDocs) throws IOException {
+    for (int i = 0; i < numDocs; ++i) {
+      Document d = new Document();
+      d.add(new StringField("segment", Integer.toString(segment), Store.NO));
+      if (random().nextBoolean()) {
+        d.add(new SortedDocValuesField("sdv", new BytesRef(TestUtil.randomSimpleString(random(), 4))));
+      }
+      final int numSortedSet = random().nextInt(3);
+      for (int j = 0; j < numSortedSet; ++j) {
+        d.add(new SortedSetDocValuesField("ssdv", new BytesRef(TestUtil.randomSimpleString(random(), 4))));
+      }
+      w.addDocument(d);
+    }
+  }
+
+  private static SortedDocValues[] sortedValues(IndexReader r) throws IOException {
+    SortedDocValues[] values = new SortedDocValues[r.leaves().size()];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = DocValues.getSorted(r.leaves().get(i).reader(), "sdv");
+    }
+    return values;
+  }
+
+  private static SortedSetDocValues[] sortedSetValues(IndexReader r) throws IOException {
+    SortedSetDocValues[] values = new SortedSetDocValues[r.leaves().size()];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = DocValues.getSortedSet(r.leaves().get(i).reader(), "ssdv");
+    }
+    return values;
+  }
+
+  private static void assertSameMapping(OrdinalMap expected, OrdinalMap actual, long[] valueCounts) {
+    assertEquals(expected.getValueCount(), actual.getValueCount());
+    for (long ord = 0; ord < expected.getValueCount(); ++ord) {
+      assertEquals(expected.getFirstSegmentNumber(ord), actual.getFirstSegmentNumber(ord));
+      assertEquals(expected.getFirstSegmentOrd(ord), actual.getFirstSegmentOrd(ord));
+    }
+    for (int segment = 0; segment < valueCounts.length; ++segment) {
+      LongValues expectedOrds = expected.getGlobalOrds(segment);
+      LongValues actualOrds = actual.getGlobalOrds(segment);
+      for (long ord = 0; ord < valueCounts[segment]; ++ord) {
+        assertEquals(expectedOrds.get(ord), actualOrds.get(ord));
+      }
+    }
+    assertEquals(RamUsageTester.sizeOf(actual, ORDINAL_MAP_ACCUMULATOR), actual.ramBytesUsed());
+  }
+
 }
@@ -30,6 +30,7 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.IOUtils;
@@ -106,6 +107,16 @@ public class TestSegmentToThreadMapping extends LuceneTestCase {
         return null;
       }
 
+      @Override
+      public VectorValues getVectorValues(String field) {
+        return null;
+      }
+
+      @Override
+      public TopDocs searchNearestVectors(String field, float[] target, int k, Bits acceptDocs) {
+        return null;
+      }
+
       @Override
       protected void doClose() {
       }
@@ -214,6 +225,49 @@ public class TestSegmentToThreadMapping extends LuceneTestCase {
     assertTrue(thirdSliceleaves.length == 1);
   }
 
+  public void testLargeSegmentPartitions() {
+    LeafReader largeSegmentReader = dummyIndexReader(600_000);
+    LeafReader firstMediumSegmentReader = dummyIndexReader(100_000);
+    LeafReader secondMediumSegmentReader = dummyIndexReader(100_000);
+    List<LeafReaderContext> leafReaderContexts = new ArrayList<>();
+
+    leafReaderContexts.add(new LeafReaderContext(largeSegmentReader));
+    leafReaderContexts.add(new LeafReaderContext(firstMediumSegmentReader));
+    leafReaderContexts.add(new LeafReaderContext(secondMediumSegmentReader));
+
+    // segments are not split unless asked to
+    IndexSearcher.LeafSlice[] resultSlices = IndexSearcher.slices(leafReaderContexts, 250_000, 5);
+    assertEquals(2, resultSlices.length);
+    for (IndexSearcher.LeafSlice slice : resultSlices) {
+      assertFalse(slice.isPartition());
+    }
+
+    resultSlices = IndexSearcher.slices(leafReaderContexts, 250_000, 5, true);
+    assertEquals(4, resultSlices.length);
+
+    int expectedMinDocId = 0;
+    for (int i = 0; i < 3; ++i) {
+      IndexSearcher.LeafSlice partition = resultSlices[i];
+      assertTrue(partition.isPartition());
+      assertEquals(1, partition.leaves.length);
+      assertSame(largeSegmentReader, partition.leaves[0].reader());
+      assertEquals(expectedMinDocId, partition.minDocId);
+      assertTrue(partition.maxDocId - partition.minDocId <= 250_000);
+      expectedMinDocId = partition.maxDocId;
+    }
+    assertEquals(600_000, expectedMinDocId);
+
+    assertFalse(resultSlices[3].isPartition());
+    assertEquals(2, resultSlices[3].leaves.length);
+  }
+
+  public void testIllegalPartition() {
+    LeafReaderContext context = new LeafReaderContext(dummyIndexReader(1_000));
+    expectThrows(IllegalArgumentException.class, () -> new IndexSearcher.LeafSlice(context, -1, 10));
+    expectThrows(IllegalArgumentException.class, () -> new IndexSearcher.LeafSlice(context, 10, 10));
+    expectThrows(IllegalArgumentException.class, () -> new IndexSearcher.LeafSlice(context, 10, 1_001));
+  }
+
   public void testIntraSliceDocIDOrder() throws Exception {
     Directory dir = newDirectory();
     RandomIndexWriter w = new RandomIndexWriter(random(), dir);
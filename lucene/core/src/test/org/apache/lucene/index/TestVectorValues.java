@@ -0,0 +1,303 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.index;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.VectorField;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+
+/** Test Indexing/IndexWriter with vectors */
+public class TestVectorValues extends LuceneTestCase {
+
+  private IndexWriterConfig createIndexWriterConfig() {
+    IndexWriterConfig iwc = newIndexWriterConfig();
+    iwc.setCodec(TestUtil.getDefaultCodec());
+    return iwc;
+  }
+
+  public void testFieldConstructor() {
+    float[] v = new float[1];
+    VectorField field = new VectorField("f", v);
+    assertEquals(1, field.fieldType().vectorDimension());
+    assertEquals(VectorSimilarityFunction.EUCLIDEAN, field.fieldType().vectorSimilarityFunction());
+    assertSame(v, field.vectorValue());
+  }
+
+  public void testFieldConstructorExceptions() {
+    expectThrows(IllegalArgumentException.class, () -> new VectorField(null, new float[1]));
+    expectThrows(IllegalArgumentException.class, () -> new VectorField("f", null));
+    expectThrows(IllegalArgumentException.class, () -> new VectorField("f", new float[1], (VectorSimilarityFunction) null));
+    expectThrows(IllegalArgumentException.class, () -> new VectorField("f", new float[0]));
+    expectThrows(IllegalArgumentException.class, () -> new VectorField("f", new float[VectorValues.MAX_DIMENSIONS + 1]));
+  }
+
+  public void testFieldSetValue() {
+    VectorField field = new VectorField("f", new float[1]);
+    float[] v1 = new float[1];
+    field.setVectorValue(v1);
+    assertSame(v1, field.vectorValue());
+    expectThrows(IllegalArgumentException.class, () -> field.setVectorValue(new float[2]));
+    expectThrows(IllegalArgumentException.class, () -> field.setVectorValue(null));
+  }
+
+  // Illegal schema change tests:
+
+  public void testIllegalDimChangeTwoDocs() throws Exception {
+    try (Directory dir = newDirectory();
+         IndexWriter w = new IndexWriter(dir, createIndexWriterConfig())) {
+      Document doc = new Document();
+      doc.add(new VectorField("f", new float[4], VectorSimilarityFunction.DOT_PRODUCT));
+      w.addDocument(doc);
+      if (random().nextBoolean()) {
+        // sometimes test with two segments
+        w.commit();
+      }
+
+      Document doc2 = new Document();
+      doc2.add(new VectorField("f", new float[3], VectorSimilarityFunction.DOT_PRODUCT));
+      expectThrows(IllegalArgumentException.class, () -> w.addDocument(doc2));
+    }
+  }
+
+  public void testIllegalSimilarityFunctionChange() throws Exception {
+    try (Directory dir = newDirectory();
+         IndexWriter w = new IndexWriter(dir, createIndexWriterConfig())) {
+      Document doc = new Document();
+      doc.add(new VectorField("f", new float[4], VectorSimilarityFunction.DOT_PRODUCT));
+      w.addDocument(doc);
+      if (random().nextBoolean()) {
+        w.commit();
+      }
+
+      Document doc2 = new Document();
+      doc2.add(new VectorField("f", new float[4], VectorSimilarityFunction.EUCLIDEAN));
+      expectThrows(IllegalArgumentException.class, () -> w.addDocument(doc2));
+    }
+  }
+
+  public void testIllegalMultipleValues() throws Exception {
+    try (Directory dir = newDirectory();
+         IndexWriter w = new IndexWriter(dir, createIndexWriterConfig())) {
+      Document doc = new Document();
+      doc.add(new VectorField("f", new float[4], VectorSimilarityFunction.DOT_PRODUCT));
+      doc.add(new VectorField("f", new float[4], VectorSimilarityFunction.DOT_PRODUCT));
+      IllegalArgumentException expected = expectThrows(IllegalArgumentException.class, () -> w.addDocument(doc));
+      assertEquals("VectorValuesField \"f\" appears more than once in this document (only one value is allowed per field)",
+          expected.getMessage());
+    }
+  }
+
+  public void testIllegalVectorFieldType() throws Exception {
+    try (Directory dir = newDirectory();
+         IndexWriter w = new IndexWriter(dir, createIndexWriterConfig())) {
+      FieldType type = new FieldType();
+      type.setVectorDimensionsAndSimilarityFunction(4, VectorSimilarityFunction.EUCLIDEAN);
+      Document doc = new Document();
+      // a vector-typed field must be a VectorField
+      doc.add(new Field("f", "value", type));
+      expectThrows(IllegalArgumentException.class, () -> w.addDocument(doc));
+    }
+  }
+
+  public void testIllegalDimensionTooLarge() throws Exception {
+    FieldType type = new FieldType();
+    expectThrows(IllegalArgumentException.class,
+        () -> type.setVectorDimensionsAndSimilarityFunction(VectorValues.MAX_DIMENSIONS + 1, VectorSimilarityFunction.EUCLIDEAN));
+  }
+
+  public void testDeleteAllVectorDocs() throws Exception {
+    try (Directory dir = newDirectory();
+         IndexWriter w = new IndexWriter(dir, createIndexWriterConfig())) {
+      Document doc = new Document();
+      doc.add(new StringField("id", "0", Field.Store.NO));
+      doc.add(new VectorField("v", new float[]{2, 3, 5}, VectorSimilarityFunction.DOT_PRODUCT));
+      w.addDocument(doc);
+      w.addDocument(new Document());
+      w.commit();
+
+      try (DirectoryReader r = w.getReader()) {
+        assertNotNull(r.leaves().get(0).reader().getVectorValues("v"));
+      }
+      w.deleteDocuments(new Term("id", "0"));
+      w.forceMerge(1);
+      try (DirectoryReader r = w.getReader()) {
+        VectorValues values = r.leaves().get(0).reader().getVectorValues("v");
+        assertNotNull(values);
+        assertEquals(0, values.size());
+        assertEquals(NO_MORE_DOCS, values.nextDoc());
+      }
+    }
+  }
+
+  public void testMergeWithDeletions() throws Exception {
+    try (Directory dir = newDirectory();
+         IndexWriter w = new IndexWriter(dir, createIndexWriterConfig())) {
+      int numDocs = atLeast(100);
+      int dimension = TestUtil.nextInt(random(), 1, 20);
+      float[][] values = new float[numDocs][];
+      for (int i = 0; i < numDocs; i++) {
+        Document doc = new Document();
+        doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+        if (random().nextInt(4) != 0) {
+          values[i] = randomVector(dimension);
+          doc.add(new VectorField("v", values[i], VectorSimilarityFunction.EUCLIDEAN));
+        }
+        w.addDocument(doc);
+        if (random().nextInt(20) == 0) {
+          w.commit();
+        }
+      }
+      int numDeleted = 0;
+      for (int i = 0; i < numDocs; i += 1 + random().nextInt(5)) {
+        w.deleteDocuments(new Term("id", Integer.toString(i)));
+        values[i] = null;
+        numDeleted++;
+      }
+      w.forceMerge(1);
+
+      try (DirectoryReader r = w.getReader()) {
+        assertEquals(1, r.leaves().size());
+        LeafReader leaf = r.leaves().get(0).reader();
+        assertEquals(numDocs - numDeleted, leaf.numDocs());
+        VectorValues vectorValues = leaf.getVectorValues("v");
+        int count = 0;
+        for (int doc = vectorValues.nextDoc(); doc != NO_MORE_DOCS; doc = vectorValues.nextDoc()) {
+          int id = Integer.parseInt(leaf.document(doc).get("id"));
+          assertNotNull("doc " + id + " should not have a vector", values[id]);
+          assertArrayEquals(values[id], vectorValues.vectorValue(), 0);
+          count++;
+        }
+        int expected = 0;
+        for (float[] v : values) {
+          if (v != null) {
+            expected++;
+          }
+        }
+        assertEquals(expected, count);
+      }
+    }
+  }
+
+  public void testIndexSorting() throws Exception {
+    IndexWriterConfig iwc = createIndexWriterConfig();
+    iwc.setIndexSort(new Sort(new SortField("sortkey", SortField.Type.INT)));
+    try (Directory dir = newDirectory();
+         IndexWriter w = new IndexWriter(dir, iwc)) {
+      int numDocs = atLeast(50);
+      for (int i = 0; i < numDocs; i++) {
+        Document doc = new Document();
+        // documents are sorted in the reverse order in which they were added
+        doc.add(new NumericDocValuesField("sortkey", numDocs - i));
+        if (i % 3 != 0) {
+          doc.add(new VectorField("v", new float[] {i, 0}, VectorSimilarityFunction.EUCLIDEAN));
+        }
+        w.addDocument(doc);
+        if (random().nextInt(10) == 0) {
+          w.commit();
+        }
+      }
+      w.forceMerge(1);
+      try (DirectoryReader r = w.getReader()) {
+        LeafReader leaf = r.leaves().get(0).reader();
+        VectorValues vectorValues = leaf.getVectorValues("v");
+        float last = Float.MAX_VALUE;
+        for (int doc = vectorValues.nextDoc(); doc != NO_MORE_DOCS; doc = vectorValues.nextDoc()) {
+          float value = vectorValues.vectorValue()[0];
+          assertEquals(numDocs - 1 - doc, (int) value);
+          assertTrue(value < last);
+          last = value;
+        }
+      }
+    }
+  }
+
+  public void testCheckIndexIncludesVectors() throws Exception {
+    try (Directory dir = newDirectory()) {
+      try (IndexWriter w = new IndexWriter(dir, createIndexWriterConfig())) {
+        Document doc = new Document();
+        doc.add(new VectorField("v1", randomVector(3), VectorSimilarityFunction.EUCLIDEAN));
+        w.addDocument(doc);
+
+        doc.add(new VectorField("v2", randomVector(3), VectorSimilarityFunction.EUCLIDEAN));
+        w.addDocument(doc);
+      }
+
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      CheckIndex.Status status = TestUtil.checkIndex(dir, false, true, output);
+      assertEquals(1, status.segmentInfos.size());
+      CheckIndex.Status.SegmentInfoStatus segStatus = status.segmentInfos.get(0);
+      // total 3 vector values were indexed:
+      assertEquals(3, segStatus.vectorValuesStatus.totalVectorValues);
+      // ... across 2 fields:
+      assertEquals(2, segStatus.vectorValuesStatus.totalVectorFields);
+
+      // Make sure CheckIndex in fact declares that it is testing vectors!
+      assertTrue(output.toString(StandardCharsets.UTF_8.name()).contains("test: vectors..."));
+    }
+  }
+
+  public void testRandomAccessMatchesIteration() throws Exception {
+    try (Directory dir = newDirectory();
+         IndexWriter w = new IndexWriter(dir, createIndexWriterConfig())) {
+      int numDocs = atLeast(50);
+      int dimension = TestUtil.nextInt(random(), 1, 10);
+      for (int i = 0; i < numDocs; i++) {
+        Document doc = new Document();
+        if (random().nextBoolean()) {
+          doc.add(new VectorField("v", randomVector(dimension), VectorSimilarityFunction.EUCLIDEAN));
+        }
+        w.addDocument(doc);
+      }
+      w.forceMerge(1);
+      try (DirectoryReader r = w.getReader()) {
+        VectorValues values = r.leaves().get(0).reader().getVectorValues("v");
+        if (values == null) {
+          return;
+        }
+        assertTrue(values instanceof RandomAccessVectorValuesProducer);
+        RandomAccessVectorValues randomAccess = ((RandomAccessVectorValuesProducer) values).randomAccess();
+        assertEquals(values.size(), randomAccess.size());
+        assertEquals(dimension, randomAccess.dimension());
+        int ord = 0;
+        for (int doc = values.nextDoc(); doc != NO_MORE_DOCS; doc = values.nextDoc()) {
+          assertArrayEquals(values.vectorValue(), randomAccess.vectorValue(ord++), 0);
+        }
+      }
+    }
+  }
+
+  private static float[] randomVector(int dim) {
+    float[] v = new float[dim];
+    for (int i = 0; i < dim; i++) {
+      v[i] = random().nextFloat();
+    }
+    return v;
+  }
+}
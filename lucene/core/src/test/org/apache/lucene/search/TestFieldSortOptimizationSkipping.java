@@ -0,0 +1,301 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+import static org.apache.lucene.search.SortField.FIELD_SCORE;
+
+public class TestFieldSortOptimizationSkipping extends LuceneTestCase {
+
+  public void testLongSortOptimization() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig());
+    final int numDocs = atLeast(10000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new NumericDocValuesField("my_field", i));
+      doc.add(new LongPoint("my_field", i));
+      writer.addDocument(doc);
+      if (i == 7000) writer.flush(); // two segments
+    }
+    final IndexReader reader = DirectoryReader.open(writer);
+    writer.close();
+    IndexSearcher searcher = new IndexSearcher(reader);
+    final SortField sortField = new SortField("my_field", SortField.Type.LONG);
+    sortField.setCanUsePoints();
+    final Sort sort = new Sort(sortField);
+    final int numHits = 3;
+    final int totalHitsThreshold = 3;
+
+    { // simple sort
+      final TopFieldCollector collector = TopFieldCollector.create(sort, numHits, null, totalHitsThreshold);
+      searcher.search(new MatchAllDocsQuery(), collector);
+      TopDocs topDocs = collector.topDocs();
+      assertEquals(numHits, topDocs.scoreDocs.length);
+      for (int i = 0; i < numHits; i++) {
+        FieldDoc fieldDoc = (FieldDoc) topDocs.scoreDocs[i];
+        assertEquals(i, ((Long) fieldDoc.fields[0]).intValue());
+      }
+      assertEquals(TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO, topDocs.totalHits.relation);
+      assertTrue(topDocs.totalHits.value < numDocs);
+    }
+
+    { // paging sort with after
+      final long afterValue = 2;
+      FieldDoc after = new FieldDoc(2, Float.NaN, new Long[] {afterValue});
+      final TopFieldCollector collector = TopFieldCollector.create(sort, numHits, after, totalHitsThreshold);
+      searcher.search(new MatchAllDocsQuery(), collector);
+      TopDocs topDocs = collector.topDocs();
+      assertEquals(numHits, topDocs.scoreDocs.length);
+      for (int i = 0; i < numHits; i++) {
+        FieldDoc fieldDoc = (FieldDoc) topDocs.scoreDocs[i];
+        assertEquals(afterValue + 1 + i, fieldDoc.fields[0]);
+      }
+      assertEquals(TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO, topDocs.totalHits.relation);
+      assertTrue(topDocs.totalHits.value < numDocs);
+    }
+
+    { // test that if there is the secondary sort on _score, scores are filled correctly
+      final TopFieldCollector collector = TopFieldCollector.create(new Sort(sortField, FIELD_SCORE), numHits, null, totalHitsThreshold);
+      searcher.search(new MatchAllDocsQuery(), collector);
+      TopDocs topDocs = collector.topDocs();
+      assertEquals(numHits, topDocs.scoreDocs.length);
+      for (int i = 0; i < numHits; i++) {
+        FieldDoc fieldDoc = (FieldDoc) topDocs.scoreDocs[i];
+        assertEquals(i, ((Long) fieldDoc.fields[0]).intValue());
+        assertEquals(1.0f, fieldDoc.fields[1]);
+      }
+      assertEquals(TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO, topDocs.totalHits.relation);
+      assertTrue(topDocs.totalHits.value < numDocs);
+    }
+
+    { // without setCanUsePoints, all documents are collected
+      final Sort plainSort = new Sort(new SortField("my_field", SortField.Type.LONG));
+      final TopFieldCollector collector = TopFieldCollector.create(plainSort, numHits, null, totalHitsThreshold);
+      searcher.search(new MatchAllDocsQuery(), collector);
+      TopDocs topDocs = collector.topDocs();
+      assertEquals(numDocs, topDocs.totalHits.value);
+      assertEquals(TotalHits.Relation.EQUAL_TO, topDocs.totalHits.relation);
+    }
+
+    reader.close();
+    dir.close();
+  }
+
+  /**
+   * Test that a sort field whose missing value is competitive doesn't skip documents without a value.
+   */
+  public void testCompetitiveMissingValue() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig());
+    final int numDocs = atLeast(10000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      if (i % 100 != 0) {
+        doc.add(new NumericDocValuesField("my_field", i));
+        doc.add(new LongPoint("my_field", i));
+      }
+      writer.addDocument(doc);
+    }
+    final IndexReader reader = DirectoryReader.open(writer);
+    writer.close();
+    IndexSearcher searcher = new IndexSearcher(reader);
+    final SortField sortField = new SortField("my_field", SortField.Type.LONG);
+    sortField.setMissingValue(-1L);
+    sortField.setCanUsePoints();
+    final int numHits = 3;
+    final TopFieldCollector collector = TopFieldCollector.create(new Sort(sortField), numHits, null, numHits);
+    searcher.search(new MatchAllDocsQuery(), collector);
+    TopDocs topDocs = collector.topDocs();
+    assertEquals(numHits, topDocs.scoreDocs.length);
+    for (int i = 0; i < numHits; i++) {
+      FieldDoc fieldDoc = (FieldDoc) topDocs.scoreDocs[i];
+      assertEquals(-1L, fieldDoc.fields[0]);
+    }
+    reader.close();
+    dir.close();
+  }
+
+  public void testRandomSortsMatchUnprunedSorts() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig().setMaxBufferedDocs(TestUtil.nextInt(random(), 100, 2000)));
+    final int numDocs = atLeast(5000);
+    // few distinct values so that there are ties
+    final int numValues = random().nextBoolean() ? 50 : 1_000_000;
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      if (random().nextInt(20) != 0) {
+        final int value = random().nextInt(numValues) - numValues / 2;
+        doc.add(new NumericDocValuesField("long", value * 1_000_000_000L));
+        doc.add(new LongPoint("long", value * 1_000_000_000L));
+        doc.add(new NumericDocValuesField("int", value));
+        doc.add(new IntPoint("int", value));
+        doc.add(new DoubleDocValuesField("double", value / 3.0));
+        doc.add(new DoublePoint("double", value / 3.0));
+        doc.add(new FloatDocValuesField("float", value / 3f));
+        doc.add(new FloatPoint("float", value / 3f));
+      }
+      doc.add(new StringField("text", random().nextBoolean() ? "a" : "b", Store.NO));
+      doc.add(new NumericDocValuesField("other", random().nextInt(10)));
+      writer.addDocument(doc);
+    }
+    final IndexReader reader = DirectoryReader.open(writer);
+    writer.close();
+    IndexSearcher searcher = newSearcher(reader);
+
+    final String[] fields = new String[] { "long", "int", "double", "float" };
+    final SortField.Type[] types = new SortField.Type[] { SortField.Type.LONG, SortField.Type.INT, SortField.Type.DOUBLE, SortField.Type.FLOAT };
+    final Object[] missingValues = new Object[] { -10_000_000_000L, 10, -10.0, 10f };
+    final int iters = atLeast(50);
+    for (int iter = 0; iter < iters; ++iter) {
+      final int i = random().nextInt(fields.length);
+      final boolean reverse = random().nextBoolean();
+      final SortField sortField = new SortField(fields[i], types[i], reverse);
+      final SortField prunedSortField = new SortField(fields[i], types[i], reverse);
+      prunedSortField.setCanUsePoints();
+      if (random().nextBoolean()) {
+        sortField.setMissingValue(missingValues[i]);
+        prunedSortField.setMissingValue(missingValues[i]);
+      }
+      final Sort sort, prunedSort;
+      switch (random().nextInt(3)) {
+        case 0:
+          sort = new Sort(sortField);
+          prunedSort = new Sort(prunedSortField);
+          break;
+        case 1:
+          sort = new Sort(sortField, FIELD_SCORE);
+          prunedSort = new Sort(prunedSortField, FIELD_SCORE);
+          break;
+        default:
+          sort = new Sort(sortField, new SortField("other", SortField.Type.LONG));
+          prunedSort = new Sort(prunedSortField, new SortField("other", SortField.Type.LONG));
+          break;
+      }
+
+      final Query query = random().nextBoolean()
+          ? new MatchAllDocsQuery()
+          : new TermQuery(new Term("text", random().nextBoolean() ? "a" : "b"));
+      final int numHits = TestUtil.nextInt(random(), 1, 100);
+      FieldDoc after = null;
+      if (random().nextBoolean()) {
+        TopDocs firstPage = searcher.search(query, numHits, sort);
+        if (firstPage.scoreDocs.length > 0) {
+          after = (FieldDoc) firstPage.scoreDocs[firstPage.scoreDocs.length - 1];
+        }
+      }
+      TopFieldCollector collector = TopFieldCollector.create(sort, numHits, after, Integer.MAX_VALUE);
+      TopFieldCollector prunedCollector = TopFieldCollector.create(prunedSort, numHits, after, TestUtil.nextInt(random(), 1, 1000));
+      searcher.search(query, collector);
+      searcher.search(query, prunedCollector);
+
+      TopDocs topDocs = collector.topDocs();
+      TopDocs prunedTopDocs = prunedCollector.topDocs();
+      assertTrue(prunedTopDocs.totalHits.value <= topDocs.totalHits.value);
+      if (prunedTopDocs.totalHits.value < topDocs.totalHits.value) {
+        assertEquals(TotalHits.Relation.GREATER_THAN_OR_EQUAL_TO, prunedTopDocs.totalHits.relation);
+      }
+      assertEquals(topDocs.scoreDocs.length, prunedTopDocs.scoreDocs.length);
+      for (int j = 0; j < topDocs.scoreDocs.length; ++j) {
+        FieldDoc expected = (FieldDoc) topDocs.scoreDocs[j];
+        FieldDoc actual = (FieldDoc) prunedTopDocs.scoreDocs[j];
+        assertEquals(expected.doc, actual.doc);
+        assertArrayEquals(expected.fields, actual.fields);
+      }
+    }
+
+    reader.close();
+    dir.close();
+  }
+
+  /**
+   * Test that scoring segments in several windows, which stops iterating on documents that are beyond the end of
+   * the window and starts again from them in the next window, doesn't miss competitive documents.
+   */
+  public void testBulkScoringInWindows() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig());
+    final int numDocs = atLeast(10000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      final long value = random().nextInt(numDocs);
+      doc.add(new NumericDocValuesField("my_field", value));
+      doc.add(new LongPoint("my_field", value));
+      doc.add(new StringField("text", random().nextInt(3) == 0 ? "b" : "a", Store.NO));
+      writer.addDocument(doc);
+    }
+    final IndexReader reader = DirectoryReader.open(writer);
+    writer.close();
+    IndexSearcher searcher = new IndexSearcher(reader);
+    final Query query = new TermQuery(new Term("text", "a"));
+    final SortField sortField = new SortField("my_field", SortField.Type.LONG, random().nextBoolean());
+    final SortField prunedSortField = new SortField(sortField.getField(), SortField.Type.LONG, sortField.getReverse());
+    prunedSortField.setCanUsePoints();
+    final int numHits = TestUtil.nextInt(random(), 1, 50);
+
+    TopFieldCollector collector = TopFieldCollector.create(new Sort(sortField), numHits, null, Integer.MAX_VALUE);
+    searcher.search(query, collector);
+
+    TopFieldCollector prunedCollector = TopFieldCollector.create(new Sort(prunedSortField), numHits, null, numHits);
+    Weight weight = searcher.createWeight(searcher.rewrite(query), prunedCollector.scoreMode(), 1f);
+    for (LeafReaderContext context : reader.leaves()) {
+      LeafCollector leafCollector = prunedCollector.getLeafCollector(context);
+      BulkScorer bulkScorer = weight.bulkScorer(context);
+      if (bulkScorer == null) {
+        continue;
+      }
+      int min = 0;
+      while (min < context.reader().maxDoc()) {
+        min = bulkScorer.score(leafCollector, null, min, min + TestUtil.nextInt(random(), 1, 200));
+      }
+    }
+
+    TopDocs topDocs = collector.topDocs();
+    TopDocs prunedTopDocs = prunedCollector.topDocs();
+    assertTrue(prunedTopDocs.totalHits.value <= topDocs.totalHits.value);
+    assertEquals(topDocs.scoreDocs.length, prunedTopDocs.scoreDocs.length);
+    for (int i = 0; i < topDocs.scoreDocs.length; ++i) {
+      FieldDoc expected = (FieldDoc) topDocs.scoreDocs[i];
+      FieldDoc actual = (FieldDoc) prunedTopDocs.scoreDocs[i];
+      assertEquals(expected.doc, actual.doc);
+      assertArrayEquals(expected.fields, actual.fields);
+    }
+
+    reader.close();
+    dir.close();
+  }
+
+}
@@ -255,6 +255,52 @@ public class TestIndexSearcher extends LuceneTestCase {
     IOUtils.close(r, dir);
   }
 
+  public void testSegmentPartitions() throws Exception {
+    ExecutorService service = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS,
+                                   new LinkedBlockingQueue<Runnable>(),
+                                   new NamedThreadFactory("TestIndexSearcher"));
+    final int maxDocsPerSlice = TestUtil.nextInt(random(), 1, 30);
+    IndexSearcher searcher = new IndexSearcher(reader, service) {
+      @Override
+      protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        return slices(leaves, maxDocsPerSlice, 5, true);
+      }
+    };
+    IndexSearcher serialSearcher = new IndexSearcher(reader);
+
+    int maxDoc = 0;
+    for (LeafReaderContext ctx : reader.leaves()) {
+      maxDoc = Math.max(maxDoc, ctx.reader().maxDoc());
+    }
+    if (maxDoc > maxDocsPerSlice) {
+      assertTrue(Arrays.stream(searcher.getSlices()).anyMatch(IndexSearcher.LeafSlice::isPartition));
+    }
+
+    Query queries[] = new Query[] {
+        new MatchAllDocsQuery(),
+        new TermQuery(new Term("field", "1")),
+        new TermQuery(new Term("field2", "true")),
+        new BooleanQuery.Builder()
+            .add(new TermQuery(new Term("field", "7")), Occur.SHOULD)
+            .add(new TermQuery(new Term("field2", "false")), Occur.SHOULD)
+            .build()
+    };
+    Sort sort = new Sort(new SortField("field2", SortField.Type.STRING), SortField.FIELD_DOC);
+    for (Query query : queries) {
+      assertEquals(serialSearcher.count(query), searcher.count(query));
+      CheckHits.checkEqual(query, serialSearcher.search(query, 100).scoreDocs, searcher.search(query, 100).scoreDocs);
+      CheckHits.checkEqual(query, serialSearcher.search(query, 10).scoreDocs, searcher.search(query, 10).scoreDocs);
+      TopDocs expected = serialSearcher.search(query, 10, sort);
+      TopDocs actual = searcher.search(query, 10, sort);
+      assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+      for (int i = 0; i < expected.scoreDocs.length; ++i) {
+        assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+      }
+    }
+
+    service.shutdown();
+  }
+
   public void testOneSegmentExecutesOnTheCallerThread() throws IOException {
     List<LeafReaderContext> leaves = reader.leaves();
     AtomicInteger numExecutions = new AtomicInteger(0);
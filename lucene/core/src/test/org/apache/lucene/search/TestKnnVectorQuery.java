@@ -0,0 +1,390 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.VectorField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+
+public class TestKnnVectorQuery extends LuceneTestCase {
+
+  public void testEquals() {
+    KnnVectorQuery q1 = new KnnVectorQuery("f1", new float[] {0, 1}, 10);
+
+    assertEquals(q1, new KnnVectorQuery("f1", new float[] {0, 1}, 10));
+    assertEquals(q1.hashCode(), new KnnVectorQuery("f1", new float[] {0, 1}, 10).hashCode());
+
+    assertNotEquals(null, q1);
+    assertNotEquals(q1, new TermQuery(new Term("f1", "x")));
+    assertNotEquals(q1, new KnnVectorQuery("f2", new float[] {0, 1}, 10));
+    assertNotEquals(q1, new KnnVectorQuery("f1", new float[] {1, 1}, 10));
+    assertNotEquals(q1, new KnnVectorQuery("f1", new float[] {0, 1}, 2));
+    assertNotEquals(q1, new KnnVectorQuery("f1", new float[] {0}, 10));
+  }
+
+  public void testToString() {
+    KnnVectorQuery q1 = new KnnVectorQuery("f1", new float[] {0, 1}, 10);
+    assertEquals("KnnVectorQuery:f1[0.0,...][10]", q1.toString("ignored"));
+  }
+
+  public void testIllegalK() {
+    expectThrows(IllegalArgumentException.class, () -> new KnnVectorQuery("f", new float[] {0}, 0));
+  }
+
+  /** Tests that a KnnVectorQuery whose topK &gt;= numDocs returns all the documents in score order */
+  public void testFindAll() throws IOException {
+    try (Directory indexStore = getIndexStore("field", new float[] {0, 1}, new float[] {1, 2}, new float[] {0, 0});
+         IndexReader reader = DirectoryReader.open(indexStore)) {
+      IndexSearcher searcher = newSearcher(reader);
+      KnnVectorQuery kvq = new KnnVectorQuery("field", new float[] {0, 0}, 10);
+      assertMatches(searcher, kvq, 3);
+      ScoreDoc[] scoreDocs = searcher.search(kvq, 3).scoreDocs;
+      assertIdMatches(reader, "id2", scoreDocs[0]);
+      assertIdMatches(reader, "id0", scoreDocs[1]);
+      assertIdMatches(reader, "id1", scoreDocs[2]);
+    }
+  }
+
+  /** testDimensionMismatch */
+  public void testDimensionMismatch() throws IOException {
+    try (Directory indexStore = getIndexStore("field", new float[] {0, 1}, new float[] {1, 2}, new float[] {0, 0});
+         IndexReader reader = DirectoryReader.open(indexStore)) {
+      IndexSearcher searcher = newSearcher(reader);
+      KnnVectorQuery kvq = new KnnVectorQuery("field", new float[] {0}, 10);
+      IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> searcher.search(kvq, 10));
+      assertEquals("vector query dimension: 1 differs from field dimension: 2", e.getMessage());
+    }
+  }
+
+  /** testNonVectorField */
+  public void testNonVectorField() throws IOException {
+    try (Directory indexStore = getIndexStore("field", new float[] {0, 1}, new float[] {1, 2}, new float[] {0, 0});
+         IndexReader reader = DirectoryReader.open(indexStore)) {
+      IndexSearcher searcher = newSearcher(reader);
+      assertMatches(searcher, new KnnVectorQuery("xyzzy", new float[] {0}, 10), 0);
+      assertMatches(searcher, new KnnVectorQuery("id", new float[] {0}, 10), 0);
+    }
+  }
+
+  /** Test bad parameters */
+  public void testIllegalArguments() throws IOException {
+    expectThrows(NullPointerException.class, () -> new KnnVectorQuery(null, new float[] {0}, 1));
+    expectThrows(NullPointerException.class, () -> new KnnVectorQuery("xx", null, 1));
+  }
+
+  public void testDifferentReader() throws IOException {
+    try (Directory indexStore = getIndexStore("field", new float[] {0, 1}, new float[] {1, 2}, new float[] {0, 0});
+         IndexReader reader = DirectoryReader.open(indexStore)) {
+      KnnVectorQuery query = new KnnVectorQuery("field", new float[] {2, 3}, 3);
+      Query dasq = query.rewrite(reader);
+      IndexSearcher leafSearcher = newSearcher(reader.leaves().get(0).reader());
+      expectThrows(IllegalStateException.class, () -> dasq.createWeight(leafSearcher, ScoreMode.COMPLETE, 1));
+    }
+  }
+
+  public void testAdvanceShallow() throws IOException {
+    try (Directory d = newDirectory()) {
+      try (IndexWriter w = new IndexWriter(d, createIndexWriterConfig())) {
+        for (int j = 0; j < 5; j++) {
+          Document doc = new Document();
+          doc.add(new VectorField("field", new float[] {j, j}));
+          w.addDocument(doc);
+        }
+      }
+      try (IndexReader reader = DirectoryReader.open(d)) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        KnnVectorQuery query = new KnnVectorQuery("field", new float[] {2, 2}, 3);
+        Query dasq = query.rewrite(reader);
+        Scorer scorer = dasq.createWeight(searcher, ScoreMode.COMPLETE, 1).scorer(reader.leaves().get(0));
+        // before advancing the iterator
+        assertEquals(1, scorer.advanceShallow(0));
+        assertEquals(1, scorer.advanceShallow(1));
+        assertEquals(NO_MORE_DOCS, scorer.advanceShallow(10));
+
+        // after advancing the iterator
+        scorer.iterator().advance(2);
+        assertEquals(2, scorer.advanceShallow(0));
+        assertEquals(2, scorer.advanceShallow(2));
+        assertEquals(3, scorer.advanceShallow(3));
+        assertEquals(NO_MORE_DOCS, scorer.advanceShallow(10));
+      }
+    }
+  }
+
+  /** Tests that scorers report doc ids relative to their segment, which block-max WAND relies on to skip */
+  public void testAdvanceShallowMultipleSegments() throws IOException {
+    try (Directory d = newDirectory()) {
+      IndexWriterConfig iwc = createIndexWriterConfig();
+      iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+      try (IndexWriter w = new IndexWriter(d, iwc)) {
+        for (int j = 0; j < 30; j++) {
+          Document doc = new Document();
+          doc.add(new VectorField("field", new float[] {j, j}));
+          doc.add(new VectorField("field2", new float[] {j, 30 - j}));
+          w.addDocument(doc);
+          if (j % 10 == 9) {
+            w.commit();
+          }
+        }
+      }
+      try (IndexReader reader = DirectoryReader.open(d)) {
+        assertTrue(reader.leaves().size() >= 3);
+        IndexSearcher searcher = new IndexSearcher(reader);
+        KnnVectorQuery query = new KnnVectorQuery("field", new float[] {9.8f, 9.8f}, 6);
+        ScoreDoc[] topDocs = searcher.search(query, 6).scoreDocs;
+        assertEquals(6, topDocs.length);
+        Weight weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.TOP_SCORES, 1);
+        for (LeafReaderContext ctx : reader.leaves()) {
+          int maxDoc = ctx.reader().maxDoc();
+          List<ScoreDoc> segmentDocs = new ArrayList<>();
+          for (ScoreDoc scoreDoc : topDocs) {
+            if (scoreDoc.doc >= ctx.docBase && scoreDoc.doc < ctx.docBase + maxDoc) {
+              segmentDocs.add(scoreDoc);
+            }
+          }
+          Scorer scorer = weight.scorer(ctx);
+          if (segmentDocs.isEmpty()) {
+            assertNull(scorer);
+            continue;
+          }
+          float maxScore = 0;
+          for (ScoreDoc scoreDoc : segmentDocs) {
+            maxScore = Math.max(maxScore, scoreDoc.score);
+          }
+          assertEquals(maxScore, scorer.getMaxScore(NO_MORE_DOCS), 0);
+          for (int doc = 0; doc < maxDoc; doc++) {
+            int expected = NO_MORE_DOCS;
+            for (ScoreDoc scoreDoc : segmentDocs) {
+              int segmentDoc = scoreDoc.doc - ctx.docBase;
+              if (segmentDoc >= doc) {
+                expected = Math.min(expected, segmentDoc);
+              }
+            }
+            assertEquals(expected, scorer.advanceShallow(doc));
+          }
+          assertEquals(NO_MORE_DOCS, scorer.advanceShallow(maxDoc));
+        }
+
+        // a disjunction that only collects the top hits skips with WAND, and must find the same hits as when
+        // it counts all of them
+        Query disjunction = new BooleanQuery.Builder()
+            .add(query, BooleanClause.Occur.SHOULD)
+            .add(new KnnVectorQuery("field2", new float[] {20.3f, 9.7f}, 6), BooleanClause.Occur.SHOULD)
+            .build();
+        TopScoreDocCollector topScores = TopScoreDocCollector.create(5, 1);
+        searcher.search(disjunction, topScores);
+        TopScoreDocCollector allScores = TopScoreDocCollector.create(5, Integer.MAX_VALUE);
+        searcher.search(disjunction, allScores);
+        CheckHits.checkEqual(disjunction, allScores.topDocs().scoreDocs, topScores.topDocs().scoreDocs);
+      }
+    }
+  }
+
+  public void testScore() throws IOException {
+    try (Directory d = newDirectory()) {
+      try (IndexWriter w = new IndexWriter(d, createIndexWriterConfig())) {
+        for (int j = 0; j < 5; j++) {
+          Document doc = new Document();
+          doc.add(new VectorField("field", new float[] {j, j}));
+          w.addDocument(doc);
+        }
+      }
+      try (IndexReader reader = DirectoryReader.open(d)) {
+        assertEquals(1, reader.leaves().size());
+        IndexSearcher searcher = new IndexSearcher(reader);
+        KnnVectorQuery query = new KnnVectorQuery("field", new float[] {2, 2}, 3);
+        Query rewritten = query.rewrite(reader);
+        Weight weight = searcher.createWeight(rewritten, ScoreMode.COMPLETE, 1);
+        Scorer scorer = weight.scorer(reader.leaves().get(0));
+
+        // prior to advancing, score is 0
+        assertEquals(-1, scorer.docID());
+        expectThrows(ArrayIndexOutOfBoundsException.class, scorer::score);
+
+        // test getMaxScore
+        assertEquals(0, scorer.getMaxScore(-1), 0);
+        assertEquals(0, scorer.getMaxScore(0), 0);
+        // doc 2 is the target itself: 1 / (squareDistance((2,2), (2,2)) + 1) = 1
+        assertEquals(1, scorer.getMaxScore(2), 0);
+        assertEquals(1, scorer.getMaxScore(Integer.MAX_VALUE), 0);
+
+        DocIdSetIterator it = scorer.iterator();
+        assertEquals(3, it.cost());
+        assertEquals(1, it.nextDoc());
+        // 1 / (squareDistance((2,2), (1,1)) + 1) = 1/3
+        assertEquals(1 / 3f, scorer.score(), 0);
+        assertEquals(3, it.advance(3));
+        assertEquals(1 / 3f, scorer.score(), 0);
+        assertEquals(NO_MORE_DOCS, it.advance(4));
+        expectThrows(ArrayIndexOutOfBoundsException.class, scorer::score);
+      }
+    }
+  }
+
+  public void testExplain() throws IOException {
+    try (Directory d = newDirectory()) {
+      try (IndexWriter w = new IndexWriter(d, createIndexWriterConfig())) {
+        for (int j = 0; j < 5; j++) {
+          Document doc = new Document();
+          doc.add(new VectorField("field", new float[] {j, j}));
+          w.addDocument(doc);
+        }
+      }
+      try (IndexReader reader = DirectoryReader.open(d)) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        KnnVectorQuery query = new KnnVectorQuery("field", new float[] {2, 2}, 3);
+        Explanation matched = searcher.explain(query, 2);
+        assertTrue(matched.isMatch());
+        assertEquals(1, matched.getValue().floatValue(), 0);
+        assertEquals(0, matched.getDetails().length);
+        assertEquals("within top 3", matched.getDescription());
+
+        Explanation nomatch = searcher.explain(query, 4);
+        assertFalse(nomatch.isMatch());
+        assertEquals(0, nomatch.getValue().floatValue(), 0);
+        assertEquals(0, matched.getDetails().length);
+        assertEquals("not in top 3", nomatch.getDescription());
+      }
+    }
+  }
+
+  /** Test that deleted documents are not returned, even though their vectors are still in the graph */
+  public void testDeletes() throws IOException {
+    try (Directory d = newDirectory()) {
+      try (IndexWriter w = new IndexWriter(d, createIndexWriterConfig())) {
+        for (int j = 0; j < 5; j++) {
+          Document doc = new Document();
+          doc.add(new VectorField("field", new float[] {j, j}));
+          doc.add(new StringField("id", "id" + j, Field.Store.YES));
+          w.addDocument(doc);
+        }
+        w.deleteDocuments(new Term("id", "id2"));
+      }
+      try (IndexReader reader = DirectoryReader.open(d)) {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        KnnVectorQuery query = new KnnVectorQuery("field", new float[] {2, 2}, 3);
+        TopDocs results = searcher.search(query, 5);
+        assertEquals(3, results.scoreDocs.length);
+        for (ScoreDoc scoreDoc : results.scoreDocs) {
+          assertNotEquals("id2", reader.document(scoreDoc.doc).get("id"));
+        }
+      }
+    }
+  }
+
+  /** Tests with random vectors, number of documents, etc. Uses RandomIndexWriter. */
+  public void testRandom() throws IOException {
+    int numDocs = atLeast(100);
+    int dimension = atLeast(5);
+    int numIters = atLeast(10);
+    boolean everyDocHasAVector = random().nextBoolean();
+    try (Directory d = newDirectory()) {
+      try (IndexWriter w = new IndexWriter(d, createIndexWriterConfig())) {
+        for (int i = 0; i < numDocs; i++) {
+          Document doc = new Document();
+          if (everyDocHasAVector || random().nextInt(10) != 2) {
+            doc.add(new VectorField("field", randomVector(dimension)));
+          }
+          w.addDocument(doc);
+          if (random().nextInt(20) == 0) {
+            w.commit();
+          }
+        }
+      }
+      try (IndexReader reader = DirectoryReader.open(d)) {
+        IndexSearcher searcher = newSearcher(reader);
+        for (int i = 0; i < numIters; i++) {
+          int k = random().nextInt(100) + 1;
+          KnnVectorQuery query = new KnnVectorQuery("field", randomVector(dimension), k);
+          int n = random().nextInt(100) + 1;
+          TopDocs results = searcher.search(query, n);
+          int expected = Math.min(Math.min(n, k), reader.numDocs());
+          // we may get fewer results than requested if there are deletions, but this test doesn't
+          // test that
+          assert reader.hasDeletions() == false;
+          if (everyDocHasAVector) {
+            assertEquals(expected, results.scoreDocs.length);
+          } else {
+            assertTrue(results.scoreDocs.length <= expected);
+          }
+          assertTrue(results.totalHits.value >= results.scoreDocs.length);
+          // verify the results are in descending score order
+          float last = Float.MAX_VALUE;
+          for (ScoreDoc scoreDoc : results.scoreDocs) {
+            assertTrue(scoreDoc.score <= last);
+            last = scoreDoc.score;
+          }
+        }
+      }
+    }
+  }
+
+  private static float[] randomVector(int dim) {
+    float[] v = new float[dim];
+    for (int i = 0; i < dim; i++) {
+      v[i] = random().nextFloat();
+    }
+    return v;
+  }
+
+  private IndexWriterConfig createIndexWriterConfig() {
+    IndexWriterConfig iwc = newIndexWriterConfig();
+    iwc.setCodec(TestUtil.getDefaultCodec());
+    return iwc;
+  }
+
+  private Directory getIndexStore(String field, float[]... contents) throws IOException {
+    Directory indexStore = newDirectory();
+    try (IndexWriter writer = new IndexWriter(indexStore, createIndexWriterConfig())) {
+      for (int i = 0; i < contents.length; ++i) {
+        Document doc = new Document();
+        doc.add(new VectorField(field, contents[i]));
+        doc.add(new StringField("id", "id" + i, Field.Store.YES));
+        writer.addDocument(doc);
+      }
+    }
+    return indexStore;
+  }
+
+  private void assertMatches(IndexSearcher searcher, Query q, int expectedMatches) throws IOException {
+    ScoreDoc[] result = searcher.search(q, 1000).scoreDocs;
+    assertEquals(expectedMatches, result.length);
+  }
+
+  private void assertIdMatches(IndexReader reader, String expectedId, ScoreDoc scoreDoc) throws IOException {
+    String actualId = reader.document(scoreDoc.doc).get("id");
+    assertEquals(expectedId, actualId);
+  }
+}
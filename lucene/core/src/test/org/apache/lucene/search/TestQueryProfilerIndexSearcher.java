@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.QueryProfiler.TimingType;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+
+public class TestQueryProfilerIndexSearcher extends LuceneTestCase {
+
+  private Directory dir;
+  private IndexReader reader;
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new StringField("foo", random().nextBoolean() ? "bar" : "baz", Store.NO));
+      doc.add(new LongPoint("point", i));
+      w.addDocument(doc);
+    }
+    reader = w.getReader();
+    w.close();
+  }
+
+  @Override
+  public void tearDown() throws Exception {
+    reader.close();
+    dir.close();
+    super.tearDown();
+  }
+
+  public void testTree() throws Exception {
+    QueryProfilerIndexSearcher searcher = new QueryProfilerIndexSearcher(reader);
+    searcher.setQueryCache(null);
+    Query query = new BooleanQuery.Builder()
+        .add(new TermQuery(new Term("foo", "bar")), BooleanClause.Occur.MUST)
+        .add(LongPoint.newRangeQuery("point", 10, 50), BooleanClause.Occur.FILTER)
+        .build();
+    TopDocs topDocs = searcher.search(query, 10);
+    assertEquals(new IndexSearcher(reader).count(query), topDocs.totalHits.value);
+
+    QueryProfiler profiler = searcher.getProfiler();
+    List<QueryProfiler.Node> tree = profiler.getTree();
+    assertEquals(1, tree.size());
+    QueryProfiler.Node root = tree.get(0);
+    assertEquals("BooleanQuery", root.getType());
+    assertEquals(1, root.getCount(TimingType.CREATE_WEIGHT));
+    assertTrue(root.getCount(TimingType.BUILD_SCORER) > 0);
+    assertTrue(root.getTotalTimeNanos() > 0);
+
+    assertEquals(2, root.getChildren().size());
+    QueryProfiler.Node termNode = root.getChildren().get(0);
+    assertEquals("TermQuery", termNode.getType());
+    assertEquals("foo:bar", termNode.getDescription());
+    assertTrue(termNode.getChildren().isEmpty());
+    QueryProfiler.Node pointNode = root.getChildren().get(1);
+    assertEquals("PointRangeQuery", pointNode.getType());
+
+    assertTrue(profiler.getRewriteTimeNanos() > 0);
+    assertNotNull(profiler.toString());
+  }
+
+  public void testScorerCounts() throws Exception {
+    QueryProfilerIndexSearcher searcher = new QueryProfilerIndexSearcher(reader);
+    searcher.setQueryCache(null);
+    Query query = new BooleanQuery.Builder()
+        .add(new TermQuery(new Term("foo", "bar")), BooleanClause.Occur.MUST)
+        .add(new TermQuery(new Term("foo", "baz")), BooleanClause.Occur.MUST_NOT)
+        .build();
+    final int count = searcher.count(query);
+    QueryProfiler.Node root = searcher.getProfiler().getTree().get(0);
+    QueryProfiler.Node termNode = root.getChildren().get(0);
+    // the required clause is iterated
+    assertEquals(count, termNode.getDocsVisited());
+    // scores are not needed
+    assertEquals(0, termNode.getCount(TimingType.SCORE));
+    if (QueryProfiler.isAllocationTrackingSupported()) {
+      assertTrue(root.getAllocatedBytes() > 0);
+    } else {
+      assertEquals(-1, root.getAllocatedBytes());
+    }
+  }
+
+  public void testConcurrentWeights() throws Exception {
+    QueryProfilerIndexSearcher searcher = new QueryProfilerIndexSearcher(reader);
+    searcher.setQueryCache(null);
+    Query query = new BooleanQuery.Builder()
+        .add(new TermQuery(new Term("foo", "bar")), BooleanClause.Occur.MUST)
+        .add(new TermQuery(new Term("foo", "baz")), BooleanClause.Occur.MUST_NOT)
+        .build();
+    final int numThreads = 4;
+    final int numIters = atLeast(20);
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[numThreads];
+    for (int i = 0; i < numThreads; ++i) {
+      threads[i] = new Thread(() -> {
+        try {
+          start.await();
+          for (int j = 0; j < numIters; ++j) {
+            searcher.count(query);
+          }
+        } catch (Exception e) {
+          throw new AssertionError(e);
+        }
+      });
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    List<QueryProfiler.Node> tree = searcher.getProfiler().getTree();
+    assertEquals(numThreads * numIters, tree.size());
+    for (QueryProfiler.Node root : tree) {
+      assertEquals("BooleanQuery", root.getType());
+      assertEquals(2, root.getChildren().size());
+      for (QueryProfiler.Node child : root.getChildren()) {
+        assertEquals("TermQuery", child.getType());
+        assertTrue(child.getChildren().isEmpty());
+      }
+    }
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.search;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import com.carrotsearch.randomizedtesting.generators.RandomPicks;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+
+public class TestShardedLRUQueryCache extends LuceneTestCase {
+
+  private static final QueryCachingPolicy ALWAYS_CACHE = new QueryCachingPolicy() {
+
+    @Override
+    public void onUse(Query query) {}
+
+    @Override
+    public boolean shouldCache(Query query) throws IOException {
+      return true;
+    }
+
+  };
+
+  public void testIllegalArguments() {
+    IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+        () -> new ShardedLRUQueryCache(0, 10, 10000));
+    assertTrue(e.getMessage().contains("numShards"));
+    e = expectThrows(IllegalArgumentException.class,
+        () -> new ShardedLRUQueryCache(4, 3, 10000));
+    assertTrue(e.getMessage().contains("maxSize"));
+  }
+
+  public void testShardsShareLimits() {
+    final AtomicInteger totalMaxSize = new AtomicInteger();
+    final int numShards = 1 + random().nextInt(8);
+    final int maxSize = numShards + random().nextInt(100);
+    ShardedLRUQueryCache queryCache = new ShardedLRUQueryCache(numShards, maxSize, 1 << 20, context -> true, 1) {
+      @Override
+      protected LRUQueryCache newShard(int maxSize, long maxRamBytesUsed,
+                                       Predicate<LeafReaderContext> leavesToCache, float skipCacheFactor) {
+        assertTrue(maxSize >= 1);
+        assertEquals((1 << 20) / numShards, maxRamBytesUsed);
+        totalMaxSize.addAndGet(maxSize);
+        return super.newShard(maxSize, maxRamBytesUsed, leavesToCache, skipCacheFactor);
+      }
+    };
+    assertEquals(numShards, queryCache.getNumShards());
+    assertEquals(maxSize, totalMaxSize.get());
+  }
+
+  // TermQuery is not used directly by IndexSearcher.count if there are no deletions
+  private static int count(IndexSearcher searcher, Query query) throws IOException {
+    TotalHitCountCollector collector = new TotalHitCountCollector();
+    searcher.search(query, collector);
+    return collector.getTotalHits();
+  }
+
+  public void testQueriesAreSpreadOverShards() {
+    ShardedLRUQueryCache queryCache = new ShardedLRUQueryCache(8, 100, 10000);
+    Set<LRUQueryCache> usedShards = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int i = 0; i < 100; ++i) {
+      Query q1 = new TermQuery(new Term("f", Integer.toString(i)));
+      Query q2 = new TermQuery(new Term("f", Integer.toString(i)));
+      assertSame(queryCache.shard(q1), queryCache.shard(q2));
+      usedShards.add(queryCache.shard(q1));
+    }
+    assertEquals(8, usedShards.size());
+  }
+
+  public void testStatsAndClear() throws IOException {
+    final ShardedLRUQueryCache queryCache = new ShardedLRUQueryCache(4, 100, 10000000, context -> true, 1);
+
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final String[] colors = new String[] {"blue", "red", "green", "yellow"};
+    Document doc = new Document();
+    StringField f = new StringField("color", "", Store.NO);
+    doc.add(f);
+    for (int i = 0; i < 10; ++i) {
+      f.setStringValue(RandomPicks.randomFrom(random(), colors));
+      w.addDocument(doc);
+      if (random().nextBoolean()) {
+        w.getReader().close();
+      }
+    }
+
+    final DirectoryReader reader = w.getReader();
+    final int segmentCount = reader.leaves().size();
+    final IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(queryCache);
+    searcher.setQueryCachingPolicy(ALWAYS_CACHE);
+
+    for (String color : colors) {
+      final Query query = new TermQuery(new Term("color", color));
+      final int expected = count(searcher, query);
+      for (int i = 0; i < 3; ++i) {
+        assertEquals(expected, count(searcher, query));
+      }
+    }
+    assertEquals(4 * segmentCount, queryCache.getCacheSize());
+    assertEquals(4 * segmentCount, queryCache.getCacheCount());
+    assertEquals(4 * segmentCount, queryCache.getMissCount());
+    assertEquals(12 * segmentCount, queryCache.getHitCount());
+    assertEquals(0, queryCache.getEvictionCount());
+    assertTrue(queryCache.ramBytesUsed() > 0);
+    queryCache.assertConsistent();
+
+    queryCache.clearQuery(new TermQuery(new Term("color", "red")));
+    assertEquals(3 * segmentCount, queryCache.getCacheSize());
+    queryCache.assertConsistent();
+
+    queryCache.clear();
+    assertEquals(0, queryCache.getCacheSize());
+    assertEquals(0, queryCache.ramBytesUsed());
+    queryCache.assertConsistent();
+
+    // closing the reader evicts entries of all shards
+    count(searcher, new TermQuery(new Term("color", "blue")));
+    count(searcher, new TermQuery(new Term("color", "green")));
+    assertEquals(2 * segmentCount, queryCache.getCacheSize());
+    reader.close();
+    w.close();
+    assertEquals(0, queryCache.getCacheSize());
+    queryCache.assertConsistent();
+
+    dir.close();
+  }
+
+  public void testEvictionStaysUnderLimits() throws IOException {
+    final int numShards = 1 + random().nextInt(4);
+    final int maxSize = numShards + random().nextInt(10);
+    final ShardedLRUQueryCache queryCache = new ShardedLRUQueryCache(numShards, maxSize, 1000000, context -> true, 1);
+
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    Document doc = new Document();
+    StringField f = new StringField("id", "", Store.NO);
+    doc.add(f);
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; ++i) {
+      f.setStringValue(Integer.toString(random().nextInt(50)));
+      w.addDocument(doc);
+    }
+    final IndexReader reader = w.getReader();
+    final IndexSearcher searcher = newSearcher(reader);
+    searcher.setQueryCache(queryCache);
+    searcher.setQueryCachingPolicy(ALWAYS_CACHE);
+
+    final int numQueries = atLeast(200);
+    for (int i = 0; i < numQueries; ++i) {
+      final Query query = new TermQuery(new Term("id", Integer.toString(random().nextInt(50))));
+      count(searcher, query);
+      queryCache.assertConsistent();
+    }
+    assertTrue(queryCache.getCacheSize() <= (long) maxSize * reader.leaves().size());
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
+  public void testConcurrency() throws Throwable {
+    final ShardedLRUQueryCache queryCache = new ShardedLRUQueryCache(1 + random().nextInt(8), 8 + random().nextInt(20),
+        1 + random().nextInt(100000), context -> random().nextBoolean(), Float.POSITIVE_INFINITY);
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final String[] values = new String[] {"blue", "red", "yellow", "green", "purple", "orange"};
+    Document doc = new Document();
+    StringField f = new StringField("color", "", Store.NO);
+    doc.add(f);
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; ++i) {
+      f.setStringValue(RandomPicks.randomFrom(random(), values));
+      w.addDocument(doc);
+    }
+    final IndexReader reader = w.getReader();
+    final IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setQueryCache(queryCache);
+    searcher.setQueryCachingPolicy(ALWAYS_CACHE);
+
+    final int[] expectedCounts = new int[values.length];
+    final IndexSearcher uncachedSearcher = new IndexSearcher(reader);
+    uncachedSearcher.setQueryCache(null);
+    for (int i = 0; i < values.length; ++i) {
+      expectedCounts[i] = count(uncachedSearcher, new TermQuery(new Term("color", values[i])));
+    }
+
+    final AtomicBoolean stop = new AtomicBoolean();
+    final AtomicReference<Throwable> error = new AtomicReference<>();
+    final List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; ++t) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 200 && stop.get() == false; ++i) {
+            try {
+              final int v = random().nextInt(values.length);
+              final Query q = new TermQuery(new Term("color", values[v]));
+              assertEquals(expectedCounts[v], count(searcher, q));
+              if (rarely()) {
+                queryCache.clearQuery(q);
+              }
+            } catch (Throwable t) {
+              error.compareAndSet(null, t);
+              stop.set(true);
+            }
+          }
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    if (error.get() != null) {
+      throw error.get();
+    }
+    queryCache.assertConsistent();
+
+    reader.close();
+    w.close();
+    dir.close();
+    queryCache.assertConsistent();
+    assertEquals(0, queryCache.getCacheSize());
+  }
+
+}
@@ -26,8 +26,10 @@ import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.FloatDocValuesField;
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
@@ -689,5 +691,71 @@ public class TestTopFieldCollector extends LuceneTestCase {
     indexReader.close();
     dir.close();
   }
+  public void testNumericSortMatchesComparators() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      if (random().nextInt(10) != 0) {
+        // few distinct values so that there are ties
+        final int value = random().nextInt(50) - 25;
+        doc.add(new NumericDocValuesField("long", value * 1_000_000_000L));
+        doc.add(new NumericDocValuesField("int", value));
+        doc.add(new DoubleDocValuesField("double", value / 3.0));
+        doc.add(new FloatDocValuesField("float", value / 3f));
+      }
+      final int numTerms = 1 + random().nextInt(3);
+      for (int j = 0; j < numTerms; ++j) {
+        doc.add(new TextField("text", random().nextBoolean() ? "a" : "b", Store.NO));
+      }
+      w.addDocument(doc);
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+    IndexSearcher searcher = newSearcher(reader);
+
+    final String[] fields = new String[] { "long", "int", "double", "float" };
+    final SortField.Type[] types = new SortField.Type[] { SortField.Type.LONG, SortField.Type.INT, SortField.Type.DOUBLE, SortField.Type.FLOAT };
+    final Object[] missingValues = new Object[] { -10_000_000_000L, 10, -10.0, 10f };
+    final int iters = atLeast(50);
+    for (int iter = 0; iter < iters; ++iter) {
+      final int i = random().nextInt(fields.length);
+      final boolean reverse = random().nextBoolean();
+      final SortField sortField = new SortField(fields[i], types[i], reverse);
+      // a subclass of SortField doesn't get the primitive-specialized collector
+      final SortField comparatorSortField = new SortField(fields[i], types[i], reverse) {};
+      if (random().nextBoolean()) {
+        sortField.setMissingValue(missingValues[i]);
+        comparatorSortField.setMissingValue(missingValues[i]);
+      }
+      final boolean withScore = random().nextBoolean();
+      final Sort sort = withScore ? new Sort(sortField, FIELD_SCORE) : new Sort(sortField);
+      final Sort comparatorSort = withScore ? new Sort(comparatorSortField, FIELD_SCORE) : new Sort(comparatorSortField);
+
+      final Query query = new TermQuery(new Term("text", random().nextBoolean() ? "a" : "b"));
+      final int numHits = TestUtil.nextInt(random(), 1, 100);
+      TopFieldCollector collector = TopFieldCollector.create(sort, numHits, Integer.MAX_VALUE);
+      TopFieldCollector comparatorCollector = TopFieldCollector.create(comparatorSort, numHits, Integer.MAX_VALUE);
+      searcher.search(query, collector);
+      searcher.search(query, comparatorCollector);
+
+      final int start = random().nextInt(numHits);
+      final int howMany = random().nextInt(numHits + 1);
+      TopDocs topDocs = collector.topDocs(start, howMany);
+      TopDocs comparatorTopDocs = comparatorCollector.topDocs(start, howMany);
+      assertEquals(comparatorTopDocs.totalHits, topDocs.totalHits);
+      assertEquals(comparatorTopDocs.scoreDocs.length, topDocs.scoreDocs.length);
+      for (int j = 0; j < topDocs.scoreDocs.length; ++j) {
+        FieldDoc expected = (FieldDoc) comparatorTopDocs.scoreDocs[j];
+        FieldDoc actual = (FieldDoc) topDocs.scoreDocs[j];
+        assertEquals(expected.doc, actual.doc);
+        assertArrayEquals(expected.fields, actual.fields);
+      }
+    }
+
+    reader.close();
+    dir.close();
+  }
 
 }
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.store;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.lucene.util.TestUtil;
+
+public class TestBlockCacheDirectory extends BaseDirectoryTestCase {
+
+  @Override
+  protected Directory getDirectory(Path path) throws IOException {
+    final int blockShift = TestUtil.nextInt(random(), 10, 14);
+    final BlockCache cache = new BlockCache((1 + random().nextInt(64)) << blockShift, blockShift, random().nextBoolean());
+    return new BlockCacheDirectory(new NIOFSDirectory(path), cache);
+  }
+
+  private static void writeFile(Directory dir, String name, int numBytes) throws IOException {
+    try (IndexOutput out = dir.createOutput(name, IOContext.DEFAULT)) {
+      for (int i = 0; i < numBytes; ++i) {
+        out.writeByte((byte) i);
+      }
+    }
+  }
+
+  private static void readFile(Directory dir, String name) throws IOException {
+    try (IndexInput in = dir.openInput(name, IOContext.DEFAULT)) {
+      for (long i = 0; i < in.length(); ++i) {
+        assertEquals((byte) i, in.readByte());
+      }
+    }
+  }
+
+  public void testIllegalArguments() throws IOException {
+    expectThrows(IllegalArgumentException.class, () -> new BlockCache(100, 10, false));
+    expectThrows(IllegalArgumentException.class, () -> new BlockCache(1 << 20, 4, false));
+    final BlockCache cache = new BlockCache(1 << 20, 10, false);
+    try (Directory dir = new ByteBuffersDirectory()) {
+      expectThrows(IllegalArgumentException.class,
+          () -> new BlockCacheDirectory(dir, cache, Map.of("tip", BlockCache.MAX_PRIORITY + 1), 1));
+      expectThrows(IllegalArgumentException.class,
+          () -> new BlockCacheDirectory(dir, cache, Map.of(), -1));
+    }
+  }
+
+  public void testHitsAndMisses() throws IOException {
+    final BlockCache cache = new BlockCache(16 << 10, 10, random().nextBoolean());
+    try (Directory dir = new BlockCacheDirectory(newDirectory(), cache)) {
+      writeFile(dir, "_0.tip", 4 << 10);
+      readFile(dir, "_0.tip");
+      assertEquals(4, cache.getBlockCount());
+      assertEquals(4, cache.getInsertCount());
+      final long misses = cache.getMissCount();
+      final long hits = cache.getHitCount();
+
+      readFile(dir, "_0.tip");
+      assertEquals(misses, cache.getMissCount());
+      assertTrue(cache.getHitCount() > hits);
+      assertEquals(0, cache.getEvictionCount());
+    }
+  }
+
+  public void testMergesAndReadOnceAreNotCached() throws IOException {
+    final BlockCache cache = new BlockCache(16 << 10, 10, random().nextBoolean());
+    try (Directory dir = new BlockCacheDirectory(newDirectory(), cache)) {
+      writeFile(dir, "_0.doc", 4 << 10);
+      try (IndexInput in = dir.openInput("_0.doc", IOContext.READONCE)) {
+        in.seek(in.length() - 1);
+        in.readByte();
+      }
+      try (IndexInput in = dir.openInput("_0.doc", new IOContext(new MergeInfo(1, 4 << 10, false, 1)))) {
+        in.readByte();
+      }
+      assertEquals(0, cache.getBlockCount());
+      assertEquals(0, cache.getHitCount() + cache.getMissCount());
+    }
+  }
+
+  public void testZeroPriorityIsNotCached() throws IOException {
+    final BlockCache cache = new BlockCache(16 << 10, 10, random().nextBoolean());
+    try (Directory dir = new BlockCacheDirectory(newDirectory(), cache, Map.of("fdt", 0), 1)) {
+      writeFile(dir, "_0.fdt", 4 << 10);
+      readFile(dir, "_0.fdt");
+      assertEquals(0, cache.getBlockCount());
+      writeFile(dir, "_0.cfs", 4 << 10);
+      try (IndexInput in = dir.openInput("_0.cfs", IOContext.DEFAULT)) {
+        // slices are named after the files of the compound file
+        IndexInput slice = in.slice("_0.fdt", 1024, 1024);
+        assertEquals(0, slice.readByte());
+        assertEquals(0, cache.getBlockCount());
+        slice = in.slice("_0.tip", 1024, 1024);
+        assertEquals(0, slice.readByte());
+        assertEquals(1, cache.getBlockCount());
+      }
+    }
+  }
+
+  public void testHigherPriorityBlocksAreEvictedLast() throws IOException {
+    final BlockCache cache = new BlockCache(8 << 10, 10, random().nextBoolean());
+    try (Directory dir = new BlockCacheDirectory(newDirectory(), cache, Map.of("tip", 8, "fdt", 1), 1)) {
+      writeFile(dir, "_0.tip", 4 << 10);
+      writeFile(dir, "_0.fdt", 64 << 10);
+      readFile(dir, "_0.tip");
+      assertEquals(4, cache.getBlockCount());
+      // scan a large file with a low priority while the terms index keeps being used
+      try (IndexInput in = dir.openInput("_0.fdt", IOContext.DEFAULT)) {
+        for (int i = 0; i < 64; ++i) {
+          in.seek(i << 10);
+          assertEquals(0, in.readByte());
+          if (i % 4 == 3) {
+            final long misses = cache.getMissCount();
+            readFile(dir, "_0.tip");
+            assertEquals(misses, cache.getMissCount());
+          }
+        }
+      }
+      assertEquals(8, cache.getBlockCount());
+      assertTrue(cache.getEvictionCount() >= 60);
+    }
+  }
+
+  public void testDeletedFilesAreReclaimedFirst() throws IOException {
+    final BlockCache cache = new BlockCache(8 << 10, 10, random().nextBoolean());
+    try (Directory dir = new BlockCacheDirectory(newDirectory(), cache, Map.of(), BlockCache.MAX_PRIORITY)) {
+      writeFile(dir, "_0.tip", 8 << 10);
+      readFile(dir, "_0.tip");
+      assertEquals(8, cache.getBlockCount());
+      dir.deleteFile("_0.tip");
+
+      writeFile(dir, "_1.tip", 8 << 10);
+      readFile(dir, "_1.tip");
+      assertEquals(8, cache.getBlockCount());
+      assertEquals(16, cache.getInsertCount());
+      assertEquals(0, cache.getEvictionCount());
+    }
+  }
+
+  public void testSharedCache() throws IOException {
+    final BlockCache cache = new BlockCache(16 << 10, 10, random().nextBoolean());
+    try (Directory dir1 = new BlockCacheDirectory(newDirectory(), cache);
+         Directory dir2 = new BlockCacheDirectory(newDirectory(), cache)) {
+      // same name, different content
+      writeFile(dir1, "_0.tip", 2 << 10);
+      try (IndexOutput out = dir2.createOutput("_0.tip", IOContext.DEFAULT)) {
+        for (int i = 0; i < 2 << 10; ++i) {
+          out.writeByte((byte) 42);
+        }
+      }
+      for (int iter = 0; iter < 2; ++iter) {
+        readFile(dir1, "_0.tip");
+        try (IndexInput in = dir2.openInput("_0.tip", IOContext.DEFAULT)) {
+          for (int i = 0; i < in.length(); ++i) {
+            assertEquals(42, in.readByte());
+          }
+        }
+      }
+      assertEquals(4, cache.getBlockCount());
+    }
+  }
+
+  public void testConcurrentFetchAndStore() throws Exception {
+    // few slots for many blocks, so that slots keep getting reused while they are read
+    final int blockSize = 1 << 10;
+    final BlockCache cache = new BlockCache(4 * blockSize, 10, random().nextBoolean());
+    final BlockCache.FileKey file = new BlockCache.FileKey("_0.tip");
+    final int numBlocks = 32;
+    final int iters = atLeast(10000);
+    final Thread[] threads = new Thread[TestUtil.nextInt(random(), 2, 8)];
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    for (int t = 0; t < threads.length; ++t) {
+      final long seed = random().nextLong();
+      threads[t] = new Thread(() -> {
+        try {
+          final Random r = new Random(seed);
+          final byte[] block = new byte[blockSize];
+          final ByteBuffer dst = ByteBuffer.allocate(blockSize);
+          start.await();
+          for (int i = 0; i < iters && failure.get() == null; ++i) {
+            final int b = r.nextInt(numBlocks);
+            final BlockCache.BlockKey key = new BlockCache.BlockKey(file, b);
+            if (r.nextBoolean()) {
+              Arrays.fill(block, (byte) b);
+              cache.store(key, block, blockSize, 1 + r.nextInt(BlockCache.MAX_PRIORITY));
+            } else {
+              dst.clear();
+              if (cache.fetch(key, 0, dst, blockSize, 1)) {
+                assertEquals(blockSize, dst.position());
+                for (int j = 0; j < blockSize; ++j) {
+                  assertEquals("block " + b + " at " + j, (byte) b, dst.get(j));
+                }
+              } else {
+                assertEquals(0, dst.position());
+              }
+            }
+          }
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        }
+      });
+      threads[t].start();
+    }
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    if (failure.get() != null) {
+      throw new AssertionError(failure.get());
+    }
+    assertTrue(cache.getBlockCount() <= 4);
+  }
+}
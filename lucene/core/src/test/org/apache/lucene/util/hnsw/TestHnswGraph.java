@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.lucene.util.hnsw;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.index.RandomAccessVectorValues;
+import org.apache.lucene.index.RandomAccessVectorValuesProducer;
+import org.apache.lucene.index.VectorSimilarityFunction;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.VectorUtil;
+
+import static org.apache.lucene.search.DocIdSetIterator.NO_MORE_DOCS;
+
+/** Tests HNSW KNN graphs */
+public class TestHnswGraph extends LuceneTestCase {
+
+  /** Builds a graph over random vectors and checks that its search results largely agree with exhaustive search */
+  public void testRecall() throws IOException {
+    int size = atLeast(500);
+    int dim = atLeast(4);
+    VectorSimilarityFunction similarityFunction = VectorSimilarityFunction.values()[random().nextInt(VectorSimilarityFunction.values().length)];
+    RandomVectorValues vectors = new RandomVectorValues(size, dim, similarityFunction == VectorSimilarityFunction.DOT_PRODUCT);
+    HnswGraphBuilder builder = new HnswGraphBuilder(vectors, similarityFunction, 16, 100, random().nextLong());
+    HnswGraph hnsw = builder.build(vectors.randomAccess());
+    assertEquals(size, hnsw.size());
+
+    int topK = 10;
+    int numQueries = 20;
+    int totalMatches = 0;
+    for (int i = 0; i < numQueries; i++) {
+      float[] query = randomVector(dim, similarityFunction == VectorSimilarityFunction.DOT_PRODUCT);
+      NeighborQueue actual = HnswGraphSearcher.search(query, topK, vectors.randomAccess(), similarityFunction, hnsw, null);
+      assertEquals(topK, actual.size());
+      Set<Integer> expected = exhaustiveTopK(query, topK, vectors, similarityFunction);
+      for (int node : actual.nodes()) {
+        if (expected.contains(node)) {
+          totalMatches++;
+        }
+      }
+    }
+    double recall = totalMatches / (double) (topK * numQueries);
+    assertTrue("recall=" + recall, recall > 0.8);
+  }
+
+  public void testAcceptOrds() throws IOException {
+    int size = atLeast(100);
+    int dim = 2;
+    RandomVectorValues vectors = new RandomVectorValues(size, dim, false);
+    HnswGraphBuilder builder = new HnswGraphBuilder(vectors, VectorSimilarityFunction.EUCLIDEAN, 8, 30, random().nextLong());
+    HnswGraph hnsw = builder.build(vectors.randomAccess());
+    // only accept even ordinals
+    FixedBitSet acceptOrds = new FixedBitSet(size);
+    for (int i = 0; i < size; i += 2) {
+      acceptOrds.set(i);
+    }
+    NeighborQueue nn = HnswGraphSearcher.search(randomVector(dim, false), 10, vectors.randomAccess(),
+        VectorSimilarityFunction.EUCLIDEAN, hnsw, acceptOrds);
+    assertTrue(nn.size() > 0);
+    for (int node : nn.nodes()) {
+      assertEquals("node " + node + " is not accepted", 0, node % 2);
+    }
+  }
+
+  public void testNeighborsAreBounded() throws IOException {
+    int size = atLeast(200);
+    int maxConn = 4;
+    RandomVectorValues vectors = new RandomVectorValues(size, 3, false);
+    HnswGraphBuilder builder = new HnswGraphBuilder(vectors, VectorSimilarityFunction.EUCLIDEAN, maxConn, 20, random().nextLong());
+    OnHeapHnswGraph hnsw = builder.build(vectors.randomAccess());
+    for (int level = 0; level < hnsw.numLevels(); level++) {
+      int maxConnOnLevel = level == 0 ? maxConn * 2 : maxConn;
+      int[] nodes = hnsw.nodesOnLevel(level);
+      for (int i = 1; i < nodes.length; i++) {
+        assertTrue(nodes[i - 1] < nodes[i]);
+      }
+      for (int node : nodes) {
+        assertTrue(hnsw.getNeighbors(level, node).size() <= maxConnOnLevel);
+        hnsw.seek(level, node);
+        for (int friend = hnsw.nextNeighbor(); friend != NO_MORE_DOCS; friend = hnsw.nextNeighbor()) {
+          assertNotEquals("node " + node + " is connected to itself", node, friend);
+          if (level > 0) {
+            assertTrue("neighbor " + friend + " is not on level " + level, Arrays.binarySearch(nodes, friend) >= 0);
+          }
+        }
+      }
+    }
+  }
+
+  /** Builds a graph over a prefix of the vectors, then extends it with the remaining ones */
+  public void testInitializeFromGraph() throws IOException {
+    int size = atLeast(300);
+    int dim = atLeast(3);
+    RandomVectorValues vectors = new RandomVectorValues(size, dim, false);
+    int initialSize = size / 2;
+    RandomVectorValues prefix = vectors.prefix(initialSize);
+    HnswGraphBuilder initialBuilder = new HnswGraphBuilder(prefix, VectorSimilarityFunction.EUCLIDEAN, 8, 50, random().nextLong());
+    OnHeapHnswGraph initial = initialBuilder.build(prefix.randomAccess());
+
+    HnswGraphBuilder builder = new HnswGraphBuilder(vectors, VectorSimilarityFunction.EUCLIDEAN, 8, 50, random().nextLong());
+    builder.initializeFromGraph(initial);
+    assertEquals(initialSize, builder.getGraph().size());
+    OnHeapHnswGraph hnsw = builder.build(vectors.randomAccess());
+    assertEquals(size, hnsw.size());
+    for (int level = 1; level < initial.numLevels(); level++) {
+      Set<Integer> nodes = new HashSet<>();
+      for (int node : hnsw.nodesOnLevel(level)) {
+        nodes.add(node);
+      }
+      for (int node : initial.nodesOnLevel(level)) {
+        assertTrue("node " + node + " lost from level " + level, nodes.contains(node));
+      }
+    }
+
+    // every vector can be found by searching for itself
+    for (int i = 0; i < 20; i++) {
+      int target = random().nextInt(size);
+      float[] query = vectors.randomAccess().vectorValue(target).clone();
+      NeighborQueue nn = HnswGraphSearcher.search(query, 5, vectors.randomAccess(), VectorSimilarityFunction.EUCLIDEAN, hnsw, null);
+      boolean found = false;
+      for (int node : nn.nodes()) {
+        found |= node == target;
+      }
+      assertTrue("node " + target + " was not found", found);
+    }
+  }
+
+  public void testEmptyGraph() throws IOException {
+    RandomVectorValues vectors = new RandomVectorValues(0, 2, false);
+    HnswGraphBuilder builder = new HnswGraphBuilder(vectors, VectorSimilarityFunction.EUCLIDEAN);
+    HnswGraph hnsw = builder.build(vectors.randomAccess());
+    assertEquals(0, hnsw.size());
+    assertEquals(0, hnsw.numLevels());
+    assertEquals(-1, hnsw.entryNode());
+    assertEquals(0, HnswGraphSearcher.search(new float[] {0, 0}, 3, vectors.randomAccess(),
+        VectorSimilarityFunction.EUCLIDEAN, hnsw, null).size());
+  }
+
+  public void testIllegalParameters() {
+    RandomVectorValues vectors = new RandomVectorValues(1, 2, false);
+    expectThrows(IllegalArgumentException.class,
+        () -> new HnswGraphBuilder(vectors, VectorSimilarityFunction.EUCLIDEAN, 0, 10, 0));
+    expectThrows(IllegalArgumentException.class,
+        () -> new HnswGraphBuilder(vectors, VectorSimilarityFunction.EUCLIDEAN, 10, 0, 0));
+  }
+
+  public void testNeighborQueue() {
+    NeighborQueue minHeap = new NeighborQueue(2, false);
+    minHeap.add(1, 0.5f);
+    minHeap.add(2, 0.2f);
+    minHeap.add(3, 0.9f);
+    assertEquals(2, minHeap.topNode());
+    assertEquals(0.2f, minHeap.topScore(), 0);
+    assertFalse(minHeap.insertWithOverflow(4, 0.1f, 3));
+    assertTrue(minHeap.insertWithOverflow(5, 0.7f, 3));
+    assertEquals(1, minHeap.pop());
+    assertEquals(5, minHeap.pop());
+    assertEquals(3, minHeap.pop());
+    assertEquals(0, minHeap.size());
+
+    NeighborQueue maxHeap = new NeighborQueue(2, true);
+    maxHeap.add(1, 0.5f);
+    maxHeap.add(2, 0.2f);
+    maxHeap.add(3, 0.9f);
+    assertEquals(3, maxHeap.topNode());
+    assertEquals(0.9f, maxHeap.topScore(), 0);
+  }
+
+  private static Set<Integer> exhaustiveTopK(float[] query, int topK, RandomVectorValues vectors,
+                                             VectorSimilarityFunction similarityFunction) {
+    NeighborQueue queue = new NeighborQueue(topK, false);
+    for (int i = 0; i < vectors.size(); i++) {
+      queue.insertWithOverflow(i, similarityFunction.compare(query, vectors.values[i]), topK);
+    }
+    Set<Integer> topNodes = new HashSet<>();
+    for (int node : queue.nodes()) {
+      topNodes.add(node);
+    }
+    return topNodes;
+  }
+
+  private static float[] randomVector(int dim, boolean normalize) {
+    float[] v = new float[dim];
+    for (int i = 0; i < dim; i++) {
+      v[i] = random().nextFloat() * 2 - 1;
+    }
+    v[0] += 0.01f;
+    if (normalize) {
+      VectorUtil.l2normalize(v);
+    }
+    return v;
+  }
+
+  /** Random vectors held in memory, with random access by ordinal */
+  private static class RandomVectorValues implements RandomAccessVectorValues, RandomAccessVectorValuesProducer {
+
+    final int dimension;
+    final float[][] values;
+
+    RandomVectorValues(int size, int dimension, boolean normalize) {
+      this.dimension = dimension;
+      values = new float[size][];
+      for (int i = 0; i < size; i++) {
+        values[i] = randomVector(dimension, normalize);
+      }
+    }
+
+    private RandomVectorValues(int dimension, float[][] values) {
+      this.dimension = dimension;
+      this.values = values;
+    }
+
+    RandomVectorValues prefix(int size) {
+      return new RandomVectorValues(dimension, Arrays.copyOf(values, size));
+    }
+
+    @Override
+    public RandomAccessVectorValues randomAccess() {
+      return new RandomVectorValues(dimension, values);
+    }
+
+    @Override
+    public int size() {
+      return values.length;
+    }
+
+    @Override
+    public int dimension() {
+      return dimension;
+    }
+
+    @Override
+    public float[] vectorValue(int targetOrd) {
+      return values[targetOrd];
+    }
+
+    @Override
+    public BytesRef binaryValue(int targetOrd) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
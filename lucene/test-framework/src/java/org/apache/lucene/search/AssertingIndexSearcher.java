@@ -72,6 +72,13 @@ public class AssertingIndexSearcher extends IndexSearcher {
     super.search(leaves, weight, AssertingCollector.wrap(collector));
   }
 
+  @Override
+  protected void searchLeaf(LeafReaderContext ctx, int minDocId, int maxDocId, Weight weight, Collector collector) throws IOException {
+    assert weight instanceof AssertingWeight;
+    assert minDocId >= 0 && minDocId < maxDocId : "Illegal range: [" + minDocId + ", " + maxDocId + ")";
+    super.searchLeaf(ctx, minDocId, maxDocId, weight, AssertingCollector.wrap(collector));
+  }
+
   @Override
   public String toString() {
     return "AssertingIndexSearcher(" + super.toString() + ")";
@@ -45,19 +45,24 @@ public class ScorerIndexSearcher extends IndexSearcher {
   @Override
   protected void search(List<LeafReaderContext> leaves, Weight weight, Collector collector) throws IOException {
     for (LeafReaderContext ctx : leaves) { // search each subreader
-      // we force the use of Scorer (not BulkScorer) to make sure
-      // that the scorer passed to LeafCollector.setScorer supports
-      // Scorer.getChildren
-      Scorer scorer = weight.scorer(ctx);
-      if (scorer != null) {
-        final DocIdSetIterator iterator = scorer.iterator();
-        final LeafCollector leafCollector = collector.getLeafCollector(ctx);
-        leafCollector.setScorer(scorer);
-        final Bits liveDocs = ctx.reader().getLiveDocs();
-        for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
-          if (liveDocs == null || liveDocs.get(doc)) {
-            leafCollector.collect(doc);
-          }
+      searchLeaf(ctx, 0, DocIdSetIterator.NO_MORE_DOCS, weight, collector);
+    }
+  }
+
+  @Override
+  protected void searchLeaf(LeafReaderContext ctx, int minDocId, int maxDocId, Weight weight, Collector collector) throws IOException {
+    // we force the use of Scorer (not BulkScorer) to make sure
+    // that the scorer passed to LeafCollector.setScorer supports
+    // Scorer.getChildren
+    Scorer scorer = weight.scorer(ctx);
+    if (scorer != null) {
+      final DocIdSetIterator iterator = scorer.iterator();
+      final LeafCollector leafCollector = collector.getLeafCollector(ctx);
+      leafCollector.setScorer(scorer);
+      final Bits liveDocs = ctx.reader().getLiveDocs();
+      for (int doc = iterator.advance(minDocId); doc < maxDocId; doc = iterator.nextDoc()) {
+        if (liveDocs == null || liveDocs.get(doc)) {
+          leafCollector.collect(doc);
         }
       }
     }
@@ -1956,10 +1956,11 @@ public abstract class LuceneTestCase extends Assert {
       } else if (random.nextBoolean()) {
         int maxDocPerSlice = 1 + random.nextInt(100000);
         int maxSegmentsPerSlice = 1 + random.nextInt(20);
+        boolean allowSegmentPartitions = random.nextBoolean();
         ret = new IndexSearcher(r, ex) {
           @Override
           protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
-            return slices(leaves, maxDocPerSlice, maxSegmentsPerSlice);
+            return slices(leaves, maxDocPerSlice, maxSegmentsPerSlice, allowSegmentPartitions);
           }
         };
       } else {
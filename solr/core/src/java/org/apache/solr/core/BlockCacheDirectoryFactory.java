@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.store.BlockCache;
+import org.apache.lucene.store.BlockCacheDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.LockFactory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.metrics.MetricsMap;
+import org.apache.solr.metrics.SolrMetricProducer;
+import org.apache.solr.metrics.SolrMetricsContext;
+
+/**
+ * Factory to instantiate {@link org.apache.lucene.store.BlockCacheDirectory}
+ * on top of {@link org.apache.lucene.store.NIOFSDirectory}, so that each core
+ * caches its index files in memory with its own budget instead of competing
+ * with other cores for the OS page cache.
+ *
+ * <p>Supported parameters:
+ * <ul>
+ *   <li><code>maxCacheMB</code>: the memory budget of the cache, 256 by default</li>
+ *   <li><code>blockSize</code>: the size of cached blocks, a power of two, 8192 by default</li>
+ *   <li><code>directMemoryAllocation</code>: whether to allocate the cache off-heap, true by default</li>
+ *   <li><code>priorities</code>: a list of priorities per file extension, which replaces the
+ *       defaults of {@link BlockCacheDirectory}, a priority of 0 disables caching</li>
+ *   <li><code>defaultPriority</code>: the priority of extensions that are not in the list</li>
+ * </ul>
+ *
+ * <pre class="prettyprint">
+ * &lt;directoryFactory name="DirectoryFactory" class="solr.BlockCacheDirectoryFactory"&gt;
+ *   &lt;int name="maxCacheMB"&gt;512&lt;/int&gt;
+ *   &lt;lst name="priorities"&gt;
+ *     &lt;int name="tip"&gt;4&lt;/int&gt;
+ *     &lt;int name="dvd"&gt;3&lt;/int&gt;
+ *   &lt;/lst&gt;
+ * &lt;/directoryFactory&gt;
+ * </pre>
+ *
+ * @lucene.experimental
+ */
+public class BlockCacheDirectoryFactory extends StandardDirectoryFactory implements SolrMetricProducer {
+  public static final int DEFAULT_MAX_CACHE_MB = 256;
+  public static final int DEFAULT_BLOCK_SIZE = 1 << BlockCache.DEFAULT_BLOCK_SHIFT;
+
+  private BlockCache blockCache;
+  private Map<String, Integer> priorities = BlockCacheDirectory.DEFAULT_PRIORITIES;
+  private int defaultPriority = BlockCacheDirectory.DEFAULT_PRIORITY;
+  private SolrMetricsContext solrMetricsContext;
+
+  @Override
+  public void init(NamedList args) {
+    super.init(args);
+    SolrParams params = args.toSolrParams();
+    double maxCacheMB = params.getDouble("maxCacheMB", DEFAULT_MAX_CACHE_MB);
+    if (maxCacheMB <= 0) {
+      throw new IllegalArgumentException("maxCacheMB must be greater than 0");
+    }
+    int blockSize = params.getInt("blockSize", DEFAULT_BLOCK_SIZE);
+    if (Integer.bitCount(blockSize) != 1) {
+      throw new IllegalArgumentException("blockSize must be a power of two, got " + blockSize);
+    }
+    boolean directMemoryAllocation = params.getBool("directMemoryAllocation", true);
+
+    Object prioritiesArg = args.get("priorities");
+    if (prioritiesArg != null) {
+      if (prioritiesArg instanceof NamedList == false) {
+        throw new IllegalArgumentException("priorities must be a list of priorities per file extension");
+      }
+      Map<String, Integer> priorities = new HashMap<>();
+      for (Map.Entry<String, ?> entry : (NamedList<?>) prioritiesArg) {
+        priorities.put(entry.getKey(), Integer.parseInt(entry.getValue().toString()));
+      }
+      this.priorities = priorities;
+    }
+    defaultPriority = params.getInt("defaultPriority", BlockCacheDirectory.DEFAULT_PRIORITY);
+
+    blockCache = new BlockCache((long) (maxCacheMB * 1024 * 1024), Integer.numberOfTrailingZeros(blockSize),
+        directMemoryAllocation);
+  }
+
+  @Override
+  protected Directory create(String path, LockFactory lockFactory, DirContext dirContext) throws IOException {
+    // we pass NoLockFactory, because the real lock factory is set later by injectLockFactory:
+    return new BlockCacheDirectory(new NIOFSDirectory(new File(path).toPath(), lockFactory), blockCache,
+        priorities, defaultPriority);
+  }
+
+  @Override
+  public boolean isAbsolute(String path) {
+    return new File(path).isAbsolute();
+  }
+
+  /** Return the cache that is shared by all directories of this factory. */
+  public BlockCache getBlockCache() {
+    return blockCache;
+  }
+
+  @Override
+  public void initializeMetrics(SolrMetricsContext parentContext, String scope) {
+    solrMetricsContext = parentContext.getChildContext(this);
+    MetricsMap metricsMap = new MetricsMap((detailed, map) -> {
+      long hits = blockCache.getHitCount();
+      long lookups = hits + blockCache.getMissCount();
+      map.put("lookups", lookups);
+      map.put("hits", hits);
+      map.put("hitratio", lookups == 0 ? 0f : (float) hits / lookups);
+      map.put("inserts", blockCache.getInsertCount());
+      map.put("evictions", blockCache.getEvictionCount());
+      map.put("size", blockCache.getBlockCount());
+      map.put("maxSize", blockCache.getMaxBlockCount());
+      map.put("blockSize", blockCache.getBlockSize());
+      map.put("ramBytesUsed", blockCache.ramBytesUsed());
+    });
+    solrMetricsContext.gauge(metricsMap, true, "blockCache", SolrInfoBean.Category.DIRECTORY.toString(), scope);
+  }
+
+  @Override
+  public SolrMetricsContext getSolrMetricsContext() {
+    return solrMetricsContext;
+  }
+
+  @Override
+  public void close() throws IOException {
+    super.close();
+    try {
+      SolrMetricProducer.super.close();
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+}
@@ -240,6 +240,16 @@ public class SolrConfig extends XmlConfigFile implements MapSerializable {
       conf = new CacheConfig(CaffeineCache.class, args, null);
     }
     fieldValueCacheConfig = conf;
+    multiThreaded = getBool("query/multiThreaded", false);
+    planFilters = getBool("query/planFilters", false);
+    searchThreads = getInt("query/searchThreads", Runtime.getRuntime().availableProcessors());
+    if (searchThreads < 0) {
+      throw new IllegalArgumentException("searchThreads must not be negative, got " + searchThreads);
+    }
+    segmentFilterCacheMaxRamMB = getDouble("query/segmentFilterCache/@maxRamMB", 0);
+    if (segmentFilterCacheMaxRamMB < 0) {
+      throw new IllegalArgumentException("segmentFilterCache maxRamMB must not be negative, got " + segmentFilterCacheMaxRamMB);
+    }
     useColdSearcher = getBool("query/useColdSearcher", false);
     dataDir = get("dataDir", null);
     if (dataDir != null && dataDir.length() == 0) dataDir = null;
@@ -255,6 +265,10 @@ public class SolrConfig extends XmlConfigFile implements MapSerializable {
 
     maxWarmingSearchers = getInt("query/maxWarmingSearchers", 1);
     slowQueryThresholdMillis = getInt("query/slowQueryThresholdMillis", -1);
+    slowQueryProfileSampleRate = getDouble("query/slowQueryProfileSampleRate", 0);
+    if (slowQueryProfileSampleRate < 0 || slowQueryProfileSampleRate > 1) {
+      throw new IllegalArgumentException("slowQueryProfileSampleRate must be between 0 and 1, got " + slowQueryProfileSampleRate);
+    }
     for (SolrPluginInfo plugin : plugins) loadPluginInfo(plugin);
 
     Map<String, CacheConfig> userCacheConfigs = CacheConfig.getMultipleConfigs(this, "query/cache");
@@ -516,11 +530,15 @@ public class SolrConfig extends XmlConfigFile implements MapSerializable {
   public final CacheConfig documentCacheConfig;
   public final CacheConfig fieldValueCacheConfig;
   public final Map<String, CacheConfig> userCacheConfigs;
+  public final double segmentFilterCacheMaxRamMB;  // max RAM of the per-segment filter cache of the core, 0 to disable it
   // SolrIndexSearcher - more...
   public final boolean useFilterForSortedQuery;
   public final int queryResultWindowSize;
   public final int queryResultMaxDocsCached;
   public final boolean enableLazyFieldLoading;
+  public final boolean multiThreaded;  // default for collecting queries concurrently across segments
+  public final boolean planFilters;  // default for planning filters by their cost relative to the main query
+  public final int searchThreads;  // size of the thread pool of a core for concurrent collection, 0 to disable it
   
   public final boolean useRangeVersionsForPeerSync;
   
@@ -536,6 +554,7 @@ public class SolrConfig extends XmlConfigFile implements MapSerializable {
   public final Version luceneMatchVersion;
   protected String dataDir;
   public final int slowQueryThresholdMillis;  // threshold above which a query is considered slow
+  public final double slowQueryProfileSampleRate;  // fraction of search requests whose queries are profiled for the slow query log
 
   private final HttpCachingConfig httpCachingConfig;
 
@@ -869,7 +888,11 @@ public class SolrConfig extends XmlConfigFile implements MapSerializable {
     m.put("queryResultWindowSize", queryResultWindowSize);
     m.put("queryResultMaxDocsCached", queryResultMaxDocsCached);
     m.put("enableLazyFieldLoading", enableLazyFieldLoading);
+    m.put("multiThreaded", multiThreaded);
+    m.put("planFilters", planFilters);
+    m.put("searchThreads", searchThreads);
     m.put("maxBooleanClauses", booleanQueryMaxClauseCount);
+    m.put("segmentFilterCacheMaxRamMB", segmentFilterCacheMaxRamMB);
     for (SolrPluginInfo plugin : plugins) {
       List<PluginInfo> infos = getPluginInfos(plugin.clazz.getName());
       if (infos == null || infos.isEmpty()) continue;
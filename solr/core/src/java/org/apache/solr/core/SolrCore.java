@@ -53,6 +53,9 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
@@ -69,6 +72,7 @@ import org.apache.lucene.index.IndexDeletionPolicy;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.QueryProfiler;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
@@ -106,6 +110,7 @@ import org.apache.solr.handler.SolrConfigHandler;
 import org.apache.solr.handler.component.HighlightComponent;
 import org.apache.solr.handler.component.SearchComponent;
 import org.apache.solr.logging.MDCLoggingContext;
+import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrCoreMetricManager;
 import org.apache.solr.metrics.SolrMetricProducer;
 import org.apache.solr.metrics.SolrMetricsContext;
@@ -115,6 +120,7 @@ import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestHandler;
 import org.apache.solr.response.BinaryResponseWriter;
 import org.apache.solr.response.CSVResponseWriter;
+import org.apache.solr.response.ColumnarResponseWriter;
 import org.apache.solr.response.GeoJSONResponseWriter;
 import org.apache.solr.response.GraphMLResponseWriter;
 import org.apache.solr.response.JSONResponseWriter;
@@ -137,6 +143,7 @@ import org.apache.solr.schema.IndexSchema;
 import org.apache.solr.schema.ManagedIndexSchema;
 import org.apache.solr.schema.SimilarityFactory;
 import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.search.SegmentFilterCache;
 import org.apache.solr.search.SolrFieldCacheBean;
 import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.ValueSourceParser;
@@ -958,6 +965,11 @@ public final class SolrCore implements SolrInfoBean, Closeable {
       checkVersionFieldExistsInSchema(schema, coreDescriptor);
       setLatestSchema(schema);
 
+      this.segmentFilterCache = solrConfig.segmentFilterCacheMaxRamMB > 0
+          ? new SegmentFilterCache((long) (solrConfig.segmentFilterCacheMaxRamMB * 1024L * 1024L)) : null;
+      this.parallelSearchExecutor = solrConfig.searchThreads > 0
+          ? newParallelSearchExecutor(solrConfig.searchThreads) : null;
+
       // initialize core metrics
       initializeMetrics(solrMetricsContext, null);
 
@@ -969,6 +981,7 @@ public final class SolrCore implements SolrInfoBean, Closeable {
 
       this.maxWarmingSearchers = solrConfig.maxWarmingSearchers;
       this.slowQueryThresholdMillis = solrConfig.slowQueryThresholdMillis;
+      this.slowQueryProfileSampleRate = solrConfig.slowQueryProfileSampleRate;
 
       initListeners();
 
@@ -1211,6 +1224,10 @@ public final class SolrCore implements SolrInfoBean, Closeable {
         return true;
       }
     }, true, "spins", Category.CORE.toString(), "fs");
+    if (segmentFilterCache != null) {
+      parentContext.gauge(new MetricsMap((detailed, map) -> segmentFilterCache.getStatistics(map)),
+          true, "segmentFilterCache", Category.CACHE.toString());
+    }
   }
 
   public String getMetricTag() {
@@ -1631,6 +1648,31 @@ public final class SolrCore implements SolrInfoBean, Closeable {
       }
     }
 
+    try {
+      // caches that are still warming in the background stop now that the core is closed, and release their searcher
+      ExecutorUtil.shutdownAndAwaitTermination(autowarmExecutor);
+    } catch (Throwable e) {
+      SolrException.log(log, e);
+      if (e instanceof Error) {
+        throw (Error) e;
+      }
+    }
+
+    if (segmentFilterCache != null) {
+      segmentFilterCache.clear();
+    }
+
+    if (parallelSearchExecutor != null) {
+      try {
+        ExecutorUtil.shutdownAndAwaitTermination(parallelSearchExecutor);
+      } catch (Throwable e) {
+        SolrException.log(log, e);
+        if (e instanceof Error) {
+          throw (Error) e;
+        }
+      }
+    }
+
     if (coreStateClosed) {
       try {
         cleanupOldIndexDirectories(false);
@@ -1838,12 +1880,18 @@ public final class SolrCore implements SolrInfoBean, Closeable {
 
   final ExecutorService searcherExecutor = ExecutorUtil.newMDCAwareSingleThreadExecutor(
       new DefaultSolrThreadFactory("searcherExecutor"));
+  // regenerates cache entries of new searchers on several threads, or in the background
+  private final ExecutorService autowarmExecutor = ExecutorUtil.newMDCAwareCachedThreadPool(
+      new DefaultSolrThreadFactory("autowarmExecutor"));
   private int onDeckSearchers;  // number of searchers preparing
   // Lock ordering: one can acquire the openSearcherLock and then the searcherLock, but not vice-versa.
   private Object searcherLock = new Object();  // the sync object for the searcher
   private ReentrantLock openSearcherLock = new ReentrantLock(true);     // used to serialize opens/reopens for absolute ordering
   private final int maxWarmingSearchers;  // max number of on-deck searchers allowed
   private final int slowQueryThresholdMillis;  // threshold above which a query is considered slow
+  private final double slowQueryProfileSampleRate;  // fraction of search requests that are profiled for the slow query log
+  private final SegmentFilterCache segmentFilterCache;  // shared by the searchers of this core, null if disabled
+  private final ThreadPoolExecutor parallelSearchExecutor;  // collects slices of segments concurrently, null if disabled
 
   private RefCounted<SolrIndexSearcher> realtimeSearcher;
   private Callable<DirectoryReader> newReaderCreator;
@@ -1953,6 +2001,22 @@ public final class SolrCore implements SolrInfoBean, Closeable {
     }
   }
 
+  /**
+   * Returns the {@link RefCounted} of the given normal searcher with the reference count incremented, or null if
+   * it isn't open anymore.  It <b>must</b> be decremented when no longer needed.
+   */
+  public RefCounted<SolrIndexSearcher> getSearcherHolder(SolrIndexSearcher searcher) {
+    synchronized (searcherLock) {
+      for (RefCounted<SolrIndexSearcher> holder : _searchers) {
+        if (holder.get() == searcher) {
+          holder.incref();
+          return holder;
+        }
+      }
+    }
+    return null;
+  }
+
   /**
    * Return the newest normal {@link RefCounted}&lt;{@link SolrIndexSearcher}&gt; with
    * the reference count incremented.  It <b>must</b> be decremented when no longer needed.
@@ -2574,12 +2638,60 @@ public final class SolrCore implements SolrInfoBean, Closeable {
       if (log.isWarnEnabled() && slowQueryThresholdMillis >= 0) {
         final long qtime = (long) (req.getRequestTimer().getTime());
         if (qtime >= slowQueryThresholdMillis) {
-          slowLog.warn("slow: {}", rsp.getToLogAsString(logid));
+          final QueryProfiler profiler = (QueryProfiler) req.getContext().get(SolrIndexSearcher.QUERY_PROFILER);
+          if (profiler == null) {
+            slowLog.warn("slow: {}", rsp.getToLogAsString(logid));
+          } else {
+            slowLog.warn("slow: {} profile:\n{}", rsp.getToLogAsString(logid), profiler);
+          }
         }
       }
     }
   }
 
+  /**
+   * Whether the Lucene queries of a search request should be profiled, so
+   * that the profile can be added to the slow query log if the request turns
+   * out to be slow. Requests are sampled according to the
+   * <code>slowQueryProfileSampleRate</code> of the config.
+   */
+  public boolean shouldProfileSlowQuery() {
+    return slowQueryThresholdMillis >= 0 && slowQueryProfileSampleRate > 0
+        && ThreadLocalRandom.current().nextDouble() < slowQueryProfileSampleRate;
+  }
+
+  /**
+   * The cache of per-segment filter results that is shared by the searchers of this core, or
+   * null if it is not enabled with <code>&lt;segmentFilterCache maxRamMB="..."/&gt;</code>.
+   */
+  public SegmentFilterCache getSegmentFilterCache() {
+    return segmentFilterCache;
+  }
+
+  private static ThreadPoolExecutor newParallelSearchExecutor(int numThreads) {
+    // threads are only started when requests are collected concurrently, and stop when idle
+    ThreadPoolExecutor executor = new ExecutorUtil.MDCAwareThreadPoolExecutor(numThreads, numThreads,
+        60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new DefaultSolrThreadFactory("parallelSearchExecutor"));
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * The thread pool that searchers of this core use to collect slices of segments concurrently for
+   * requests that are <code>multiThreaded</code>, or null if <code>searchThreads</code> is 0.
+   */
+  public ThreadPoolExecutor getParallelSearchExecutor() {
+    return parallelSearchExecutor;
+  }
+
+  /**
+   * The thread pool that caches of the searchers of this core use to regenerate their entries when they are
+   * warmed on several threads or in the background.
+   */
+  public ExecutorService getAutowarmExecutor() {
+    return autowarmExecutor;
+  }
+
   public static void preDecorateResponse(SolrQueryRequest req, SolrQueryResponse rsp) {
     // setup response header
     final NamedList<Object> responseHeader = new SimpleOrderedMap<>();
@@ -2693,6 +2805,7 @@ public final class SolrCore implements SolrInfoBean, Closeable {
     m.put("ruby", new RubyResponseWriter());
     m.put("raw", new RawResponseWriter());
     m.put(CommonParams.JAVABIN, new BinaryResponseWriter());
+    m.put(CommonParams.COLUMNAR, new ColumnarResponseWriter());
     m.put("csv", new CSVResponseWriter());
     m.put("schema.xml", new SchemaXmlResponseWriter());
     m.put("smile", new SmileResponseWriter());
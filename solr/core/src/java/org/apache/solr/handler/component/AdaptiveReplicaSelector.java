@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.handler.component;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+
+/**
+ * Tracks the latency of the shard requests sent to each replica, in order to prefer the replicas that answer
+ * fastest and to decide when to hedge a request that is slower than usual.
+ * <p>
+ * Replicas are ranked like in C3 (Suresh et al., NSDI '15), without the feedback of the servers: the score of a
+ * replica is the exponentially weighted moving average of its latency times the cube of one plus the number of
+ * requests that are outstanding on it, so that a replica that got slow, or that is already busy with the requests
+ * of this node, quickly stops being picked first. Replicas that have no latency yet, or whose latency wasn't
+ * updated for {@value #PROBE_INTERVAL_MS} ms, score zero so that they get probed again, but only while no request
+ * is outstanding on them: a replica that hangs doesn't record latencies, and must not get all requests once its
+ * latency is stale.  Replicas that had no request for {@value #EVICT_INTERVAL_MS} ms are forgotten, so that the
+ * replicas of removed or moved cores don't stay tracked.
+ */
+class AdaptiveReplicaSelector {
+
+  /** Latencies that are older than this are considered unknown. */
+  static final long PROBE_INTERVAL_MS = 2000;
+
+  /** Replicas whose latency wasn't updated for this long and that have no outstanding requests are forgotten. */
+  static final long EVICT_INTERVAL_MS = 30 * PROBE_INTERVAL_MS;
+
+  /** Requests are not hedged before this many latencies were recorded. */
+  static final int MIN_HEDGE_SAMPLES = 20;
+
+  static class ReplicaStats {
+    final AtomicInteger outstanding = new AtomicInteger();
+    final LongAdder requests = new LongAdder();
+    final LongAdder hedged = new LongAdder();
+    // guarded by this
+    private double ewmaNanos = -1;
+    private long lastUpdateNanos = System.nanoTime();
+
+    synchronized void update(long latencyNanos, double alpha) {
+      ewmaNanos = ewmaNanos < 0 ? latencyNanos : alpha * latencyNanos + (1 - alpha) * ewmaNanos;
+      lastUpdateNanos = System.nanoTime();
+    }
+
+    /** Returns the average latency, or -1 if it is unknown or stale. */
+    synchronized double getLatencyNanos(long now) {
+      if (ewmaNanos < 0 || isStale(now, PROBE_INTERVAL_MS)) {
+        return -1;
+      }
+      return ewmaNanos;
+    }
+
+    /** Returns the last average latency, even if it is stale, or -1 if it is unknown. */
+    synchronized double getLastLatencyNanos() {
+      return ewmaNanos;
+    }
+
+    synchronized boolean isStale(long now, long intervalMs) {
+      return now - lastUpdateNanos > TimeUnit.MILLISECONDS.toNanos(intervalMs);
+    }
+
+    /**
+     * @param defaultLatencyNanos the latency to assume if this replica has outstanding requests but no latency yet
+     */
+    double score(long now, double defaultLatencyNanos) {
+      final int outstanding = this.outstanding.get();
+      double latency = getLatencyNanos(now);
+      if (latency < 0) {
+        if (outstanding == 0) {
+          // probe
+          return 0;
+        }
+        latency = getLastLatencyNanos();
+        if (latency < 0) {
+          latency = defaultLatencyNanos;
+        }
+      }
+      final double queue = 1 + outstanding;
+      return latency * queue * queue * queue;
+    }
+  }
+
+  private final Map<String, ReplicaStats> stats = new ConcurrentHashMap<>();
+  // the average latency of all replicas
+  private final ReplicaStats all = new ReplicaStats();
+  private final Histogram latencies = new Histogram(new ExponentiallyDecayingReservoir());
+  private final AtomicLong lastEvictionNanos = new AtomicLong(System.nanoTime());
+  private final double alpha;
+  private final double hedgePercentile;
+  private final long hedgeMinDelayNanos;
+  final LongAdder hedgeWins = new LongAdder();
+
+  /**
+   * @param alpha the weight of a new latency in the moving average, in (0, 1]
+   * @param hedgePercentile the percentile of the latencies after which requests are hedged, or 0 to never hedge
+   * @param hedgeMinDelayMs the minimum delay before a request is hedged
+   */
+  AdaptiveReplicaSelector(double alpha, double hedgePercentile, long hedgeMinDelayMs) {
+    if (alpha <= 0 || alpha > 1) {
+      throw new IllegalArgumentException("the decay of replica latencies must be in (0, 1], got " + alpha);
+    }
+    if (hedgePercentile < 0 || hedgePercentile >= 100) {
+      throw new IllegalArgumentException("the hedge percentile must be in [0, 100), got " + hedgePercentile);
+    }
+    if (hedgeMinDelayMs < 0) {
+      throw new IllegalArgumentException("the minimum hedge delay must not be negative, got " + hedgeMinDelayMs);
+    }
+    this.alpha = alpha;
+    this.hedgePercentile = hedgePercentile;
+    this.hedgeMinDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedgeMinDelayMs);
+  }
+
+  ReplicaStats getStats(String url) {
+    return stats.computeIfAbsent(url, k -> new ReplicaStats());
+  }
+
+  /** Sorts the given urls by increasing score. The sort is stable, so ties keep the order of the replica routing. */
+  void sort(List<String> urls) {
+    sort(urls, System.nanoTime());
+  }
+
+  void sort(List<String> urls, long now) {
+    final double last = all.getLastLatencyNanos();
+    // replicas that are busy but have no latency yet are still ranked by their outstanding requests
+    final double defaultLatency = last < 0 ? 1 : last;
+    final Map<String, Double> scores = new LinkedHashMap<>();
+    for (String url : urls) {
+      scores.put(url, getStats(url).score(now, defaultLatency));
+    }
+    urls.sort(Comparator.comparingDouble(scores::get));
+  }
+
+  /** Must be called before a request is sent to the given replica, and followed by {@link #end}. */
+  ReplicaStats begin(String url) {
+    final long now = System.nanoTime();
+    final long lastEviction = lastEvictionNanos.get();
+    if (now - lastEviction > TimeUnit.MILLISECONDS.toNanos(PROBE_INTERVAL_MS)
+        && lastEvictionNanos.compareAndSet(lastEviction, now)) {
+      evictIdle(now);
+    }
+    // incremented atomically with the lookup so that the stats can't be evicted in between
+    final ReplicaStats replica = stats.compute(url, (k, r) -> {
+      if (r == null) {
+        r = new ReplicaStats();
+      }
+      r.outstanding.incrementAndGet();
+      return r;
+    });
+    replica.requests.increment();
+    return replica;
+  }
+
+  /** Forgets the replicas that have no outstanding requests and whose latency wasn't updated for a while. */
+  void evictIdle(long now) {
+    for (String url : stats.keySet()) {
+      stats.computeIfPresent(url,
+          (k, r) -> r.outstanding.get() == 0 && r.isStale(now, EVICT_INTERVAL_MS) ? null : r);
+    }
+  }
+
+  /**
+   * Records the latency of a request to a replica.
+   * @param completed false if the request was cancelled, in which case its latency is only known to be at least
+   *                  the given one and isn't added to the distribution of latencies
+   */
+  void end(ReplicaStats replica, long latencyNanos, boolean completed) {
+    replica.outstanding.decrementAndGet();
+    replica.update(latencyNanos, alpha);
+    all.update(latencyNanos, alpha);
+    if (completed) {
+      latencies.update(latencyNanos);
+    }
+  }
+
+  boolean isHedging() {
+    return hedgePercentile > 0;
+  }
+
+  /** Returns how long to wait for a response before hedging a request, or -1 if not enough is known yet. */
+  long getHedgeDelayNanos() {
+    if (isHedging() == false || latencies.getCount() < MIN_HEDGE_SAMPLES) {
+      return -1;
+    }
+    final Snapshot snapshot = latencies.getSnapshot();
+    return Math.max(hedgeMinDelayNanos, (long) snapshot.getValue(hedgePercentile / 100));
+  }
+
+  /** Returns the stats of each replica, for metrics. */
+  void toMap(Map<String, Object> map) {
+    final long now = System.nanoTime();
+    evictIdle(now);
+    stats.forEach((url, replica) -> {
+      final Map<String, Object> m = new LinkedHashMap<>();
+      final double latency = replica.getLatencyNanos(now);
+      m.put("latencyMs", latency < 0 ? -1 : latency / TimeUnit.MILLISECONDS.toNanos(1));
+      m.put("outstanding", replica.outstanding.get());
+      m.put("requests", replica.requests.sum());
+      m.put("hedged", replica.hedged.sum());
+      map.put(url, m);
+    });
+  }
+}
@@ -200,6 +200,9 @@ public class DebugComponent extends SearchComponent
     if (rb.isDebugTimings()) {
       sreq.params.add(CommonParams.DEBUG, CommonParams.TIMING);
     } 
+    if (rb.isDebugProfile()) {
+      sreq.params.add(CommonParams.DEBUG, CommonParams.PROFILE);
+    }
     if (rb.isDebugTrack()) {
       sreq.params.add(CommonParams.DEBUG, CommonParams.TRACK);
       sreq.params.set(CommonParams.REQUEST_ID, rb.req.getParams().get(CommonParams.REQUEST_ID));
@@ -222,7 +225,7 @@ public class DebugComponent extends SearchComponent
     }
   }
 
-  private final static Set<String> EXCLUDE_SET = Set.of("explain");
+  private final static Set<String> EXCLUDE_SET = Set.of("explain", "profile");
 
   @Override
   public void finishStage(ResponseBuilder rb) {
@@ -231,6 +234,8 @@ public class DebugComponent extends SearchComponent
       NamedList<Object> explain = new SimpleOrderedMap<>();
 
       Map.Entry<String, Object>[]  arr =  new NamedList.NamedListEntry[rb.resultIds.size()];
+      // profiles are per shard request, they can't be merged
+      NamedList<Object> profiles = new SimpleOrderedMap<>();
       // Will be set to true if there is at least one response with PURPOSE_GET_DEBUG
       boolean hasGetDebugResponses = false;
 
@@ -243,6 +248,9 @@ public class DebugComponent extends SearchComponent
           }
           NamedList sdebug = (NamedList)srsp.getSolrResponse().getResponse().get("debug");
           info = (NamedList)merge(sdebug, info, EXCLUDE_SET);
+          if (rb.isDebugProfile() && sdebug != null && sdebug.get("profile") != null) {
+            profiles.add(srsp.getShard(), sdebug.get("profile"));
+          }
           if ((sreq.purpose & ShardRequest.PURPOSE_GET_DEBUG) != 0) {
             hasGetDebugResponses = true;
             if (rb.isDebugResults()) {
@@ -277,6 +285,10 @@ public class DebugComponent extends SearchComponent
         }
       }
 
+      if (rb.isDebugProfile()) {
+        info.add("profile", profiles);
+      }
+
       rb.setDebugInfo(info);
       rb.rsp.add("debug", rb.getDebugInfo() );
     }
@@ -18,6 +18,7 @@ package org.apache.solr.handler.component;
 
 import java.io.IOException;
 import java.net.ConnectException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -70,10 +71,12 @@ public class HttpShardHandler extends ShardHandler {
   private Set<Future<ShardResponse>> pending;
   private Map<String, List<String>> shardToURLs;
   private Http2SolrClient httpClient;
+  private boolean adaptiveReplicaSelection;
 
   public HttpShardHandler(HttpShardHandlerFactory httpShardHandlerFactory, Http2SolrClient httpClient) {
     this.httpClient = httpClient;
     this.httpShardHandlerFactory = httpShardHandlerFactory;
+    this.adaptiveReplicaSelection = httpShardHandlerFactory.isAdaptiveReplicaSelection();
     completionService = httpShardHandlerFactory.newCompletionService();
     pending = new HashSet<>();
 
@@ -118,6 +121,9 @@ public class HttpShardHandler extends ShardHandler {
     List<String> urls = shardToURLs.get(shard);
     if (urls == null) {
       urls = httpShardHandlerFactory.buildURLList(shard);
+      if (adaptiveReplicaSelection) {
+        httpShardHandlerFactory.getReplicaSelector().sort(urls);
+      }
       shardToURLs.put(shard, urls);
     }
     return urls;
@@ -146,16 +152,7 @@ public class HttpShardHandler extends ShardHandler {
         params.remove(CommonParams.WT); // use default (currently javabin)
         params.remove(CommonParams.VERSION);
 
-        QueryRequest req = makeQueryRequest(sreq, params, shard);
-        if (tracer != null && span != null) {
-          tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new SolrRequestCarrier(req));
-        }
-        req.setMethod(SolrRequest.METHOD.POST);
-        SolrRequestInfo requestInfo = SolrRequestInfo.getRequestInfo();
-        if (requestInfo != null) req.setUserPrincipal(requestInfo.getReq().getUserPrincipal());
-
-        // no need to set the response parser as binary is the defaultJab
-        // req.setResponseParser(new BinaryResponseParser());
+        QueryRequest req = prepareRequest(sreq, params, shard, tracer, span);
 
         // if there are no shards available for a slice, urls.size()==0
         if (urls.size() == 0) {
@@ -164,14 +161,13 @@ public class HttpShardHandler extends ShardHandler {
           throw new SolrException(SolrException.ErrorCode.SERVICE_UNAVAILABLE, "no servers hosting shard: " + shard);
         }
 
-        if (urls.size() <= 1) {
-          String url = urls.get(0);
-          srsp.setShardAddress(url);
-          ssr.nl = request(url, req);
+        final AdaptiveReplicaSelector selector = httpShardHandlerFactory.getReplicaSelector();
+        final long hedgeDelayNanos = selector == null || urls.size() <= 1 ? -1 : selector.getHedgeDelayNanos();
+        if (hedgeDelayNanos < 0) {
+          send(req, urls, srsp, ssr);
         } else {
-          LBSolrClient.Rsp rsp = httpShardHandlerFactory.makeLoadBalancedRequest(req, urls);
-          ssr.nl = rsp.getResponse();
-          srsp.setShardAddress(rsp.getServer());
+          QueryRequest hedgeReq = prepareRequest(sreq, params, shard, tracer, span);
+          sendHedged(req, hedgeReq, urls, hedgeDelayNanos, srsp, ssr);
         }
       } catch (ConnectException cex) {
         srsp.setException(cex); //????
@@ -203,6 +199,99 @@ public class HttpShardHandler extends ShardHandler {
     }
   }
 
+  private QueryRequest prepareRequest(ShardRequest sreq, ModifiableSolrParams params, String shard, Tracer tracer, Span span) {
+    QueryRequest req = makeQueryRequest(sreq, params, shard);
+    if (tracer != null && span != null) {
+      tracer.inject(span.context(), Format.Builtin.HTTP_HEADERS, new SolrRequestCarrier(req));
+    }
+    req.setMethod(SolrRequest.METHOD.POST);
+    SolrRequestInfo requestInfo = SolrRequestInfo.getRequestInfo();
+    if (requestInfo != null) req.setUserPrincipal(requestInfo.getReq().getUserPrincipal());
+
+    // no need to set the response parser as binary is the defaultJab
+    // req.setResponseParser(new BinaryResponseParser());
+    return req;
+  }
+
+  /**
+   * Sends the request to the only url, or load balances it across the given urls. If replica latencies are tracked,
+   * the latency of each replica that is tried is recorded, by this method or by the load balancer.
+   */
+  private void send(QueryRequest req, List<String> urls, ShardResponse srsp, SimpleSolrResponse ssr)
+      throws IOException, SolrServerException {
+    if (urls.size() <= 1) {
+      String url = urls.get(0);
+      srsp.setShardAddress(url);
+      final AdaptiveReplicaSelector selector = httpShardHandlerFactory.getReplicaSelector();
+      final AdaptiveReplicaSelector.ReplicaStats replica = selector == null ? null : selector.begin(url);
+      final long startTime = System.nanoTime();
+      try {
+        ssr.nl = request(url, req);
+      } finally {
+        if (replica != null) {
+          // an interrupted request was cancelled, so its latency is only a lower bound
+          selector.end(replica, System.nanoTime() - startTime, Thread.currentThread().isInterrupted() == false);
+        }
+      }
+    } else {
+      LBSolrClient.Rsp rsp = httpShardHandlerFactory.makeLoadBalancedRequest(req, urls);
+      ssr.nl = rsp.getResponse();
+      srsp.setShardAddress(rsp.getServer());
+    }
+  }
+
+  private ShardResponse attempt(QueryRequest req, List<String> urls) {
+    ShardResponse srsp = new ShardResponse();
+    SimpleSolrResponse ssr = new SimpleSolrResponse();
+    srsp.setSolrResponse(ssr);
+    try {
+      send(req, urls, srsp, ssr);
+    } catch (Exception e) {
+      srsp.setException(e);
+    }
+    return srsp;
+  }
+
+  /**
+   * Sends the request to the given urls and, if there is no response after the given delay, sends the hedge
+   * request to the same urls starting from the second one. The first successful response wins, and the other
+   * request is cancelled.
+   */
+  private void sendHedged(QueryRequest req, QueryRequest hedgeReq, List<String> urls, long delayNanos,
+                          ShardResponse srsp, SimpleSolrResponse ssr) throws Exception {
+    final AdaptiveReplicaSelector selector = httpShardHandlerFactory.getReplicaSelector();
+    final List<String> hedgeUrls = new ArrayList<>(urls.subList(1, urls.size()));
+    hedgeUrls.add(urls.get(0));
+    final CompletionService<ShardResponse> attempts = httpShardHandlerFactory.newHedgeCompletionService();
+    final List<Future<ShardResponse>> futures = new ArrayList<>(2);
+    try {
+      futures.add(attempts.submit(() -> attempt(req, urls)));
+      Future<ShardResponse> done = attempts.poll(delayNanos, TimeUnit.NANOSECONDS);
+      if (done == null) {
+        selector.getStats(urls.get(0)).hedged.increment();
+        futures.add(attempts.submit(() -> attempt(hedgeReq, hedgeUrls)));
+        done = attempts.take();
+        if (done.get().getException() != null) {
+          // the other request may still succeed
+          done = attempts.take();
+        }
+        if (done == futures.get(1) && done.get().getException() == null) {
+          selector.hedgeWins.increment();
+        }
+      }
+      ShardResponse rsp = done.get();
+      srsp.setShardAddress(rsp.getShardAddress());
+      if (rsp.getException() != null) {
+        throw (Exception) rsp.getException();
+      }
+      ssr.nl = ((SimpleSolrResponse) rsp.getSolrResponse()).nl;
+    } finally {
+      for (Future<ShardResponse> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
   protected NamedList<Object> request(String url, SolrRequest req) throws IOException, SolrServerException {
     req.setBasePath(url);
     return httpClient.request(req);
@@ -282,6 +371,9 @@ public class HttpShardHandler extends ShardHandler {
     final SolrQueryRequest req = rb.req;
     final SolrParams params = req.getParams();
     final String shards = params.get(ShardParams.SHARDS);
+    // an explicit preference of replicas wins over their latencies
+    adaptiveReplicaSelection = httpShardHandlerFactory.isAdaptiveReplicaSelection()
+        && params.get(ShardParams.SHARDS_PREFERENCE) == null;
 
     CoreDescriptor coreDescriptor = req.getCore().getCoreDescriptor();
     CloudDescriptor cloudDescriptor = coreDescriptor.getCloudDescriptor();
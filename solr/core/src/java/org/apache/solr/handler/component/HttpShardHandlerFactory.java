@@ -66,6 +66,7 @@ import org.apache.solr.common.util.URLUtil;
 import org.apache.solr.core.PluginInfo;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoBean;
+import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrMetricManager;
 import org.apache.solr.metrics.SolrMetricProducer;
 import org.apache.solr.metrics.SolrMetricsContext;
@@ -123,6 +124,12 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
 
   private RequestReplicaListTransformerGenerator requestReplicaListTransformerGenerator = new RequestReplicaListTransformerGenerator();
 
+  // tracks the latencies of replicas when adaptive replica selection or hedging is enabled, null otherwise
+  private AdaptiveReplicaSelector replicaSelector;
+  private boolean adaptiveReplicaSelection;
+  // runs the attempts of hedged shard requests, null if hedging is disabled
+  private ExecutorService hedgeExecutor;
+
   // URL scheme to be used in distributed search.
   static final String INIT_URL_SCHEME = "urlScheme";
 
@@ -147,6 +154,18 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
   // Configure if the threadpool favours fairness over throughput
   static final String INIT_FAIRNESS_POLICY = "fairnessPolicy";
 
+  // Whether the replicas of a shard are tried by increasing latency and number of outstanding requests
+  static final String INIT_ADAPTIVE_REPLICA_SELECTION = "adaptiveReplicaSelection";
+
+  // The weight of a new latency in the moving average of the latencies of a replica
+  static final String INIT_REPLICA_LATENCY_DECAY = "replicaLatencyDecay";
+
+  // The percentile of the latencies of shard requests after which they are sent to another replica, 0 to disable
+  static final String INIT_HEDGE_PERCENTILE = "hedgeRequestPercentile";
+
+  // The minimum time to wait before a shard request is sent to another replica
+  static final String INIT_HEDGE_MIN_DELAY_MS = "hedgeRequestMinDelayMs";
+
   public static final String INIT_SHARDS_WHITELIST = "shardsWhitelist";
 
   static final String INIT_SOLR_DISABLE_SHARDS_WHITELIST = "solr.disable." + INIT_SHARDS_WHITELIST;
@@ -322,10 +341,33 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
         .idleTimeout(soTimeout)
         .maxConnectionsPerHost(maxConnectionsPerHost).build();
     this.defaultClient.addListenerFactory(this.httpListenerFactory);
-    this.loadbalancer = new LBHttp2SolrClient(defaultClient);
 
     initReplicaListTransformers(getParameter(args, "replicaRouting", null, sb));
 
+    this.adaptiveReplicaSelection = getParameter(args, INIT_ADAPTIVE_REPLICA_SELECTION, false, sb);
+    float replicaLatencyDecay = getParameter(args, INIT_REPLICA_LATENCY_DECAY, 0.3f, sb);
+    float hedgePercentile = getParameter(args, INIT_HEDGE_PERCENTILE, 0f, sb);
+    int hedgeMinDelayMs = getParameter(args, INIT_HEDGE_MIN_DELAY_MS, 10, sb);
+    if (adaptiveReplicaSelection || hedgePercentile > 0) {
+      try {
+        this.replicaSelector = new AdaptiveReplicaSelector(replicaLatencyDecay, hedgePercentile, hedgeMinDelayMs);
+      } catch (IllegalArgumentException e) {
+        throw new SolrException(ErrorCode.SERVER_ERROR, e.getMessage(), e);
+      }
+    }
+    if (hedgePercentile > 0) {
+      // hedges are waited for by tasks of the commExecutor, so they must not need its threads
+      this.hedgeExecutor = new ExecutorUtil.MDCAwareThreadPoolExecutor(
+          0,
+          Integer.MAX_VALUE,
+          this.keepAliveTime, TimeUnit.SECONDS,
+          new SynchronousQueue<>(),
+          new DefaultSolrThreadFactory("httpShardHedgeExecutor")
+      );
+    }
+    this.loadbalancer = replicaSelector == null ? new LBHttp2SolrClient(defaultClient)
+        : new LatencyTrackingLBHttp2SolrClient(defaultClient, replicaSelector);
+
     log.debug("created with {}",sb);
   }
 
@@ -349,6 +391,9 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
   public void close() {
     try {
       ExecutorUtil.shutdownAndAwaitTermination(commExecutor);
+      if (hedgeExecutor != null) {
+        ExecutorUtil.shutdownAndAwaitTermination(hedgeExecutor);
+      }
     } finally {
       try {
         if (loadbalancer != null) {
@@ -409,6 +454,19 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     return urls;
   }
 
+  /**
+   * Returns the tracker of the latencies of replicas, or null if neither adaptive replica selection nor hedging
+   * is enabled.
+   */
+  AdaptiveReplicaSelector getReplicaSelector() {
+    return replicaSelector;
+  }
+
+  /** Returns true if the replicas of a shard should be ordered by {@link AdaptiveReplicaSelector#sort}. */
+  boolean isAdaptiveReplicaSelection() {
+    return adaptiveReplicaSelection;
+  }
+
   protected ReplicaListTransformer getReplicaListTransformer(final SolrQueryRequest req) {
     final SolrParams params = req.getParams();
     final SolrCore core = req.getCore(); // explicit check for null core (temporary?, for tests)
@@ -435,6 +493,14 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     return new ExecutorCompletionService<>(commExecutor);
   }
 
+  /**
+   * Creates a new completion service for the attempts of a hedged shard request, which runs them on a dedicated
+   * executor since the shard request itself waits for them on the executor of {@link #newCompletionService()}.
+   */
+  CompletionService<ShardResponse> newHedgeCompletionService() {
+    return new ExecutorCompletionService<>(hedgeExecutor);
+  }
+
   /**
    * Rebuilds the URL replacing the URL scheme of the passed URL with the
    * configured scheme replacement.If no scheme was configured, the passed URL's
@@ -458,6 +524,39 @@ public class HttpShardHandlerFactory extends ShardHandlerFactory implements org.
     commExecutor = MetricUtils.instrumentedExecutorService(commExecutor, null,
         solrMetricsContext.getMetricRegistry(),
         SolrMetricManager.mkName("httpShardExecutor", expandedScope, "threadPool"));
+    if (replicaSelector != null) {
+      final AdaptiveReplicaSelector selector = replicaSelector;
+      solrMetricsContext.gauge(new MetricsMap((detailed, map) -> selector.toMap(map)), true, "replicas", expandedScope, "shardRequests");
+      solrMetricsContext.gauge(() -> TimeUnit.NANOSECONDS.toMillis(Math.max(0, selector.getHedgeDelayNanos())),
+          true, "hedgeDelayMs", expandedScope, "shardRequests");
+      solrMetricsContext.gauge(() -> selector.hedgeWins.sum(), true, "hedgeWins", expandedScope, "shardRequests");
+    }
+  }
+
+  /**
+   * Records the latency of each replica that a request is sent to, including the ones that fail before the load
+   * balancer tries the next replica.
+   */
+  private static class LatencyTrackingLBHttp2SolrClient extends LBHttp2SolrClient {
+    private final AdaptiveReplicaSelector selector;
+
+    LatencyTrackingLBHttp2SolrClient(Http2SolrClient httpClient, AdaptiveReplicaSelector selector) {
+      super(httpClient);
+      this.selector = selector;
+    }
+
+    @Override
+    protected Exception doRequest(String baseUrl, Req req, Rsp rsp, boolean isNonRetryable, boolean isZombie)
+        throws SolrServerException, IOException {
+      final AdaptiveReplicaSelector.ReplicaStats replica = selector.begin(baseUrl);
+      final long startTime = System.nanoTime();
+      try {
+        return super.doRequest(baseUrl, req, rsp, isNonRetryable, isZombie);
+      } finally {
+        // an interrupted request was cancelled, so its latency is only a lower bound
+        selector.end(replica, System.nanoTime() - startTime, Thread.currentThread().isInterrupted() == false);
+      }
+    }
   }
 
   /**
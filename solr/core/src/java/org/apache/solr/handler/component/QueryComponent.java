@@ -30,6 +30,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.lucene.index.ExitableDirectoryReader;
 import org.apache.lucene.index.IndexReaderContext;
@@ -363,6 +364,8 @@ public class QueryComponent extends SearchComponent
 
     QueryCommand cmd = rb.createQueryCommand();
     cmd.setTimeAllowed(timeAllowed);
+    cmd.setMultiThreaded(params.getBool(CommonParams.MULTI_THREADED, req.getCore().getSolrConfig().multiThreaded));
+    cmd.setPlanFilters(params.getBool(CommonParams.PLAN_FILTERS, req.getCore().getSolrConfig().planFilters));
 
     req.getContext().put(SolrIndexSearcher.STATS_SOURCE, statsCache.get(req));
     
@@ -710,8 +713,9 @@ public class QueryComponent extends SearchComponent
     // one-pass algorithm if only id and score fields are requested, but not if fl=score since that's the same as fl=*,score
     ReturnFields fields = rb.rsp.getReturnFields();
 
-    // distrib.singlePass=true forces a one-pass query regardless of requested fields
-    boolean distribSinglePass = rb.req.getParams().getBool(ShardParams.DISTRIB_SINGLE_PASS, false);
+    // distrib.singlePass=true forces a one-pass query regardless of requested fields, otherwise it depends on its cost
+    Boolean singlePassParam = rb.req.getParams().getBool(ShardParams.DISTRIB_SINGLE_PASS);
+    boolean distribSinglePass = singlePassParam == null ? isSinglePassCheap(rb, fields) : singlePassParam;
 
     if(distribSinglePass || (fields != null && fields.wantsField(keyFieldName)
         && fields.getRequestedFieldNames() != null  
@@ -788,6 +792,43 @@ public class QueryComponent extends SearchComponent
     rb.addRequest(this, sreq);
   }
   
+  /**
+   * Returns true if the shards should return the requested fields along with the top documents, because only a few
+   * documents are fetched from them in total, as per {@link ShardParams#DISTRIB_SINGLE_PASS_MAX_DOCS}. The shards
+   * then return up to rows documents each, of which the ones that don't make it to the merged page are discarded,
+   * but that saves the round trip of the {@link ShardRequest#PURPOSE_GET_FIELDS} requests.
+   */
+  protected boolean isSinglePassCheap(ResponseBuilder rb, ReturnFields fields) {
+    final SolrParams params = rb.req.getParams();
+    final int maxDocs = params.getInt(ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS, 0);
+    if (maxDocs <= 0 || fields == null || rb.shards == null) {
+      return false;
+    }
+    final long rows = rb.shards_rows > -1 ? rb.shards_rows
+        : (long) rb.getSortSpec().getOffset() + rb.getSortSpec().getCount();
+    if (rows < 0 || rows * rb.shards.length > maxDocs) {
+      return false;
+    }
+    if (params.getBool(ShardParams.DISTRIB_SINGLE_PASS_DOCVALUES_ONLY, false)) {
+      // the unique key and the score are returned by the first pass anyway
+      final Set<String> names = fields.getLuceneFieldNames();
+      if (names == null || fields.hasPatternMatching()) {
+        return false;
+      }
+      final IndexSchema schema = rb.req.getSchema();
+      for (String name : names) {
+        if (name.equals(schema.getUniqueKeyField().getName()) || name.equals("score")) {
+          continue;
+        }
+        final SchemaField sf = schema.getFieldOrNull(name);
+        if (sf == null || sf.hasDocValues() == false || sf.useDocValuesAsStored() == false) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
   protected boolean addFL(StringBuilder fl, String field, boolean additionalAdded) {
     if (additionalAdded) fl.append(",");
     fl.append(field);
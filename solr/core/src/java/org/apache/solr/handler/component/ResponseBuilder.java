@@ -68,7 +68,7 @@ public class ResponseBuilder
   private boolean needDocSet = false;
   private int fieldFlags = 0;
   //private boolean debug = false;
-  private boolean debugTimings, debugQuery, debugResults, debugTrack;
+  private boolean debugTimings, debugQuery, debugResults, debugTrack, debugProfile;
 
   private QParser qparser = null;
   private String queryString = null;
@@ -229,7 +229,7 @@ public class ResponseBuilder
   //-------------------------------------------------------------------------
 
   public boolean isDebug() {
-    return debugQuery || debugTimings || debugResults || debugTrack;
+    return debugQuery || debugTimings || debugResults || debugTrack || debugProfile;
   }
 
   /**
@@ -283,6 +283,14 @@ public class ResponseBuilder
     this.debugTrack = debugTrack;
   }
 
+  public boolean isDebugProfile() {
+    return debugProfile;
+  }
+
+  public void setDebugProfile(boolean debugProfile) {
+    this.debugProfile = debugProfile;
+  }
+
   public boolean isDebugTimings() {
     return debugTimings;
   }
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.search.QueryProfiler;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.cloud.ZkController;
 import org.apache.solr.common.SolrDocumentList;
@@ -44,6 +45,7 @@ import org.apache.solr.pkg.PackageListeners;
 import org.apache.solr.pkg.PackageLoader;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.search.SolrIndexSearcher;
 import org.apache.solr.search.SolrQueryTimeoutImpl;
 import org.apache.solr.search.facet.FacetModule;
 import org.apache.solr.security.AuthorizationContext;
@@ -292,6 +294,13 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware,
       SolrPluginUtils.getDebugInterests(req.getParams().getParams(CommonParams.DEBUG), rb);
     }
 
+    // profile the Lucene queries of this request if asked to, or for the slow query log
+    QueryProfiler profiler = null;
+    if (rb.isDebugProfile() || req.getCore().shouldProfileSlowQuery()) {
+      profiler = new QueryProfiler();
+      req.getContext().put(SolrIndexSearcher.QUERY_PROFILER, profiler);
+    }
+
     final RTimerTree timer = rb.isDebug() ? req.getRequestTimer() : null;
 
     final ShardHandler shardHandler1 = getAndPrepShardHandler(req, rb); // creates a ShardHandler object only if it's needed
@@ -319,6 +328,9 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware,
       if (timeAllowed >= 0L) {
         SolrQueryTimeoutImpl.set(timeAllowed);
       }
+      if (profiler != null) {
+        req.getSearcher().beginProfiling();
+      }
       try {
         // The semantics of debugging vs not debugging are different enough that
         // it makes sense to have two control loops
@@ -342,6 +354,9 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware,
           if (rb.isDebugTimings()) {
             rb.addDebugInfo("timing", timer.asNamedList() );
           }
+          if (rb.isDebugProfile()) {
+            rb.addDebugInfo("profile", SolrPluginUtils.queryProfileToNamedList(profiler));
+          }
         }
       } catch (ExitableDirectoryReader.ExitingReaderException ex) {
         log.warn( "Query: " + req.getParamString() + "; " + ex.getMessage());
@@ -357,6 +372,9 @@ public class SearchHandler extends RequestHandlerBase implements SolrCoreAware,
               .put(SolrQueryResponse.RESPONSE_HEADER_PARTIAL_RESULTS_KEY, Boolean.TRUE);
       } finally {
         SolrQueryTimeoutImpl.reset();
+        if (profiler != null) {
+          req.getSearcher().endProfiling();
+        }
       }
     } else {
       // a distributed request
@@ -17,6 +17,7 @@
 
 package org.apache.solr.handler.export;
 
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -24,8 +25,16 @@ import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.lang.invoke.MethodHandles;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedDocValues;
@@ -34,18 +43,22 @@ import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.apache.solr.client.solrj.impl.BinaryResponseParser;
 import org.apache.solr.common.IteratorWriter;
 import org.apache.solr.common.MapWriter;
 import org.apache.solr.common.MapWriter.EntryWriter;
 import org.apache.solr.common.PushWriter;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.FastOutputStream;
 import org.apache.solr.common.util.JavaBinCodec;
 import org.apache.solr.core.SolrCore;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.request.SolrRequestInfo;
 import org.apache.solr.response.BinaryResponseWriter;
+import org.apache.solr.response.ColumnarResponseWriter;
 import org.apache.solr.response.JSONResponseWriter;
 import org.apache.solr.response.QueryResponseWriter;
 import org.apache.solr.response.SolrQueryResponse;
@@ -82,9 +95,16 @@ import static org.apache.solr.common.util.Utils.makeMap;
  * <p>
  * This streaming approach is light on memory (only {@link #DOCUMENT_BATCH_SIZE} documents are ever stored in memory at
  * once), and it allows {@link ExportWriter} to scale well with regard to numDocs.
+ * <p>
+ * With {@link #EXPORT_THREADS_PARAM} greater than 1, the passes over the bitmap are split by segment across tasks
+ * that run on the parallel search executor of the core, each into its own Priority Queue which are merged at the end
+ * of the pass, and the pass for the next batch runs while the current batch is written.
  */
 public class ExportWriter implements SolrCore.RawWriter, Closeable {
+  /** The number of tasks that identify the documents of each batch, 1 by default. */
+  public static final String EXPORT_THREADS_PARAM = "exportThreads";
   private static final int DOCUMENT_BATCH_SIZE = 30000;
+  private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private OutputStreamWriter respWriter;
   final SolrQueryRequest req;
@@ -94,18 +114,25 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
   FixedBitSet[] sets = null;
   PushWriter writer;
   private String wt;
+  private final Meter exportedDocs;
+  private final Timer exportTimes;
 
 
   public ExportWriter(SolrQueryRequest req, SolrQueryResponse res, String wt) {
+    this(req, res, wt, new Meter(), new Timer());
+  }
+
+  public ExportWriter(SolrQueryRequest req, SolrQueryResponse res, String wt, Meter exportedDocs, Timer exportTimes) {
     this.req = req;
     this.res = res;
     this.wt = wt;
-
+    this.exportedDocs = exportedDocs;
+    this.exportTimes = exportTimes;
   }
 
   @Override
   public String getContentType() {
-    if ("javabin".equals(wt)) {
+    if ("javabin".equals(wt) || CommonParams.COLUMNAR.equals(wt)) {
       return BinaryResponseParser.BINARY_CONTENT_TYPE;
     } else return "json";
   }
@@ -134,11 +161,13 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
 
   public void write(OutputStream os) throws IOException {
     QueryResponseWriter rw = req.getCore().getResponseWriters().get(wt);
-    if (rw instanceof BinaryResponseWriter) {
+    if (rw instanceof ColumnarResponseWriter) {
+      writer = ((ColumnarResponseWriter) rw).newCodec(new FastOutputStream(os, new byte[OUTPUT_BUFFER_SIZE], 0), req);
+    } else if (rw instanceof BinaryResponseWriter) {
       //todo add support for other writers after testing
-      writer = new JavaBinCodec(os, null);
+      writer = new JavaBinCodec(new FastOutputStream(os, new byte[OUTPUT_BUFFER_SIZE], 0), null);
     } else {
-      respWriter = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+      respWriter = new OutputStreamWriter(new BufferedOutputStream(os, OUTPUT_BUFFER_SIZE), StandardCharsets.UTF_8);
       writer = JSONResponseWriter.getPushWriter(respWriter, req, res);
     }
     Exception exception = res.getException();
@@ -216,13 +245,18 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       return;
     }
 
-    writer.writeMap(m -> {
-      m.put("responseHeader", singletonMap("status", 0));
-      m.put("response", (MapWriter) mw -> {
-        mw.put("numFound", totalHits);
-        mw.put("docs", (IteratorWriter) iw -> writeDocs(req, iw, sort));
+    final Timer.Context timer = exportTimes.time();
+    try {
+      writer.writeMap(m -> {
+        m.put("responseHeader", singletonMap("status", 0));
+        m.put("response", (MapWriter) mw -> {
+          mw.put("numFound", totalHits);
+          mw.put("docs", (IteratorWriter) iw -> writeDocs(req, iw, sort));
+        });
       });
-    });
+    } finally {
+      timer.stop();
+    }
 
   }
 
@@ -230,17 +264,22 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
     queue.reset();
     SortDoc top = queue.top();
     for (int i = 0; i < leaves.size(); i++) {
-      sortDoc.setNextReader(leaves.get(i));
-      DocIdSetIterator it = new BitSetIterator(sets[i], 0); // cost is not useful here
-      int docId;
-      while ((docId = it.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
-        sortDoc.setValues(docId);
-        if (top.lessThan(sortDoc)) {
-          top.setValues(sortDoc);
-          top = queue.updateTop();
-        }
+      top = identifyLowestSortingUnexportedDocs(leaves.get(i), sortDoc, queue, top);
+    }
+  }
+
+  private SortDoc identifyLowestSortingUnexportedDocs(LeafReaderContext leaf, SortDoc sortDoc, SortQueue queue, SortDoc top) throws IOException {
+    sortDoc.setNextReader(leaf);
+    DocIdSetIterator it = new BitSetIterator(sets[leaf.ord], 0); // cost is not useful here
+    int docId;
+    while ((docId = it.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+      sortDoc.setValues(docId);
+      if (top.lessThan(sortDoc)) {
+        top.setValues(sortDoc);
+        top = queue.updateTop();
       }
     }
+    return top;
   }
 
   protected int transferBatchToArrayForOutput(SortQueue queue, SortDoc[] destinationArr) {
@@ -249,12 +288,34 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
       SortDoc s = queue.pop();
       if (s.docId > -1) {
         destinationArr[++outDocsIndex] = s;
+        // marked as sent before the batch is written, so that the next batch can be identified meanwhile
+        sets[s.ord].clear(s.docId);
       }
     }
 
     return outDocsIndex;
   }
 
+  /**
+   * Moves the documents of the queues that segments were scanned into to the queue of the batch, and resets
+   * them for the next pass.
+   */
+  private static void mergeQueues(SortQueue[] queues, SortQueue queue) {
+    queue.reset();
+    SortDoc top = queue.top();
+    for (SortQueue from : queues) {
+      Object[] heap = from.getHeapArray();
+      for (int i = 1; i < heap.length; i++) {
+        SortDoc s = (SortDoc) heap[i];
+        if (s.docId > -1 && top.lessThan(s)) {
+          top.setValues(s);
+          top = queue.updateTop();
+        }
+        s.reset();
+      }
+    }
+  }
+
   protected void addDocsToItemWriter(List<LeafReaderContext> leaves, IteratorWriter.ItemWriter writer, SortDoc[] docsToExport, int outDocsIndex) throws IOException {
     try {
       for (int i = outDocsIndex; i >= 0; --i) {
@@ -291,12 +352,129 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
     SortQueue queue = new SortQueue(queueSize, sortDoc);
     SortDoc[] outDocs = new SortDoc[queueSize];
 
+    final int threads = Math.min(req.getParams().getInt(EXPORT_THREADS_PARAM, 1), leaves.size());
+    final Executor executor = req.getCore().getParallelSearchExecutor();
+    if (threads > 1 && executor != null) {
+      writeDocsInParallel(leaves, writer, sort, queue, outDocs, threads, executor);
+      return;
+    }
+
     while (count < totalHits) {
       identifyLowestSortingUnexportedDocs(leaves, sortDoc, queue);
       int outDocsIndex = transferBatchToArrayForOutput(queue, outDocs);
 
       count += (outDocsIndex + 1);
       addDocsToItemWriter(leaves, writer, outDocs, outDocsIndex);
+      exportedDocs.mark(outDocsIndex + 1);
+    }
+  }
+
+  private void writeDocsInParallel(List<LeafReaderContext> leaves, IteratorWriter.ItemWriter writer, Sort sort,
+                                   SortQueue queue, SortDoc[] outDocs, int threads, Executor executor) throws IOException {
+    final SortDoc[] sortDocs = new SortDoc[threads];
+    final SortQueue[] queues = new SortQueue[threads];
+    for (int i = 0; i < threads; i++) {
+      // each task reads sort values with its own doc values
+      sortDocs[i] = getSortDoc(req.getSearcher(), sort.getSort());
+      queues[i] = new SortQueue(queue.maxSize, sortDocs[i]);
+    }
+
+    int count = 0;
+    ParallelPass pass = new ParallelPass(leaves, sortDocs, queues, executor);
+    try {
+      while (count < totalHits) {
+        pass.await();
+        mergeQueues(queues, queue);
+        int outDocsIndex = transferBatchToArrayForOutput(queue, outDocs);
+
+        count += (outDocsIndex + 1);
+        pass = count < totalHits ? new ParallelPass(leaves, sortDocs, queues, executor) : null;
+        addDocsToItemWriter(leaves, writer, outDocs, outDocsIndex);
+        exportedDocs.mark(outDocsIndex + 1);
+      }
+    } finally {
+      if (pass != null) {
+        // don't leave tasks reading the index once the request is done
+        pass.abort();
+      }
+    }
+  }
+
+  /**
+   * A pass over the bitmap by tasks that take the segments one at a time and identify the lowest sorting docs
+   * of each segment with their own {@link SortDoc} and {@link SortQueue}.
+   */
+  private class ParallelPass {
+    private final List<LeafReaderContext> leaves;
+    private final AtomicInteger nextLeaf = new AtomicInteger();
+    private final List<FutureTask<Void>> tasks;
+
+    ParallelPass(List<LeafReaderContext> leaves, SortDoc[] sortDocs, SortQueue[] queues, Executor executor) {
+      this.leaves = leaves;
+      this.tasks = new ArrayList<>(queues.length);
+      for (int i = 0; i < queues.length; i++) {
+        final SortDoc sortDoc = sortDocs[i];
+        final SortQueue queue = queues[i];
+        FutureTask<Void> task = new FutureTask<>(() -> {
+          queue.reset();
+          SortDoc top = queue.top();
+          int leaf;
+          while ((leaf = nextLeaf.getAndIncrement()) < leaves.size()) {
+            top = identifyLowestSortingUnexportedDocs(leaves.get(leaf), sortDoc, queue, top);
+          }
+          return null;
+        });
+        tasks.add(task);
+        try {
+          executor.execute(task);
+        } catch (RejectedExecutionException e) {
+          // the executor is shut down with the core
+          task.run();
+        }
+      }
+    }
+
+    void await() throws IOException {
+      for (FutureTask<Void> task : tasks) {
+        try {
+          task.get();
+        } catch (InterruptedException e) {
+          abort();
+          throw new ThreadInterruptedException(e);
+        } catch (ExecutionException e) {
+          abort();
+          Throwable cause = e.getCause();
+          if (cause instanceof IOException) {
+            throw (IOException) cause;
+          } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          } else if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new IOException(cause);
+        }
+      }
+    }
+
+    /** Makes tasks stop after their current segment and waits for them. */
+    void abort() {
+      nextLeaf.set(leaves.size());
+      boolean interrupted = false;
+      for (FutureTask<Void> task : tasks) {
+        while (true) {
+          try {
+            task.get();
+            break;
+          } catch (InterruptedException e) {
+            interrupted = true;
+          } catch (ExecutionException e) {
+            break;
+          }
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
     }
   }
 
@@ -305,8 +483,6 @@ public class ExportWriter implements SolrCore.RawWriter, Closeable {
                           EntryWriter ew) throws IOException {
 
     int ord = sortDoc.ord;
-    FixedBitSet set = sets[ord];
-    set.clear(sortDoc.docId);
     LeafReaderContext context = leaves.get(ord);
     int fieldIndex = 0;
     for (FieldWriter fieldWriter : fieldWriters) {
@@ -18,13 +18,16 @@ package org.apache.solr.index;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.lucene.index.*;
 import org.apache.lucene.index.MultiDocValues.MultiSortedDocValues;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.Version;
+import org.apache.lucene.util.packed.PackedInts;
 
 /**
  * This class forces a composite reader (eg a {@link
@@ -234,6 +237,98 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
     return new MultiDocValues.MultiSortedSetDocValues(values, starts, map, cost);
   }
 
+  /**
+   * Builds the ordinal maps that the given reader has cached, which typically wraps a previous view of the same
+   * index, reusing them for the segments that both readers share. Only the terms of the new segments need to be
+   * merged, so this is much cheaper than building them again from scratch after a refresh.
+   */
+  public void warmOrdinalMaps(SlowCompositeReaderWrapper previous) throws IOException {
+    ensureOpen();
+    final List<LeafReaderContext> leaves = in.leaves();
+    final IndexReader.CacheHelper cacheHelper = getReaderCacheHelper();
+    if (leaves.size() <= 1 || cacheHelper == null) {
+      return; // no ordinal maps
+    }
+    final Map<String,OrdinalMap> previousOrdMaps;
+    synchronized (previous.cachedOrdMaps) {
+      previousOrdMaps = new HashMap<>(previous.cachedOrdMaps);
+    }
+    if (previousOrdMaps.isEmpty()) {
+      return;
+    }
+
+    final Map<IndexReader.CacheKey,Integer> previousOrds = new HashMap<>();
+    for (LeafReaderContext context : previous.in.leaves()) {
+      final IndexReader.CacheHelper coreCacheHelper = context.reader().getCoreCacheHelper();
+      if (coreCacheHelper != null) {
+        previousOrds.put(coreCacheHelper.getKey(), context.ord);
+      }
+    }
+    final int[] previousSegments = new int[leaves.size()];
+    for (int i = 0; i < previousSegments.length; i++) {
+      final IndexReader.CacheHelper coreCacheHelper = leaves.get(i).reader().getCoreCacheHelper();
+      final Integer ord = coreCacheHelper == null ? null : previousOrds.get(coreCacheHelper.getKey());
+      previousSegments[i] = ord == null ? -1 : ord;
+    }
+
+    for (Map.Entry<String,OrdinalMap> entry : previousOrdMaps.entrySet()) {
+      final String field = entry.getKey();
+      synchronized (cachedOrdMaps) {
+        if (cachedOrdMaps.containsKey(field)) {
+          continue;
+        }
+      }
+      final FieldInfo fieldInfo = fieldInfos.fieldInfo(field);
+      if (fieldInfo == null) {
+        continue;
+      }
+      final DocValuesType type = fieldInfo.getDocValuesType();
+      if (hasDocValuesType(leaves, field, type) == false) {
+        continue;
+      }
+      OrdinalMap map = null;
+      if (type == DocValuesType.SORTED) {
+        final SortedDocValues[] values = new SortedDocValues[leaves.size()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = DocValues.getSorted(leaves.get(i).reader(), field);
+        }
+        map = OrdinalMap.build(cacheHelper.getKey(), values, entry.getValue(), previousSegments, PackedInts.DEFAULT);
+      } else if (type == DocValuesType.SORTED_SET) {
+        final SortedSetDocValues[] values = new SortedSetDocValues[leaves.size()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = DocValues.getSortedSet(leaves.get(i).reader(), field);
+        }
+        map = OrdinalMap.build(cacheHelper.getKey(), values, entry.getValue(), previousSegments, PackedInts.DEFAULT);
+      }
+      if (map != null) {
+        synchronized (cachedOrdMaps) {
+          cachedOrdMaps.putIfAbsent(field, map);
+        }
+      }
+    }
+  }
+
+  private static boolean hasDocValuesType(List<LeafReaderContext> leaves, String field, DocValuesType type) {
+    for (LeafReaderContext context : leaves) {
+      final FieldInfo fieldInfo = context.reader().getFieldInfos().fieldInfo(field);
+      if (fieldInfo != null && fieldInfo.getDocValuesType() != type) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the memory used by the cached ordinal maps, in bytes. */
+  public long ordinalMapsRamBytesUsed() {
+    long ramBytesUsed = 0;
+    synchronized (cachedOrdMaps) {
+      for (OrdinalMap map : cachedOrdMaps.values()) {
+        ramBytesUsed += map.ramBytesUsed();
+      }
+    }
+    return ramBytesUsed;
+  }
+
   @Override
   public NumericDocValues getNormValues(String field) throws IOException {
     ensureOpen();
@@ -276,6 +371,18 @@ public final class SlowCompositeReaderWrapper extends LeafReader {
     return null; // because not supported.  Throw UOE?
   }
 
+  @Override
+  public VectorValues getVectorValues(String field) {
+    ensureOpen();
+    return null; // because not supported.  Throw UOE?
+  }
+
+  @Override
+  public TopDocs searchNearestVectors(String field, float[] target, int k, Bits acceptDocs) {
+    ensureOpen();
+    return null; // because not supported.  Throw UOE?
+  }
+
   @Override
   public FieldInfos getFieldInfos() {
     return fieldInfos;
@@ -210,7 +210,13 @@ public class BinaryResponseWriter implements BinaryQueryResponseWriter {
     }
   }
 
-  static class MaskCharSeqSolrDocument extends SolrDocument {
+  /**
+   * A document whose string values may be {@link org.apache.solr.common.util.Utf8CharSequence}s that are
+   * written as is, but which are converted to {@link String}s when they are read, for instance by transformers.
+   *
+   * @lucene.internal
+   */
+  public static class MaskCharSeqSolrDocument extends SolrDocument {
     /**
      * Get the value or collection of values for a given field.
      */
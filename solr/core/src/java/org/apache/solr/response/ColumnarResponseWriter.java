@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.index.IndexableField;
+import org.apache.solr.common.IteratorWriter;
+import org.apache.solr.common.MapWriter;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.ColumnarBatch;
+import org.apache.solr.common.util.FastOutputStream;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.Utf8CharSequence;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.search.DocList;
+import org.apache.solr.search.ReturnFields;
+
+/**
+ * Writes responses in the javabin format, except that lists of documents and streams of tuples, such as those of
+ * the <code>/export</code> and <code>/stream</code> handlers, are written as {@link ColumnarBatch}es of rows rather
+ * than one map per row.  Strings are dictionary encoded and numbers are packed in arrays, which makes large tabular
+ * results much cheaper to write and to read.  Lists of documents are written as a map with
+ * <code>numFound</code>, <code>start</code>, <code>maxScore</code> and <code>docs</code> entries, like in JSON.
+ * <p>
+ * The number of rows in a batch can be configured with the <code>batchSize</code> init arg, which defaults to
+ * {@value #DEFAULT_BATCH_SIZE}.
+ *
+ * @see org.apache.solr.client.solrj.io.stream.ColumnarTupleStreamParser
+ * @lucene.experimental
+ */
+public class ColumnarResponseWriter extends BinaryResponseWriter {
+
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  @Override
+  public void init(NamedList args) {
+    if (args != null) {
+      Object size = args.get("batchSize");
+      if (size != null) {
+        batchSize = Integer.parseInt(size.toString());
+        if (batchSize <= 0) {
+          throw new IllegalArgumentException("batchSize must be positive, got " + batchSize);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void write(OutputStream out, SolrQueryRequest req, SolrQueryResponse response) throws IOException {
+    ColumnarResolver resolver = new ColumnarResolver(req, response.getReturnFields());
+    if (req.getParams().getBool(CommonParams.OMIT_HEADER, false)) response.removeResponseHeader();
+    try (JavaBinCodec jbc = new ColumnarCodec(resolver, req.getSchema(), batchSize)) {
+      jbc.setWritableDocFields(resolver).marshal(response.getValues(), out);
+    }
+  }
+
+  /** Returns a codec that writes lists of rows as batches to the given stream, for handlers that stream tuples. */
+  public JavaBinCodec newCodec(FastOutputStream os, SolrQueryRequest req) throws IOException {
+    return new ColumnarCodec(os, req.getSchema(), batchSize);
+  }
+
+  private static class ColumnarResolver extends Resolver {
+
+    ColumnarResolver(SolrQueryRequest req, ReturnFields returnFields) {
+      super(req, returnFields);
+    }
+
+    @Override
+    public Object resolve(Object o, JavaBinCodec codec) throws IOException {
+      if (o instanceof DocList) {
+        o = new BasicResultContext((DocList) o, returnFields, null, null, solrQueryRequest);
+      }
+      if (o instanceof ResultContext) {
+        ReturnFields orig = returnFields;
+        ResultContext res = (ResultContext) o;
+        if (res.getReturnFields() != null) {
+          returnFields = res.getReturnFields();
+        }
+        try {
+          DocList docList = res.getDocList();
+          Float maxScore = res.wantsScores() ? docList.maxScore() : null;
+          codec.writeMap(docsWriter(docList.matches(), docList.offset(), maxScore, iw -> {
+            Iterator<SolrDocument> docs = res.getProcessedDocuments();
+            while (docs.hasNext()) {
+              iw.add(docs.next());
+            }
+          }));
+        } finally {
+          returnFields = orig;
+        }
+        return null;
+      }
+      return super.resolve(o, codec);
+    }
+  }
+
+  private static MapWriter docsWriter(long numFound, long start, Float maxScore, IteratorWriter docs) {
+    return ew -> {
+      ew.put("numFound", numFound);
+      ew.put("start", start);
+      ew.putIfNotNull("maxScore", maxScore);
+      ew.put("docs", docs);
+    };
+  }
+
+  private static class ColumnarCodec extends JavaBinCodec {
+    private final IndexSchema schema;
+    private final int batchSize;
+
+    ColumnarCodec(ObjectResolver resolver, IndexSchema schema, int batchSize) {
+      super(resolver);
+      this.schema = schema;
+      this.batchSize = batchSize;
+    }
+
+    ColumnarCodec(FastOutputStream os, IndexSchema schema, int batchSize) throws IOException {
+      super(os, null);
+      this.schema = schema;
+      this.batchSize = batchSize;
+    }
+
+    @Override
+    public void writeSolrDocumentList(SolrDocumentList docs) throws IOException {
+      writeMap(docsWriter(docs.getNumFound(), docs.getStart(), docs.getMaxScore(), iw -> {
+        for (SolrDocument doc : docs) {
+          iw.add(doc);
+        }
+      }));
+    }
+
+    @Override
+    public void writeIterator(IteratorWriter val) throws IOException {
+      writeTag(ITERATOR);
+      final ColumnarBatch.Builder batch = new ColumnarBatch.Builder();
+      val.writeIter(new IteratorWriter.ItemWriter() {
+        @Override
+        public IteratorWriter.ItemWriter add(Object o) throws IOException {
+          Map<String, Object> row = toRow(o);
+          if (row == null) {
+            // not a row, keep it as is
+            flush(batch);
+            writeVal(o);
+          } else {
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+              flush(batch);
+            }
+          }
+          return this;
+        }
+      });
+      flush(batch);
+      writeTag(END);
+    }
+
+    private void flush(ColumnarBatch.Builder batch) throws IOException {
+      if (batch.size() > 0) {
+        writeMap(batch.build());
+      }
+    }
+
+    private Map<String, Object> toRow(Object o) throws IOException {
+      final Map<String, Object> row = new LinkedHashMap<>();
+      if (o instanceof MapWriter) {
+        // documents are filtered like JavaBinCodec.writeSolrDocument does
+        final boolean isDoc = o instanceof SolrDocument;
+        ((MapWriter) o).writeMap(new MapWriter.EntryWriter() {
+          @Override
+          public MapWriter.EntryWriter put(CharSequence k, Object v) {
+            String name = k.toString();
+            if (isDoc == false || toWrite(name)) {
+              row.put(name, toValue(name, v));
+            }
+            return this;
+          }
+        });
+        if (isDoc && ((SolrDocument) o).hasChildDocuments()) {
+          row.put("_childDocuments_", ((SolrDocument) o).getChildDocuments());
+        }
+      } else if (o instanceof Map) {
+        for (Map.Entry<?, ?> e : ((Map<?, ?>) o).entrySet()) {
+          String name = String.valueOf(e.getKey());
+          row.put(name, toValue(name, e.getValue()));
+        }
+      } else {
+        return null;
+      }
+      return row;
+    }
+
+    private Object toValue(String name, Object val) {
+      if (val instanceof IndexableField) {
+        return DocsStreamer.getValue(schema.getFieldOrNull(name), (IndexableField) val);
+      }
+      if (val instanceof Utf8CharSequence) {
+        return val.toString();
+      }
+      if (val instanceof IteratorWriter) {
+        // values of multi-valued fields may only be readable while their row is being written
+        val = ((IteratorWriter) val).toList(new ArrayList<>());
+      }
+      if (val instanceof Collection) {
+        Collection<?> vals = (Collection<?>) val;
+        List<Object> list = new ArrayList<>(vals.size());
+        for (Object v : vals) {
+          list.add(toValue(name, v));
+        }
+        return list;
+      }
+      return val;
+    }
+  }
+}
@@ -18,17 +18,27 @@ package org.apache.solr.search;
 
 import java.lang.invoke.MethodHandles;
 import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
 
@@ -37,8 +47,14 @@ import com.github.benmanes.caffeine.cache.RemovalListener;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.metrics.MetricsMap;
 import org.apache.solr.metrics.SolrMetricsContext;
+import org.apache.solr.request.LocalSolrQueryRequest;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.util.RefCounted;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,6 +76,19 @@ import com.google.common.annotations.VisibleForTesting;
  * able to outperform classic policies like LRU and LFU, as well as modern policies like ARC and
  * LIRS. This policy performed particularly well in search workloads.
  * <p>
+ * By default autowarming regenerates the hottest entries of the previous cache, one at a time, before the new
+ * searcher is registered.  It can be tuned with the following parameters:
+ * <ul>
+ *   <li><code>autowarmOrder</code>: <code>hottest</code> (default) or <code>value</code>, to track the hits and
+ *   the compute time of each entry and warm the entries that would cost the most to recompute first, based on
+ *   their hits and the hits they had in previous caches, with a decay.  This also reports how many of the
+ *   warmed entries were then used.</li>
+ *   <li><code>autowarmTimeLimitMs</code>: time after which warming stops, leaving the remaining entries cold.</li>
+ *   <li><code>autowarmThreads</code>: number of threads that regenerate entries concurrently.</li>
+ *   <li><code>autowarmBackground</code>: if true, entries are regenerated in the background, so that the new
+ *   searcher is registered without waiting for this cache to be warm.</li>
+ * </ul>
+ * <p>
  * [1] https://github.com/ben-manes/caffeine
  * [2] http://arxiv.org/pdf/1512.00727.pdf
  * [3] http://highscalability.com/blog/2016/1/25/design-of-a-modern-cache.html
@@ -73,13 +102,13 @@ public class CaffeineCache<K, V> extends SolrCacheBase implements SolrCache<K, V
 
   private Executor executor;
 
-  private CacheStats priorStats;
-  private long priorInserts;
+  private volatile CacheStats priorStats;
+  private volatile long priorInserts;
 
   private String description = "Caffeine Cache";
   private LongAdder inserts;
   private Cache<K,V> cache;
-  private long warmupTime;
+  private volatile long warmupTime;
   private int maxSize;
   private long maxRamBytes;
   private int initialSize;
@@ -93,6 +122,33 @@ public class CaffeineCache<K, V> extends SolrCacheBase implements SolrCache<K, V
   private long initialRamBytes = 0;
   private final LongAdder ramBytes = new LongAdder();
 
+  public static final String AUTOWARM_ORDER_PARAM = "autowarmOrder";
+  public static final String AUTOWARM_TIME_LIMIT_PARAM = "autowarmTimeLimitMs";
+  public static final String AUTOWARM_THREADS_PARAM = "autowarmThreads";
+  public static final String AUTOWARM_BACKGROUND_PARAM = "autowarmBackground";
+
+  private long autowarmTimeLimitMs;
+  private int autowarmThreads;
+  private boolean autowarmBackground;
+  // statistics of each entry, only tracked with autowarmOrder=value
+  private ConcurrentHashMap<K, EntryStats> entryStats;
+  private final LongAdder warmedEntries = new LongAdder();
+  // warmed entries that got hit at least once
+  private final LongAdder warmedEntriesHit = new LongAdder();
+  private volatile boolean warmingInBackground;
+  private volatile boolean closed;
+  // the cache that the current thread is warming, whose inserts are not counted
+  private static final ThreadLocal<CaffeineCache<?, ?>> WARMING = new ThreadLocal<>();
+
+  private static final class EntryStats {
+    final AtomicLong hits = new AtomicLong();
+    // decayed hits of the entry in previous caches
+    volatile long priorHits;
+    // time it took to compute or regenerate the value, 0 if unknown
+    volatile long costNanos;
+    volatile boolean warmed;
+  }
+
   public CaffeineCache() {
     this.priorStats = CacheStats.empty();
   }
@@ -122,6 +178,22 @@ public class CaffeineCache<K, V> extends SolrCacheBase implements SolrCache<K, V
       executor = Runnable::run;
     }
 
+    str = (String) args.get(AUTOWARM_ORDER_PARAM);
+    if (str == null || "hottest".equals(str)) {
+      entryStats = null;
+    } else if ("value".equals(str)) {
+      entryStats = new ConcurrentHashMap<>();
+    } else {
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+          "Invalid " + AUTOWARM_ORDER_PARAM + ": " + str + ", must be hottest or value");
+    }
+    str = (String) args.get(AUTOWARM_TIME_LIMIT_PARAM);
+    autowarmTimeLimitMs = str == null ? -1 : Long.parseLong(str);
+    str = (String) args.get(AUTOWARM_THREADS_PARAM);
+    autowarmThreads = str == null ? 1 : Math.max(1, Integer.parseInt(str));
+    str = (String) args.get(AUTOWARM_BACKGROUND_PARAM);
+    autowarmBackground = str != null && Boolean.parseBoolean(str);
+
     description = generateDescription(maxSize, initialSize);
 
     cache = buildCache(null);
@@ -159,6 +231,9 @@ public class CaffeineCache<K, V> extends SolrCacheBase implements SolrCache<K, V
 
   @Override
   public void onRemoval(K key, V value, RemovalCause cause) {
+    if (entryStats != null && cause != RemovalCause.REPLACED) {
+      entryStats.remove(key);
+    }
     ramBytes.add(
         - (RamUsageEstimator.sizeOfObject(key, RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED) +
         RamUsageEstimator.sizeOfObject(value, RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED) +
@@ -173,27 +248,59 @@ public class CaffeineCache<K, V> extends SolrCacheBase implements SolrCache<K, V
 
   @Override
   public V get(K key) {
-    return cache.getIfPresent(key);
+    V value = cache.getIfPresent(key);
+    if (value != null && entryStats != null) {
+      recordHit(key);
+    }
+    return value;
+  }
+
+  private void recordHit(K key) {
+    EntryStats stats = entryStats.get(key);
+    if (stats != null && stats.hits.getAndIncrement() == 0 && stats.warmed) {
+      warmedEntriesHit.increment();
+    }
   }
 
   @Override
   public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
-    return cache.get(key, k -> {
-      inserts.increment();
+    final boolean[] computed = new boolean[1];
+    V result = cache.get(key, k -> {
+      computed[0] = true;
+      recordInsert();
+      long start = System.nanoTime();
       V value = mappingFunction.apply(k);
       if (value == null) {
         return null;
       }
+      if (entryStats != null) {
+        entryStats.computeIfAbsent(k, x -> new EntryStats()).costNanos = System.nanoTime() - start;
+      }
       ramBytes.add(RamUsageEstimator.sizeOfObject(key, RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED) +
           RamUsageEstimator.sizeOfObject(value, RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED));
       ramBytes.add(RamUsageEstimator.LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY);
       return value;
     });
+    if (result != null && computed[0] == false && entryStats != null) {
+      recordHit(key);
+    }
+    return result;
+  }
+
+  private void recordInsert() {
+    // live queries may already use the cache while it is warmed in the background, so only the inserts of the
+    // warming threads are left out
+    if (WARMING.get() != this) {
+      inserts.increment();
+    }
   }
 
   @Override
   public V put(K key, V val) {
-    inserts.increment();
+    if (entryStats != null) {
+      entryStats.computeIfAbsent(key, k -> new EntryStats());
+    }
+    recordInsert();
     V old = cache.asMap().put(key, val);
     ramBytes.add(RamUsageEstimator.sizeOfObject(key, RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED) +
         RamUsageEstimator.sizeOfObject(val, RamUsageEstimator.QUERY_DEFAULT_RAM_BYTES_USED));
@@ -219,6 +326,9 @@ public class CaffeineCache<K, V> extends SolrCacheBase implements SolrCache<K, V
   @Override
   public void clear() {
     cache.invalidateAll();
+    if (entryStats != null) {
+      entryStats.clear();
+    }
     ramBytes.reset();
   }
 
@@ -229,6 +339,8 @@ public class CaffeineCache<K, V> extends SolrCacheBase implements SolrCache<K, V
 
   @Override
   public void close() throws Exception {
+    // stops background warming
+    closed = true;
     SolrCache.super.close();
     cache.invalidateAll();
     cache.cleanUp();
@@ -295,39 +407,239 @@ public class CaffeineCache<K, V> extends SolrCacheBase implements SolrCache<K, V
     }
     
     long warmingStartTime = System.nanoTime();
-    Map<K, V> hottest = Collections.emptyMap();
+    List<Entry<K, V>> toWarm = Collections.emptyList();
     CaffeineCache<K,V> other = (CaffeineCache<K,V>)old;
 
     // warm entries
     if (isAutowarmingOn()) {
-      Eviction<K, V> policy = other.cache.policy().eviction().get();
       int size = autowarm.getWarmCount(other.cache.asMap().size());
-      hottest = policy.hottest(size);
+      if (entryStats != null && other.entryStats != null) {
+        toWarm = other.mostValuable(size);
+      } else {
+        Eviction<K, V> policy = other.cache.policy().eviction().get();
+        toWarm = new ArrayList<>(policy.hottest(size).entrySet());
+      }
+    }
+
+    if (toWarm.isEmpty()) {
+      finishWarming(other, warmingStartTime);
+      return;
+    }
+
+    final List<Entry<K, V>> entries = toWarm;
+    final int numThreads = Math.min(autowarmThreads, entries.size());
+    final long deadline = autowarmTimeLimitMs < 0 ? Long.MAX_VALUE : warmingStartTime + TimeUnit.MILLISECONDS.toNanos(autowarmTimeLimitMs);
+    final AtomicInteger next = new AtomicInteger();
+    final AtomicBoolean stop = new AtomicBoolean();
+    if (autowarmBackground == false && numThreads == 1) {
+      warmEntries(searcher, other, entries, next, stop, deadline);
+      finishWarming(other, warmingStartTime);
+      return;
     }
 
-    for (Entry<K, V> entry : hottest.entrySet()) {
+    // regenerators may need a request on the searcher being warmed, which must outlive this call when warming in
+    // the background, so the threads get their own request, which holds a reference to the searcher
+    final SolrQueryRequest req = searcher == null ? null : newWarmingRequest(searcher);
+    if (searcher != null && req == null) {
+      // the searcher can't be referenced, warm it in the foreground
+      warmEntries(searcher, other, entries, next, stop, deadline);
+      finishWarming(other, warmingStartTime);
+      return;
+    }
+
+    // without a searcher, as in tests, there is no core executor
+    final Executor pool = searcher == null ? ForkJoinPool.commonPool() : searcher.getCore().getAutowarmExecutor();
+    final AtomicInteger running = new AtomicInteger(numThreads);
+    final CountDownLatch done = new CountDownLatch(1);
+    final Runnable onDone = () -> {
+      if (req != null) {
+        req.close();
+      }
+      finishWarming(other, warmingStartTime);
+      warmingInBackground = false;
+      done.countDown();
+    };
+    warmingInBackground = autowarmBackground;
+    for (int i = 0; i < numThreads; i++) {
       try {
-        boolean continueRegen = regenerator.regenerateItem(
-            searcher, this, old, entry.getKey(), entry.getValue());
-        if (!continueRegen) {
-          break;
+        pool.execute(() -> {
+          if (req != null) {
+            SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, new SolrQueryResponse()));
+          }
+          try {
+            warmEntries(searcher, other, entries, next, stop, deadline);
+          } finally {
+            if (req != null) {
+              SolrRequestInfo.clearRequestInfo();
+            }
+            if (running.decrementAndGet() == 0) {
+              onDone.run();
+            }
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        // the core is closing, the threads that didn't start are done
+        stop.set(true);
+        if (running.addAndGet(i - numThreads) == 0) {
+          onDone.run();
         }
+        break;
       }
-      catch (Exception e) {
-        SolrException.log(log, "Error during auto-warming of key:" + entry.getKey(), e);
+    }
+    if (autowarmBackground == false) {
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        stop.set(true);
+        Thread.currentThread().interrupt();
       }
     }
+  }
 
-    inserts.reset();
-    priorStats = other.cache.stats().plus(other.priorStats);
-    priorInserts = other.inserts.sum() + other.priorInserts;
+  /** Takes over the stats of the old cache, once warming is done. */
+  private void finishWarming(CaffeineCache<K,V> old, long warmingStartTime) {
+    priorStats = old.cache.stats().plus(old.priorStats);
+    priorInserts = old.inserts.sum() + old.priorInserts;
     warmupTime = TimeUnit.MILLISECONDS.convert(System.nanoTime() - warmingStartTime, TimeUnit.NANOSECONDS);
   }
 
+  /**
+   * Returns a request on the given searcher to regenerate entries with, which holds a reference to the searcher
+   * until it is closed, or null if the searcher isn't open anymore.
+   */
+  private static SolrQueryRequest newWarmingRequest(SolrIndexSearcher searcher) {
+    final RefCounted<SolrIndexSearcher> holder = searcher.getCore().getSearcherHolder(searcher);
+    if (holder == null) {
+      return null;
+    }
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.add("warming", "true");
+    return new LocalSolrQueryRequest(searcher.getCore(), params) {
+      @Override
+      public SolrIndexSearcher getSearcher() {
+        return searcher;
+      }
+
+      @Override
+      public void close() {
+        holder.decref();
+      }
+    };
+  }
+
+  /** Regenerates the entries until all were regenerated, the regenerator asks to stop or time is out. */
+  private void warmEntries(SolrIndexSearcher searcher, CaffeineCache<K,V> old, List<Entry<K, V>> entries,
+                           AtomicInteger next, AtomicBoolean stop, long deadline) {
+    WARMING.set(this);
+    try {
+      for (int i = next.getAndIncrement(); i < entries.size(); i = next.getAndIncrement()) {
+        if (stop.get() || closed || System.nanoTime() - deadline > 0
+            || (searcher != null && searcher.getCore().isClosed())) {
+          break;
+        }
+        Entry<K, V> entry = entries.get(i);
+        try {
+          long start = System.nanoTime();
+          boolean continueRegen = regenerator.regenerateItem(
+              searcher, this, old, entry.getKey(), entry.getValue());
+          onWarmed(old, entry.getKey(), System.nanoTime() - start);
+          if (!continueRegen) {
+            stop.set(true);
+          }
+        }
+        catch (Exception e) {
+          if (closed) {
+            // the searcher was closed while warming in the background
+            break;
+          }
+          SolrException.log(log, "Error during auto-warming of key:" + entry.getKey(), e);
+        }
+      }
+    } finally {
+      WARMING.remove();
+    }
+  }
+
+  private void onWarmed(CaffeineCache<K,V> old, K key, long costNanos) {
+    warmedEntries.increment();
+    if (entryStats == null) {
+      return;
+    }
+    EntryStats stats = entryStats.get(key);
+    if (stats != null) {
+      EntryStats oldStats = old.entryStats == null ? null : old.entryStats.get(key);
+      if (oldStats != null) {
+        // halve hits at each generation so that entries that are no longer used eventually stop being warmed
+        stats.priorHits = (oldStats.hits.get() + oldStats.priorHits) / 2;
+      }
+      stats.costNanos = costNanos;
+      stats.warmed = true;
+    }
+  }
+
+  /**
+   * Returns the given number of entries that would cost the most to recompute, according to their hits and the
+   * time it took to compute them, in decreasing order.
+   */
+  private List<Entry<K, V>> mostValuable(int n) {
+    if (n <= 0) {
+      return Collections.emptyList();
+    }
+    long totalCost = 0;
+    int numCosts = 0;
+    for (EntryStats stats : entryStats.values()) {
+      if (stats.costNanos > 0) {
+        totalCost += stats.costNanos;
+        numCosts++;
+      }
+    }
+    // entries whose cost is unknown are assumed to cost the average
+    final long defaultCost = numCosts == 0 ? 1 : Math.max(1, totalCost / numCosts);
+    // the n most valuable entries, least valuable first
+    PriorityQueue<ValuedEntry<K, V>> top = new PriorityQueue<>(Math.min(n, cache.asMap().size()) + 1);
+    for (Entry<K, V> entry : cache.asMap().entrySet()) {
+      EntryStats stats = entryStats.get(entry.getKey());
+      long hits = stats == null ? 0 : stats.hits.get() + stats.priorHits;
+      long cost = stats == null || stats.costNanos <= 0 ? defaultCost : stats.costNanos;
+      double value = (double) (hits + 1) * cost;
+      if (top.size() < n) {
+        top.add(new ValuedEntry<>(entry.getKey(), entry.getValue(), value));
+      } else if (value > top.peek().value) {
+        top.poll();
+        top.add(new ValuedEntry<>(entry.getKey(), entry.getValue(), value));
+      }
+    }
+    @SuppressWarnings({"unchecked"})
+    Entry<K, V>[] entries = new Entry[top.size()];
+    for (int i = entries.length - 1; i >= 0; i--) {
+      entries[i] = top.poll();
+    }
+    return Arrays.asList(entries);
+  }
+
+  private static final class ValuedEntry<K, V> extends AbstractMap.SimpleImmutableEntry<K, V>
+      implements Comparable<ValuedEntry<K, V>> {
+    final double value;
+
+    ValuedEntry(K key, V val, double value) {
+      super(key, val);
+      this.value = value;
+    }
+
+    @Override
+    public int compareTo(ValuedEntry<K, V> other) {
+      return Double.compare(value, other.value);
+    }
+  }
+
   /** Returns the description of this cache. */
   private String generateDescription(int limit, int initialSize) {
     return String.format(Locale.ROOT, "TinyLfu Cache(maxSize=%d, initialSize=%d%s)",
-        limit, initialSize, isAutowarmingOn() ? (", " + getAutowarmDescription()) : "");
+        limit, initialSize, isAutowarmingOn() ? (", " + getAutowarmDescription()
+            + (entryStats != null ? ", autowarmOrder=value" : "")
+            + (autowarmTimeLimitMs >= 0 ? ", autowarmTimeLimitMs=" + autowarmTimeLimitMs : "")
+            + (autowarmThreads > 1 ? ", autowarmThreads=" + autowarmThreads : "")
+            + (autowarmBackground ? ", autowarmBackground=true" : "")) : "");
   }
 
   //////////////////////// SolrInfoBean methods //////////////////////
@@ -373,6 +685,14 @@ public class CaffeineCache<K, V> extends SolrCacheBase implements SolrCache<K, V
         map.put(EVICTIONS_PARAM, stats.evictionCount());
         map.put(SIZE_PARAM, cache.asMap().size());
         map.put("warmupTime", warmupTime);
+        map.put("autowarm_inProgress", warmingInBackground);
+        long warmed = warmedEntries.sum();
+        map.put("autowarm_entries", warmed);
+        if (entryStats != null) {
+          long warmedHit = warmedEntriesHit.sum();
+          map.put("autowarm_entriesHit", warmedHit);
+          map.put("autowarm_efficacy", warmed == 0 ? 0d : (double) warmedHit / warmed);
+        }
         map.put(RAM_BYTES_USED_PARAM, ramBytesUsed());
         map.put(MAX_RAM_MB_PARAM, getMaxRamMB());
 
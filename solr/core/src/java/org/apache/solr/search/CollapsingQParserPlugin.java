@@ -17,10 +17,12 @@
 package org.apache.solr.search;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +42,7 @@ import org.apache.lucene.index.EmptyDocValuesProducer;
 import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.FieldInfos;
 import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.MultiDocValues;
@@ -68,6 +71,8 @@ import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.GroupParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
 import org.apache.solr.handler.component.QueryElevationComponent;
 import org.apache.solr.handler.component.ResponseBuilder;
 import org.apache.solr.request.LocalSolrQueryRequest;
@@ -113,6 +118,14 @@ import static org.apache.solr.common.params.CommonParams.SORT;
  expand : treats each doc with a null value in the collapse field as a separate group.<br>
  collapse : collapses all docs with a null value into a single group using either highest score, or min/max.
  <p>
+ When group heads are selected by score, the heads param chooses how they are tracked:
+ <p>
+ fq={!collapse field=field_name heads=adaptive}
+ <p>
+ dense : arrays sized to the number of values of the field, allocated for each request (default).<br>
+ sparse : a hash map of the groups that were seen, with buffers that are pooled per searcher.<br>
+ adaptive : like sparse, but switches to pooled arrays once many groups were seen.
+ <p>
  The CollapsingQParserPlugin fully supports the QueryElevationComponent
  **/
 
@@ -124,6 +137,12 @@ public class CollapsingQParserPlugin extends QParserPlugin {
   public static final String NULL_EXPAND = "expand";
   public static final String HINT_TOP_FC = "top_fc";
   public static final String HINT_MULTI_DOCVALUES = "multi_docvalues";
+  public static final String HEADS_DENSE = "dense";
+  public static final String HEADS_SPARSE = "sparse";
+  public static final String HEADS_ADAPTIVE = "adaptive";
+
+  /** Buffers of the collectors that don't track group heads in dense arrays. */
+  static final BufferPool BUFFER_POOL = new BufferPool();
 
 
   public QParser createParser(String qstr, SolrParams localParams, SolrParams params, SolrQueryRequest request) {
@@ -224,6 +243,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     public static final int NULL_POLICY_COLLAPSE = 1;
     public static final int NULL_POLICY_EXPAND = 2;
     private int size;
+    private String heads;
 
     public String getField(){
       return this.collapseField;
@@ -323,6 +343,11 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       this.hint = localParams.get("hint");
       this.size = localParams.getInt("size", 100000); //Only used for collapsing on int fields.
 
+      this.heads = localParams.get("heads", HEADS_DENSE); //Only used for collapsing on score.
+      if (!(HEADS_DENSE.equals(heads) || HEADS_SPARSE.equals(heads) || HEADS_ADAPTIVE.equals(heads))) {
+        throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Invalid heads:" + heads);
+      }
+
       {
         final SolrRequestInfo info = SolrRequestInfo.getRequestInfo();
         assert null != info;
@@ -392,6 +417,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                                              this.needsScores4Collapsing,
                                              this.needsScores,
                                              this.size,
+                                             this.heads,
                                              boostDocsMap,
                                              searcher);
 
@@ -445,6 +471,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
               fieldInfo.getPointDimensionCount(),
               fieldInfo.getPointIndexDimensionCount(),
               fieldInfo.getPointNumBytes(),
+              fieldInfo.getVectorDimension(),
+              fieldInfo.getVectorSimilarityFunction(),
               fieldInfo.isSoftDeletesField());
           newInfos.add(f);
         } else {
@@ -496,6 +524,151 @@ public class CollapsingQParserPlugin extends QParserPlugin {
 
 
 
+  /**
+   * Pools the buffers of collectors for requests against the same top-level reader, so that
+   * collapsing on fields with many values doesn't allocate large arrays and maps for every
+   * request.  Buffers are dropped when their reader is closed.
+   */
+  static final class BufferPool {
+    // per reader and field, enough for a few concurrent requests
+    private static final int MAX_POOLED_BUFFERS = 4;
+
+    private final Map<IndexReader.CacheKey,Map<String,ArrayDeque<Buffers>>> pools = new HashMap<>();
+
+    /** Returns cleared buffers for the reader of the searcher and the field, reusing released buffers if possible. */
+    Buffers acquire(IndexSearcher searcher, String field) {
+      final IndexReader reader = searcher.getIndexReader();
+      final IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+      if (cacheHelper == null) {
+        return new Buffers(null, field, reader.maxDoc());
+      }
+      final IndexReader.CacheKey readerKey = cacheHelper.getKey();
+      final Buffers buffers;
+      synchronized (this) {
+        Map<String,ArrayDeque<Buffers>> fields = pools.get(readerKey);
+        if (fields == null) {
+          fields = new HashMap<>();
+          pools.put(readerKey, fields);
+          cacheHelper.addClosedListener(this::clearReaderKey);
+        }
+        buffers = fields.computeIfAbsent(field, f -> new ArrayDeque<>()).poll();
+      }
+      return buffers != null ? buffers : new Buffers(readerKey, field, reader.maxDoc());
+    }
+
+    /** Clears the buffers and makes them available to the next request against the same reader. */
+    void release(Buffers buffers) {
+      if (buffers.readerKey == null) {
+        return;
+      }
+      buffers.clear();
+      synchronized (this) {
+        final Map<String,ArrayDeque<Buffers>> fields = pools.get(buffers.readerKey);
+        if (fields != null) { // null once the reader is closed
+          final ArrayDeque<Buffers> pool = fields.get(buffers.field);
+          if (pool.size() < MAX_POOLED_BUFFERS) {
+            pool.push(buffers);
+          }
+        }
+      }
+    }
+
+    synchronized void clearReaderKey(IndexReader.CacheKey readerKey) {
+      pools.remove(readerKey);
+    }
+
+    /** Returns the number of buffers that are available for reuse. */
+    synchronized int size() {
+      int size = 0;
+      for (Map<String,ArrayDeque<Buffers>> fields : pools.values()) {
+        for (ArrayDeque<Buffers> pool : fields.values()) {
+          size += pool.size();
+        }
+      }
+      return size;
+    }
+  }
+
+  /**
+   * The buffers of one collector: the set of collapsed docs, and group heads either in a hash
+   * map or in arrays indexed by ord, which are only allocated when they are asked for.
+   */
+  static final class Buffers {
+    final IndexReader.CacheKey readerKey;
+    final String field;
+    final FixedBitSet collapsedSet;
+    private IntLongHashMap heads;
+    private int[] ords;
+    private float[] scores;
+    private boolean ordsUsed;
+
+    Buffers(IndexReader.CacheKey readerKey, String field, int maxDoc) {
+      this.readerKey = readerKey;
+      this.field = field;
+      this.collapsedSet = new FixedBitSet(maxDoc);
+    }
+
+    /** Returns an empty map of group heads. */
+    IntLongHashMap heads(int expectedElements) {
+      if (heads == null) {
+        heads = new IntLongHashMap(expectedElements);
+      }
+      return heads;
+    }
+
+    /** Returns an array of the docs of group heads by ord, filled with -1. */
+    int[] ords(int valueCount) {
+      if (ords == null || ords.length != valueCount) {
+        ords = new int[valueCount];
+        Arrays.fill(ords, -1);
+      }
+      ordsUsed = true;
+      return ords;
+    }
+
+    /** Returns an array of the scores of group heads by ord, filled with -Float.MAX_VALUE. */
+    float[] scores(int valueCount) {
+      if (scores == null || scores.length != valueCount) {
+        scores = new float[valueCount];
+        Arrays.fill(scores, -Float.MAX_VALUE);
+      }
+      ordsUsed = true;
+      return scores;
+    }
+
+    void clear() {
+      collapsedSet.clear(0, collapsedSet.length());
+      if (heads != null) {
+        heads.clear();
+      }
+      if (ordsUsed) {
+        if (ords != null) {
+          Arrays.fill(ords, -1);
+        }
+        if (scores != null) {
+          Arrays.fill(scores, -Float.MAX_VALUE);
+        }
+        ordsUsed = false;
+      }
+    }
+  }
+
+  /**
+   * Adds how the group heads of a collapse field were tracked to the debug output of the
+   * current request, if it asked for query debugging.
+   */
+  private static void addHeadsDebugInfo(String field, String heads, String trackedIn, boolean pooled) {
+    final SolrRequestInfo info = SolrRequestInfo.getRequestInfo();
+    final ResponseBuilder rb = info == null ? null : info.getResponseBuilder();
+    if (rb != null && rb.isDebugQuery()) {
+      final NamedList<Object> debug = new SimpleOrderedMap<>();
+      debug.add("heads", heads);
+      debug.add("trackedIn", trackedIn);
+      debug.add("pooled", pooled);
+      rb.addDebug(debug, "collapse", field);
+    }
+  }
+
   /*
   * Collapses on Ordinal Values using Score to select the group head.
   */
@@ -521,11 +694,36 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     private IntArrayList boostDocs;
     private MergeBoost mergeBoost;
     private boolean boosts;
+    private final String field;
+    private final String heads;
+    private final int valueCount;
+    private Buffers buffers;
+    // group heads by ord when they are not tracked in the ords and scores arrays
+    private IntLongHashMap sparseHeads;
+    private final int maxSparseHeads;
+
+    // a group head in sparseHeads: the bits of its score and its doc
+    private static long head(float score, int doc) {
+      return (((long) Float.floatToRawIntBits(score)) << 32) | (doc & 0xFFFFFFFFL);
+    }
+
+    private static float headScore(long head) {
+      return Float.intBitsToFloat((int) (head >>> 32));
+    }
+
+    private static int headDoc(long head) {
+      return (int) head;
+    }
+
+    // what the ords and scores arrays hold for groups without a head
+    private static final long NO_HEAD = head(-Float.MAX_VALUE, -1);
 
     public OrdScoreCollector(int maxDoc,
                              int segments,
                              DocValuesProducer collapseValuesProducer,
                              int nullPolicy,
+                             String field,
+                             String heads,
                              IntIntHashMap boostDocsMap,
                              IndexSearcher searcher) throws IOException {
       this.maxDoc = maxDoc;
@@ -535,19 +733,30 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         contexts[i] = con.get(i);
       }
 
-      this.collapsedSet = new FixedBitSet(maxDoc);
       this.collapseValuesProducer = collapseValuesProducer;
       this.collapseValues = collapseValuesProducer.getSorted(null);
       
-      int valueCount = collapseValues.getValueCount();
+      this.valueCount = collapseValues.getValueCount();
       if(collapseValues instanceof MultiDocValues.MultiSortedDocValues) {
         this.multiSortedDocValues = (MultiDocValues.MultiSortedDocValues)collapseValues;
         this.ordinalMap = multiSortedDocValues.mapping;
       }
-      this.ords = new int[valueCount];
-      Arrays.fill(this.ords, -1);
-      this.scores = new float[valueCount];
-      Arrays.fill(this.scores, -Float.MAX_VALUE);
+      this.field = field;
+      this.heads = heads;
+      if (HEADS_DENSE.equals(heads)) {
+        this.collapsedSet = new FixedBitSet(maxDoc);
+        this.ords = new int[valueCount];
+        Arrays.fill(this.ords, -1);
+        this.scores = new float[valueCount];
+        Arrays.fill(this.scores, -Float.MAX_VALUE);
+        this.maxSparseHeads = 0;
+      } else {
+        this.buffers = BUFFER_POOL.acquire(searcher, field);
+        this.collapsedSet = buffers.collapsedSet;
+        this.sparseHeads = buffers.heads(16);
+        // past this many groups, the map takes more memory than the arrays and is slower to update
+        this.maxSparseHeads = HEADS_ADAPTIVE.equals(heads) ? valueCount >>> 3 : Integer.MAX_VALUE;
+      }
       this.nullPolicy = nullPolicy;
       if(nullPolicy == CollapsingPostFilter.NULL_POLICY_EXPAND) {
         nullScores = new FloatArrayList();
@@ -613,7 +822,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
 
       if(ord > -1) {
         float score = scorer.score();
-        if(score > scores[ord]) {
+        if(sparseHeads != null) {
+          collectSparse(ord, globalDoc, score);
+        } else if(score > scores[ord]) {
           ords[ord] = globalDoc;
           scores[ord] = score;
         }
@@ -629,9 +840,46 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
     }
 
+    private void collectSparse(int ord, int globalDoc, float score) {
+      final int idx = sparseHeads.indexOf(ord);
+      if (idx >= 0) {
+        if (score > headScore(sparseHeads.indexGet(idx))) {
+          sparseHeads.indexReplace(idx, head(score, globalDoc));
+        }
+      } else if (score > -Float.MAX_VALUE) {
+        sparseHeads.indexInsert(idx, ord, head(score, globalDoc));
+        if (sparseHeads.size() > maxSparseHeads) {
+          toDense();
+        }
+      }
+    }
+
+    /** Moves the group heads from the sparse map to pooled ords and scores arrays. */
+    private void toDense() {
+      this.ords = buffers.ords(valueCount);
+      this.scores = buffers.scores(valueCount);
+      for (IntLongCursor cursor : sparseHeads) {
+        ords[cursor.key] = headDoc(cursor.value);
+        scores[cursor.key] = headScore(cursor.value);
+      }
+      this.sparseHeads = null;
+    }
+
+    private void releaseBuffers() {
+      if (buffers != null) {
+        BUFFER_POOL.release(buffers);
+        this.buffers = null;
+        this.sparseHeads = null;
+        this.ords = null;
+        this.scores = null;
+        this.collapsedSet = null;
+      }
+    }
+
     @Override
     public void finish() throws IOException {
       if(contexts.length == 0) {
+        releaseBuffers();
         return;
       }
 
@@ -646,7 +894,11 @@ public class CollapsingQParserPlugin extends QParserPlugin {
           int ord = this.boostOrds.get(i);
           if(ord > -1) {
             //Remove any group heads that are in the same groups as boosted documents.
-            ords[ord] = -1;
+            if(sparseHeads != null) {
+              sparseHeads.put(ord, head(headScore(sparseHeads.getOrDefault(ord, NO_HEAD)), -1));
+            } else {
+              ords[ord] = -1;
+            }
           }
           //Add the boosted docs to the collapsedSet
           this.collapsedSet.set(boostDocs.get(i));
@@ -655,10 +907,19 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
 
       //Build the sorted DocSet of group heads.
-      for(int i=0; i<ords.length; i++) {
-        int doc = ords[i];
-        if(doc > -1) {
-          collapsedSet.set(doc);
+      if(sparseHeads != null) {
+        for(IntLongCursor cursor : sparseHeads) {
+          int doc = headDoc(cursor.value);
+          if(doc > -1) {
+            collapsedSet.set(doc);
+          }
+        }
+      } else {
+        for(int i=0; i<ords.length; i++) {
+          int doc = ords[i];
+          if(doc > -1) {
+            collapsedSet.set(doc);
+          }
         }
       }
 
@@ -715,7 +976,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         }
 
         if(ord > -1) {
-          dummy.score = scores[ord];
+          dummy.score = sparseHeads != null ? headScore(sparseHeads.getOrDefault(ord, NO_HEAD)) : scores[ord];
         } else if(boosts && mergeBoost.boost(docId)) {
           //Ignore so it doesn't mess up the null scoring.
         } else if(this.nullPolicy == CollapsingPostFilter.NULL_POLICY_COLLAPSE) {
@@ -728,6 +989,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         leafDelegate.collect(contextDoc);
       }
 
+      addHeadsDebugInfo(field, heads, sparseHeads != null ? "hash map" : "arrays", buffers != null);
+      releaseBuffers();
+
       if(delegate instanceof DelegatingCollector) {
         ((DelegatingCollector) delegate).finish();
       }
@@ -755,6 +1019,8 @@ public class CollapsingQParserPlugin extends QParserPlugin {
     private boolean boosts;
     private String field;
     private int nullValue;
+    private final String heads;
+    private Buffers buffers;
 
     public IntScoreCollector(int maxDoc,
                              int segments,
@@ -762,6 +1028,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                              int nullPolicy,
                              int size,
                              String field,
+                             String heads,
                              IntIntHashMap boostDocsMap,
                              IndexSearcher searcher) {
       this.maxDoc = maxDoc;
@@ -771,13 +1038,21 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         contexts[i] = con.get(i);
       }
 
-      this.collapsedSet = new FixedBitSet(maxDoc);
       this.nullValue = nullValue;
       this.nullPolicy = nullPolicy;
       if(nullPolicy == CollapsingPostFilter.NULL_POLICY_EXPAND) {
         nullScores = new FloatArrayList();
       }
-      this.cmap = new IntLongHashMap(size);
+      this.heads = heads;
+      // values are not bounded, so heads are always tracked in a map, which may be pooled
+      if (HEADS_DENSE.equals(heads)) {
+        this.collapsedSet = new FixedBitSet(maxDoc);
+        this.cmap = new IntLongHashMap(size);
+      } else {
+        this.buffers = BUFFER_POOL.acquire(searcher, field);
+        this.collapsedSet = buffers.collapsedSet;
+        this.cmap = buffers.heads(size);
+      }
       this.field = field;
 
       if(boostDocsMap != null) {
@@ -853,9 +1128,19 @@ public class CollapsingQParserPlugin extends QParserPlugin {
       }
     }
 
+    private void releaseBuffers() {
+      if (buffers != null) {
+        BUFFER_POOL.release(buffers);
+        this.buffers = null;
+        this.cmap = null;
+        this.collapsedSet = null;
+      }
+    }
+
     @Override
     public void finish() throws IOException {
       if(contexts.length == 0) {
+        releaseBuffers();
         return;
       }
 
@@ -929,6 +1214,9 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         leafDelegate.collect(contextDoc);
       }
 
+      addHeadsDebugInfo(field, heads, "hash map", buffers != null);
+      releaseBuffers();
+
       if(delegate instanceof DelegatingCollector) {
         ((DelegatingCollector) delegate).finish();
       }
@@ -1309,6 +1597,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
                                             boolean needsScores4Collapsing,
                                             boolean needsScores,
                                             int size,
+                                            String heads,
                                             IntIntHashMap boostDocs,
                                             SolrIndexSearcher searcher) throws IOException {
 
@@ -1367,7 +1656,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
         
         if (collapseFieldType instanceof StrField) {
 
-          return new OrdScoreCollector(maxDoc, leafCount, docValuesProducer, nullPolicy, boostDocs, searcher);
+          return new OrdScoreCollector(maxDoc, leafCount, docValuesProducer, nullPolicy, collapseField, heads, boostDocs, searcher);
 
         } else if (isNumericCollapsible(collapseFieldType)) {
 
@@ -1386,7 +1675,7 @@ public class CollapsingQParserPlugin extends QParserPlugin {
             }
           }
 
-          return new IntScoreCollector(maxDoc, leafCount, nullValue, nullPolicy, size, collapseField, boostDocs, searcher);
+          return new IntScoreCollector(maxDoc, leafCount, nullValue, nullPolicy, size, collapseField, heads, boostDocs, searcher);
 
         } else {
           throw new SolrException(SolrException.ErrorCode.BAD_REQUEST,
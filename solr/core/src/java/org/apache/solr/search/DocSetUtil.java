@@ -48,6 +48,31 @@ public class DocSetUtil {
     return (maxDoc>>6)+5;  // The +5 is for better test coverage for small sets
   }
 
+  /**
+   * Returns a set that has the same documents as the given set, but takes less memory if
+   * possible: a {@link RoaringDocSet} if its documents are sparse or clustered enough that it
+   * takes at most half of the memory of the bit set, or the given set otherwise.  This is
+   * worth doing for sets that are likely to be cached.
+   * @lucene.experimental
+   */
+  public static DocSet compact(BitDocSet docs) {
+    DocSet roaring = RoaringDocSet.fromBits(docs.getBits(), docs.ramBytesUsed() / 2);
+    return roaring == null ? docs : roaring;
+  }
+
+  /**
+   * Returns a set that has the same documents as the given set, in the representation that is
+   * used for sets of this size: a {@link SortedIntDocSet} for small sets, the live docs of the
+   * searcher if all live documents match, and a {@link #compact compacted} set otherwise.
+   * @lucene.experimental
+   */
+  public static DocSet getDocSetFromBits(BitDocSet docs, SolrIndexSearcher searcher) {
+    if (docs.size() <= smallSetSize(docs.getBits().length())) {
+      return getDocSet(toSmallSet(docs), searcher);
+    }
+    return getDocSet(compact(docs), searcher);
+  }
+
   /**
    * Iterates DocSets to test for equality - slow and for testing purposes only.
    * @lucene.internal
@@ -90,7 +115,11 @@ public class DocSetUtil {
       }
     }
 
-    return collector.getDocSet();
+    DocSet docs = collector.getDocSet();
+    if (docs instanceof BitDocSet) {
+      docs = compact((BitDocSet) docs);
+    }
+    return docs;
   }
 
   /**
@@ -241,7 +270,7 @@ public class DocSetUtil {
       return smallSet;
     }
 
-    return docSet;
+    return compact(docSet);
   }
 
   public static DocSet toSmallSet(BitDocSet bitSet) {
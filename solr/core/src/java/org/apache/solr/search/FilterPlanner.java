@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.ScorerSupplier;
+import org.apache.lucene.search.Weight;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.handler.component.ResponseBuilder;
+import org.apache.solr.query.SolrRangeQuery;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.StrField;
+
+/**
+ * Plans how the filters of a query are applied, based on their cost relative to the cost of leading the
+ * conjunction of the main query and the filters, which is the smallest of the costs of the main query and of the
+ * doc sets of the filters that are cached. Costs are those of the {@link ScorerSupplier}s of the queries, summed
+ * over all segments, or the doc freqs of the matching terms of term ranges and other multi-term queries. A filter is either:
+ * <ul>
+ *   <li><code>cached</code>: its doc set is in the filter cache and gets intersected with the other cached ones.</li>
+ *   <li><code>docSet</code>: it is about as selective as the lead, so its doc set is computed and cached like
+ *   when filters aren't planned.</li>
+ *   <li><code>lazy</code>: it matches more than {@value #LAZY_COST_RATIO} times as many documents as the lead,
+ *   so it is only checked on the documents that the lead matches rather than computing all of them. Ranges on
+ *   indexed string fields that have doc values are then checked with doc values.</li>
+ * </ul>
+ * Filters whose doc sets are in the {@link SegmentFilterCache} for all segments are planned as <code>docSet</code>
+ * without computing their cost. Negative filters, and filters with <code>cache=false</code>, are applied like when
+ * filters aren't planned. The weight that is created for the main query to compute its cost is reused by the search,
+ * see {@link #getMainQuery()}. The plan is added to the debug output of the request under <code>filterPlan</code>.
+ */
+class FilterPlanner {
+
+  /** Filters that aren't cached and cost this many times as much as the lead are applied lazily. */
+  static final int LAZY_COST_RATIO = 8;
+
+  private final SolrIndexSearcher searcher;
+  private final Query mainQuery;
+  private final ScoreMode mainScoreMode;
+  private final DocSet[] cached;
+  private final NamedList<Object> plan = new SimpleOrderedMap<>();
+  private long leadCost;
+  private boolean leadCostComputed;
+  private Query mainWeightQuery;
+  private boolean lazy;
+
+  /**
+   * Looks up the given filters in the filter cache, so that the lead cost accounts for all cached ones.
+   * @param mainScoreMode the score mode that the main query is searched with, so that its weight can be reused
+   * @param setFilter a filter that is already a doc set, or null
+   */
+  FilterPlanner(SolrIndexSearcher searcher, Query mainQuery, ScoreMode mainScoreMode, DocSet setFilter, List<Query> queries) {
+    this.searcher = searcher;
+    this.mainQuery = mainQuery;
+    this.mainScoreMode = mainScoreMode;
+    this.cached = new DocSet[queries.size()];
+    this.leadCost = setFilter == null ? Long.MAX_VALUE : setFilter.size();
+    for (int i = 0; i < cached.length; i++) {
+      final Query q = queries.get(i);
+      if (q instanceof ExtendedQuery && ((ExtendedQuery) q).getCache() == false) {
+        continue;
+      }
+      if (QueryUtils.getAbs(q) == q) {
+        cached[i] = searcher.getFilterCache().get(q);
+        if (cached[i] != null) {
+          leadCost = Math.min(leadCost, cached[i].size());
+        }
+      }
+    }
+  }
+
+  /** Returns the doc set of the i-th positive filter if it was cached, or null. */
+  DocSet getCached(int i, Query q) {
+    if (cached[i] != null) {
+      addPlan(q, "cached", cached[i].size(), null);
+    }
+    return cached[i];
+  }
+
+  /**
+   * Returns the query to apply lazily in place of the given positive filter, which isn't cached, or null if its
+   * doc set should be computed.
+   */
+  Query planUncached(Query q) throws IOException {
+    final SegmentFilterCache segmentFilterCache = searcher.getSegmentFilterCache();
+    if (segmentFilterCache != null && segmentFilterCache.isCached(searcher, q)) {
+      // stitching the cached sets of the segments is cheaper than checking the filter on each document of the lead
+      addPlan(q, "docSet", -1, null);
+      return null;
+    }
+    final long cost = cost(q);
+    if (cost <= LAZY_COST_RATIO * Math.min(leadCost(), Long.MAX_VALUE / LAZY_COST_RATIO)) {
+      addPlan(q, "docSet", cost, null);
+      return null;
+    }
+    // the weights of term ranges compute all of their matches up front, so prefer doc values, which are only
+    // checked on the documents of the lead
+    final Query docValuesQuery = getDocValuesQuery(q);
+    addPlan(q, "lazy", cost, docValuesQuery != null);
+    lazy = true;
+    return docValuesQuery == null ? q : docValuesQuery;
+  }
+
+  /** Returns whether {@link #planUncached} planned any filter as lazy. */
+  boolean hasLazyFilters() {
+    return lazy;
+  }
+
+  /**
+   * Returns a query that matches like the main query and reuses the weight that was created to compute its cost,
+   * or null if none was created.
+   */
+  Query getMainQuery() {
+    return mainWeightQuery;
+  }
+
+  /** Adds the plan to the debug output of the current request, if it asked for query debugging. */
+  void addDebugInfo() {
+    final SolrRequestInfo info = SolrRequestInfo.getRequestInfo();
+    final ResponseBuilder rb = info == null ? null : info.getResponseBuilder();
+    if (rb != null && rb.isDebugQuery() && plan.size() > 0) {
+      if (leadCostComputed) {
+        plan.add("leadCost", leadCost);
+      }
+      rb.addDebug(plan, "filterPlan");
+    }
+  }
+
+  private long leadCost() throws IOException {
+    if (leadCostComputed == false) {
+      final Query rewritten = searcher.rewrite(mainQuery);
+      final Weight weight = searcher.createWeight(rewritten, mainScoreMode, 1);
+      mainWeightQuery = new WeightQuery(rewritten, weight, mainScoreMode);
+      leadCost = Math.min(leadCost, cost(weight));
+      leadCostComputed = true;
+    }
+    return leadCost;
+  }
+
+  private long cost(Query q) throws IOException {
+    if (q instanceof SolrRangeQuery || q instanceof MultiTermQuery) {
+      // their scorers compute all matches, and may cache them, so sum the doc freqs of their terms instead
+      return termsCost(q);
+    }
+    return cost(searcher.createWeight(searcher.rewrite(QueryUtils.makeQueryable(q)), ScoreMode.COMPLETE_NO_SCORES, 1));
+  }
+
+  private long cost(Weight weight) throws IOException {
+    long cost = 0;
+    for (LeafReaderContext context : searcher.getTopReaderContext().leaves()) {
+      final ScorerSupplier supplier = weight.scorerSupplier(context);
+      if (supplier != null) {
+        cost += supplier.cost();
+      }
+    }
+    return cost;
+  }
+
+  private long termsCost(Query q) throws IOException {
+    long cost = 0;
+    for (LeafReaderContext context : searcher.getTopReaderContext().leaves()) {
+      final TermsEnum te;
+      if (q instanceof SolrRangeQuery) {
+        te = ((SolrRangeQuery) q).getTermsEnum(context);
+      } else {
+        final MultiTermQuery mtq = (MultiTermQuery) q;
+        final Terms terms = context.reader().terms(mtq.getField());
+        te = terms == null ? TermsEnum.EMPTY : mtq.getTermsEnum(terms);
+      }
+      while (te.next() != null) {
+        cost += te.docFreq();
+      }
+    }
+    return cost;
+  }
+
+  /** Returns a query that matches the same documents as the given one using doc values, or null. */
+  private Query getDocValuesQuery(Query q) {
+    if (q instanceof SolrRangeQuery) {
+      final SolrRangeQuery range = (SolrRangeQuery) q;
+      final SchemaField sf = searcher.getSchema().getFieldOrNull(range.getField());
+      // string fields index the same bytes in terms and doc values
+      if (sf != null && sf.indexed() && sf.hasDocValues() && sf.getType() instanceof StrField) {
+        return SortedSetDocValuesField.newSlowRangeQuery(range.getField(), range.getLower(), range.getUpper(),
+            range.includeLower(), range.includeUpper());
+      }
+    }
+    return null;
+  }
+
+  private void addPlan(Query q, String how, long cost, Boolean docValues) {
+    final NamedList<Object> entry = new SimpleOrderedMap<>();
+    entry.add("plan", how);
+    if (cost >= 0) {
+      entry.add("cost", cost);
+    }
+    if (docValues != null) {
+      entry.add("docValues", docValues);
+    }
+    plan.add(q.toString(), entry);
+  }
+
+  /** A rewritten query that reuses the given weight when it is searched with the same score mode. */
+  private static final class WeightQuery extends Query {
+    private final Query query;
+    private final Weight weight;
+    private final ScoreMode scoreMode;
+
+    WeightQuery(Query query, Weight weight, ScoreMode scoreMode) {
+      this.query = query;
+      this.weight = weight;
+      this.scoreMode = scoreMode;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) throws IOException {
+      if (scoreMode.needsScores() == this.scoreMode.needsScores() && boost == 1f) {
+        return weight;
+      }
+      return searcher.createWeight(query, scoreMode, boost);
+    }
+
+    @Override
+    public String toString(String field) {
+      return query.toString(field);
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+      query.visit(visitor);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      return sameClassAs(other) && query.equals(((WeightQuery) other).query);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * classHash() + query.hashCode();
+    }
+  }
+}
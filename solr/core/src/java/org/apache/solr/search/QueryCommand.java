@@ -37,6 +37,8 @@ public class QueryCommand {
   private int supersetMaxDoc;
   private int flags;
   private long timeAllowed = -1;
+  private boolean multiThreaded;
+  private boolean planFilters;
   private CursorMark cursorMark;
   
   public CursorMark getCursorMark() {
@@ -183,6 +185,34 @@ public class QueryCommand {
     return this;
   }
   
+  public boolean isMultiThreaded() {
+    return multiThreaded;
+  }
+
+  /**
+   * Sets whether the query may be collected concurrently across slices of segments, if the core has a
+   * search thread pool. Queries that have post filters, rank queries, a time limit or that may terminate
+   * early are always collected on the calling thread.
+   */
+  public QueryCommand setMultiThreaded(boolean multiThreaded) {
+    this.multiThreaded = multiThreaded;
+    return this;
+  }
+
+  public boolean isPlanFilters() {
+    return planFilters;
+  }
+
+  /**
+   * Sets whether the filters that aren't cached are planned by their cost relative to the main query, in which
+   * case those that match many more documents than it are applied lazily rather than cached.
+   * @see FilterPlanner
+   */
+  public QueryCommand setPlanFilters(boolean planFilters) {
+    this.planFilters = planFilters;
+    return this;
+  }
+
   public boolean isNeedDocSet() {
     return (flags & SolrIndexSearcher.GET_DOCSET) != 0;
   }
@@ -0,0 +1,740 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A {@link DocSet} that splits the doc id space into blocks of 2<sup>16</sup> documents
+ * and encodes each block depending on its density: empty blocks take no space, sparse blocks
+ * are encoded as sorted arrays of 16-bit values and dense blocks as bitmaps. This is the
+ * encoding of Lucene's {@link org.apache.lucene.util.RoaringDocIdSet}, with fast random access.
+ * Good for medium sets whose documents are sparse or clustered, which it stores in much less
+ * memory than a {@link BitDocSet}.
+ *
+ * @see DocSetUtil#compact(BitDocSet)
+ */
+public class RoaringDocSet extends DocSet {
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(RoaringDocSet.class);
+
+  static final int BLOCK_SHIFT = 16;
+  static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+  private static final int WORDS_PER_BLOCK = BLOCK_SIZE >>> 6;
+
+  /** Blocks that have more documents than this are encoded as bitmaps: both encodings take 8KB at this point. */
+  static final int MAX_ARRAY_LENGTH = BLOCK_SIZE >>> 4;
+
+  // for each block, either the sorted low 16 bits of its docs, or the bitmap of its docs, or neither if it is empty
+  private final char[][] arrays;
+  private final long[][] bitmaps;
+  private final int length;  // 1 greater than the largest possible doc number, ie. maxDoc
+  private final int size;
+  private final long ramBytesUsed;
+
+  private RoaringDocSet(char[][] arrays, long[][] bitmaps, int length, int size) {
+    assert arrays.length == bitmaps.length && arrays.length == numBlocks(length);
+    this.arrays = arrays;
+    this.bitmaps = bitmaps;
+    this.length = length;
+    this.size = size;
+    long ramBytesUsed = BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(arrays) + RamUsageEstimator.shallowSizeOf(bitmaps);
+    for (int block = 0; block < arrays.length; ++block) {
+      if (arrays[block] != null) {
+        ramBytesUsed += RamUsageEstimator.sizeOf(arrays[block]);
+      } else if (bitmaps[block] != null) {
+        ramBytesUsed += RamUsageEstimator.sizeOf(bitmaps[block]);
+      }
+    }
+    this.ramBytesUsed = ramBytesUsed;
+  }
+
+  private static int numBlocks(int length) {
+    return (int) (((long) length + BLOCK_MASK) >>> BLOCK_SHIFT);
+  }
+
+  /**
+   * Encodes the given bits, or returns null if the encoded set would take more than
+   * <code>maxRamBytesUsed</code> bytes.
+   */
+  public static RoaringDocSet fromBits(FixedBitSet bits, long maxRamBytesUsed) {
+    final int length = bits.length();
+    final long[] words = bits.getBits();
+    final int numWords = FixedBitSet.bits2words(length);
+    final int numBlocks = numBlocks(length);
+
+    // first compute the cardinality of every block, which gives the size of the encoded set
+    final int[] cardinalities = new int[numBlocks];
+    long ramBytesUsed = BASE_RAM_BYTES_USED + 2 * RamUsageEstimator.alignObjectSize(
+        RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) RamUsageEstimator.NUM_BYTES_OBJECT_REF * numBlocks);
+    for (int block = 0; block < numBlocks; ++block) {
+      final int from = block * WORDS_PER_BLOCK;
+      final int to = Math.min(from + WORDS_PER_BLOCK, numWords);
+      int cardinality = 0;
+      for (int i = from; i < to; ++i) {
+        cardinality += Long.bitCount(words[i]);
+      }
+      cardinalities[block] = cardinality;
+      if (cardinality > MAX_ARRAY_LENGTH) {
+        ramBytesUsed += RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) Long.BYTES * WORDS_PER_BLOCK);
+      } else if (cardinality > 0) {
+        ramBytesUsed += RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) Character.BYTES * cardinality);
+      }
+      if (ramBytesUsed > maxRamBytesUsed) {
+        return null;
+      }
+    }
+
+    final char[][] arrays = new char[numBlocks][];
+    final long[][] bitmaps = new long[numBlocks][];
+    int size = 0;
+    for (int block = 0; block < numBlocks; ++block) {
+      final int cardinality = cardinalities[block];
+      final int from = block * WORDS_PER_BLOCK;
+      if (cardinality > MAX_ARRAY_LENGTH) {
+        // copyOfRange pads the last block with zeros
+        bitmaps[block] = Arrays.copyOfRange(words, from, from + WORDS_PER_BLOCK);
+      } else if (cardinality > 0) {
+        arrays[block] = toArray(words, from, Math.min(from + WORDS_PER_BLOCK, numWords), cardinality);
+      }
+      size += cardinality;
+    }
+    return new RoaringDocSet(arrays, bitmaps, length, size);
+  }
+
+  /** Returns the set bits of <code>words[from:to]</code> relative to <code>from</code>. */
+  private static char[] toArray(long[] words, int from, int to, int cardinality) {
+    final char[] array = new char[cardinality];
+    int upto = 0;
+    for (int i = from; i < to; ++i) {
+      long word = words[i];
+      while (word != 0) {
+        array[upto++] = (char) (((i - from) << 6) + Long.numberOfTrailingZeros(word));
+        word &= word - 1;
+      }
+    }
+    assert upto == cardinality;
+    return array;
+  }
+
+  /** Returns the block bitmap as an array if it is sparse enough, or the bitmap itself, or null if it is empty. */
+  private static Object compactBitmap(long[] bitmap) {
+    int cardinality = 0;
+    for (long word : bitmap) {
+      cardinality += Long.bitCount(word);
+    }
+    if (cardinality == 0) {
+      return null;
+    } else if (cardinality <= MAX_ARRAY_LENGTH) {
+      return toArray(bitmap, 0, WORDS_PER_BLOCK, cardinality);
+    } else {
+      return bitmap;
+    }
+  }
+
+  /** Builds a {@link RoaringDocSet} from docs that are added in order. */
+  static final class Builder {
+    private final int length;
+    private final char[][] arrays;
+    private final long[][] bitmaps;
+    private final char[] buffer = new char[MAX_ARRAY_LENGTH];
+    private long[] bitmap;  // of the current block, once the buffer is full
+    private int block = -1;
+    private int blockSize;
+    private int size;
+    private int lastDoc = -1;
+
+    Builder(int length) {
+      this.length = length;
+      final int numBlocks = numBlocks(length);
+      this.arrays = new char[numBlocks][];
+      this.bitmaps = new long[numBlocks][];
+    }
+
+    void add(int doc) {
+      assert doc > lastDoc && doc < length : "docs must be added in order, got " + doc + " after " + lastDoc;
+      lastDoc = doc;
+      final int docBlock = doc >>> BLOCK_SHIFT;
+      if (docBlock != block) {
+        flush();
+        block = docBlock;
+      }
+      if (bitmap != null) {
+        bitmap[(doc & BLOCK_MASK) >>> 6] |= 1L << doc;
+      } else if (blockSize < MAX_ARRAY_LENGTH) {
+        buffer[blockSize] = (char) doc;
+      } else {
+        bitmap = new long[WORDS_PER_BLOCK];
+        for (int i = 0; i < blockSize; ++i) {
+          bitmap[buffer[i] >>> 6] |= 1L << buffer[i];
+        }
+        bitmap[(doc & BLOCK_MASK) >>> 6] |= 1L << doc;
+      }
+      blockSize++;
+      size++;
+    }
+
+    private void flush() {
+      if (bitmap != null) {
+        bitmaps[block] = bitmap;
+      } else if (blockSize > 0) {
+        arrays[block] = Arrays.copyOf(buffer, blockSize);
+      }
+      bitmap = null;
+      blockSize = 0;
+    }
+
+    RoaringDocSet build() {
+      flush();
+      block = -1;
+      return new RoaringDocSet(arrays, bitmaps, length, size);
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean exists(int doc) {
+    final int block = doc >>> BLOCK_SHIFT;
+    if (block >= arrays.length) {
+      return false;
+    }
+    final char[] array = arrays[block];
+    if (array != null) {
+      return Arrays.binarySearch(array, (char) doc) >= 0;
+    }
+    final long[] bitmap = bitmaps[block];
+    return bitmap != null && (bitmap[(doc & BLOCK_MASK) >>> 6] & (1L << doc)) != 0;
+  }
+
+  @Override
+  public DocIterator iterator() {
+    return new DocIterator() {
+      private final RoaringIterator iter = new RoaringIterator();
+      private int pos = iter.nextDoc();
+
+      @Override
+      public boolean hasNext() {
+        return pos != DocIdSetIterator.NO_MORE_DOCS;
+      }
+
+      @Override
+      public Integer next() {
+        return nextDoc();
+      }
+
+      /**
+       * The remove  operation is not supported by this Iterator.
+       */
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException("The remove  operation is not supported by this Iterator.");
+      }
+
+      @Override
+      public int nextDoc() {
+        int old = pos;
+        pos = iter.nextDoc();
+        return old;
+      }
+
+      @Override
+      public float score() {
+        return 0.0f;
+      }
+    };
+  }
+
+  /** Iterates over the docs of this set, in order. */
+  private final class RoaringIterator extends DocIdSetIterator {
+    private int block = -1;
+    private char[] array;
+    private int index;  // in the array
+    private int doc = -1;
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public int nextDoc() {
+      if (array != null && index + 1 < array.length) {
+        return doc = (block << BLOCK_SHIFT) | array[++index];
+      }
+      if (doc == NO_MORE_DOCS) {
+        return NO_MORE_DOCS;
+      }
+      return advance(doc + 1);
+    }
+
+    @Override
+    public int advance(int target) {
+      if (target >= length) {
+        array = null;
+        return doc = NO_MORE_DOCS;
+      }
+      int targetBlock = target >>> BLOCK_SHIFT;
+      int low = target & BLOCK_MASK;
+      for (; targetBlock < arrays.length; ++targetBlock, low = 0) {
+        final char[] array = arrays[targetBlock];
+        if (array != null) {
+          int i = Arrays.binarySearch(array, targetBlock == block ? index : 0, array.length, (char) low);
+          if (i < 0) {
+            i = -1 - i;
+          }
+          if (i < array.length) {
+            this.block = targetBlock;
+            this.array = array;
+            this.index = i;
+            return doc = (targetBlock << BLOCK_SHIFT) | array[i];
+          }
+        } else if (bitmaps[targetBlock] != null) {
+          final int next = nextSetBit(bitmaps[targetBlock], low);
+          if (next != -1) {
+            this.block = targetBlock;
+            this.array = null;
+            return doc = (targetBlock << BLOCK_SHIFT) | next;
+          }
+        }
+      }
+      array = null;
+      return doc = NO_MORE_DOCS;
+    }
+
+    @Override
+    public long cost() {
+      return size;
+    }
+  }
+
+  /** Returns the index of the first set bit of the bitmap that is greater than or equal to index, or -1. */
+  private static int nextSetBit(long[] bitmap, int index) {
+    int i = index >>> 6;
+    long word = bitmap[i] >>> index;
+    if (word != 0) {
+      return index + Long.numberOfTrailingZeros(word);
+    }
+    while (++i < WORDS_PER_BLOCK) {
+      word = bitmap[i];
+      if (word != 0) {
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+      }
+    }
+    return -1;
+  }
+
+  // the number of docs of the array that are set in words[offset:offset+numWords]
+  private static int intersectionCount(char[] array, long[] words, int offset, int numWords) {
+    int count = 0;
+    for (char value : array) {
+      final int i = value >>> 6;
+      if (i < numWords && (words[offset + i] & (1L << value)) != 0) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static int intersectionCount(long[] bitmap, long[] words, int offset, int numWords) {
+    int count = 0;
+    for (int i = 0; i < numWords; ++i) {
+      count += Long.bitCount(bitmap[i] & words[offset + i]);
+    }
+    return count;
+  }
+
+  private static int intersectionCount(char[] a, char[] b) {
+    int count = 0;
+    for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        count++;
+        i++;
+        j++;
+      }
+    }
+    return count;
+  }
+
+  private static char[] intersection(char[] array, long[] words, int offset, int numWords) {
+    final char[] result = new char[array.length];
+    int upto = 0;
+    for (char value : array) {
+      final int i = value >>> 6;
+      if (i < numWords && (words[offset + i] & (1L << value)) != 0) {
+        result[upto++] = value;
+      }
+    }
+    return upto == 0 ? null : Arrays.copyOf(result, upto);
+  }
+
+  private static Object intersection(long[] bitmap, long[] words, int offset, int numWords) {
+    final long[] result = new long[WORDS_PER_BLOCK];
+    for (int i = 0; i < numWords; ++i) {
+      result[i] = bitmap[i] & words[offset + i];
+    }
+    return compactBitmap(result);
+  }
+
+  private static char[] intersection(char[] a, char[] b) {
+    final char[] result = new char[Math.min(a.length, b.length)];
+    int upto = 0;
+    for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+      if (a[i] < b[j]) {
+        i++;
+      } else if (a[i] > b[j]) {
+        j++;
+      } else {
+        result[upto++] = a[i];
+        i++;
+        j++;
+      }
+    }
+    return upto == 0 ? null : Arrays.copyOf(result, upto);
+  }
+
+  @Override
+  public int intersectionSize(DocSet other) {
+    return intersectionSize(other, false);
+  }
+
+  @Override
+  public boolean intersects(DocSet other) {
+    return intersectionSize(other, true) > 0;
+  }
+
+  // if earlyExit is true, this may return any positive count as soon as an intersection is found
+  private int intersectionSize(DocSet other, boolean earlyExit) {
+    if (other instanceof BitDocSet) {
+      final long[] words = ((BitDocSet) other).getBits().getBits();
+      int count = 0;
+      for (int block = 0; block < arrays.length; ++block) {
+        final int offset = block * WORDS_PER_BLOCK;
+        final int numWords = Math.min(WORDS_PER_BLOCK, words.length - offset);
+        if (numWords <= 0) {
+          break;
+        }
+        if (arrays[block] != null) {
+          count += intersectionCount(arrays[block], words, offset, numWords);
+        } else if (bitmaps[block] != null) {
+          count += intersectionCount(bitmaps[block], words, offset, numWords);
+        }
+        if (earlyExit && count > 0) {
+          break;
+        }
+      }
+      return count;
+    } else if (other instanceof RoaringDocSet) {
+      final RoaringDocSet o = (RoaringDocSet) other;
+      int count = 0;
+      for (int block = 0, numBlocks = Math.min(arrays.length, o.arrays.length); block < numBlocks; ++block) {
+        if (arrays[block] != null) {
+          if (o.arrays[block] != null) {
+            count += intersectionCount(arrays[block], o.arrays[block]);
+          } else if (o.bitmaps[block] != null) {
+            count += intersectionCount(arrays[block], o.bitmaps[block], 0, WORDS_PER_BLOCK);
+          }
+        } else if (bitmaps[block] != null) {
+          if (o.arrays[block] != null) {
+            count += intersectionCount(o.arrays[block], bitmaps[block], 0, WORDS_PER_BLOCK);
+          } else if (o.bitmaps[block] != null) {
+            count += intersectionCount(bitmaps[block], o.bitmaps[block], 0, WORDS_PER_BLOCK);
+          }
+        }
+        if (earlyExit && count > 0) {
+          break;
+        }
+      }
+      return count;
+    } else if (earlyExit) {
+      // small sets are better at checking their docs against us
+      return other.intersects(this) ? 1 : 0;
+    } else {
+      return other.intersectionSize(this);
+    }
+  }
+
+  @Override
+  public DocSet intersection(DocSet other) {
+    final char[][] newArrays = new char[arrays.length][];
+    final long[][] newBitmaps = new long[arrays.length][];
+    if (other instanceof BitDocSet) {
+      final long[] words = ((BitDocSet) other).getBits().getBits();
+      for (int block = 0; block < arrays.length; ++block) {
+        final int offset = block * WORDS_PER_BLOCK;
+        final int numWords = Math.min(WORDS_PER_BLOCK, words.length - offset);
+        if (numWords <= 0) {
+          break;
+        }
+        if (arrays[block] != null) {
+          newArrays[block] = intersection(arrays[block], words, offset, numWords);
+        } else if (bitmaps[block] != null) {
+          setContainer(newArrays, newBitmaps, block, intersection(bitmaps[block], words, offset, numWords));
+        }
+      }
+    } else if (other instanceof RoaringDocSet) {
+      final RoaringDocSet o = (RoaringDocSet) other;
+      for (int block = 0, numBlocks = Math.min(arrays.length, o.arrays.length); block < numBlocks; ++block) {
+        if (arrays[block] != null) {
+          if (o.arrays[block] != null) {
+            newArrays[block] = intersection(arrays[block], o.arrays[block]);
+          } else if (o.bitmaps[block] != null) {
+            newArrays[block] = intersection(arrays[block], o.bitmaps[block], 0, WORDS_PER_BLOCK);
+          }
+        } else if (bitmaps[block] != null) {
+          if (o.arrays[block] != null) {
+            newArrays[block] = intersection(o.arrays[block], bitmaps[block], 0, WORDS_PER_BLOCK);
+          } else if (o.bitmaps[block] != null) {
+            setContainer(newArrays, newBitmaps, block, intersection(bitmaps[block], o.bitmaps[block], 0, WORDS_PER_BLOCK));
+          }
+        }
+      }
+    } else {
+      // small sets are better at checking their docs against us
+      return other.intersection(this);
+    }
+
+    int newSize = 0;
+    for (int block = 0; block < arrays.length; ++block) {
+      if (newArrays[block] != null) {
+        newSize += newArrays[block].length;
+      } else if (newBitmaps[block] != null) {
+        for (long word : newBitmaps[block]) {
+          newSize += Long.bitCount(word);
+        }
+      }
+    }
+    return new RoaringDocSet(newArrays, newBitmaps, length, newSize);
+  }
+
+  private static void setContainer(char[][] arrays, long[][] bitmaps, int block, Object container) {
+    if (container instanceof char[]) {
+      arrays[block] = (char[]) container;
+    } else {
+      bitmaps[block] = (long[]) container;
+    }
+  }
+
+  @Override
+  public DocSet andNot(DocSet other) {
+    if (other.size() == 0) return this;
+
+    final Builder builder = new Builder(length);
+    for (DocIterator iter = iterator(); iter.hasNext(); ) {
+      final int doc = iter.nextDoc();
+      if (other.exists(doc) == false) {
+        builder.add(doc);
+      }
+    }
+    return builder.build();
+  }
+
+  @Override
+  public DocSet union(DocSet other) {
+    FixedBitSet otherBits = other.getFixedBitSet();
+    FixedBitSet newbits = FixedBitSet.ensureCapacity(getFixedBitSetClone(), otherBits.length());
+    newbits.or(otherBits);
+    return new BitDocSet(newbits);
+  }
+
+  @Override
+  public void addAllTo(FixedBitSet target) {
+    final long[] words = target.getBits();
+    for (int block = 0; block < arrays.length; ++block) {
+      final int base = block << BLOCK_SHIFT;
+      if (arrays[block] != null) {
+        for (char value : arrays[block]) {
+          target.set(base | value);
+        }
+      } else if (bitmaps[block] != null) {
+        final long[] bitmap = bitmaps[block];
+        final int offset = block * WORDS_PER_BLOCK;
+        final int numWords = Math.min(WORDS_PER_BLOCK, words.length - offset);
+        for (int i = 0; i < numWords; ++i) {
+          words[offset + i] |= bitmap[i];
+        }
+      }
+    }
+  }
+
+  @Override
+  public RoaringDocSet clone() {
+    final char[][] newArrays = new char[arrays.length][];
+    final long[][] newBitmaps = new long[bitmaps.length][];
+    for (int block = 0; block < arrays.length; ++block) {
+      if (arrays[block] != null) {
+        newArrays[block] = arrays[block].clone();
+      } else if (bitmaps[block] != null) {
+        newBitmaps[block] = bitmaps[block].clone();
+      }
+    }
+    return new RoaringDocSet(newArrays, newBitmaps, length, size);
+  }
+
+  @Override
+  public Bits getBits() {
+    return new Bits() {
+      @Override
+      public boolean get(int index) {
+        return exists(index);
+      }
+
+      @Override
+      public int length() {
+        return length;
+      }
+    };
+  }
+
+  @Override
+  protected FixedBitSet getFixedBitSet() {
+    return getFixedBitSetClone();
+  }
+
+  @Override
+  protected FixedBitSet getFixedBitSetClone() {
+    FixedBitSet bitSet = new FixedBitSet(length);
+    addAllTo(bitSet);
+    return bitSet;
+  }
+
+  @Override
+  public Filter getTopFilter() {
+    return new Filter() {
+
+      @Override
+      public DocIdSet getDocIdSet(final LeafReaderContext context, final Bits acceptDocs) {
+        LeafReader reader = context.reader();
+        // all Solr DocSets that are used as filters only include live docs
+        final Bits acceptDocs2 = acceptDocs == null ? null : (reader.getLiveDocs() == acceptDocs ? null : acceptDocs);
+
+        final int base = context.docBase;
+        final int max = base + reader.maxDoc();   // one past the max doc in this segment.
+
+        return BitsFilteredDocIdSet.wrap(new DocIdSet() {
+          @Override
+          public DocIdSetIterator iterator() {
+            return new DocIdSetIterator() {
+              final RoaringIterator iter = new RoaringIterator();
+              int adjustedDoc = -1;
+
+              @Override
+              public int docID() {
+                return adjustedDoc;
+              }
+
+              @Override
+              public int nextDoc() {
+                if (adjustedDoc == NO_MORE_DOCS) return NO_MORE_DOCS;
+                return advance(adjustedDoc + 1);
+              }
+
+              @Override
+              public int advance(int target) {
+                if (target == NO_MORE_DOCS) return adjustedDoc = NO_MORE_DOCS;
+                int adjusted = target + base;
+                if (adjusted >= max) {
+                  return adjustedDoc = NO_MORE_DOCS;
+                }
+                int pos = iter.docID() >= adjusted ? iter.docID() : iter.advance(adjusted);
+                return adjustedDoc = pos < max ? pos - base : NO_MORE_DOCS;
+              }
+
+              @Override
+              public long cost() {
+                // pro-rated for the segment
+                return (long) (size * ((max - base) / (double) Math.max(1, length)));
+              }
+            };
+          }
+
+          @Override
+          public long ramBytesUsed() {
+            return RoaringDocSet.this.ramBytesUsed();
+          }
+
+          @Override
+          public Bits bits() {
+            return new Bits() {
+              @Override
+              public boolean get(int index) {
+                return exists(index + base);
+              }
+
+              @Override
+              public int length() {
+                return max - base;
+              }
+            };
+          }
+
+        }, acceptDocs2);
+      }
+
+      @Override
+      public String toString(String field) {
+        return "RoaringDocSetTopFilter";
+      }
+
+      @Override
+      public boolean equals(Object other) {
+        return other == this;
+      }
+
+      @Override
+      public int hashCode() {
+        return System.identityHashCode(this);
+      }
+    };
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public String toString() {
+    return "RoaringDocSet{" +
+        "size=" + size() + "," +
+        "ramUsed=" + RamUsageEstimator.humanReadableUnits(ramBytesUsed()) +
+        '}';
+  }
+}
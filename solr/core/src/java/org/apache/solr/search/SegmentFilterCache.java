@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BitDocIdSet;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.RoaringDocIdSet;
+
+/**
+ * A cache of the documents that filters match in each segment, which is shared by all searchers
+ * of a core. Unlike the filterCache, whose entries are sets of the top-level reader and are
+ * dropped with their searcher, entries are keyed on the rewritten query and the
+ * {@link IndexReader#getCoreCacheHelper() core cache key} of the segment like Lucene's
+ * <code>LRUQueryCache</code>, so they survive commits and reopens as long as their segment
+ * is not merged away.  Top-level {@link DocSet}s are produced by stitching the sets of all
+ * segments, so that a new searcher only needs to run filters against the segments that
+ * were added since the previous one, which makes autowarming of the filterCache cheap on
+ * cores that soft commit often.
+ * <p>
+ * Cached sets ignore deletions, which are applied when sets are stitched.  Segments on which
+ * the {@link Weight} of a query is not {@link Weight#isCacheable cacheable}, for instance
+ * because it depends on updatable doc values or on other segments, are computed every time.
+ * The cache evicts least recently used entries once it takes more than its maximum size in
+ * RAM.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @lucene.experimental
+ */
+public class SegmentFilterCache implements Accountable {
+
+  // same estimate as LRUQueryCache for the memory held by a query
+  private static final long QUERY_DEFAULT_RAM_BYTES_USED = 1024;
+  private static final long ENTRY_RAM_BYTES_USED = 2 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+      + RamUsageEstimator.shallowSizeOfInstance(Key.class)
+      // LinkedHashMap entry: header, hash, key, value, next, before, after
+      + RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + Integer.BYTES + 5 * RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+
+  private static final class Key {
+    final Query query;
+    final IndexReader.CacheKey coreKey;
+
+    Key(Query query, IndexReader.CacheKey coreKey) {
+      this.query = query;
+      this.coreKey = coreKey;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == null || obj.getClass() != getClass()) {
+        return false;
+      }
+      Key that = (Key) obj;
+      return coreKey == that.coreKey && query.equals(that.query);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * query.hashCode() + System.identityHashCode(coreKey);
+    }
+  }
+
+  private final long maxRamBytesUsed;
+  // in access order, guarded by this
+  private final Map<Key,DocIdSet> cache = new LinkedHashMap<>(16, 0.75f, true);
+  // core keys that have a closed listener, guarded by this
+  private final Set<IndexReader.CacheKey> coreKeys = new HashSet<>();
+  private long ramBytesUsed;
+  private long lookups;
+  private long hits;
+  private long inserts;
+  private long evictions;
+
+  /** Creates a cache that takes at most the given amount of RAM. */
+  public SegmentFilterCache(long maxRamBytesUsed) {
+    if (maxRamBytesUsed <= 0) {
+      throw new IllegalArgumentException("maxRamBytesUsed must be positive, got " + maxRamBytesUsed);
+    }
+    this.maxRamBytesUsed = maxRamBytesUsed;
+  }
+
+  /**
+   * Returns the set of live documents of the searcher that match the given positive query,
+   * using cached sets of the segments that have already been computed and caching the sets of
+   * the other segments, or null if the query can't be computed per segment.  The returned set
+   * should not be modified.
+   */
+  public DocSet getDocSet(SolrIndexSearcher searcher, Query query) throws IOException {
+    if (query instanceof DocSetProducer) {
+      // computed against the top-level reader
+      return null;
+    }
+    final Query rewritten = searcher.rewrite(query);
+    final Weight weight = searcher.createWeight(rewritten, ScoreMode.COMPLETE_NO_SCORES, 1f);
+    final List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+    final FixedBitSet bits = new FixedBitSet(searcher.maxDoc());
+    int count = 0;
+    for (LeafReaderContext ctx : leaves) {
+      final IndexReader.CacheHelper cacheHelper = ctx.reader().getCoreCacheHelper();
+      DocIdSet set;
+      if (cacheHelper == null || weight.isCacheable(ctx) == false) {
+        set = cacheImpl(weight.scorer(ctx), ctx.reader().maxDoc());
+      } else {
+        set = get(rewritten, cacheHelper.getKey());
+        if (set == null) {
+          set = cacheImpl(weight.scorer(ctx), ctx.reader().maxDoc());
+          put(rewritten, cacheHelper, set);
+        }
+      }
+      count += addLiveDocs(set, ctx, bits);
+    }
+
+    return DocSetUtil.getDocSetFromBits(new BitDocSet(bits, count), searcher);
+  }
+
+  /**
+   * Returns whether the sets of all segments of the searcher are cached for the given positive query, so that
+   * {@link #getDocSet} doesn't need to match it.  This doesn't count as a lookup in the stats of the cache.
+   */
+  public boolean isCached(SolrIndexSearcher searcher, Query query) throws IOException {
+    if (query instanceof DocSetProducer) {
+      return false;
+    }
+    final Query rewritten = searcher.rewrite(query);
+    synchronized (this) {
+      for (LeafReaderContext ctx : searcher.getTopReaderContext().leaves()) {
+        final IndexReader.CacheHelper cacheHelper = ctx.reader().getCoreCacheHelper();
+        if (cacheHelper == null || cache.containsKey(new Key(rewritten, cacheHelper.getKey())) == false) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static DocIdSet cacheImpl(Scorer scorer, int maxDoc) throws IOException {
+    if (scorer == null) {
+      return DocIdSet.EMPTY;
+    }
+    final DocIdSetIterator it = scorer.iterator();
+    // same heuristic as LRUQueryCache: dense sets go to a bit set, sparse ones to a roaring set
+    if (it.cost() * 100 >= maxDoc) {
+      final FixedBitSet bits = new FixedBitSet(maxDoc);
+      bits.or(it);
+      return new BitDocIdSet(bits);
+    }
+    return new RoaringDocIdSet.Builder(maxDoc).add(it).build();
+  }
+
+  private static int addLiveDocs(DocIdSet set, LeafReaderContext ctx, FixedBitSet bits) throws IOException {
+    final DocIdSetIterator it = set.iterator();
+    if (it == null) {
+      return 0;
+    }
+    final Bits liveDocs = ctx.reader().getLiveDocs();
+    final int base = ctx.docBase;
+    int count = 0;
+    for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+      if (liveDocs == null || liveDocs.get(doc)) {
+        bits.set(base + doc);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private synchronized DocIdSet get(Query query, IndexReader.CacheKey coreKey) {
+    lookups++;
+    final DocIdSet set = cache.get(new Key(query, coreKey));
+    if (set != null) {
+      hits++;
+    }
+    return set;
+  }
+
+  private synchronized void put(Query query, IndexReader.CacheHelper cacheHelper, DocIdSet set) {
+    final IndexReader.CacheKey coreKey = cacheHelper.getKey();
+    final DocIdSet old = cache.put(new Key(query, coreKey), set);
+    if (old != null) {
+      // another thread computed the same set concurrently
+      ramBytesUsed -= entryRamBytesUsed(query, old);
+    } else {
+      inserts++;
+    }
+    ramBytesUsed += entryRamBytesUsed(query, set);
+    if (coreKeys.add(coreKey)) {
+      cacheHelper.addClosedListener(this::clearCoreCacheKey);
+    }
+    evictIfNecessary();
+  }
+
+  private static long entryRamBytesUsed(Query query, DocIdSet set) {
+    final long queryRamBytesUsed = query instanceof Accountable
+        ? ((Accountable) query).ramBytesUsed() : QUERY_DEFAULT_RAM_BYTES_USED;
+    return ENTRY_RAM_BYTES_USED + queryRamBytesUsed + set.ramBytesUsed();
+  }
+
+  private void evictIfNecessary() {
+    assert Thread.holdsLock(this);
+    final Iterator<Map.Entry<Key,DocIdSet>> iterator = cache.entrySet().iterator();
+    while (ramBytesUsed > maxRamBytesUsed && iterator.hasNext()) {
+      final Map.Entry<Key,DocIdSet> eldest = iterator.next();
+      iterator.remove();
+      ramBytesUsed -= entryRamBytesUsed(eldest.getKey().query, eldest.getValue());
+      evictions++;
+    }
+  }
+
+  /** Removes the sets of the segment that has the given core key, called when the segment is closed. */
+  synchronized void clearCoreCacheKey(IndexReader.CacheKey coreKey) {
+    final Iterator<Map.Entry<Key,DocIdSet>> iterator = cache.entrySet().iterator();
+    while (iterator.hasNext()) {
+      final Map.Entry<Key,DocIdSet> entry = iterator.next();
+      if (entry.getKey().coreKey == coreKey) {
+        iterator.remove();
+        ramBytesUsed -= entryRamBytesUsed(entry.getKey().query, entry.getValue());
+      }
+    }
+    coreKeys.remove(coreKey);
+  }
+
+  /** Removes all entries. */
+  public synchronized void clear() {
+    cache.clear();
+    coreKeys.clear();
+    ramBytesUsed = 0;
+  }
+
+  /** Returns the number of cached per-segment sets. */
+  public synchronized int size() {
+    return cache.size();
+  }
+
+  @Override
+  public synchronized long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  /** Adds statistics about this cache to the given map, with the same names as {@link SolrCache}s use. */
+  public synchronized void getStatistics(Map<String,Object> map) {
+    map.put(SolrCache.LOOKUPS_PARAM, lookups);
+    map.put(SolrCache.HITS_PARAM, hits);
+    map.put(SolrCache.HIT_RATIO_PARAM, lookups == 0 ? 0f : (float) hits / lookups);
+    map.put(SolrCache.INSERTS_PARAM, inserts);
+    map.put(SolrCache.EVICTIONS_PARAM, evictions);
+    map.put(SolrCache.SIZE_PARAM, cache.size());
+    map.put(SolrCache.RAM_BYTES_USED_PARAM, ramBytesUsed);
+    map.put(SolrCache.MAX_RAM_MB_PARAM, maxRamBytesUsed / 1024L / 1024L);
+  }
+
+  @Override
+  public String toString() {
+    return "SegmentFilterCache(maxRamBytesUsed=" + maxRamBytesUsed + ")";
+  }
+}
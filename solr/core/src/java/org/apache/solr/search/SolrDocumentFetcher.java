@@ -64,7 +64,9 @@ import org.apache.lucene.util.NumericUtils;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentBase;
 import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.ByteArrayUtf8CharSequence;
 import org.apache.solr.core.SolrConfig;
+import org.apache.solr.response.BinaryResponseWriter;
 import org.apache.solr.response.DocsStreamer;
 import org.apache.solr.response.ResultContext;
 import org.apache.solr.schema.AbstractEnumField;
@@ -513,6 +515,8 @@ public class SolrDocumentFetcher {
    * @param fields
    *          The fields with docValues to populate the document with.
    *          DocValues fields which do not exist or not decodable will be ignored.
+   *          If the document is being written by the {@link BinaryResponseWriter}, string values
+   *          are added as their UTF-8 bytes so that they can be written without decoding them.
    */
   public void decorateDocValueFields(@SuppressWarnings("rawtypes") SolrDocumentBase doc, int docid, Set<String> fields)
       throws IOException {
@@ -520,8 +524,11 @@ public class SolrDocumentFetcher {
     final int subIndex = ReaderUtil.subIndex(docid, leafContexts);
     final int localId = docid - leafContexts.get(subIndex).docBase;
     final LeafReader leafReader = leafContexts.get(subIndex).reader();
+    final Predicate<String> readAsBytes = doc instanceof BinaryResponseWriter.MaskCharSeqSolrDocument ?
+        ResultContext.READASBYTES.get() : null;
     for (String fieldName : fields) {
-      Object fieldValue = decodeDVField(localId, leafReader, fieldName);
+      Object fieldValue = decodeDVField(localId, leafReader, fieldName,
+          readAsBytes != null && readAsBytes.test(fieldName));
       if (fieldValue != null) {
         doc.setField(fieldName, fieldValue);
       }
@@ -530,9 +537,10 @@ public class SolrDocumentFetcher {
 
   /**
    * Decode value from DV field for a document
+   * @param asUtf8 whether string values should be returned as {@link ByteArrayUtf8CharSequence}s
    * @return null if DV field is not exist or can not decodable
    */
-  private Object decodeDVField(int localId, LeafReader leafReader, String fieldName) throws IOException {
+  private Object decodeDVField(int localId, LeafReader leafReader, String fieldName, boolean asUtf8) throws IOException {
     final SchemaField schemaField = searcher.getSchema().getFieldOrNull(fieldName);
     FieldInfo fi = searcher.getFieldInfos().fieldInfo(fieldName);
     if (schemaField == null || !schemaField.hasDocValues() || fi == null) {
@@ -564,6 +572,8 @@ public class SolrDocumentFetcher {
           // Special handling for Boolean fields since they're stored as 'T' and 'F'.
           if (schemaField.getType() instanceof BoolField) {
             return schemaField.getType().toObject(schemaField, bRef);
+          } else if (asUtf8) {
+            return copyUtf8(bRef);
           } else {
             return bRef.utf8ToString();
           }
@@ -598,7 +608,7 @@ public class SolrDocumentFetcher {
           final List<Object> outValues = new LinkedList<>();
           for (long ord = values.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values.nextOrd()) {
             BytesRef value = values.lookupOrd(ord);
-            outValues.add(schemaField.getType().toObject(schemaField, value));
+            outValues.add(asUtf8 ? copyUtf8(value) : schemaField.getType().toObject(schemaField, value));
           }
           assert outValues.size() > 0;
           return outValues;
@@ -609,6 +619,12 @@ public class SolrDocumentFetcher {
     }
   }
 
+  private static ByteArrayUtf8CharSequence copyUtf8(BytesRef bytes) {
+    // the bytes of doc values are only valid until the next lookup
+    return new ByteArrayUtf8CharSequence(
+        Arrays.copyOfRange(bytes.bytes, bytes.offset, bytes.offset + bytes.length), 0, bytes.length);
+  }
+
   private Object decodeNumberFromDV(SchemaField schemaField, long value, boolean sortableNumeric) {
     // note: This special-case is unfortunate; if we have to add any more than perhaps the fieldType should
     //  have this method so that specific field types can customize it.
@@ -810,7 +826,8 @@ public class SolrDocumentFetcher {
           }
         } else {
           // no need to get stored fields of the document, see SOLR-5968
-          sdoc = new SolrDocument();
+          sdoc = ResultContext.READASBYTES.get() == null ?
+              new SolrDocument() : new BinaryResponseWriter.MaskCharSeqSolrDocument();
           solrReturnFields.setFieldSources(SolrReturnFields.FIELD_SOURCES.ALL_FROM_DV);
         }
 
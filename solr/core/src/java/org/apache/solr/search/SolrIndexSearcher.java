@@ -31,7 +31,11 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -55,6 +59,8 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.IOSupplier;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrException.ErrorCode;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -93,6 +99,11 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   public static final String STATS_SOURCE = "org.apache.solr.stats_source";
+  /**
+   * Request context key of the {@link QueryProfiler} that records the queries of a request, if any. The queries
+   * are only profiled between calls to {@link #beginProfiling()} and {@link #endProfiling()}.
+   */
+  public static final String QUERY_PROFILER = "org.apache.solr.query_profiler";
   public static final String STATISTICS_KEY = "searcher";
   // These should *only* be used for debugging or monitoring purposes
   public static final AtomicLong numOpens = new AtomicLong();
@@ -120,6 +131,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private final SolrCache<Query,DocSet> filterCache;
   private final SolrCache<QueryResultKey,DocList> queryResultCache;
   private final SolrCache<String,UnInvertedField> fieldValueCache;
+  private final SegmentFilterCache segmentFilterCache;  // shared with other searchers of the core, may be null
+  private LeafSlice[] leafSlices;  // slices of segments for concurrent collection, computed lazily
+  // number of requests that are profiling their queries, the others don't need to look for a profiler
+  private final AtomicInteger profilingRequests = new AtomicInteger();
 
   // map of generic caches - not synchronized since it's read-only after the constructor.
   private final Map<String,SolrCache> cacheMap;
@@ -218,6 +233,136 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     }
   }
 
+  private synchronized LeafSlice[] getLeafSlices() {
+    if (leafSlices == null) {
+      leafSlices = slices(getLeafContexts());
+    }
+    return leafSlices;
+  }
+
+  /**
+   * Whether the query of the command can be collected with {@link #searchSlices}. Post filters, rank queries, early
+   * termination and time limits need the whole collector chain of {@link #buildAndRunCollectorChain} on a single
+   * thread.
+   */
+  private boolean canSearchSlices(QueryCommand cmd, ProcessedFilter pf) {
+    return cmd.isMultiThreaded() && core.getParallelSearchExecutor() != null
+        && pf.postFilter == null && cmd.getQuery() instanceof RankQuery == false
+        && cmd.getTerminateEarly() == false && cmd.getSegmentTerminateEarly() == false
+        && cmd.getTimeAllowed() <= 0 && getLeafSlices().length > 1;
+  }
+
+  /**
+   * Collects the query concurrently on each slice of segments into the collectors that the supplier returns for
+   * each slice, and returns these collectors in the order of the slices. The last slice, and slices that would have
+   * to wait because the thread pool of the core is busy, are collected on the calling thread.
+   */
+  private List<Collector[]> searchSlices(Query query, IOSupplier<Collector[]> collectorsSupplier) throws IOException {
+    final LeafSlice[] slices = getLeafSlices();
+    final List<Collector[]> sliceCollectors = new ArrayList<>(slices.length);
+    final List<Collector> collectors = new ArrayList<>(slices.length);
+    for (int i = 0; i < slices.length; i++) {
+      final Collector[] c = collectorsSupplier.get();
+      sliceCollectors.add(c);
+      collectors.add(MultiCollector.wrap(c));
+    }
+    final Weight weight = createWeight(rewrite(query), collectors.get(0).scoreMode(), 1);
+
+    final ThreadPoolExecutor executor = core.getParallelSearchExecutor();
+    final List<FutureTask<Void>> tasks = new ArrayList<>(slices.length);
+    for (int i = 0; i < slices.length; i++) {
+      final LeafSlice slice = slices[i];
+      final Collector collector = collectors.get(i);
+      final FutureTask<Void> task = new FutureTask<>(() -> {
+        if (slice.isPartition()) {
+          searchLeaf(slice.leaves[0], slice.minDocId, slice.maxDocId, weight, collector);
+        } else {
+          search(Arrays.asList(slice.leaves), weight, collector);
+        }
+        return null;
+      });
+      tasks.add(task);
+      // same limit as Lucene's QueueSizeBasedExecutor
+      if (i == slices.length - 1 || executor.getQueue().size() >= executor.getMaximumPoolSize() * 1.5) {
+        task.run();
+      } else {
+        executor.execute(task);
+      }
+    }
+
+    for (FutureTask<Void> task : tasks) {
+      try {
+        task.get();
+      } catch (InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      } catch (ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new RuntimeException(cause);
+      }
+    }
+    return sliceCollectors;
+  }
+
+  /** Merges the top docs of slices, ties are broken by doc ID like when collecting on a single thread. */
+  private TopDocs mergeTopDocs(QueryCommand cmd, int len, List<Collector[]> sliceCollectors) throws IOException {
+    if (cmd.getSort() == null) {
+      final TopDocs[] topDocs = new TopDocs[sliceCollectors.size()];
+      for (int i = 0; i < topDocs.length; i++) {
+        topDocs[i] = ((TopDocsCollector) sliceCollectors.get(i)[0]).topDocs(0, len);
+      }
+      return TopDocs.merge(0, len, topDocs, DOC_ID_TIE_BREAKER);
+    }
+    final TopFieldDocs[] topDocs = new TopFieldDocs[sliceCollectors.size()];
+    for (int i = 0; i < topDocs.length; i++) {
+      topDocs[i] = (TopFieldDocs) ((TopDocsCollector) sliceCollectors.get(i)[0]).topDocs(0, len);
+    }
+    return TopDocs.merge(weightSort(cmd.getSort()), 0, len, topDocs, DOC_ID_TIE_BREAKER);
+  }
+
+  private static final Comparator<ScoreDoc> DOC_ID_TIE_BREAKER = Comparator.comparingInt(d -> d.doc);
+
+  /** Returns the sum of the hits that the collectors at the given index of each slice counted. */
+  private static int sumTotalHits(List<Collector[]> sliceCollectors, int index) {
+    int totalHits = 0;
+    for (Collector[] collectors : sliceCollectors) {
+      final Collector collector = collectors[index];
+      totalHits += collector instanceof TotalHitCountCollector
+          ? ((TotalHitCountCollector) collector).getTotalHits() : ((TopDocsCollector) collector).getTotalHits();
+    }
+    return totalHits;
+  }
+
+  /** Returns the maximum score of the {@link MaxScoreCollector}s at the given index of each slice. */
+  private static float maxScore(List<Collector[]> sliceCollectors, int index) {
+    float maxScore = Float.NaN;
+    for (Collector[] collectors : sliceCollectors) {
+      final float score = ((MaxScoreCollector) collectors[index]).getMaxScore();
+      if (Float.isNaN(maxScore) || score > maxScore) {
+        maxScore = score;
+      }
+    }
+    return maxScore;
+  }
+
+  /** Returns the union of the sets of the {@link DocSetCollector}s at the given index of each slice. */
+  private DocSet unionDocSets(List<Collector[]> sliceCollectors, int index) {
+    final FixedBitSet bits = new FixedBitSet(maxDoc());
+    int size = 0;
+    for (Collector[] collectors : sliceCollectors) {
+      final DocSet set = ((DocSetCollector) collectors[index]).getDocSet();
+      set.addAllTo(bits);
+      size += set.size();
+    }
+    return DocSetUtil.getDocSetFromBits(new BitDocSet(bits, size), this);
+  }
+
   public SolrIndexSearcher(SolrCore core, String path, IndexSchema schema, SolrIndexConfig config, String name,
       boolean enableCache, DirectoryFactory directoryFactory) throws IOException {
     // We don't need to reserve the directory because we get it from the factory
@@ -295,8 +440,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       }
 
       cacheList = clist.toArray(new SolrCache[clist.size()]);
+      segmentFilterCache = core.getSegmentFilterCache();
     } else {
       this.filterCache = null;
+      this.segmentFilterCache = null;
       this.queryResultCache = null;
       this.fieldValueCache = null;
       this.cacheMap = NO_GENERIC_CACHES;
@@ -354,6 +501,48 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     return localCollectionStatistics(field);
   }
 
+  /*
+   * Override these two methods to profile the queries of requests that ask for it.
+   */
+  @Override
+  public Query rewrite(Query original) throws IOException {
+    final QueryProfiler profiler = getQueryProfiler();
+    if (profiler != null) {
+      return profiler.rewrite(() -> super.rewrite(original));
+    }
+    return super.rewrite(original);
+  }
+
+  @Override
+  public Weight createWeight(Query query, ScoreMode scoreMode, float boost) throws IOException {
+    final QueryProfiler profiler = getQueryProfiler();
+    if (profiler != null) {
+      return profiler.createWeight(query, () -> super.createWeight(query, scoreMode, boost));
+    }
+    return super.createWeight(query, scoreMode, boost);
+  }
+
+  /**
+   * Start profiling the queries of the current request with its {@link #QUERY_PROFILER}. Must be followed by a
+   * call to {@link #endProfiling()}.
+   */
+  public void beginProfiling() {
+    profilingRequests.incrementAndGet();
+  }
+
+  /** Stop profiling the queries of the current request. */
+  public void endProfiling() {
+    profilingRequests.decrementAndGet();
+  }
+
+  private QueryProfiler getQueryProfiler() {
+    if (profilingRequests.get() == 0) {
+      return null;
+    }
+    final SolrRequestInfo reqInfo = SolrRequestInfo.getRequestInfo();
+    return reqInfo == null ? null : (QueryProfiler) reqInfo.getReq().getContext().get(QUERY_PROFILER);
+  }
+
   public TermStatistics localTermStatistics(Term term, int docFreq, long totalTermFreq) throws IOException {
     return super.termStatistics(term, docFreq, totalTermFreq);
   }
@@ -515,6 +704,11 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     return filterCache;
   }
 
+  /** Returns the cache of the doc sets of filters per segment, or null. */
+  SegmentFilterCache getSegmentFilterCache() {
+    return segmentFilterCache;
+  }
+
   //
   // Set default regenerators on filter and query caches if they don't have any
   //
@@ -813,7 +1007,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       }
     }
 
-    DocSet absAnswer = getDocSetNC(absQ, null);
+    DocSet absAnswer = computeDocSet(absQ);
     DocSet answer = positive ? absAnswer : getLiveDocSet().andNot(absAnswer);
 
     if (filterCache != null) {
@@ -831,7 +1025,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       answer = filterCache.get(q);
       if (answer != null) return answer;
     }
-    answer = getDocSetNC(q, null);
+    answer = computeDocSet(q);
     if (filterCache != null) filterCache.put(q, answer);
     return answer;
   }
@@ -999,6 +1193,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     public Filter filter; // maybe null
     public DelegatingCollector postFilter; // maybe null
     public boolean hasDeletedDocs;  // true if it's possible that filter may match deleted docs
+    public Query mainQuery; // maybe null. Matches like the planned main query, reusing the weight of the planning
   }
 
   /**
@@ -1007,6 +1202,19 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
    * Queries typically are resolved against the filter cache, and populate it.
    */
   public ProcessedFilter getProcessedFilter(DocSet setFilter, List<Query> queries) throws IOException {
+    return getProcessedFilter(setFilter, queries, null, null);
+  }
+
+  /**
+   * INTERNAL: Like {@link #getProcessedFilter(DocSet, List)}, but if <code>mainQuery</code> isn't null, the
+   * filters that aren't cached are planned by their cost relative to it: those that match many more documents
+   * than the main query are applied lazily while it is matched, rather than computing and caching their doc sets.
+   * The main query should then be searched through {@link ProcessedFilter#mainQuery} if it is set, which reuses
+   * the weight created for the planning when the search has the given score mode.
+   * @see FilterPlanner
+   */
+  public ProcessedFilter getProcessedFilter(DocSet setFilter, List<Query> queries, Query mainQuery,
+                                            ScoreMode mainScoreMode) throws IOException {
     ProcessedFilter pf = new ProcessedFilter();
     if (queries == null || queries.size() == 0) {
       if (setFilter != null) {
@@ -1033,8 +1241,12 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       smallestIndex = end;
     } // we are done with setFilter at this point
 
+    final FilterPlanner planner = mainQuery == null || filterCache == null ? null
+        : new FilterPlanner(this, mainQuery, mainScoreMode, setFilter, queries);
+
     int smallestCount = Integer.MAX_VALUE;
-    for (Query q : queries) {
+    for (int qi = 0; qi < queries.size(); qi++) {
+      final Query q = queries.get(qi);
       if (q instanceof ExtendedQuery) {
         ExtendedQuery eq = (ExtendedQuery) q;
         if (!eq.getCache()) {
@@ -1059,7 +1271,23 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       }
 
       Query posQuery = QueryUtils.getAbs(q);
-      sets[end] = getPositiveDocSet(posQuery);
+      if (planner != null && q == posQuery) {
+        sets[end] = planner.getCached(qi, q);
+        if (sets[end] == null) {
+          final Query lazy = planner.planUncached(q);
+          if (lazy != null) {
+            if (notCached == null) notCached = new ArrayList<>(sets.length - end);
+            WrappedQuery uncached = new WrappedQuery(lazy);
+            uncached.setCache(false);
+            notCached.add(uncached);
+            continue;
+          }
+          sets[end] = computeDocSet(q);
+          filterCache.put(q, sets[end]);
+        }
+      } else {
+        sets[end] = getPositiveDocSet(posQuery);
+      }
       // Negative query if absolute value different from original
       if (q == posQuery) {
         neg[end] = false;
@@ -1099,6 +1327,10 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     }
 
     // answer is done.
+    if (planner != null) {
+      planner.addDebugInfo();
+      pf.mainQuery = planner.getMainQuery();
+    }
 
     // If no notCached nor postFilters, we can return now.
     if (notCached == null && postFilters == null) {
@@ -1123,7 +1355,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         Query qq = QueryUtils.makeQueryable(q);
         weights.add(createWeight(rewrite(qq), ScoreMode.COMPLETE_NO_SCORES, 1));
       }
-      pf.filter = new FilterImpl(answer, weights);
+      pf.filter = new FilterImpl(answer, weights, planner != null && planner.hasLazyFilters());
       pf.hasDeletedDocs = (answer == null);  // if all clauses were uncached, the resulting filter may match deleted docs
     }
 
@@ -1209,7 +1441,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
         fbs.set(docs[i]);
       }
       bitsSet += upto;
-      result = new BitDocSet(fbs, bitsSet);
+      result = DocSetUtil.compact(new BitDocSet(fbs, bitsSet));
     } else {
       result = upto == 0 ? DocSet.empty() : new SortedIntDocSet(Arrays.copyOf(docs, upto));
     }
@@ -1226,6 +1458,15 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     return DocSetUtil.createDocSet(this, query, filter);
   }
 
+  // query must be positive, the answer may reuse per-segment sets that were computed by previous searchers
+  private DocSet computeDocSet(Query query) throws IOException {
+    if (segmentFilterCache != null) {
+      DocSet answer = segmentFilterCache.getDocSet(this, query);
+      if (answer != null) return answer;
+    }
+    return getDocSetNC(query, null);
+  }
+
   /**
    * Returns the set of document ids matching both the query and the filter. This method is cache-aware and attempts to
    * retrieve the answer from the cache if possible. If the answer was not cached, it may have been inserted into the
@@ -1258,7 +1499,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     if (filterCache != null) {
       first = filterCache.get(absQ);
       if (first == null) {
-        first = getDocSetNC(absQ, null);
+        first = computeDocSet(absQ);
         filterCache.put(absQ, first);
       }
       return positive ? first.intersection(filter) : filter.andNot(first);
@@ -1571,6 +1812,19 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     }
   }
 
+  /** Returns the main query to plan the filters of the command against, or null if they shouldn't be planned. */
+  private static Query getQueryToPlan(QueryCommand cmd, Query query) {
+    // rank queries bring their own collectors
+    return cmd.isPlanFilters() && query instanceof RankQuery == false ? query : null;
+  }
+
+  /** Returns the score mode that the main query of the command is most likely searched with. */
+  private static ScoreMode getPlanningScoreMode(QueryCommand cmd, int lastDocRequested) {
+    final boolean needScores = (cmd.getFlags() & GET_SCORES) != 0
+        || (lastDocRequested > 0 && (cmd.getSort() == null || cmd.getSort().needsScores()));
+    return needScores ? ScoreMode.COMPLETE : ScoreMode.COMPLETE_NO_SCORES;
+  }
+
   private void getDocListNC(QueryResult qr, QueryCommand cmd) throws IOException {
     int len = cmd.getSupersetMaxDoc();
     int last = len;
@@ -1586,11 +1840,24 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
 
     Query query = QueryUtils.makeQueryable(cmd.getQuery());
 
-    ProcessedFilter pf = getProcessedFilter(cmd.getFilter(), cmd.getFilterList());
-    query = QueryUtils.combineQueryAndFilter(query, pf.filter);
+    ProcessedFilter pf = getProcessedFilter(cmd.getFilter(), cmd.getFilterList(), getQueryToPlan(cmd, query),
+        getPlanningScoreMode(cmd, lastDocRequested));
+    query = QueryUtils.combineQueryAndFilter(pf.mainQuery == null ? query : pf.mainQuery, pf.filter);
 
     // handle zero case...
-    if (lastDocRequested <= 0) {
+    if (lastDocRequested <= 0 && canSearchSlices(cmd, pf)) {
+      final List<Collector[]> sliceCollectors = searchSlices(query, () -> needScores
+          ? new Collector[] {new TotalHitCountCollector(), new MaxScoreCollector()}
+          : new Collector[] {new TotalHitCountCollector()});
+
+      nDocsReturned = 0;
+      ids = new int[nDocsReturned];
+      scores = new float[nDocsReturned];
+      totalHits = sumTotalHits(sliceCollectors, 0);
+      maxScore = totalHits > 0 ? (needScores ? maxScore(sliceCollectors, 1) : Float.NEGATIVE_INFINITY) : 0.0f;
+      // no docs on this page, so cursor doesn't change
+      qr.setNextCursorMark(cmd.getCursorMark());
+    } else if (lastDocRequested <= 0) {
       final float[] topscore = new float[] {Float.NEGATIVE_INFINITY};
       final int[] numHits = new int[1];
 
@@ -1640,6 +1907,27 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       maxScore = totalHits > 0 ? topscore[0] : 0.0f;
       // no docs on this page, so cursor doesn't change
       qr.setNextCursorMark(cmd.getCursorMark());
+    } else if (canSearchSlices(cmd, pf)) {
+      final List<Collector[]> sliceCollectors = searchSlices(query, () -> needScores
+          ? new Collector[] {buildTopDocsCollector(len, cmd), new MaxScoreCollector()}
+          : new Collector[] {buildTopDocsCollector(len, cmd)});
+
+      totalHits = sumTotalHits(sliceCollectors, 0);
+      TopDocs topDocs = mergeTopDocs(cmd, len, sliceCollectors);
+      if (cmd.getSort() != null && needScores) {
+        TopFieldCollector.populateScores(topDocs.scoreDocs, this, query);
+      }
+      populateNextCursorMarkFromTopDocs(qr, cmd, topDocs);
+
+      maxScore = totalHits > 0 ? (needScores ? maxScore(sliceCollectors, 1) : Float.NaN) : 0.0f;
+      nDocsReturned = topDocs.scoreDocs.length;
+      ids = new int[nDocsReturned];
+      scores = needScores ? new float[nDocsReturned] : null;
+      for (int i = 0; i < nDocsReturned; i++) {
+        ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+        ids[i] = scoreDoc.doc;
+        if (scores != null) scores[i] = scoreDoc.score;
+      }
     } else {
       final TopDocsCollector topCollector = buildTopDocsCollector(len, cmd);
       MaxScoreCollector maxScoreCollector = null;
@@ -1690,14 +1978,32 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     boolean needScores = (cmd.getFlags() & GET_SCORES) != 0;
     int maxDoc = maxDoc();
 
-    ProcessedFilter pf = getProcessedFilter(cmd.getFilter(), cmd.getFilterList());
     Query query = QueryUtils.makeQueryable(cmd.getQuery());
+    ProcessedFilter pf = getProcessedFilter(cmd.getFilter(), cmd.getFilterList(), getQueryToPlan(cmd, query),
+        getPlanningScoreMode(cmd, lastDocRequested));
+    if (pf.mainQuery != null) {
+      query = pf.mainQuery;
+    }
     if (pf.filter != null) {
       query = new BooleanQuery.Builder().add(query, Occur.MUST).add(pf.filter, Occur.FILTER).build();
     }
 
     // handle zero case...
-    if (lastDocRequested <= 0) {
+    if (lastDocRequested <= 0 && canSearchSlices(cmd, pf)) {
+      final List<Collector[]> sliceCollectors = searchSlices(query, () -> needScores
+          ? new Collector[] {new DocSetCollector(maxDoc), new MaxScoreCollector()}
+          : new Collector[] {new DocSetCollector(maxDoc)});
+
+      set = unionDocSets(sliceCollectors, 0);
+
+      nDocsReturned = 0;
+      ids = new int[nDocsReturned];
+      scores = new float[nDocsReturned];
+      totalHits = set.size();
+      maxScore = totalHits > 0 ? (needScores ? maxScore(sliceCollectors, 1) : Float.NEGATIVE_INFINITY) : 0.0f;
+      // no docs on this page, so cursor doesn't change
+      qr.setNextCursorMark(cmd.getCursorMark());
+    } else if (lastDocRequested <= 0) {
       final float[] topscore = new float[] {Float.NEGATIVE_INFINITY};
 
       Collector collector;
@@ -1741,6 +2047,31 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       maxScore = totalHits > 0 ? topscore[0] : 0.0f;
       // no docs on this page, so cursor doesn't change
       qr.setNextCursorMark(cmd.getCursorMark());
+    } else if (canSearchSlices(cmd, pf)) {
+      final List<Collector[]> sliceCollectors = searchSlices(query, () -> needScores
+          ? new Collector[] {buildTopDocsCollector(len, cmd), new DocSetCollector(maxDoc), new MaxScoreCollector()}
+          : new Collector[] {buildTopDocsCollector(len, cmd), new DocSetCollector(maxDoc)});
+
+      set = unionDocSets(sliceCollectors, 1);
+
+      totalHits = sumTotalHits(sliceCollectors, 0);
+      assert totalHits == set.size();
+
+      TopDocs topDocs = mergeTopDocs(cmd, len, sliceCollectors);
+      if (cmd.getSort() != null && needScores) {
+        TopFieldCollector.populateScores(topDocs.scoreDocs, this, query);
+      }
+      populateNextCursorMarkFromTopDocs(qr, cmd, topDocs);
+      maxScore = totalHits > 0 ? (needScores ? maxScore(sliceCollectors, 2) : Float.NaN) : 0.0f;
+      nDocsReturned = topDocs.scoreDocs.length;
+
+      ids = new int[nDocsReturned];
+      scores = needScores ? new float[nDocsReturned] : null;
+      for (int i = 0; i < nDocsReturned; i++) {
+        ScoreDoc scoreDoc = topDocs.scoreDocs[i];
+        ids[i] = scoreDoc.doc;
+        if (scores != null) scores[i] = scoreDoc.score;
+      }
     } else {
 
       final TopDocsCollector topCollector = buildTopDocsCollector(len, cmd);
@@ -2061,7 +2392,7 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     }
 
     // bit of a hack to tell if a set is sorted - do it better in the future.
-    boolean inOrder = set instanceof BitDocSet || set instanceof SortedIntDocSet;
+    boolean inOrder = set instanceof BitDocSet || set instanceof SortedIntDocSet || set instanceof RoaringDocSet;
 
     TopDocsCollector topCollector = buildTopDocsCollector(nDocs, cmd);
 
@@ -2188,6 +2519,15 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   public void warm(SolrIndexSearcher old) {
     // Make sure this is first! filters can help queryResults execute!
     long warmingStartTime = System.nanoTime();
+    // rebuild the top-level ordinal maps incrementally, faceting and grouping on string fields need them
+    if (leafReader instanceof SlowCompositeReaderWrapper && old.leafReader instanceof SlowCompositeReaderWrapper
+        && schema == old.schema) {
+      try {
+        ((SlowCompositeReaderWrapper) leafReader).warmOrdinalMaps((SlowCompositeReaderWrapper) old.leafReader);
+      } catch (Exception e) {
+        log.warn("Failed to warm ordinal maps of {} from {}", this, old, e);
+      }
+    }
     // warm the caches in order...
     ModifiableSolrParams params = new ModifiableSolrParams();
     params.add("warming", "true");
@@ -2326,6 +2666,9 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
     parentContext.gauge(() -> reader.toString(), true, "reader", Category.SEARCHER.toString(), scope);
     parentContext.gauge(() -> reader.directory().toString(), true, "readerDir", Category.SEARCHER.toString(), scope);
     parentContext.gauge(() -> reader.getVersion(), true, "indexVersion", Category.SEARCHER.toString(), scope);
+    parentContext.gauge(() -> leafReader instanceof SlowCompositeReaderWrapper
+        ? ((SlowCompositeReaderWrapper) leafReader).ordinalMapsRamBytesUsed() : 0L,
+        true, "ordinalMapsRamBytesUsed", Category.SEARCHER.toString(), scope);
     // size of the currently opened commit
     parentContext.gauge(() -> {
       try {
@@ -2350,9 +2693,15 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
   private static class FilterImpl extends Filter {
     private final Filter topFilter;
     private final List<Weight> weights;
+    private final boolean conjunction;
 
-    public FilterImpl(DocSet filter, List<Weight> weights) {
+    /**
+     * @param conjunction whether to intersect the non cached filters like a conjunction when used as a query,
+     *                    because some of them were planned to be applied lazily
+     */
+    public FilterImpl(DocSet filter, List<Weight> weights, boolean conjunction) {
       this.weights = weights;
+      this.conjunction = conjunction;
       this.topFilter = filter == null ? null : filter.getTopFilter();
     }
 
@@ -2363,6 +2712,81 @@ public class SolrIndexSearcher extends IndexSearcher implements Closeable, SolrI
       return new FilterSet(sub, context);
     }
 
+    /**
+     * As a query, the non cached filters are intersected like the clauses of a conjunction rather than through
+     * {@link #getDocIdSet}, so that they may be applied lazily: they get the cost of the lead of the conjunction
+     * and their two-phase iterators are kept.  This is only done if the filters were planned so.
+     */
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+      if (conjunction == false) {
+        return super.createWeight(searcher, scoreMode, boost);
+      }
+      return new ConstantScoreWeight(this, 0f) {
+
+        @Override
+        public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+          final DocIdSet set = topFilter == null ? null : topFilter.getDocIdSet(context, null);
+          final DocIdSetIterator setIterator = set == null ? null : set.iterator();
+          if (topFilter != null && setIterator == null) {
+            return null;
+          }
+          final List<ScorerSupplier> suppliers = new ArrayList<>(weights.size());
+          long cost = setIterator == null ? Long.MAX_VALUE : setIterator.cost();
+          for (Weight w : weights) {
+            final ScorerSupplier supplier = w.scorerSupplier(context);
+            if (supplier == null) {
+              return null;
+            }
+            suppliers.add(supplier);
+            cost = Math.min(cost, supplier.cost());
+          }
+          final Weight weight = this;
+          final long minCost = cost;
+          return new ScorerSupplier() {
+            @Override
+            public Scorer get(long leadCost) throws IOException {
+              leadCost = Math.min(leadCost, minCost);
+              final List<Scorer> scorers = new ArrayList<>(suppliers.size() + 1);
+              if (setIterator != null) {
+                scorers.add(new ConstantScoreScorer(weight, 0f, scoreMode, setIterator));
+              }
+              for (ScorerSupplier supplier : suppliers) {
+                scorers.add(supplier.get(leadCost));
+              }
+              final DocIdSetIterator iterator;
+              if (scorers.size() == 1) {
+                final TwoPhaseIterator twoPhase = scorers.get(0).twoPhaseIterator();
+                iterator = twoPhase == null ? scorers.get(0).iterator() : TwoPhaseIterator.asDocIdSetIterator(twoPhase);
+              } else {
+                iterator = ConjunctionDISI.intersectScorers(scorers);
+              }
+              final TwoPhaseIterator twoPhase = TwoPhaseIterator.unwrap(iterator);
+              return twoPhase == null
+                  ? new ConstantScoreScorer(weight, score(), scoreMode, iterator)
+                  : new ConstantScoreScorer(weight, score(), scoreMode, twoPhase);
+            }
+
+            @Override
+            public long cost() {
+              return minCost;
+            }
+          };
+        }
+
+        @Override
+        public Scorer scorer(LeafReaderContext context) throws IOException {
+          final ScorerSupplier supplier = scorerSupplier(context);
+          return supplier == null ? null : supplier.get(Long.MAX_VALUE);
+        }
+
+        @Override
+        public boolean isCacheable(LeafReaderContext ctx) {
+          return false;
+        }
+      };
+    }
+
     @Override
     public String toString(String field) {
       return "SolrFilter";
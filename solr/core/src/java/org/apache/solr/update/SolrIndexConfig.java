@@ -69,6 +69,11 @@ public class SolrIndexConfig implements MapSerializable {
   public final double ramBufferSizeMB;
   public final int ramPerThreadHardLimitMB;
 
+  /** Number of threads that apply deletes and updates to segments concurrently, 0 to apply them sequentially. */
+  public final int applyUpdatesThreads;
+  /** Maximum RAM used by deletes and updates that are pending application before indexing stalls, -1 for no limit. */
+  public final double maxPendingUpdatesRAMMB;
+
   public final int writeLockTimeout;
   public final String lockType;
   public final PluginInfo mergePolicyFactoryInfo;
@@ -87,6 +92,8 @@ public class SolrIndexConfig implements MapSerializable {
     maxBufferedDocs = -1;
     ramBufferSizeMB = 100;
     ramPerThreadHardLimitMB = -1;
+    applyUpdatesThreads = 0;
+    maxPendingUpdatesRAMMB = -1;
     writeLockTimeout = -1;
     lockType = DirectoryFactory.LOCK_TYPE_NATIVE;
     mergePolicyFactoryInfo = null;
@@ -135,6 +142,12 @@ public class SolrIndexConfig implements MapSerializable {
     // how do we validate the value??
     ramPerThreadHardLimitMB = solrConfig.getInt(prefix+"/ramPerThreadHardLimitMB", def.ramPerThreadHardLimitMB);
 
+    applyUpdatesThreads = solrConfig.getInt(prefix+"/applyUpdatesThreads", def.applyUpdatesThreads);
+    if (applyUpdatesThreads < 0) {
+      throw new IllegalArgumentException("applyUpdatesThreads must be >= 0, got " + applyUpdatesThreads);
+    }
+    maxPendingUpdatesRAMMB = solrConfig.getDouble(prefix+"/maxPendingUpdatesRAMMB", def.maxPendingUpdatesRAMMB);
+
     writeLockTimeout=solrConfig.getInt(prefix+"/writeLockTimeout", def.writeLockTimeout);
     lockType=solrConfig.get(prefix+"/lockType", def.lockType);
 
@@ -185,6 +198,8 @@ public class SolrIndexConfig implements MapSerializable {
         "maxBufferedDocs", maxBufferedDocs,
         "ramBufferSizeMB", ramBufferSizeMB,
         "ramPerThreadHardLimitMB", ramPerThreadHardLimitMB,
+        "applyUpdatesThreads", applyUpdatesThreads,
+        "maxPendingUpdatesRAMMB", maxPendingUpdatesRAMMB,
         "writeLockTimeout", writeLockTimeout,
         "lockType", lockType,
         "infoStreamEnabled", infoStream != InfoStream.NO_OUTPUT);
@@ -231,6 +246,10 @@ public class SolrIndexConfig implements MapSerializable {
       iwc.setRAMPerThreadHardLimitMB(ramPerThreadHardLimitMB);
     }
 
+    if (maxPendingUpdatesRAMMB != -1) {
+      iwc.setMaxPendingUpdatesRAMMB(maxPendingUpdatesRAMMB);
+    }
+
     iwc.setSimilarity(schema.getSimilarity());
     MergePolicy mergePolicy = buildMergePolicy(core.getResourceLoader(), schema);
     iwc.setMergePolicy(mergePolicy);
@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -36,6 +37,7 @@ import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.SegmentCommitInfo;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.InfoStream;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.IOUtils;
 import org.apache.solr.common.util.SuppressForbidden;
 import org.apache.solr.core.DirectoryFactory;
@@ -44,6 +46,7 @@ import org.apache.solr.core.SolrCore;
 import org.apache.solr.core.SolrInfoBean;
 import org.apache.solr.metrics.SolrMetricsContext;
 import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.util.DefaultSolrThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,6 +73,7 @@ public class SolrIndexWriter extends IndexWriter {
   private DirectoryFactory directoryFactory;
   private InfoStream infoStream;
   private Directory directory;
+  private ExecutorService applyUpdatesExecutor;
 
   // metrics
   private long majorMergeDocs = 512 * 1024;
@@ -96,15 +100,25 @@ public class SolrIndexWriter extends IndexWriter {
 
     SolrIndexWriter w = null;
     final Directory d = directoryFactory.get(path, DirContext.DEFAULT, config.lockType);
+    ExecutorService applyUpdatesExecutor = null;
     try {
+      if (config.applyUpdatesThreads > 0) {
+        applyUpdatesExecutor = ExecutorUtil.newMDCAwareFixedThreadPool(config.applyUpdatesThreads,
+            new DefaultSolrThreadFactory("applyUpdates"));
+      }
       w = new SolrIndexWriter(core, name, path, d, create, schema, 
-                              config, delPolicy, codec);
+                              config, delPolicy, codec, applyUpdatesExecutor);
       w.setDirectoryFactory(directoryFactory);
       return w;
     } finally {
-      if (null == w && null != d) { 
-        directoryFactory.doneWithDirectory(d);
-        directoryFactory.release(d);
+      if (null == w) {
+        if (null != applyUpdatesExecutor) {
+          ExecutorUtil.shutdownAndAwaitTermination(applyUpdatesExecutor);
+        }
+        if (null != d) {
+          directoryFactory.doneWithDirectory(d);
+          directoryFactory.release(d);
+        }
       }
     }
   }
@@ -122,16 +136,18 @@ public class SolrIndexWriter extends IndexWriter {
     solrMetricsContext = null;
   }
 
-  private SolrIndexWriter(SolrCore core, String name, String path, Directory directory, boolean create, IndexSchema schema, SolrIndexConfig config, IndexDeletionPolicy delPolicy, Codec codec) throws IOException {
+  private SolrIndexWriter(SolrCore core, String name, String path, Directory directory, boolean create, IndexSchema schema, SolrIndexConfig config, IndexDeletionPolicy delPolicy, Codec codec, ExecutorService applyUpdatesExecutor) throws IOException {
     super(directory,
           config.toIndexWriterConfig(core).
           setOpenMode(create ? IndexWriterConfig.OpenMode.CREATE : IndexWriterConfig.OpenMode.APPEND).
-          setIndexDeletionPolicy(delPolicy).setCodec(codec)
+          setIndexDeletionPolicy(delPolicy).setCodec(codec).
+          setApplyUpdatesExecutor(applyUpdatesExecutor)
           );
     log.debug("Opened Writer " + name);
     this.name = name;
     infoStream = getConfig().getInfoStream();
     this.directory = directory;
+    this.applyUpdatesExecutor = applyUpdatesExecutor;
     numOpens.incrementAndGet();
     solrMetricsContext = core.getSolrMetricsContext().getChildContext(this);
     if (config.metricsInfo != null && config.metricsInfo.initArgs != null) {
@@ -174,6 +190,10 @@ public class SolrIndexWriter extends IndexWriter {
         flushMeter = solrMetricsContext.meter("flush", SolrInfoBean.Category.INDEX.toString());
       }
     }
+    // indexing threads that were blocked because flushing or applying deletes could not keep up
+    solrMetricsContext.gauge(() -> getStallCount(), true, "count", SolrInfoBean.Category.INDEX.toString(), "stall");
+    solrMetricsContext.gauge(() -> getStallTimeMillis(), true, "time", SolrInfoBean.Category.INDEX.toString(), "stall");
+    solrMetricsContext.gauge(() -> isOpen() ? getPendingUpdatesBytes() : 0L, true, "pendingUpdatesBytes", SolrInfoBean.Category.INDEX.toString());
   }
 
   @SuppressForbidden(reason = "Need currentTimeMillis, commit time should be used only for debugging purposes, " +
@@ -339,6 +359,9 @@ public class SolrIndexWriter extends IndexWriter {
       }
       numCloses.incrementAndGet();
 
+      if (applyUpdatesExecutor != null) {
+        ExecutorUtil.shutdownAndAwaitTermination(applyUpdatesExecutor);
+      }
       if (directoryFactory != null) {
         directoryFactory.release(directory);
       }
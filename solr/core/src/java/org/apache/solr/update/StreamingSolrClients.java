@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.impl.ConcurrentUpdateHttp2SolrClient;
@@ -41,6 +42,9 @@ public class StreamingSolrClients {
   private final int runnerCount = Integer.getInteger("solr.cloud.replication.runners", 1);
   // should be less than solr.jetty.http.idleTimeout
   private final int pollQueueTime = Integer.getInteger("solr.cloud.client.pollQueueTime", 10000);
+  // updates that are queued for a replica are sent together, up to these bounds
+  private final int maxBatchBytes = Integer.getInteger("solr.cloud.replication.maxBatchBytes", 64 * 1024);
+  private final int maxBatchLatencyMs = Integer.getInteger("solr.cloud.replication.maxBatchLatencyMs", 10);
 
   private Http2SolrClient httpClient;
 
@@ -72,6 +76,8 @@ public class StreamingSolrClients {
       client = new ErrorReportingConcurrentUpdateSolrClient.Builder(url, httpClient, req, errors)
           .withQueueSize(100)
           .withThreadCount(runnerCount)
+          .withMaxBatchBytes(maxBatchBytes)
+          .withMaxBatchLatency(maxBatchLatencyMs, TimeUnit.MILLISECONDS)
           .withExecutorService(updateExecutor)
           .alwaysStreamDeletes()
           .build();
@@ -48,7 +48,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.common.SolrDocumentBase;
@@ -240,6 +242,13 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   protected VersionInfo versionInfo;
 
   protected SyncLevel defaultSyncLevel = SyncLevel.FLUSH;
+  protected long syncBatchLatencyNanos;
+
+  // group commit of fsyncs, see groupSync
+  private final Object syncLock = new Object();
+  private long syncRequests;    // number of fsyncs requested so far
+  private long syncedRequests;  // number of requested fsyncs that are done
+  private boolean syncing;
 
   volatile UpdateHandler uhandler;    // a core reload can change this reference!
   protected volatile boolean cancelApplyBufferUpdate;
@@ -250,6 +259,8 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   protected Meter applyingBufferedOpsMeter;
   protected Meter replayOpsMeter;
   protected Meter copyOverOldUpdatesMeter;
+  protected Histogram syncBatchSizeHistogram;
+  protected Timer syncTimer;
   protected SolrMetricsContext solrMetricsContext;
 
   public static class LogPtr {
@@ -336,6 +347,11 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
   public void init(PluginInfo info) {
     dataDir = (String)info.initArgs.get("dir");
     defaultSyncLevel = SyncLevel.getSyncLevel((String)info.initArgs.get("syncLevel"));
+    int syncBatchLatencyMs = objToInt(info.initArgs.get("syncBatchLatencyMs"), 0);
+    if (syncBatchLatencyMs < 0)
+      throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
+          "syncBatchLatencyMs must not be negative!");
+    syncBatchLatencyNanos = TimeUnit.MILLISECONDS.toNanos(syncBatchLatencyMs);
 
     numRecordsToKeep = objToInt(info.initArgs.get("numRecordsToKeep"), 100);
     maxNumLogsToKeep = objToInt(info.initArgs.get("maxNumLogsToKeep"), 10);
@@ -344,8 +360,8 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
       throw new SolrException(SolrException.ErrorCode.SERVER_ERROR,
           "Number of version buckets must be greater than 0!");
 
-    log.info("Initializing UpdateLog: dataDir={} defaultSyncLevel={} numRecordsToKeep={} maxNumLogsToKeep={} numVersionBuckets={}",
-        dataDir, defaultSyncLevel, numRecordsToKeep, maxNumLogsToKeep, numVersionBuckets);
+    log.info("Initializing UpdateLog: dataDir={} defaultSyncLevel={} syncBatchLatencyMs={} numRecordsToKeep={} maxNumLogsToKeep={} numVersionBuckets={}",
+        dataDir, defaultSyncLevel, syncBatchLatencyMs, numRecordsToKeep, maxNumLogsToKeep, numVersionBuckets);
   }
 
   /* Note, when this is called, uhandler is not completely constructed.
@@ -455,7 +471,12 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     applyingBufferedOpsMeter = solrMetricsContext.meter("ops", scope, "applyingBuffered");
     replayOpsMeter = solrMetricsContext.meter("ops", scope, "replay");
     copyOverOldUpdatesMeter = solrMetricsContext.meter("ops", scope, "copyOverOldUpdates");
+    syncBatchSizeHistogram = solrMetricsContext.histogram("batchSize", scope, "sync");
+    syncTimer = solrMetricsContext.timer("time", scope, "sync");
     solrMetricsContext.gauge(() -> state.getValue(), true, "state", scope);
+    solrMetricsContext.gauge(() -> versionInfo == null ? 0L : versionInfo.getContendedBucketLocks(), true, "contended", scope, "versionBuckets");
+    solrMetricsContext.gauge(() -> versionInfo == null ? 0L : TimeUnit.NANOSECONDS.toMillis(versionInfo.getBucketLockWaitNanos()),
+        true, "waitTimeMs", scope, "versionBuckets");
   }
 
   @Override
@@ -1085,7 +1106,78 @@ public class UpdateLog implements PluginInfoInitialized, SolrMetricProducer {
     if (syncLevel == SyncLevel.NONE) {
       return;
     }
+    if (syncLevel == SyncLevel.FSYNC) {
+      groupSync();
+      return;
+    }
+    syncCurrentLog(syncLevel);
+  }
+
+  /**
+   * Fsyncs the current log on behalf of all the requests that are waiting for it, so that concurrent requests
+   * share an fsync rather than each doing their own.  A request that finds no fsync in progress leads the next
+   * batch: it waits up to <code>syncBatchLatencyMs</code> for other requests to join, then fsyncs once for all of
+   * them.  Requests that arrive while an fsync is in progress wait for it, and then for the next batch since
+   * their records may not have been written when it started.
+   */
+  protected void groupSync() {
+    // interrupts are restored once the records are synced, since they would close the channel of the log
+    boolean interrupted = false;
+    try {
+      final long batchEnd;
+      final long batchSize;
+      synchronized (syncLock) {
+        final long ticket = ++syncRequests;
+        while (syncing) {
+          try {
+            syncLock.wait();
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+          if (syncedRequests >= ticket) {
+            return;
+          }
+        }
+        syncing = true;
+        final long deadline = System.nanoTime() + syncBatchLatencyNanos;
+        for (long remaining = syncBatchLatencyNanos; remaining > 0 && interrupted == false; remaining = deadline - System.nanoTime()) {
+          try {
+            TimeUnit.NANOSECONDS.timedWait(syncLock, remaining);
+          } catch (InterruptedException e) {
+            interrupted = true;
+          }
+        }
+        batchEnd = syncRequests;
+        batchSize = batchEnd - syncedRequests;
+      }
+
+      boolean success = false;
+      final long start = System.nanoTime();
+      try {
+        syncCurrentLog(SyncLevel.FSYNC);
+        success = true;
+      } finally {
+        synchronized (syncLock) {
+          if (success) {
+            syncedRequests = batchEnd;
+          }
+          syncing = false;
+          // on failure, a waiting request leads the next batch
+          syncLock.notifyAll();
+        }
+      }
+      if (syncTimer != null) {
+        syncTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        syncBatchSizeHistogram.update(batchSize);
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
 
+  private void syncCurrentLog(SyncLevel syncLevel) {
     TransactionLog currLog;
     synchronized (this) {
       currLog = tlog;
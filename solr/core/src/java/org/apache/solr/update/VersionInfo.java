@@ -19,6 +19,8 @@ package org.apache.solr.update;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -49,9 +51,16 @@ public class VersionInfo {
   private static final String SYS_PROP_BUCKET_VERSION_LOCK_TIMEOUT_MS = "bucketVersionLockTimeoutMs";
 
   private final UpdateLog ulog;
+  /** Waiting this long for the lock of a version bucket counts as contention. */
+  static final long CONTENDED_BUCKET_LOCK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
   private final VersionBucket[] buckets;
   private SchemaField versionField;
-  final ReadWriteLock lock = new ReentrantReadWriteLock(true);
+  // updates lock one stripe, picked by thread, rather than all contending on a single lock; blocking updates
+  // locks all of them
+  private final ReadWriteLock[] updateLocks;
+  private final LongAdder contendedBucketLocks = new LongAdder();
+  private final LongAdder bucketLockWaitNanos = new LongAdder();
 
   private int versionBucketLockTimeoutMs;
 
@@ -104,6 +113,10 @@ public class VersionInfo {
         buckets[i] = new VersionBucket();
       }
     }
+    updateLocks = new ReadWriteLock[ BitUtil.nextHighestPowerOfTwo(Math.min(64, Runtime.getRuntime().availableProcessors())) ];
+    for (int i=0; i<updateLocks.length; i++) {
+      updateLocks[i] = new ReentrantReadWriteLock(true);
+    }
   }
   
   public int getVersionBucketLockTimeoutMs() {
@@ -117,20 +130,28 @@ public class VersionInfo {
     return versionField;
   }
 
+  private ReadWriteLock updateLock() {
+    return updateLocks[(int) Thread.currentThread().getId() & (updateLocks.length - 1)];
+  }
+
   public void lockForUpdate() {
-    lock.readLock().lock();
+    updateLock().readLock().lock();
   }
 
   public void unlockForUpdate() {
-    lock.readLock().unlock();
+    updateLock().readLock().unlock();
   }
 
   public void blockUpdates() {
-    lock.writeLock().lock();
+    for (ReadWriteLock updateLock : updateLocks) {
+      updateLock.writeLock().lock();
+    }
   }
 
   public void unblockUpdates() {
-    lock.writeLock().unlock();
+    for (int i = updateLocks.length - 1; i >= 0; i--) {
+      updateLocks[i].writeLock().unlock();
+    }
   }
 
   /***
@@ -200,6 +221,32 @@ public class VersionInfo {
     return buckets[slot];
   }
 
+  /**
+   * Runs the function with the lock of the given bucket, like {@link VersionBucket#runWithLock}, and records
+   * whether the lock was contended.
+   */
+  public <T, R> R runWithBucketLock(VersionBucket bucket, VersionBucket.CheckedFunction<T, R> function) throws IOException {
+    final long start = System.nanoTime();
+    return bucket.runWithLock(versionBucketLockTimeoutMs, () -> {
+      final long waited = System.nanoTime() - start;
+      if (waited >= CONTENDED_BUCKET_LOCK_NANOS) {
+        contendedBucketLocks.increment();
+        bucketLockWaitNanos.add(waited);
+      }
+      return function.apply();
+    });
+  }
+
+  /** Returns the number of updates that had to wait for the lock of their version bucket. */
+  public long getContendedBucketLocks() {
+    return contendedBucketLocks.sum();
+  }
+
+  /** Returns the total time that updates waited for the locks of their version buckets, in nanoseconds. */
+  public long getBucketLockWaitNanos() {
+    return bucketLockWaitNanos.sum();
+  }
+
   public Long lookupVersion(BytesRef idBytes) {
     return ulog.lookupVersion(idBytes);
   }
@@ -42,6 +42,7 @@ import org.apache.lucene.search.BoostQuery;
 import org.apache.lucene.search.DisjunctionMaxQuery;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryProfiler;
 import org.apache.lucene.search.Sort;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.params.CommonParams;
@@ -284,6 +285,8 @@ public class SolrPluginUtils {
           rb.setDebugResults(true);
         } else if (params[i].equals(CommonParams.TRACK)){
           rb.setDebugTrack(true);
+        } else if (params[i].equals(CommonParams.PROFILE)){
+          rb.setDebugProfile(true);
         }
       }
     }
@@ -417,6 +420,53 @@ public class SolrPluginUtils {
     return out;
   }
 
+  /**
+   * Convert the profile of the Lucene queries of a request into a list with
+   * one entry per top-level query, times are in milliseconds.
+   */
+  public static NamedList<Object> queryProfileToNamedList(QueryProfiler profiler) {
+    NamedList<Object> out = new SimpleOrderedMap<>();
+    out.add("rewriteTime", profiler.getRewriteTimeNanos() / 1_000_000.0);
+    List<NamedList<Object>> queries = new ArrayList<>(profiler.getTree().size());
+    for (QueryProfiler.Node node : profiler.getTree()) {
+      queries.add(queryProfileNodeToNamedList(node));
+    }
+    out.add("queries", queries);
+    return out;
+  }
+
+  private static NamedList<Object> queryProfileNodeToNamedList(QueryProfiler.Node node) {
+    NamedList<Object> out = new SimpleOrderedMap<>();
+    out.add("type", node.getType());
+    out.add("description", node.getDescription());
+    out.add("time", node.getTotalTimeNanos() / 1_000_000.0);
+    out.add("docsVisited", node.getDocsVisited());
+    if (QueryProfiler.isAllocationTrackingSupported()) {
+      out.add("allocatedBytes", node.getAllocatedBytes());
+    }
+
+    NamedList<Object> breakdown = new SimpleOrderedMap<>();
+    for (QueryProfiler.TimingType type : QueryProfiler.TimingType.values()) {
+      long count = node.getCount(type);
+      if (count > 0) {
+        NamedList<Object> timing = new SimpleOrderedMap<>();
+        timing.add("time", node.getTimeNanos(type) / 1_000_000.0);
+        timing.add("count", count);
+        breakdown.add(type.toString(), timing);
+      }
+    }
+    out.add("breakdown", breakdown);
+
+    if (node.getChildren().isEmpty() == false) {
+      List<NamedList<Object>> children = new ArrayList<>(node.getChildren().size());
+      for (QueryProfiler.Node child : node.getChildren()) {
+        children.add(queryProfileNodeToNamedList(child));
+      }
+      out.add("children", children);
+    }
+    return out;
+  }
+
   public static NamedList<NamedList<Object>> explanationsToNamedLists
     (NamedList<Explanation> explanations) {
 
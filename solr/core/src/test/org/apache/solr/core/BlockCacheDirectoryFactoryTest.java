@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.core;
+
+import org.apache.lucene.store.BlockCache;
+import org.apache.lucene.store.BlockCacheDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.DirectoryFactory.DirContext;
+
+/**
+ * Test-case for BlockCacheDirectoryFactory
+ */
+public class BlockCacheDirectoryFactoryTest extends SolrTestCaseJ4 {
+
+  public void testInit() throws Exception {
+    NamedList<Object> priorities = new NamedList<>();
+    priorities.add("tip", 5);
+    priorities.add("fdt", 0);
+    NamedList<Object> args = new NamedList<>();
+    args.add("maxCacheMB", 1);
+    args.add("blockSize", 4096);
+    args.add("directMemoryAllocation", false);
+    args.add("priorities", priorities);
+    args.add("defaultPriority", 2);
+
+    BlockCacheDirectoryFactory factory = new BlockCacheDirectoryFactory();
+    factory.init(args);
+    BlockCache cache = factory.getBlockCache();
+    assertEquals(4096, cache.getBlockSize());
+    assertEquals(256, cache.getMaxBlockCount());
+
+    Directory dir = factory.get(createTempDir().toString(), DirContext.DEFAULT, DirectoryFactory.LOCK_TYPE_SINGLE);
+    BlockCacheDirectory blockCacheDir = (BlockCacheDirectory) dir;
+    assertSame(cache, blockCacheDir.getCache());
+    assertEquals(5, blockCacheDir.getPriority("_0.tip"));
+    assertEquals(0, blockCacheDir.getPriority("_0.fdt"));
+    assertEquals(2, blockCacheDir.getPriority("_0.dvd"));
+    factory.release(dir);
+    factory.close();
+  }
+
+  public void testIllegalBlockSize() {
+    NamedList<Object> args = new NamedList<>();
+    args.add("blockSize", 5000);
+    expectThrows(IllegalArgumentException.class, () -> new BlockCacheDirectoryFactory().init(args));
+  }
+
+  public void testIndexRetrieve() throws Exception {
+    System.setProperty("solr.directoryFactory", "solr.BlockCacheDirectoryFactory");
+    try {
+      initCore("solrconfig-minimal.xml","schema-minimal.xml");
+      DirectoryFactory factory = h.getCore().getDirectoryFactory();
+      assertTrue("Found: " + factory.getClass().getName(), factory instanceof BlockCacheDirectoryFactory);
+      for (int i = 0 ; i < 5 ; ++i) {
+        assertU(adoc("id", "" + i, "a_s", "_" + i + "_"));
+      }
+      assertU(commit());
+      assertQ(req("q", "a_s:_0_"), "//result[@numFound = '1']");
+      assertQ(req("q", "a_s:_1_"), "//result[@numFound = '1']");
+      assertTrue(((BlockCacheDirectoryFactory) factory).getBlockCache().getInsertCount() > 0);
+      deleteCore();
+    } finally {
+      System.clearProperty("solr.directoryFactory");
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package org.apache.solr.handler.component;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -136,6 +137,38 @@ public class DistributedQueryComponentOptimizationTest extends SolrCloudTestCase
 
   }
 
+  @Test
+  public void testCostBasedSinglePass() throws Exception {
+    // 3 shards times 20 rows
+    queryWithAsserts("q", "*:*", "fl", "id,test_sS", "sort", "payload asc", "rows", "20",
+        ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS, "60");
+    queryWithAsserts("q", "*:*", "fl", "id,test_sS", "sort", "payload asc", "start", "2", "rows", "3",
+        ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS, "15");
+    compareResponses(
+        cluster.getSolrClient().query(COLLECTION, new SolrQuery("q", "*:*", "fl", "id,test_sS", "sort", "payload asc",
+            "start", "2", "rows", "3", ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS, "15")),
+        cluster.getSolrClient().query(COLLECTION, new SolrQuery("q", "*:*", "fl", "id,test_sS", "sort", "payload asc",
+            "start", "2", "rows", "3")));
+
+    // too many docs, an explicit distrib.singlePass=false, or fields that aren't docValues
+    queryWithAsserts("q", "*:*", "fl", "id,test_sS", "sort", "payload asc", "rows", "20",
+        ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS, "59");
+    queryWithAsserts("q", "*:*", "fl", "id,test_sS", "sort", "payload asc", "rows", "20",
+        ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS, "60", ShardParams.DISTRIB_SINGLE_PASS, "false");
+    queryWithAsserts("q", "*:*", "fl", "id,test_sS", "sort", "payload asc", "rows", "20",
+        ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS, "60", ShardParams.DISTRIB_SINGLE_PASS_DOCVALUES_ONLY, "true");
+
+    // cursors still advance the same way
+    queryWithAsserts("q", "*:*", "fl", "id,test_sS", "sort", "id asc", "rows", "5", "cursorMark", "*",
+        ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS, "15");
+    QueryResponse rsp = cluster.getSolrClient().query(COLLECTION, new SolrQuery("q", "*:*", "fl", "id,test_sS",
+        "sort", "id asc", "rows", "5", "cursorMark", "*", ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS, "15"));
+    QueryResponse twoPassRsp = cluster.getSolrClient().query(COLLECTION, new SolrQuery("q", "*:*", "fl", "id,test_sS",
+        "sort", "id asc", "rows", "5", "cursorMark", "*"));
+    compareResponses(rsp, twoPassRsp);
+    assertEquals(twoPassRsp.getNextCursorMark(), rsp.getNextCursorMark());
+  }
+
   @Test
   public void testOptimizations() throws Exception {
 
@@ -232,6 +265,10 @@ public class DistributedQueryComponentOptimizationTest extends SolrCloudTestCase
     int numRequests = getNumRequests(requests);
 
     boolean distribSinglePass = false;
+    int singlePassMaxDocs = 0;
+    int start = 0;
+    int rows = 10;
+    boolean docValuesOnly = false;
 
     Set<String> fls = new HashSet<>();
     Set<String> sortFields = new HashSet<>();
@@ -241,6 +278,18 @@ public class DistributedQueryComponentOptimizationTest extends SolrCloudTestCase
             numRequests == sliceCount);
         distribSinglePass = true;
       }
+      if (ShardParams.DISTRIB_SINGLE_PASS_MAX_DOCS.equals(q[i].toString())) {
+        singlePassMaxDocs = Integer.parseInt(q[i + 1].toString());
+      }
+      if (ShardParams.DISTRIB_SINGLE_PASS_DOCVALUES_ONLY.equals(q[i].toString())) {
+        docValuesOnly = Boolean.parseBoolean(q[i + 1].toString());
+      }
+      if (CommonParams.START.equals(q[i].toString())) {
+        start = Integer.parseInt(q[i + 1].toString());
+      }
+      if (CommonParams.ROWS.equals(q[i].toString())) {
+        rows = Integer.parseInt(q[i + 1].toString());
+      }
       if (CommonParams.FL.equals(q[i].toString())) {
         fls.addAll(StrUtils.splitSmart(q[i + 1].toString(), ','));
       }
@@ -251,6 +300,13 @@ public class DistributedQueryComponentOptimizationTest extends SolrCloudTestCase
       }
     }
 
+    // none of the fields of the test docs besides id have docValues
+    if (singlePassMaxDocs >= (start + rows) * sliceCount && docValuesOnly == false
+        && Arrays.asList(q).contains(ShardParams.DISTRIB_SINGLE_PASS) == false) {
+      assertEquals("cheap queries should be single pass", sliceCount, numRequests);
+      distribSinglePass = true;
+    }
+
     Set<String> idScoreFields = new HashSet<>(2);
     idScoreFields.add("id"); // id is always requested in GET_TOP_IDS phase
     // score is optional, requested only if sorted by score
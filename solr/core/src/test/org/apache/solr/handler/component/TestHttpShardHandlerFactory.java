@@ -23,7 +23,9 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.solr.SolrTestCaseJ4;
 import org.apache.solr.client.solrj.impl.LBSolrClient;
@@ -112,6 +114,60 @@ public class TestHttpShardHandlerFactory extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testAdaptiveReplicaSelector() throws Exception {
+    AdaptiveReplicaSelector selector = new AdaptiveReplicaSelector(0.5, 95, 5);
+    selector.end(selector.begin("http://a"), TimeUnit.MILLISECONDS.toNanos(100), true);
+    assertEquals("not enough latencies to hedge yet", -1, selector.getHedgeDelayNanos());
+
+    // unknown replicas come first, in the order of the replica routing
+    List<String> urls = new ArrayList<>(Arrays.asList("http://a", "http://b", "http://c"));
+    selector.end(selector.begin("http://b"), TimeUnit.MILLISECONDS.toNanos(10), true);
+    selector.sort(urls);
+    assertEquals(Arrays.asList("http://c", "http://b", "http://a"), urls);
+
+    // outstanding requests make a replica look slower
+    selector.end(selector.begin("http://c"), TimeUnit.MILLISECONDS.toNanos(20), true);
+    AdaptiveReplicaSelector.ReplicaStats b = selector.begin("http://b");
+    selector.sort(urls);
+    assertEquals(Arrays.asList("http://c", "http://b", "http://a"), urls);
+    selector.begin("http://b");
+    selector.sort(urls);
+    assertEquals(Arrays.asList("http://c", "http://a", "http://b"), urls);
+    selector.end(b, TimeUnit.MILLISECONDS.toNanos(10), false);
+    assertEquals(1, b.outstanding.get());
+
+    // stale replicas are only probed if they have no outstanding requests, so that one that hangs isn't picked first
+    AdaptiveReplicaSelector hanging = new AdaptiveReplicaSelector(0.5, 0, 0);
+    hanging.end(hanging.begin("http://a"), TimeUnit.MILLISECONDS.toNanos(10), true);
+    hanging.end(hanging.begin("http://b"), TimeUnit.MILLISECONDS.toNanos(20), true);
+    hanging.begin("http://a");
+    hanging.begin("http://c");
+    urls = new ArrayList<>(Arrays.asList("http://a", "http://c", "http://b"));
+    long now = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(AdaptiveReplicaSelector.PROBE_INTERVAL_MS + 1);
+    hanging.sort(urls, now);
+    assertEquals("busy replicas are ranked by their last latency, or the average one",
+        Arrays.asList("http://b", "http://a", "http://c"), urls);
+
+    // idle replicas are forgotten
+    hanging.evictIdle(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(AdaptiveReplicaSelector.EVICT_INTERVAL_MS + 1));
+    Map<String, Object> replicas = new HashMap<>();
+    hanging.toMap(replicas);
+    assertEquals(new HashSet<>(Arrays.asList("http://a", "http://c")), replicas.keySet());
+
+    AdaptiveReplicaSelector hedging = new AdaptiveReplicaSelector(0.5, 95, 5);
+    for (int i = 0; i < AdaptiveReplicaSelector.MIN_HEDGE_SAMPLES; i++) {
+      hedging.end(hedging.begin("http://a"), TimeUnit.MICROSECONDS.toNanos(100 + i), true);
+    }
+    assertEquals("the minimum delay applies", TimeUnit.MILLISECONDS.toNanos(5), hedging.getHedgeDelayNanos());
+    hedging.end(hedging.begin("http://a"), TimeUnit.MILLISECONDS.toNanos(100), false);
+    assertEquals("cancelled requests don't count", TimeUnit.MILLISECONDS.toNanos(5), hedging.getHedgeDelayNanos());
+    assertEquals(-1, new AdaptiveReplicaSelector(0.5, 0, 5).getHedgeDelayNanos());
+
+    expectThrows(IllegalArgumentException.class, () -> new AdaptiveReplicaSelector(0, 0, 0));
+    expectThrows(IllegalArgumentException.class, () -> new AdaptiveReplicaSelector(0.5, 100, 0));
+  }
+
   @Test
   public void getShardsWhitelist() throws Exception {
     System.setProperty(SHARDS_WHITELIST, "http://abc:8983/,http://def:8984/,");
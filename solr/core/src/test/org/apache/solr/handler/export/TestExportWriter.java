@@ -706,6 +706,40 @@ public class TestExportWriter extends SolrTestCaseJ4 {
     validateSort(numDocs);
   }
 
+  @Test
+  public void testExportThreads() throws Exception {
+    assertU(delQ("*:*"));
+    assertU(commit());
+
+    String[] str_vals = new String[20];
+    for (int i=0; i<str_vals.length; i++) {
+      str_vals[i] = TestUtil.randomSimpleString(random(), 10);
+    }
+    int numDocs = atLeast(300);
+    for (int i = 0; i < numDocs; i++) {
+      int number = TestUtil.nextInt(random(), 0, str_vals.length - 1);
+      assertU(adoc("id", String.valueOf(i),
+          "intdv", String.valueOf(number),
+          "stringdv", str_vals[number],
+          "field1_s_dv", str_vals[TestUtil.nextInt(random(), 0, str_vals.length - 1)]));
+      if (random().nextInt(25) == 0) {
+        assertU(commit());
+      }
+      if (random().nextInt(50) == 0) {
+        assertU(delI(String.valueOf(random().nextInt(i + 1))));
+      }
+    }
+    assertU(commit());
+
+    // segments are identified by several tasks, with the same order as a single pass
+    for (String sort : new String[] {"stringdv asc", "intdv desc,stringdv asc", "field1_s_dv desc,intdv asc"}) {
+      String expected = h.query(req("q", "*:*", "qt", "/export", "fl", "id,intdv,stringdv", "sort", sort));
+      String actual = h.query(req("q", "*:*", "qt", "/export", "fl", "id,intdv,stringdv", "sort", sort,
+          ExportWriter.EXPORT_THREADS_PARAM, "4"));
+      assertEquals(sort, expected, actual);
+    }
+  }
+
   private void validateSort(int numDocs) throws Exception {
     // 10 fields
     List<String> fieldNames = new ArrayList<>(Arrays.asList("floatdv", "intdv", "stringdv", "longdv", "doubledv",
@@ -34,6 +34,8 @@ import org.apache.lucene.index.MultiDocValues.MultiSortedSetDocValues;
 import org.apache.lucene.index.MultiTerms;
 import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.TestUtil;
@@ -124,6 +126,57 @@ public class TestSlowCompositeReaderWrapper extends SolrTestCase {
     dir.close();
   }
 
+  public void testWarmOrdinalMaps() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+    for (String value : new String[] {"c", "e"}) {
+      Document doc = new Document();
+      doc.add(new SortedDocValuesField("sorted", new BytesRef(value)));
+      doc.add(new SortedSetDocValuesField("sorted_set", new BytesRef(value)));
+      doc.add(new SortedSetDocValuesField("sorted_set", new BytesRef(value + value)));
+      w.addDocument(doc);
+      w.getReader().close();
+    }
+    IndexReader reader1 = w.getReader();
+    SlowCompositeReaderWrapper slowWrapper1 = (SlowCompositeReaderWrapper) SlowCompositeReaderWrapper.wrap(reader1);
+    slowWrapper1.getSortedDocValues("sorted");
+    slowWrapper1.getSortedSetDocValues("sorted_set");
+    assertEquals(2, slowWrapper1.cachedOrdMaps.size());
+
+    for (String value : new String[] {"a", "d", "e"}) {
+      Document doc = new Document();
+      doc.add(new SortedDocValuesField("sorted", new BytesRef(value)));
+      doc.add(new SortedSetDocValuesField("sorted_set", new BytesRef(value)));
+      w.addDocument(doc);
+    }
+    IndexReader reader2 = w.getReader();
+    SlowCompositeReaderWrapper slowWrapper2 = (SlowCompositeReaderWrapper) SlowCompositeReaderWrapper.wrap(reader2);
+    assertEquals(0, slowWrapper2.ordinalMapsRamBytesUsed());
+    slowWrapper2.warmOrdinalMaps(slowWrapper1);
+    assertEquals(2, slowWrapper2.cachedOrdMaps.size());
+    assertTrue(slowWrapper2.ordinalMapsRamBytesUsed() > 0);
+
+    SortedDocValues sorted = slowWrapper2.getSortedDocValues("sorted");
+    assertEquals(4, sorted.getValueCount());
+    for (String value : new String[] {"a", "c", "d", "e"}) {
+      assertEquals(value, sorted.lookupOrd(sorted.lookupTerm(new BytesRef(value))).utf8ToString());
+    }
+    SortedSetDocValues sortedSet = slowWrapper2.getSortedSetDocValues("sorted_set");
+    assertEquals(6, sortedSet.getValueCount());
+    assertEquals(2, sortedSet.lookupTerm(new BytesRef("cc")));
+    assertEquals("ee", sortedSet.lookupOrd(5).utf8ToString());
+    String[] expected = {"c", "e", "a", "d", "e"};
+    for (int i = 0; i < expected.length; i++) {
+      assertTrue(sorted.advanceExact(i));
+      assertEquals(expected[i], sorted.lookupOrd(sorted.ordValue()).utf8ToString());
+    }
+
+    reader2.close();
+    reader1.close();
+    w.close();
+    dir.close();
+  }
+
   public void testTermsAreCached() throws IOException {
     Directory dir = newDirectory();
     RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
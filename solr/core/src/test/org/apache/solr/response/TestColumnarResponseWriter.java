@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.response;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.client.solrj.io.stream.ColumnarTupleStreamParser;
+import org.apache.solr.client.solrj.io.stream.JavabinTupleStreamParser;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.JavaBinCodec;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.junit.BeforeClass;
+
+public class TestColumnarResponseWriter extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    System.setProperty("enable.update.log", "false"); // schema12 doesn't support _version_
+    initCore("solrconfig.xml", "schema12.xml");
+    for (int i = 0; i < 25; i++) {
+      if (i % 5 == 0) {
+        // missing values
+        assertU(adoc("id", Integer.toString(i), "key_i_dv", Integer.toString(i)));
+      } else {
+        assertU(adoc("id", Integer.toString(i), "key_i_dv", Integer.toString(i),
+            "a_i", Integer.toString(i), "a_l", Long.toString(i * 1000000000L),
+            "a_f", Float.toString(i / 2f), "a_d", Double.toString(i / 3d), "a_b", Boolean.toString(i % 2 == 0),
+            "a_dt", "2019-01-" + (10 + i % 10) + "T00:00:00Z", "a_s", "v" + (i % 3), "a_s", "w",
+            // docValues, for /export
+            "b_i_dv", Integer.toString(i), "b_is_dv", Integer.toString(i * 2), "b_is_dv", Integer.toString(i),
+            "b_l_dv", Long.toString(i * 1000000000L), "b_d_dv", Double.toString(i / 3d),
+            "b_b_dv", Boolean.toString(i % 2 == 0), "b_dt_dv", "2019-01-" + (10 + i % 10) + "T00:00:00.123Z",
+            "b_dts_dv", "2019-02-01T00:00:00Z", "b_dts_dv", "2019-03-" + (10 + i % 10) + "T00:00:00Z",
+            "b_s_dv", "v" + (i % 3), "b_ss_dv", "y", "b_ss_dv", "x" + (i % 4)));
+      }
+    }
+    assertU(commit());
+  }
+
+  private byte[] write(String wt, SolrQueryRequest req) throws Exception {
+    SolrQueryResponse rsp = h.queryAndResponse(req.getParams().get(CommonParams.QT), req);
+    BinaryQueryResponseWriter writer = (BinaryQueryResponseWriter) h.getCore().getQueryResponseWriter(wt);
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    writer.write(baos, req, rsp);
+    return baos.toByteArray();
+  }
+
+  public void testSameDocsAsJavabin() throws Exception {
+    String[] params = {"q", "*:*", "sort", "id asc", "rows", "100", "fl", "id,a_*,score"};
+    SolrDocumentList expected;
+    try (SolrQueryRequest req = req(params); JavaBinCodec jbc = new JavaBinCodec()) {
+      NamedList<?> res = (NamedList<?>) jbc.unmarshal(new ByteArrayInputStream(write(CommonParams.JAVABIN, req)));
+      expected = (SolrDocumentList) res.get("response");
+    }
+
+    byte[] columnar;
+    try (SolrQueryRequest req = req(params)) {
+      columnar = write(CommonParams.COLUMNAR, req);
+    }
+    // still javabin, with the docs in batches
+    try (JavaBinCodec jbc = new JavaBinCodec()) {
+      NamedList<?> res = (NamedList<?>) jbc.unmarshal(new ByteArrayInputStream(columnar));
+      assertNotNull(res.get("responseHeader"));
+      Map<?, ?> response = (Map<?, ?>) res.get("response");
+      assertEquals(expected.getNumFound(), response.get("numFound"));
+      assertEquals(expected.getMaxScore(), response.get("maxScore"));
+    }
+
+    List<Map<String, Object>> tuples = new ArrayList<>();
+    try (ColumnarTupleStreamParser parser = new ColumnarTupleStreamParser(new ByteArrayInputStream(columnar), false)) {
+      for (Map<String, Object> tuple = parser.next(); tuple != null; tuple = parser.next()) {
+        tuples.add(tuple);
+      }
+    }
+    assertEquals(expected.size(), tuples.size());
+    for (int i = 0; i < expected.size(); i++) {
+      SolrDocument doc = expected.get(i);
+      Map<String, Object> tuple = tuples.get(i);
+      assertEquals(doc.getFieldNames(), tuple.keySet());
+      for (String name : doc.getFieldNames()) {
+        assertEquals(name, doc.getFieldValue(name), tuple.get(name));
+      }
+    }
+  }
+
+  private byte[] export(String wt, String fl) throws Exception {
+    SolrQueryRequest req = req("q", "*:*", "qt", "/export", "sort", "key_i_dv asc", "fl", fl, CommonParams.WT, wt);
+    try {
+      SolrQueryResponse rsp = new SolrQueryResponse();
+      SolrRequestInfo.setRequestInfo(new SolrRequestInfo(req, rsp));
+      h.getCore().execute(h.getCore().getRequestHandler("/export"), req, rsp);
+      if (rsp.getException() != null) {
+        throw rsp.getException();
+      }
+      // the export handler answers with its own raw writer, which writes with the writer of wt
+      BinaryQueryResponseWriter writer = (BinaryQueryResponseWriter) h.getCore().getQueryResponseWriter(req);
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      writer.write(baos, req, rsp);
+      return baos.toByteArray();
+    } finally {
+      req.close();
+      SolrRequestInfo.clearRequestInfo();
+    }
+  }
+
+  private static List<Map<String, Object>> readTuples(JavabinTupleStreamParser parser) throws Exception {
+    List<Map<String, Object>> tuples = new ArrayList<>();
+    try {
+      for (Map<String, Object> tuple = parser.next(); tuple != null; tuple = parser.next()) {
+        tuples.add(tuple);
+      }
+    } finally {
+      parser.close();
+    }
+    return tuples;
+  }
+
+  public void testExportSameTuplesAsJavabin() throws Exception {
+    String fl = "key_i_dv,b_i_dv,b_is_dv,b_l_dv,b_d_dv,b_b_dv,b_dt_dv,b_dts_dv,b_s_dv,b_ss_dv";
+    byte[] javabin = export(CommonParams.JAVABIN, fl);
+    byte[] columnar = export(CommonParams.COLUMNAR, fl);
+
+    for (boolean onlyJsonTypes : new boolean[] {false, true}) {
+      List<Map<String, Object>> expected =
+          readTuples(new JavabinTupleStreamParser(new ByteArrayInputStream(javabin), onlyJsonTypes));
+      List<Map<String, Object>> tuples =
+          readTuples(new ColumnarTupleStreamParser(new ByteArrayInputStream(columnar), onlyJsonTypes));
+      assertEquals(25, expected.size());
+      assertEquals(expected, tuples);
+    }
+
+    List<Map<String, Object>> tuples =
+        readTuples(new ColumnarTupleStreamParser(new ByteArrayInputStream(columnar), false));
+    // missing values
+    assertEquals(Collections.singletonMap("key_i_dv", 5), tuples.get(5));
+    Map<String, Object> tuple = tuples.get(7);
+    assertEquals(7, tuple.get("b_i_dv"));
+    assertEquals(Arrays.asList(7, 14), tuple.get("b_is_dv"));
+    assertEquals("v1", tuple.get("b_s_dv"));
+    assertEquals(Arrays.asList("x3", "y"), tuple.get("b_ss_dv"));
+    assertEquals(new Date(Instant.parse("2019-01-17T00:00:00.123Z").toEpochMilli()), tuple.get("b_dt_dv"));
+    assertEquals(Arrays.asList(new Date(Instant.parse("2019-02-01T00:00:00Z").toEpochMilli()),
+        new Date(Instant.parse("2019-03-17T00:00:00Z").toEpochMilli())), tuple.get("b_dts_dv"));
+
+    tuple = readTuples(new ColumnarTupleStreamParser(new ByteArrayInputStream(columnar), true)).get(7);
+    assertEquals(7L, tuple.get("b_i_dv"));
+    assertEquals(Arrays.asList(7L, 14L), tuple.get("b_is_dv"));
+    assertEquals("2019-01-17T00:00:00.123Z", tuple.get("b_dt_dv"));
+    assertEquals(Arrays.asList("2019-02-01T00:00:00Z", "2019-03-17T00:00:00Z"), tuple.get("b_dts_dv"));
+  }
+
+  public void testBatchSize() throws Exception {
+    ColumnarResponseWriter writer = new ColumnarResponseWriter();
+    NamedList<Object> args = new NamedList<>();
+    args.add("batchSize", 4);
+    writer.init(args);
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    try (SolrQueryRequest req = req("q", "*:*", "sort", "id asc", "rows", "10", "fl", "id,a_i")) {
+      SolrQueryResponse rsp = h.queryAndResponse(null, req);
+      writer.write(baos, req, rsp);
+    }
+    try (JavaBinCodec jbc = new JavaBinCodec()) {
+      NamedList<?> res = (NamedList<?>) jbc.unmarshal(new ByteArrayInputStream(baos.toByteArray()));
+      List<?> batches = (List<?>) ((Map<?, ?>) res.get("response")).get("docs");
+      assertEquals(3, batches.size());
+      assertEquals(2, ((Map<?, ?>) batches.get(2)).get("numRows"));
+    }
+
+    expectThrows(IllegalArgumentException.class, () -> {
+      NamedList<Object> bad = new SimpleOrderedMap<>();
+      bad.add("batchSize", 0);
+      new ColumnarResponseWriter().init(bad);
+    });
+  }
+}
@@ -285,4 +285,114 @@ public class TestCaffeineCache extends SolrTestCase {
     assertTrue("total ram bytes exceeded limit", total < 1024 * 1024);
     cache.close();
   }
+
+  private CaffeineCache<Integer, String> newCache(Map<String, String> params, CacheRegenerator regenerator) {
+    CaffeineCache<Integer, String> cache = new CaffeineCache<>();
+    cache.init(params, null, regenerator);
+    cache.initializeMetrics(new SolrMetricsContext(metricManager, registry, "foo"),
+        scope + "-" + TestUtil.randomSimpleString(random(), 2, 10));
+    cache.setState(SolrCache.State.LIVE);
+    return cache;
+  }
+
+  @Test
+  public void testAutowarmByValue() throws Exception {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "100");
+    params.put("autowarmCount", "2");
+    params.put(CaffeineCache.AUTOWARM_ORDER_PARAM, "value");
+    CaffeineCache<Integer, String> cache = newCache(params, new NoOpRegenerator());
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, Integer.toString(i));
+    }
+    for (int i = 0; i < 5; i++) {
+      assertEquals("7", cache.get(7));
+    }
+    for (int i = 0; i < 3; i++) {
+      assertEquals("3", cache.get(3));
+    }
+
+    CaffeineCache<Integer, String> newCache = newCache(params, new NoOpRegenerator());
+    newCache.warm(null, cache);
+    assertEquals(2, newCache.size());
+    assertEquals("7", newCache.get(7));
+    assertNull(newCache.get(5));
+    Map<String, Object> metrics = newCache.getMetricsMap().getValue();
+    assertEquals(2L, metrics.get("autowarm_entries"));
+    assertEquals(1L, metrics.get("autowarm_entriesHit"));
+    assertEquals(0.5d, (Double) metrics.get("autowarm_efficacy"), 0d);
+
+    cache.close();
+    newCache.close();
+  }
+
+  @Test
+  public void testAutowarmInBackground() throws Exception {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "1000");
+    params.put("autowarmCount", "100%");
+    params.put(CaffeineCache.AUTOWARM_THREADS_PARAM, "4");
+    params.put(CaffeineCache.AUTOWARM_BACKGROUND_PARAM, "true");
+    CaffeineCache<Integer, String> cache = newCache(params, new NoOpRegenerator());
+    for (int i = 0; i < 500; i++) {
+      cache.put(i, Integer.toString(i));
+    }
+    CountDownLatch release = new CountDownLatch(1);
+    CaffeineCache<Integer, String> newCache = newCache(params, (searcher, newCache1, oldCache, oldKey, oldVal) -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      newCache1.put(oldKey, oldVal);
+      return true;
+    });
+    // returns while entries are still being regenerated
+    newCache.warm(null, cache);
+    assertEquals(true, newCache.getMetricsMap().getValue().get("autowarm_inProgress"));
+    // live queries use the cache while it is warmed
+    for (int i = 1000; i < 1010; i++) {
+      newCache.put(i, Integer.toString(i));
+    }
+    release.countDown();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    while ((Boolean) newCache.getMetricsMap().getValue().get("autowarm_inProgress")) {
+      assertTrue("background warming did not finish in time", System.nanoTime() < deadline);
+      Thread.sleep(10);
+    }
+    assertEquals(510, newCache.size());
+    Map<String, Object> metrics = newCache.getMetricsMap().getValue();
+    assertEquals(500L, metrics.get("autowarm_entries"));
+    assertEquals("only the inserts of live queries count", 10L, metrics.get("inserts"));
+    assertEquals(510L, metrics.get("cumulative_inserts"));
+    cache.close();
+    newCache.close();
+  }
+
+  @Test
+  public void testAutowarmTimeLimit() throws Exception {
+    Map<String, String> params = new HashMap<>();
+    params.put("size", "100");
+    params.put("autowarmCount", "100%");
+    params.put(CaffeineCache.AUTOWARM_TIME_LIMIT_PARAM, "500");
+    CaffeineCache<Integer, String> cache = newCache(params, new NoOpRegenerator());
+    for (int i = 0; i < 10; i++) {
+      cache.put(i, Integer.toString(i));
+    }
+    CaffeineCache<Integer, String> newCache = newCache(params, (searcher, newCache1, oldCache, oldKey, oldVal) -> {
+      try {
+        Thread.sleep(1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      newCache1.put(oldKey, oldVal);
+      return true;
+    });
+    newCache.warm(null, cache);
+    assertEquals(1, newCache.size());
+    cache.close();
+    newCache.close();
+  }
 }
@@ -224,6 +224,51 @@ public class TestCollapseQParserPlugin extends SolrTestCaseJ4 {
     testCollapseQueries("group_tf_dv", hint, true);
   }
 
+  @Test
+  public void testHeads() throws Exception {
+    for (String heads : new String[] {CollapsingQParserPlugin.HEADS_SPARSE, CollapsingQParserPlugin.HEADS_ADAPTIVE}) {
+      testCollapseQueries("group_s", " heads=" + heads, false);
+      testCollapseQueries("group_s_dv", " hint=top_fc heads=" + heads, false);
+      testCollapseQueries("group_i", " heads=" + heads, true);
+      testCollapseQueries("group_tf_dv", " heads=" + heads, true);
+    }
+
+    assertQEx("Invalid heads should be a bad request",
+        req("q", "*:*", "fq", "{!collapse field=group_s heads=bogus}"), SolrException.ErrorCode.BAD_REQUEST);
+  }
+
+  @Test
+  public void testHeadsDebug() throws Exception {
+    for (int i = 0; i < 20; i++) {
+      assertU(adoc("id", Integer.toString(i), "group_s", "group" + (i % 10), "group_i", Integer.toString(i % 10),
+          "test_i", Integer.toString(i)));
+      if (i % 7 == 0) {
+        assertU(commit());
+      }
+    }
+    assertU(commit());
+
+    final String debug = "//lst[@name='debug']/lst[@name='collapse']";
+    assertQ(req("q", "*:*", "fq", "{!collapse field=group_s}", "debugQuery", "true"), "*[count(//doc)=10]",
+        debug + "/lst[@name='group_s']/str[@name='heads'][.='dense']",
+        debug + "/lst[@name='group_s']/str[@name='trackedIn'][.='arrays']",
+        debug + "/lst[@name='group_s']/bool[@name='pooled'][.='false']");
+    assertQ(req("q", "test_i:[0 TO 100]", "fq", "{!collapse field=group_s heads=sparse}", "debugQuery", "true"),
+        "*[count(//doc)=10]",
+        debug + "/lst[@name='group_s']/str[@name='trackedIn'][.='hash map']",
+        debug + "/lst[@name='group_s']/bool[@name='pooled'][.='true']");
+    // 10 groups out of 10 values: past the limit of the sparse map
+    assertQ(req("q", "test_i:[0 TO 200]", "fq", "{!collapse field=group_s heads=adaptive}", "debugQuery", "true"),
+        "*[count(//doc)=10]",
+        debug + "/lst[@name='group_s']/str[@name='trackedIn'][.='arrays']",
+        debug + "/lst[@name='group_s']/bool[@name='pooled'][.='true']");
+    assertQ(req("q", "test_i:[0 TO 300]", "fq", "{!collapse field=group_i heads=adaptive}", "debugQuery", "true"),
+        "*[count(//doc)=10]",
+        debug + "/lst[@name='group_i']/str[@name='trackedIn'][.='hash map']",
+        debug + "/lst[@name='group_i']/bool[@name='pooled'][.='true']");
+    assertTrue(CollapsingQParserPlugin.BUFFER_POOL.size() > 0);
+  }
+
   @Test
   public void testFieldValueCollapseWithNegativeMinMax() throws Exception {
     String[] doc = {"id","1", "group_i", "-1000", "test_i", "5", "test_l", "-10", "test_f", "2000.32"};
@@ -37,8 +37,10 @@ import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.StoredFieldVisitor;
 import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.VectorValues;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.FixedBitSet;
@@ -101,6 +103,10 @@ public class TestDocSet extends SolrTestCase {
     return new BitDocSet(bs);
   }
 
+  public DocSet getRoaringDocSet(FixedBitSet bs) {
+    return RoaringDocSet.fromBits(bs, Long.MAX_VALUE);
+  }
+
   public DocSlice getDocSlice(FixedBitSet bs) {
     int len = bs.cardinality();
     int[] arr = new int[len+5];
@@ -119,8 +125,9 @@ public class TestDocSet extends SolrTestCase {
 
 
   public DocSet getDocSet(FixedBitSet bs) {
-    switch(rand.nextInt(9)) {
+    switch(rand.nextInt(11)) {
       case 0: case 1: case 2: case 3: return getBitDocSet(bs);
+      case 9: case 10: return getRoaringDocSet(bs);
 
       case 4: return getIntDocSet(bs);
       case 5: return getIntDocSet(bs);
@@ -203,6 +210,71 @@ public class TestDocSet extends SolrTestCase {
     // doMany(130, 1000000);
   }
 
+  public void testRoaringDocSet() {
+    // big enough to have several blocks, and both sparse and dense blocks
+    for (int i = 0; i < 20; i++) {
+      int maxDoc = 1 + rand.nextInt(300000);
+      FixedBitSet bs1 = getRandomSet(maxDoc, rand.nextInt(maxDoc / 8 + 1));
+      FixedBitSet bs2 = getRandomSet(maxDoc, rand.nextInt(maxDoc + 1));
+      int from = rand.nextInt(maxDoc);
+      bs2.set(from, Math.min(maxDoc, from + rand.nextInt(100000)));
+
+      DocSet a1 = new BitDocSet(bs1);
+      DocSet a2 = getDocSet(bs2);
+      DocSet r1 = getRoaringDocSet(bs1);
+      DocSet r2 = getRoaringDocSet(bs2);
+      iter(a1, r1);
+      iter(new BitDocSet(bs2), r2);
+      for (int j = 0; j < 1000; j++) {
+        int doc = rand.nextInt(maxDoc);
+        assertEquals(bs1.get(doc), r1.exists(doc));
+        assertEquals(bs1.get(doc), r1.getBits().get(doc));
+      }
+
+      FixedBitSet a_and = bs1.clone(); a_and.and(bs2);
+      FixedBitSet a_or = bs1.clone(); a_or.or(bs2);
+      FixedBitSet a_andn = bs1.clone(); a_andn.andNot(bs2);
+      FixedBitSet b_andn = bs2.clone(); b_andn.andNot(bs1);
+      for (DocSet other : new DocSet[] {a2, r2}) {
+        iter(new BitDocSet(a_and), r1.intersection(other));
+        iter(new BitDocSet(a_and), other.intersection(r1));
+        iter(new BitDocSet(a_or), r1.union(other));
+        iter(new BitDocSet(a_andn), r1.andNot(other));
+        iter(new BitDocSet(b_andn), other.andNot(r1));
+        assertEquals(a_and.cardinality(), r1.intersectionSize(other));
+        assertEquals(a_and.cardinality(), other.intersectionSize(r1));
+        assertEquals(a_and.cardinality() > 0, r1.intersects(other));
+        assertEquals(a_or.cardinality(), r1.unionSize(other));
+        assertEquals(a_andn.cardinality(), r1.andNotSize(other));
+      }
+
+      FixedBitSet target = new FixedBitSet(maxDoc);
+      r2.addAllTo(target);
+      assertEquals(bs2, target);
+      iter(r1, r1.clone());
+    }
+  }
+
+  public void testCompact() {
+    int maxDoc = 1 << 20;
+    // sparse sets are compacted
+    FixedBitSet sparse = getRandomSet(maxDoc, maxDoc / 50);
+    DocSet compacted = DocSetUtil.compact(new BitDocSet(sparse));
+    assertTrue(compacted instanceof RoaringDocSet);
+    assertTrue(compacted.ramBytesUsed() <= new BitDocSet(sparse).ramBytesUsed() / 2);
+    iter(new BitDocSet(sparse), compacted);
+    // so are clustered sets
+    FixedBitSet clustered = new FixedBitSet(maxDoc);
+    clustered.set(0, maxDoc / 4);
+    compacted = DocSetUtil.compact(new BitDocSet(clustered));
+    assertTrue(compacted instanceof RoaringDocSet);
+    iter(new BitDocSet(clustered), compacted);
+    // but not dense sets
+    FixedBitSet dense = getRandomSet(maxDoc, maxDoc / 4);
+    BitDocSet bitDocSet = new BitDocSet(dense);
+    assertSame(bitDocSet, DocSetUtil.compact(bitDocSet));
+  }
+
   public DocSet getRandomDocSet(int n, int maxDoc) {
     FixedBitSet obs = new FixedBitSet(maxDoc);
     int[] a = new int[n];
@@ -342,6 +414,16 @@ public class TestDocSet extends SolrTestCase {
         return null;
       }
 
+      @Override
+      public VectorValues getVectorValues(String field) {
+        return null;
+      }
+
+      @Override
+      public TopDocs searchNearestVectors(String field, float[] target, int k, Bits acceptDocs) {
+        return null;
+      }
+
       @Override
       protected void doClose() {
       }
@@ -424,7 +506,7 @@ public class TestDocSet extends SolrTestCase {
     IndexReaderContext topLevelContext = reader.getContext();
     FixedBitSet bs = getRandomSet(reader.maxDoc(), rand.nextInt(reader.maxDoc()+1));
     DocSet a = new BitDocSet(bs);
-    DocSet b = getIntDocSet(bs);
+    DocSet b = rand.nextBoolean() ? getIntDocSet(bs) : getRoaringDocSet(bs);
 
     Filter fa = a.getTopFilter();
     Filter fb = b.getTopFilter();
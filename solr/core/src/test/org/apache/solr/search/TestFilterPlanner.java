@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.Map;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.Utils;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestFilterPlanner extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeTests() throws Exception {
+    initCore("solrconfig.xml", "schema-docValuesJoin.xml");
+    for (int i = 0; i < 200; i++) {
+      assertU(adoc("id", Integer.toString(i), "cat_s", i % 50 == 0 ? "rare" : "common",
+          "val_s_dv", String.format("v%03d", i), "val_s", String.format("v%03d", i)));
+    }
+    assertU(commit());
+  }
+
+  /** Returns the plan of the only filter of the given request. */
+  private static NamedList<?> plan(String... params) throws Exception {
+    try (SolrQueryRequest req = req(params)) {
+      SolrQueryResponse rsp = h.queryAndResponse(null, req);
+      NamedList<?> plan = (NamedList<?>) ((NamedList<?>) rsp.getValues().get("debug")).get("filterPlan");
+      return (NamedList<?>) plan.getVal(0);
+    }
+  }
+
+  @Test
+  public void testLazyFilters() throws Exception {
+    assertU(commit()); // clears the filter cache
+
+    // a broad filter on a selective query is applied lazily, checked with doc values, and not cached
+    String fq = "val_s_dv:[v000 TO v179]";
+    NamedList<?> plan = plan("q", "cat_s:rare", "fq", fq, "planFilters", "true", "debug", "query");
+    assertEquals("lazy", plan.get("plan"));
+    assertEquals(180L, plan.get("cost"));
+    assertEquals(true, plan.get("docValues"));
+    assertJQ(req("q", "cat_s:rare", "fq", fq, "planFilters", "true", "fl", "id", "sort", "id asc"),
+        "/response/numFound==4");
+    assertEquals("lazy", plan("q", "cat_s:rare AND id:0", "fq", fq, "planFilters", "true", "debug", "query").get("plan"));
+
+    // the same without doc values
+    fq = "val_s:[v000 TO v179]";
+    plan = plan("q", "cat_s:rare", "fq", fq, "planFilters", "true", "debug", "query");
+    assertEquals("lazy", plan.get("plan"));
+    assertEquals(false, plan.get("docValues"));
+    assertJQ(req("q", "cat_s:rare", "fq", fq, "planFilters", "true"), "/response/numFound==4");
+
+    // filters are cached when they are about as selective as the query, or when not planned
+    fq = "val_s_dv:[v000 TO v009]";
+    assertEquals("docSet", plan("q", "cat_s:common", "fq", fq, "planFilters", "true", "debug", "query").get("plan"));
+    assertEquals("cached", plan("q", "cat_s:rare", "fq", fq, "planFilters", "true", "debug", "query").get("plan"));
+    assertJQ(req("q", "cat_s:rare", "fq", fq, "planFilters", "true"), "/response/numFound==1");
+    assertJQ(req("q", "cat_s:rare", "fq", "val_s_dv:[v000 TO v179]"), "/response/numFound==4");
+    assertEquals("cached", plan("q", "cat_s:rare AND id:50", "fq", "val_s_dv:[v000 TO v179]", "planFilters", "true",
+        "debug", "query").get("plan"));
+  }
+
+  private static Object response(SolrQueryRequest req) throws Exception {
+    return ((Map<?, ?>) Utils.fromJSONString(JQ(req))).get("response");
+  }
+
+  @Test
+  public void testSameResults() throws Exception {
+    for (String fq : new String[] {"val_s_dv:[v010 TO *]", "val_s:{v010 TO v150]", "cat_s:common", "val_s_dv:v100"}) {
+      for (String q : new String[] {"cat_s:rare", "*:*", "cat_s:common"}) {
+        // planned first, so that the filter isn't cached yet
+        Object planned = response(req("q", q, "fq", fq, "fl", "id", "sort", "id asc", "rows", "200", "planFilters", "true"));
+        Object expected = response(req("q", q, "fq", fq, "fl", "id", "sort", "id asc", "rows", "200"));
+        assertEquals(fq + " " + q, expected, planned);
+      }
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.Map;
+
+import org.apache.solr.JSONTestUtil;
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.Utils;
+import org.apache.solr.index.NoMergePolicyFactory;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestMultiThreadedSearch extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeTests() throws Exception {
+    // enough segments for several slices
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    System.setProperty("enable.update.log", "false");
+    initCore("solrconfig.xml","schema_latest.xml");
+
+    int id = 0;
+    for (int segment = 0; segment < 12; segment++) {
+      final int numDocs = 1 + random().nextInt(20);
+      for (int i = 0; i < numDocs; i++, id++) {
+        assertU(adoc("id", Integer.toString(id),
+            "cat_s", random().nextBoolean() ? "x" : "y",
+            "val_s", Integer.toString(random().nextInt(10)),
+            "body_t", random().nextBoolean() ? "a b" : "a a c"));
+      }
+      assertU(commit());
+    }
+  }
+
+  @AfterClass
+  public static void afterTests() {
+    systemClearPropertySolrTestsMergePolicyFactory();
+    System.clearProperty("enable.update.log");
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String,Object> query(boolean multiThreaded, String... params) throws Exception {
+    ModifiableSolrParams p = params(params);
+    p.set(CommonParams.MULTI_THREADED, multiThreaded);
+    p.set("wt", "json");
+    // bypass the queryResultCache and filterCache so that both modes collect the query
+    p.set("q", "{!cache=false}" + p.get("q"));
+    Map<String,Object> response = (Map<String,Object>) Utils.fromJSONString(h.query(req(p)));
+    response.remove("responseHeader");
+    return response;
+  }
+
+  @Test
+  public void testSameResults() throws Exception {
+    String[] sorts = {"score desc", "val_s asc, id asc", "val_s desc, score desc, id asc"};
+    String[] rows = {"0", "3", "10", "1000"};
+    for (String sort : sorts) {
+      for (String row : rows) {
+        for (String fl : new String[] {"id", "id,score"}) {
+          String[] params = {"q", "body_t:a body_t:c", "fq", "cat_s:x", "sort", sort, "rows", row, "fl", fl,
+              "facet", "true", "facet.field", "val_s"};
+          Map<String,Object> expected = query(false, params);
+          Map<String,Object> actual = query(true, params);
+          String err = JSONTestUtil.matchObj("", actual, expected);
+          assertNull("sort=" + sort + " rows=" + row + " fl=" + fl + ": " + err, err);
+        }
+      }
+    }
+  }
+}
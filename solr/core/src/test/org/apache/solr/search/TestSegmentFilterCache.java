@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.search;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.index.NoMergePolicyFactory;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class TestSegmentFilterCache extends SolrTestCaseJ4 {
+
+  @BeforeClass
+  public static void beforeTests() throws Exception {
+    // segments must not be merged away for entries to be reused
+    systemSetPropertySolrTestsMergePolicyFactory(NoMergePolicyFactory.class.getName());
+    System.setProperty("solr.segmentFilterCache.maxRamMB", "16");
+    System.setProperty("enable.update.log", "false");
+    initCore("solrconfig.xml","schema_latest.xml");
+  }
+
+  @AfterClass
+  public static void afterTests() {
+    systemClearPropertySolrTestsMergePolicyFactory();
+    System.clearProperty("solr.segmentFilterCache.maxRamMB");
+    System.clearProperty("enable.update.log");
+  }
+
+  private static long stat(String name) {
+    Map<String,Object> stats = new HashMap<>();
+    h.getCore().getSegmentFilterCache().getStatistics(stats);
+    return ((Number) stats.get(name)).longValue();
+  }
+
+  @Test
+  public void testSurvivesCommits() throws Exception {
+    assertNotNull(h.getCore().getSegmentFilterCache());
+    clearIndex();
+    int numA = 0;
+    for (int i = 0; i < 100; i++) {
+      String cat = i % 3 == 0 ? "a" : "b";
+      if (cat.equals("a")) numA++;
+      assertU(adoc("id", Integer.toString(i), "cat_s", cat, "val_i", Integer.toString(i)));
+    }
+    assertU(commit());
+
+    assertQ(req("q", "*:*", "fq", "cat_s:a"), "//*[@numFound='" + numA + "']");
+    assertQ(req("q", "*:*", "fq", "-cat_s:a"), "//*[@numFound='" + (100 - numA) + "']");
+    assertQ(req("q", "*:*", "fq", "val_i:[10 TO 19]"), "//*[@numFound='10']");
+    assertTrue(stat(SolrCache.SIZE_PARAM) > 0);
+    assertTrue(stat(SolrCache.RAM_BYTES_USED_PARAM) > 0);
+
+    // a new segment: only this segment needs to be computed
+    final long hits = stat(SolrCache.HITS_PARAM);
+    for (int i = 100; i < 110; i++) {
+      assertU(adoc("id", Integer.toString(i), "cat_s", "a", "val_i", Integer.toString(i)));
+      numA++;
+    }
+    assertU(commit());
+    assertQ(req("q", "*:*", "fq", "cat_s:a"), "//*[@numFound='" + numA + "']");
+    assertQ(req("q", "*:*", "fq", "val_i:[10 TO 109]"), "//*[@numFound='100']");
+    assertTrue(stat(SolrCache.HITS_PARAM) > hits);
+
+    // deletions are applied to cached sets
+    assertU(delI("0"));
+    assertU(delI("3"));
+    assertU(commit());
+    assertQ(req("q", "*:*", "fq", "cat_s:a"), "//*[@numFound='" + (numA - 2) + "']");
+    assertQ(req("q", "*:*", "fq", "-cat_s:a"), "//*[@numFound='" + (100 - numA + 10) + "']");
+
+    clearIndex();
+    assertU(commit());
+    assertQ(req("q", "*:*", "fq", "cat_s:a"), "//*[@numFound='0']");
+  }
+
+  @Test
+  public void testPlannedFilters() throws Exception {
+    clearIndex();
+    for (int i = 0; i < 100; i++) {
+      assertU(adoc("id", Integer.toString(i), "cat_s", i == 0 ? "rare" : "common"));
+    }
+    assertU(commit());
+    assertQ(req("q", "*:*", "fq", "cat_s:common"), "//*[@numFound='99']");
+    assertU(commit()); // clears the filter cache, but not the sets of the segments
+
+    // the broad filter would be applied lazily on the selective query if its sets weren't cached
+    try (SolrQueryRequest req = req("q", "cat_s:rare", "fq", "cat_s:common", "planFilters", "true", "debug", "query")) {
+      SolrQueryResponse rsp = h.queryAndResponse(null, req);
+      NamedList<?> plan = (NamedList<?>) ((NamedList<?>) rsp.getValues().get("debug")).get("filterPlan");
+      NamedList<?> filterPlan = (NamedList<?>) plan.getVal(0);
+      assertEquals("docSet", filterPlan.get("plan"));
+      assertNull(filterPlan.get("cost"));
+    }
+    assertQ(req("q", "cat_s:rare", "fq", "cat_s:common", "planFilters", "true"), "//*[@numFound='0']");
+  }
+}
@@ -180,6 +180,10 @@ public class SolrIndexConfigTest extends SolrTestCaseJ4 {
 
     ++mSizeExpected; assertTrue(m.get("ramPerThreadHardLimitMB") instanceof Integer);
 
+    ++mSizeExpected; assertTrue(m.get("applyUpdatesThreads") instanceof Integer);
+
+    ++mSizeExpected; assertTrue(m.get("maxPendingUpdatesRAMMB") instanceof Double);
+
     ++mSizeExpected; assertTrue(m.get("writeLockTimeout") instanceof Integer);
 
     ++mSizeExpected; assertTrue(m.get("lockType") instanceof String);
@@ -17,6 +17,9 @@
 package org.apache.solr.update;
 
 import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.util.BytesRef;
@@ -188,6 +191,55 @@ public class UpdateLogTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testGroupSync() throws Exception {
+    final int numThreads = 8;
+    final long count = ulog.syncTimer.getCount();
+    final long sum = sum(ulog.syncBatchSizeHistogram.getSnapshot().getValues());
+    ulog.syncBatchLatencyNanos = TimeUnit.MILLISECONDS.toNanos(50);
+    try {
+      final CyclicBarrier barrier = new CyclicBarrier(numThreads);
+      final Thread[] threads = new Thread[numThreads];
+      final AtomicReference<Throwable> failure = new AtomicReference<>();
+      for (int i = 0; i < numThreads; i++) {
+        final String id = Integer.toString(1000 + i);
+        threads[i] = new Thread(() -> {
+          try {
+            barrier.await();
+            ulogAdd(ulog, null, sdoc("id", id, "_version_", id));
+            ulog.finish(UpdateLog.SyncLevel.FSYNC);
+          } catch (Throwable t) {
+            failure.set(t);
+          }
+        });
+        threads[i].start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertNull(failure.get());
+    } finally {
+      ulog.syncBatchLatencyNanos = 0;
+    }
+
+    // every request was synced, with fewer fsyncs when they were batched
+    final long syncs = ulog.syncTimer.getCount() - count;
+    assertTrue("syncs=" + syncs, syncs >= 1 && syncs <= numThreads);
+    assertEquals(numThreads, sum(ulog.syncBatchSizeHistogram.getSnapshot().getValues()) - sum);
+
+    // syncing without concurrent requests is a batch of one
+    ulog.finish(UpdateLog.SyncLevel.FSYNC);
+    assertEquals(syncs + 1, ulog.syncTimer.getCount() - count);
+  }
+
+  private static long sum(long[] values) {
+    long sum = 0;
+    for (long value : values) {
+      sum += value;
+    }
+    return sum;
+  }
+
   /**
    * Simulate a commit on a given updateLog
    */
@@ -16,12 +16,19 @@
  */
 package org.apache.solr.update;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.lucene.util.BytesRef;
 import org.apache.solr.SolrTestCaseJ4;
+import org.apache.solr.common.util.ExecutorUtil;
 import org.apache.solr.common.util.Hash;
 import org.apache.solr.core.CoreContainer;
 import org.apache.solr.request.SolrQueryRequest;
 import org.apache.solr.schema.SchemaField;
+import org.apache.solr.util.DefaultSolrThreadFactory;
 import org.junit.Test;
 
 public class VersionInfoTest extends SolrTestCaseJ4 {
@@ -56,6 +63,69 @@ public class VersionInfoTest extends SolrTestCaseJ4 {
     }
   }
 
+  @Test
+  public void testUpdateLocks() throws Exception {
+    initCore("solrconfig-tlog.xml", "schema-version-dv.xml");
+    try (SolrQueryRequest r = req()) {
+      VersionInfo vInfo = r.getCore().getUpdateHandler().getUpdateLog().getVersionInfo();
+      ExecutorService executor = ExecutorUtil.newMDCAwareCachedThreadPool(new DefaultSolrThreadFactory("testUpdateLocks"));
+      try {
+        // blocking updates waits for the updates of all threads, and blocks them
+        vInfo.lockForUpdate();
+        Future<?> block = executor.submit(() -> {
+          vInfo.blockUpdates();
+          vInfo.unblockUpdates();
+        });
+        Thread.sleep(100);
+        assertFalse(block.isDone());
+        vInfo.unlockForUpdate();
+        block.get(30, TimeUnit.SECONDS);
+
+        vInfo.blockUpdates();
+        Future<?> update = executor.submit(() -> {
+          vInfo.lockForUpdate();
+          vInfo.unlockForUpdate();
+        });
+        Thread.sleep(100);
+        assertFalse(update.isDone());
+        vInfo.unblockUpdates();
+        update.get(30, TimeUnit.SECONDS);
+
+        // waiting for the lock of a bucket is counted
+        VersionBucket bucket = vInfo.bucket(0);
+        long contended = vInfo.getContendedBucketLocks();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> vInfo.runWithBucketLock(bucket, () -> {
+          locked.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+          } finally {
+            bucket.unlock();
+          }
+          return null;
+        }));
+        locked.await();
+        Future<?> waiter = executor.submit(() -> vInfo.runWithBucketLock(bucket, () -> {
+          bucket.unlock();
+          return null;
+        }));
+        Thread.sleep(100);
+        release.countDown();
+        holder.get(30, TimeUnit.SECONDS);
+        waiter.get(30, TimeUnit.SECONDS);
+        assertEquals(contended + 1, vInfo.getContendedBucketLocks());
+        assertTrue(vInfo.getBucketLockWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+      } finally {
+        ExecutorUtil.shutdownAndAwaitTermination(executor);
+      }
+    } finally {
+      deleteCore();
+    }
+  }
+
   protected void testMaxVersionLogic(SolrQueryRequest req) throws Exception {
     UpdateHandler uhandler = req.getCore().getUpdateHandler();
     UpdateLog ulog = uhandler.getUpdateLog();
@@ -67,6 +67,8 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
   private boolean shutdownExecutor;
   private int pollQueueTime = 250;
   private int stallTime;
+  private final int maxBatchBytes;
+  private final long maxBatchLatencyNanos;
   private final boolean streamDeletes;
   private volatile boolean closed;
   private volatile CountDownLatch lock = null; // used to block everything
@@ -115,6 +117,21 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
       return e;
     }
 
+    /** Returns the next element without waiting, or null if there is none. */
+    public E poll() {
+      E e = queue.poll();
+      if (e == null) {
+        return null;
+      }
+      if (e == backdoorE) {
+        // leave it to the next timed poll, so that the runner stops
+        queue.offer(backdoorE);
+        return null;
+      }
+      available.release();
+      return e;
+    }
+
     public boolean add(E e) {
       boolean success = available.tryAcquire();
       if (success) {
@@ -151,6 +168,8 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
     this.runners = new LinkedList<>();
     this.streamDeletes = builder.streamDeletes;
     this.basePath = builder.baseSolrUrl;
+    this.maxBatchBytes = builder.maxBatchBytes;
+    this.maxBatchLatencyNanos = builder.maxBatchLatencyNanos;
     this.stallTime = Integer.getInteger("solr.cloud.client.stallTime", 15000);
     if (stallTime < pollQueueTime * 2) {
       throw new RuntimeException("Invalid stallTime: " + stallTime + "ms, must be 2x > pollQueueTime " + pollQueueTime);
@@ -227,17 +246,29 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
             try (Http2SolrClient.OutStream out = client.initOutStream(basePath, update.getRequest(),
                 update.getCollection())) {
               Update upd = update;
+              long batchStart = System.nanoTime();
               while (upd != null) {
                 UpdateRequest req = upd.getRequest();
                 if (!out.belongToThisStream(req, upd.getCollection())) {
                   queue.add(upd); // Request has different params or destination core/collection, return to queue
                   break;
                 }
-                client.send(out, upd.getRequest(), upd.getCollection());
-                out.flush();
+                if (out.getBufferedSize() == 0) {
+                  batchStart = System.nanoTime();
+                }
+                client.sendBuffered(out, upd.getRequest(), upd.getCollection());
+                // batch the updates that are already queued, up to maxBatchBytes and maxBatchLatency
+                if (out.getBufferedSize() >= maxBatchBytes || System.nanoTime() - batchStart >= maxBatchLatencyNanos) {
+                  out.flush();
+                }
 
                 notifyQueueAndRunnersIfEmptyQueue();
-                upd = queue.poll(pollQueueTime, TimeUnit.MILLISECONDS);
+                upd = queue.poll();
+                if (upd == null) {
+                  // nothing else is queued, so send the batch before waiting for more updates
+                  out.flush();
+                  upd = queue.poll(pollQueueTime, TimeUnit.MILLISECONDS);
+                }
               }
               responseListener = out.getResponseListener();
             }
@@ -683,6 +714,8 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
     protected ExecutorService executorService;
     protected boolean streamDeletes;
     protected boolean closeHttp2Client;
+    protected int maxBatchBytes = 64 * 1024;
+    protected long maxBatchLatencyNanos = TimeUnit.MILLISECONDS.toNanos(10);
 
     public Builder(String baseSolrUrl, Http2SolrClient client) {
       this(baseSolrUrl, client, false);
@@ -732,6 +765,38 @@ public class ConcurrentUpdateHttp2SolrClient extends SolrClient {
       return this;
     }
 
+    /**
+     * The maximum number of bytes of queued requests that are written to the connection at once.
+     *
+     * Requests that are already queued when a request is written are sent together with it, which saves network
+     * round trips when requests are small, until this many bytes or {@link #withMaxBatchLatency(long, TimeUnit)} are
+     * reached.  A request is sent as soon as there are no more queued requests.
+     * <p>
+     * If not set, this defaults to 64KB.
+     */
+    public Builder withMaxBatchBytes(int maxBatchBytes) {
+      if (maxBatchBytes <= 0) {
+        throw new IllegalArgumentException("maxBatchBytes must be a positive integer.");
+      }
+      this.maxBatchBytes = maxBatchBytes;
+      return this;
+    }
+
+    /**
+     * The maximum time that written requests wait for queued requests to be sent together with them.
+     *
+     * If not set, this defaults to 10 milliseconds.
+     *
+     * @see #withMaxBatchBytes(int)
+     */
+    public Builder withMaxBatchLatency(long maxBatchLatency, TimeUnit unit) {
+      if (maxBatchLatency < 0) {
+        throw new IllegalArgumentException("maxBatchLatency must not be negative.");
+      }
+      this.maxBatchLatencyNanos = unit.toNanos(maxBatchLatency);
+      return this;
+    }
+
     /**
      * Provides the {@link ExecutorService} for the created client to use when servicing the update-request queue.
      */
@@ -250,12 +250,18 @@ public class Http2SolrClient extends SolrClient {
     return idleTimeout;
   }
 
+  /**
+   * A stream of update requests.  Requests are buffered until {@link #flush()}, so that several small requests are
+   * sent together rather than each in its own frames.
+   */
   public static class OutStream implements Closeable{
     private final String origCollection;
     private final ModifiableSolrParams origParams;
     private final OutputStreamContentProvider outProvider;
     private final InputStreamResponseListener responseListener;
     private final boolean isXml;
+    // flushes of request writers must not send the buffer, so this isn't a FastOutputStream
+    private final BinaryRequestWriter.BAOS buffer = new BinaryRequestWriter.BAOS();
 
     public OutStream(String origCollection, ModifiableSolrParams origParams,
                      OutputStreamContentProvider outProvider, InputStreamResponseListener responseListener, boolean isXml) {
@@ -275,10 +281,20 @@ public class Http2SolrClient extends SolrClient {
     }
 
     public void write(byte b[]) throws IOException {
-      this.outProvider.getOutputStream().write(b);
+      buffer.write(b);
+    }
+
+    /** Returns the number of bytes that were written since the last flush. */
+    public int getBufferedSize() {
+      return buffer.size();
     }
 
+    /** Sends the buffered requests, and waits for them to be written. */
     public void flush() throws IOException {
+      if (buffer.size() > 0) {
+        this.outProvider.getOutputStream().write(buffer.getbuf(), 0, buffer.size());
+        buffer.reset();
+      }
       this.outProvider.getOutputStream().flush();
     }
 
@@ -287,6 +303,7 @@ public class Http2SolrClient extends SolrClient {
       if (isXml) {
         write("</stream>".getBytes(StandardCharsets.UTF_8));
       }
+      flush();
       this.outProvider.getOutputStream().close();
     }
 
@@ -334,9 +351,20 @@ public class Http2SolrClient extends SolrClient {
     return outStream;
   }
 
+  /**
+   * Writes the given request to the stream and flushes it.
+   */
   public void send(OutStream outStream, SolrRequest req, String collection) throws IOException {
+    sendBuffered(outStream, req, collection);
+    outStream.flush();
+  }
+
+  /**
+   * Writes the given request to the stream without flushing it, so that it is sent along with the next requests.
+   */
+  void sendBuffered(OutStream outStream, SolrRequest req, String collection) throws IOException {
     assert outStream.belongToThisStream(req, collection);
-    this.requestWriter.write(req, outStream.outProvider.getOutputStream());
+    this.requestWriter.write(req, outStream.buffer);
     if (outStream.isXml) {
       // check for commit or optimize
       SolrParams params = req.getParams();
@@ -356,7 +384,6 @@ public class Http2SolrClient extends SolrClient {
         }
       }
     }
-    outStream.flush();
   }
 
   public NamedList<Object> request(SolrRequest solrRequest,
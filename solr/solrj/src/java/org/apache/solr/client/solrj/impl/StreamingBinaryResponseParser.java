@@ -18,7 +18,11 @@ package org.apache.solr.client.solrj.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.solr.client.solrj.FastStreamingDocsCallback;
 import org.apache.solr.client.solrj.StreamingResponseCallback;
@@ -33,11 +37,16 @@ import org.apache.solr.common.util.FastJavaBinDecoder.EntryImpl;
 import org.apache.solr.common.util.FastJavaBinDecoder.Tag;
 import org.apache.solr.common.util.JavaBinCodec;
 import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.common.util.Utf8CharSequence;
 
 /**
  * A BinaryResponseParser that sends callback events rather then build
  * a large response 
- * 
+ * <p>
+ * With a {@link FastStreamingDocsCallback}, the fields of the documents are passed to the callback as they are
+ * decoded, without building {@link SolrDocument}s, and the returned response holds everything else, with
+ * empty {@link SolrDocumentList}s in place of the streamed documents.
  *
  * @since solr 4.0
  */
@@ -93,26 +102,76 @@ public class StreamingBinaryResponseParser extends BinaryResponseParser {
         entry.listenContainer(fastCallback.startDoc(entry.ctx()), fieldListener);
       }
     };
-    new FastJavaBinDecoder()
+    Object response = new FastJavaBinDecoder()
         .withInputStream(body)
         .decode(new EntryListener() {
           @Override
           public void entry(DataEntry e) {
             EntryImpl entry = (EntryImpl) e;
-            if( !entry.type().isContainer) return;
-            if (e.isKeyValEntry() && entry.getTag() == Tag._SOLRDOCLST) {
+            Tag tag = entry.getTag();
+            if (tag == Tag._SOLRDOCLST) {
               List l = (List) e.metadata();
+              SolrDocumentList docs = new SolrDocumentList();
+              docs.setNumFound((Long) l.get(0));
+              docs.setStart((Long) l.get(1));
+              docs.setMaxScore((Float) l.get(2));
+              addToContainer(e, docs);
               e.listenContainer(fastCallback.initDocList(
                   (Long) l.get(0),
                   (Long) l.get(1),
                   (Float) l.get(2)),
                   docListener);
+            } else if (tag == Tag._NULL) {
+              // reading the value of a null entry isn't supported
+              addToContainer(e, null);
             } else {
-              e.listenContainer(null, this);
+              Object container = newContainer(tag);
+              if (container != null) {
+                addToContainer(e, container);
+                e.listenContainer(container, this);
+              } else {
+                Object val = e.val();
+                addToContainer(e, val instanceof Utf8CharSequence ? val.toString() : val);
+              }
             }
           }
         });
-    return null;
+    return (NamedList<Object>) response;
+  }
+
+  /**
+   * Returns the container that the entries of a container with the given tag should be added to, or null
+   * if the value should be read at once.
+   */
+  private static Object newContainer(Tag tag) {
+    switch (tag) {
+      case _ORDERED_MAP:
+        return new SimpleOrderedMap<>();
+      case _NAMED_LST:
+        return new NamedList<>();
+      case _MAP:
+      case _MAP_ENTRY_ITER:
+        return new LinkedHashMap<>();
+      case _ARR:
+      case _ITERATOR:
+        return new ArrayList<>();
+      default:
+        return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void addToContainer(DataEntry e, Object val) {
+    Object container = e.ctx();
+    if (container == null) return; // the response itself
+    String name = e.name() == null ? null : e.name().toString();
+    if (container instanceof NamedList) {
+      ((NamedList<Object>) container).add(name, val);
+    } else if (container instanceof Map) {
+      ((Map<String, Object>) container).put(name, val);
+    } else {
+      ((Collection<Object>) container).add(val);
+    }
   }
 
 
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.client.solrj.io.stream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Date;
+import java.util.Map;
+
+import org.apache.solr.common.util.ColumnarBatch;
+
+/**
+ * Reads the tuples of a response of the columnar response writer (<code>wt=columnar</code>), in which the documents
+ * or tuples are sent as {@link ColumnarBatch}es.  Tuples are read one batch at a time.
+ */
+public class ColumnarTupleStreamParser extends JavabinTupleStreamParser {
+  private final boolean onlyJsonTypes;
+  private ColumnarBatch batch;
+  private int row;
+
+  public ColumnarTupleStreamParser(InputStream is, boolean onlyJsonTypes) throws IOException {
+    super(is, onlyJsonTypes);
+    this.onlyJsonTypes = onlyJsonTypes;
+  }
+
+  @Override
+  public Map<String, Object> next() throws IOException {
+    while (batch == null || row == batch.numRows()) {
+      Map<String, Object> o = super.next();
+      if (o == null) return null;
+      if (ColumnarBatch.isBatch(o) == false) return o;
+      batch = new ColumnarBatch(o);
+      row = 0;
+    }
+    Map<String, Object> tuple = batch.getRow(row++);
+    if (onlyJsonTypes) {
+      tuple.replaceAll((k, v) -> {
+        if (v instanceof Integer) return ((Integer) v).longValue();
+        if (v instanceof Float) return ((Float) v).doubleValue();
+        if (v instanceof Date) return ((Date) v).toInstant().toString();
+        return v;
+      });
+    }
+    return tuple;
+  }
+}
@@ -126,6 +126,11 @@ public interface CommonParams {
    * {@link #DEBUG} value indicating an interest in debug output related to the distributed tracking
    */
   String TRACK = "track";
+  /**
+   * {@link #DEBUG} value indicating an interest in a profile of the execution of Lucene queries.
+   * Unlike other values, it is not enabled by {@link #DEBUG_QUERY} or <code>debug=all</code>.
+   */
+  String PROFILE = "profile";
   /** 
    * boolean indicating whether score explanations should structured (true), 
    * or plain text (false)
@@ -158,6 +163,16 @@ public interface CommonParams {
   String SEGMENT_TERMINATE_EARLY = "segmentTerminateEarly";
   boolean SEGMENT_TERMINATE_EARLY_DEFAULT = false;
 
+  /**
+   * Whether or not the main query may be collected concurrently across segments.
+   */
+  String MULTI_THREADED = "multiThreaded";
+
+  /**
+   * Whether or not filters that aren't cached are planned by their cost relative to the main query.
+   */
+  String PLAN_FILTERS = "planFilters";
+
   /**
    * Timeout value in milliseconds.  If not set, or the value is &gt;= 0, there is no timeout.
    */
@@ -278,6 +293,9 @@ public interface CommonParams {
 
   String JAVABIN = "javabin";
 
+  /** Response writer that sends documents and tuples in columnar batches */
+  String COLUMNAR = "columnar";
+
   String JSON = "json";
 
   String PATH = "path";
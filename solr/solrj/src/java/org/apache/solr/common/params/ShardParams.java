@@ -91,6 +91,18 @@ public interface ShardParams {
 
   /** Force a single-pass distributed query? (true/false) */
   String DISTRIB_SINGLE_PASS = "distrib.singlePass";
+
+  /**
+   * Unless {@value #DISTRIB_SINGLE_PASS} is set, do a single-pass distributed query when at most this many documents
+   * are fetched from all shards, that is the number of shards times the rows of each shard request. (0 disables it)
+   */
+  String DISTRIB_SINGLE_PASS_MAX_DOCS = "distrib.singlePass.maxDocs";
+
+  /**
+   * Only do a single-pass distributed query because of {@value #DISTRIB_SINGLE_PASS_MAX_DOCS} when all the requested
+   * fields are returned from docValues? (true/false)
+   */
+  String DISTRIB_SINGLE_PASS_DOCVALUES_ONLY = "distrib.singlePass.docValuesOnly";
   
   /**
    * Throw an error from search requests when the {@value #SHARDS_TOLERANT} param
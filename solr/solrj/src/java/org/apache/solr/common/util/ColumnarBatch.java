@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.solr.common.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A batch of rows stored column by column, as written by the columnar response writer in place of lists of
+ * documents or tuples.  A batch is a map with the number of rows and a list of columns, each of which has a name,
+ * a type and its values.  Like in Arrow, values of fixed width types are packed in a little-endian byte array,
+ * missing values are tracked in an optional validity bitmap, and strings are dictionary encoded:
+ * <ul>
+ *   <li><code>bool</code>: <code>data</code> is a bitmap of the values</li>
+ *   <li><code>int</code>, <code>float</code>: <code>data</code> holds 4 bytes per row</li>
+ *   <li><code>long</code>, <code>double</code>, <code>date</code> (epoch milliseconds): <code>data</code>
+ *   holds 8 bytes per row</li>
+ *   <li><code>str</code>: <code>dictionary</code> is the list of distinct values and <code>data</code> holds the
+ *   4 byte index of the value of each row</li>
+ *   <li><code>obj</code>: any other values, as a list in <code>values</code></li>
+ * </ul>
+ * Bit <code>i</code> of a bitmap is the bit <code>i &amp; 7</code> of its byte <code>i &gt;&gt;&gt; 3</code>.
+ * Rows don't have entries for the columns that are missing in them.
+ *
+ * @lucene.experimental
+ */
+public class ColumnarBatch {
+
+  public static final String NUM_ROWS = "numRows";
+  public static final String COLUMNS = "columns";
+  public static final String NAME = "name";
+  public static final String TYPE = "type";
+  public static final String VALIDITY = "validity";
+  public static final String DATA = "data";
+  public static final String DICTIONARY = "dictionary";
+  public static final String VALUES = "values";
+
+  public static final String BOOL = "bool";
+  public static final String INT = "int";
+  public static final String LONG = "long";
+  public static final String FLOAT = "float";
+  public static final String DOUBLE = "double";
+  public static final String DATE = "date";
+  public static final String STR = "str";
+  public static final String OBJ = "obj";
+
+  private final int numRows;
+  private final List<Column> columns;
+
+  /** Reads a batch from its serialized form. */
+  @SuppressWarnings("unchecked")
+  public ColumnarBatch(Map<?, ?> batch) {
+    this.numRows = ((Number) batch.get(NUM_ROWS)).intValue();
+    List<Map<?, ?>> cols = (List<Map<?, ?>>) batch.get(COLUMNS);
+    this.columns = new ArrayList<>(cols.size());
+    for (Map<?, ?> col : cols) {
+      columns.add(new Column(col));
+    }
+  }
+
+  /** Returns whether the given object, read from a response, is a batch. */
+  public static boolean isBatch(Object o) {
+    return o instanceof Map && ((Map<?, ?>) o).containsKey(NUM_ROWS) && ((Map<?, ?>) o).containsKey(COLUMNS);
+  }
+
+  public int numRows() {
+    return numRows;
+  }
+
+  /** Returns the values of the given row, by column name. */
+  public Map<String, Object> getRow(int row) {
+    if (row < 0 || row >= numRows) {
+      throw new IndexOutOfBoundsException("row " + row + " of " + numRows);
+    }
+    Map<String, Object> result = new LinkedHashMap<>();
+    for (Column column : columns) {
+      Object val = column.get(row);
+      if (val != null) {
+        result.put(column.name, val);
+      }
+    }
+    return result;
+  }
+
+  private static class Column {
+    final String name;
+    final String type;
+    final byte[] validity;
+    final ByteBuffer data;
+    final List<?> dictionary;
+    final List<?> values;
+
+    Column(Map<?, ?> col) {
+      this.name = col.get(NAME).toString();
+      this.type = col.get(TYPE).toString();
+      this.validity = (byte[]) col.get(VALIDITY);
+      byte[] bytes = (byte[]) col.get(DATA);
+      this.data = bytes == null ? null : ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+      this.dictionary = (List<?>) col.get(DICTIONARY);
+      this.values = (List<?>) col.get(VALUES);
+    }
+
+    Object get(int row) {
+      if (validity != null && isSet(validity, row) == false) {
+        return null;
+      }
+      switch (type) {
+        case BOOL:
+          return isSet(data.array(), row);
+        case INT:
+          return data.getInt(row * Integer.BYTES);
+        case LONG:
+          return data.getLong(row * Long.BYTES);
+        case FLOAT:
+          return data.getFloat(row * Float.BYTES);
+        case DOUBLE:
+          return data.getDouble(row * Double.BYTES);
+        case DATE:
+          return new Date(data.getLong(row * Long.BYTES));
+        case STR:
+          Object s = dictionary.get(data.getInt(row * Integer.BYTES));
+          return s instanceof Utf8CharSequence ? s.toString() : s;
+        case OBJ:
+          return values.get(row);
+        default:
+          throw new IllegalArgumentException("Unknown type " + type + " of column " + name);
+      }
+    }
+  }
+
+  private static boolean isSet(byte[] bitmap, int i) {
+    return (bitmap[i >>> 3] & (1 << (i & 7))) != 0;
+  }
+
+  private static void set(byte[] bitmap, int i) {
+    bitmap[i >>> 3] |= 1 << (i & 7);
+  }
+
+  /**
+   * Accumulates rows and builds batches of them.  Values are expected to be plain Java objects; those that don't
+   * have a columnar type, and columns that mix types, are kept as a list of objects.
+   */
+  public static class Builder {
+    private final List<Map<String, Object>> rows = new ArrayList<>();
+    private final Set<String> names = new LinkedHashSet<>();
+
+    public void add(Map<String, Object> row) {
+      rows.add(row);
+      names.addAll(row.keySet());
+    }
+
+    /** Returns the number of rows that were added since the last batch was built. */
+    public int size() {
+      return rows.size();
+    }
+
+    /** Returns the serialized form of a batch of the rows that were added, and starts a new batch. */
+    public Map<String, Object> build() {
+      final int numRows = rows.size();
+      List<Map<String, Object>> cols = new ArrayList<>(names.size());
+      Object[] vals = new Object[numRows];
+      for (String name : names) {
+        for (int i = 0; i < numRows; i++) {
+          vals[i] = rows.get(i).get(name);
+        }
+        cols.add(buildColumn(name, vals));
+      }
+      Map<String, Object> batch = new LinkedHashMap<>();
+      batch.put(NUM_ROWS, numRows);
+      batch.put(COLUMNS, cols);
+      rows.clear();
+      names.clear();
+      return batch;
+    }
+
+    private static Map<String, Object> buildColumn(String name, Object[] vals) {
+      String type = null;
+      boolean hasNulls = false;
+      for (Object val : vals) {
+        if (val == null) {
+          hasNulls = true;
+          continue;
+        }
+        String valType = typeOf(val);
+        if (type == null) {
+          type = valType;
+        } else if (type.equals(valType) == false) {
+          type = OBJ;
+        }
+      }
+      if (type == null) {
+        type = OBJ;
+      }
+
+      Map<String, Object> col = new LinkedHashMap<>();
+      col.put(NAME, name);
+      col.put(TYPE, type);
+      if (OBJ.equals(type)) {
+        List<Object> values = new ArrayList<>(vals.length);
+        for (Object val : vals) {
+          values.add(val);
+        }
+        col.put(VALUES, values);
+        return col;
+      }
+
+      if (hasNulls) {
+        byte[] validity = new byte[(vals.length + 7) >>> 3];
+        for (int i = 0; i < vals.length; i++) {
+          if (vals[i] != null) {
+            set(validity, i);
+          }
+        }
+        col.put(VALIDITY, validity);
+      }
+      switch (type) {
+        case BOOL: {
+          byte[] bits = new byte[(vals.length + 7) >>> 3];
+          for (int i = 0; i < vals.length; i++) {
+            if (Boolean.TRUE.equals(vals[i])) {
+              set(bits, i);
+            }
+          }
+          col.put(DATA, bits);
+          break;
+        }
+        case STR: {
+          Map<String, Integer> ords = new HashMap<>();
+          List<String> dictionary = new ArrayList<>();
+          ByteBuffer data = newBuffer(vals.length, Integer.BYTES);
+          for (int i = 0; i < vals.length; i++) {
+            int ord = 0;
+            if (vals[i] != null) {
+              String s = vals[i].toString();
+              Integer existing = ords.putIfAbsent(s, dictionary.size());
+              if (existing == null) {
+                ord = dictionary.size();
+                dictionary.add(s);
+              } else {
+                ord = existing;
+              }
+            }
+            data.putInt(i * Integer.BYTES, ord);
+          }
+          col.put(DICTIONARY, dictionary);
+          col.put(DATA, data.array());
+          break;
+        }
+        case INT: {
+          ByteBuffer data = newBuffer(vals.length, Integer.BYTES);
+          for (int i = 0; i < vals.length; i++) {
+            if (vals[i] != null) data.putInt(i * Integer.BYTES, (Integer) vals[i]);
+          }
+          col.put(DATA, data.array());
+          break;
+        }
+        case FLOAT: {
+          ByteBuffer data = newBuffer(vals.length, Float.BYTES);
+          for (int i = 0; i < vals.length; i++) {
+            if (vals[i] != null) data.putFloat(i * Float.BYTES, (Float) vals[i]);
+          }
+          col.put(DATA, data.array());
+          break;
+        }
+        case LONG: {
+          ByteBuffer data = newBuffer(vals.length, Long.BYTES);
+          for (int i = 0; i < vals.length; i++) {
+            if (vals[i] != null) data.putLong(i * Long.BYTES, (Long) vals[i]);
+          }
+          col.put(DATA, data.array());
+          break;
+        }
+        case DOUBLE: {
+          ByteBuffer data = newBuffer(vals.length, Double.BYTES);
+          for (int i = 0; i < vals.length; i++) {
+            if (vals[i] != null) data.putDouble(i * Double.BYTES, (Double) vals[i]);
+          }
+          col.put(DATA, data.array());
+          break;
+        }
+        case DATE: {
+          ByteBuffer data = newBuffer(vals.length, Long.BYTES);
+          for (int i = 0; i < vals.length; i++) {
+            if (vals[i] != null) data.putLong(i * Long.BYTES, ((Date) vals[i]).getTime());
+          }
+          col.put(DATA, data.array());
+          break;
+        }
+        default:
+          throw new AssertionError(type);
+      }
+      return col;
+    }
+
+    private static ByteBuffer newBuffer(int numRows, int width) {
+      return ByteBuffer.allocate(numRows * width).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static String typeOf(Object val) {
+      if (val instanceof Boolean) return BOOL;
+      if (val instanceof Integer) return INT;
+      if (val instanceof Long) return LONG;
+      if (val instanceof Float) return FLOAT;
+      if (val instanceof Double) return DOUBLE;
+      if (val instanceof Date) return DATE;
+      if (val instanceof CharSequence) return STR;
+      return OBJ;
+    }
+  }
+}
@@ -107,6 +107,58 @@ public class ConcurrentUpdateHttp2SolrClientTest extends SolrJettyTestBase {
 
   }
 
+  @Test
+  public void testBatchedUpdates() throws Exception {
+    String serverUrl = jetty.getBaseUrl().toString() + "/cuss/foo";
+    int numDocs = 300;
+    // a batch per update, and batches of all queued updates
+    for (int maxBatchBytes : new int[] {1, 1 << 20}) {
+      ConcurrentUpdateSolrClientTest.TestServlet.clear();
+      final AtomicInteger successCounter = new AtomicInteger(0);
+      final AtomicInteger errorCounter = new AtomicInteger(0);
+      final StringBuilder errors = new StringBuilder();
+      try (Http2SolrClient http2Client = new Http2SolrClient.Builder().build();
+           ConcurrentUpdateHttp2SolrClient concurrentClient = new OutcomeCountingConcurrentUpdateSolrClient.Builder(serverUrl, http2Client, successCounter, errorCounter, errors)
+               .withQueueSize(100)
+               .withThreadCount(1)
+               .withMaxBatchBytes(maxBatchBytes)
+               .withMaxBatchLatency(1, TimeUnit.SECONDS)
+               .build()) {
+        concurrentClient.setPollQueueTime(0);
+        new ConcurrentUpdateSolrClientTest.SendDocsRunnable("batch", numDocs, concurrentClient).run();
+        concurrentClient.blockUntilFinished();
+
+        assertEquals("Unexpected errors: " + errors, 0, errorCounter.get());
+        assertEquals(ConcurrentUpdateSolrClientTest.TestServlet.numReqsRcvd.get(), successCounter.get());
+        assertEquals(numDocs, ConcurrentUpdateSolrClientTest.TestServlet.numDocsRcvd.get());
+      }
+    }
+
+    // buffered updates are sent when the queue is drained, even if other runners took the last updates
+    ConcurrentUpdateSolrClientTest.TestServlet.clear();
+    try (Http2SolrClient http2Client = new Http2SolrClient.Builder().build();
+         ConcurrentUpdateHttp2SolrClient concurrentClient = new ConcurrentUpdateHttp2SolrClient.Builder(serverUrl, http2Client)
+             .withQueueSize(100)
+             .withThreadCount(4)
+             .withMaxBatchBytes(1 << 20)
+             .withMaxBatchLatency(1, TimeUnit.HOURS)
+             .build()) {
+      concurrentClient.setPollQueueTime(30000);
+      new ConcurrentUpdateSolrClientTest.SendDocsRunnable("idle", numDocs, concurrentClient).run();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+      while (ConcurrentUpdateSolrClientTest.TestServlet.numDocsRcvd.get() < numDocs && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals("updates were held back while the runners waited for more",
+          numDocs, ConcurrentUpdateSolrClientTest.TestServlet.numDocsRcvd.get());
+    }
+
+    expectThrows(IllegalArgumentException.class,
+        () -> new ConcurrentUpdateHttp2SolrClient.Builder(serverUrl, null).withMaxBatchBytes(0));
+    expectThrows(IllegalArgumentException.class,
+        () -> new ConcurrentUpdateHttp2SolrClient.Builder(serverUrl, null).withMaxBatchLatency(-1, TimeUnit.MILLISECONDS));
+  }
+
   @Test
   public void testCollectionParameters() throws IOException, SolrServerException {
 
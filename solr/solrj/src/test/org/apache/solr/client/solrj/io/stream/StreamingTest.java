@@ -53,6 +53,7 @@ import org.apache.solr.cloud.SolrCloudTestCase;
 import org.apache.solr.common.cloud.DocCollection;
 import org.apache.solr.common.cloud.Replica;
 import org.apache.solr.common.cloud.ZkStateReader;
+import org.apache.solr.common.params.CommonParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.ShardParams;
 import org.apache.solr.common.params.SolrParams;
@@ -2573,6 +2574,66 @@ public void testParallelRankStream() throws Exception {
 
   }
 
+  @Test
+  public void testColumnarSolrStream() throws Exception {
+
+    UpdateRequest update = new UpdateRequest();
+    for (int i = 0; i < 30; i++) {
+      if (i % 7 == 0) {
+        // missing values
+        update.add(id, Integer.toString(i), "i_sing", Integer.toString(i));
+      } else {
+        update.add(id, Integer.toString(i), "i_sing", Integer.toString(i),
+            "i_multi", Integer.toString(i), "i_multi", Integer.toString(i * 2),
+            "l_sing", Long.toString(i * 1000000000L), "f_sing", Float.toString(i / 2f), "d_sing", Double.toString(i / 3d),
+            "s_sing", "s" + (i % 3), "s_multi", "sm" + (i % 4), "s_multi", "sm" + (i % 5),
+            "dt_sing", "2019-01-" + (10 + i % 10) + "T00:00:00.123Z",
+            "dt_multi", "1981-03-04T01:02:03Z", "dt_multi", "1981-05-" + (10 + i % 10) + "T04:05:06Z",
+            "b_sing", Boolean.toString(i % 2 == 0), "b_multi", "false", "b_multi", Boolean.toString(i % 3 == 0));
+      }
+    }
+    update.commit(cluster.getSolrClient(), COLLECTIONORALIAS);
+
+    compareColumnarWithJavabin("/export", 30);
+    compareColumnarWithJavabin("/select", 30);
+  }
+
+  // The tuples read by SolrStream with wt=columnar must be the same as with wt=javabin
+  private void compareColumnarWithJavabin(String which, int numDocs) throws IOException {
+    StreamContext streamContext = new StreamContext();
+    SolrClientCache solrClientCache = new SolrClientCache();
+    streamContext.setSolrClientCache(solrClientCache);
+    try {
+      int count = 0;
+      for (String shardUrl : TupleStream.getShards(zkHost, COLLECTIONORALIAS, streamContext)) {
+        List<Tuple> expected = getTuples(columnarTestStream(shardUrl, which, CommonParams.JAVABIN, streamContext));
+        List<Tuple> tuples = getTuples(columnarTestStream(shardUrl, which, CommonParams.COLUMNAR, streamContext));
+        assertEquals(expected.size(), tuples.size());
+        for (int i = 0; i < expected.size(); i++) {
+          assertEquals(expected.get(i).getMap(), tuples.get(i).getMap());
+        }
+        count += tuples.size();
+      }
+      assertEquals(numDocs, count);
+    } finally {
+      solrClientCache.close();
+    }
+  }
+
+  private SolrStream columnarTestStream(String shardUrl, String which, String wt, StreamContext streamContext) {
+    ModifiableSolrParams params = new ModifiableSolrParams();
+    params.add("q", "*:*");
+    params.add("qt", which);
+    params.add("fl", "id,i_sing,i_multi,l_sing,f_sing,d_sing,dt_sing,dt_multi,s_sing,s_multi,b_sing,b_multi");
+    params.add("sort", "i_sing asc");
+    params.add("rows", "100");
+    params.add(CommonParams.WT, wt);
+    SolrStream solrStream = new SolrStream(shardUrl, params);
+    solrStream.setStreamContext(streamContext);
+    solrStream.setDistrib(false);
+    return solrStream;
+  }
+
   @Test
   public void testTupleStreamGetShardsPreference() throws Exception {
     StreamContext streamContext = new StreamContext();
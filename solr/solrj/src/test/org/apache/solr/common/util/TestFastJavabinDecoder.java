@@ -184,6 +184,89 @@ public class TestFastJavabinDecoder extends SolrTestCaseJ4 {
     parser.processResponse(new FastInputStream(null, baos.getbuf(), 0, baos.size()), null);
   }
 
+  public void testFastStreamingResponse() throws IOException {
+    SolrDocument doc = new SolrDocument();
+    doc.setField("id", "1");
+    SolrDocumentList docs = new SolrDocumentList();
+    docs.setNumFound(10);
+    docs.setStart(2);
+    docs.setMaxScore(1.5f);
+    docs.add(doc);
+
+    SimpleOrderedMap<Object> header = new SimpleOrderedMap<>();
+    header.add("status", 0);
+    header.add("QTime", 3);
+    NamedList<Object> counts = new NamedList<>();
+    counts.add("a", 5);
+    counts.add("b", 2);
+    Map<String, Object> map = new LinkedHashMap<>();
+    map.put("strs", Arrays.asList("x", "y"));
+    map.put("flag", true);
+    NamedList<Object> rsp = new NamedList<>();
+    rsp.add("responseHeader", header);
+    rsp.add("response", docs);
+    rsp.add("counts", counts);
+    rsp.add("map", map);
+    rsp.add("str", "value");
+    rsp.add("null", null);
+    SolrDocument nested = new SolrDocument();
+    nested.setField("id", "2");
+    nested.setField("empty", null);
+    SolrDocument child = new SolrDocument();
+    child.setField("id", "3");
+    nested.addChildDocument(child);
+    NamedList<Object> group = new NamedList<>();
+    group.add("groupValue", null);
+    group.add("doc", nested);
+    rsp.add("group", group);
+    rsp.add("arr", Arrays.asList("a", null));
+
+    BinaryRequestWriter.BAOS baos = new BinaryRequestWriter.BAOS();
+    try (JavaBinCodec jbc = new JavaBinCodec()) {
+      jbc.marshal(rsp, baos);
+    }
+
+    List<String> ids = new ArrayList<>();
+    StreamingBinaryResponseParser parser = new StreamingBinaryResponseParser(new FastStreamingDocsCallback() {
+      @Override
+      public Object startDoc(Object docListObj) {
+        return null;
+      }
+
+      @Override
+      public void field(DataEntry field, Object docObj) {
+        if ("id".equals(field.name())) {
+          ids.add(field.strValue());
+        }
+      }
+    });
+    NamedList<Object> parsed = parser.processResponse(new FastInputStream(null, baos.getbuf(), 0, baos.size()), null);
+
+    assertEquals(Arrays.asList("1"), ids);
+    assertEquals(header, parsed.get("responseHeader"));
+    assertTrue(parsed.get("responseHeader") instanceof SimpleOrderedMap);
+    SolrDocumentList parsedDocs = (SolrDocumentList) parsed.get("response");
+    assertEquals(10, parsedDocs.getNumFound());
+    assertEquals(2, parsedDocs.getStart());
+    assertEquals(1.5f, parsedDocs.getMaxScore(), 0f);
+    assertTrue(parsedDocs.isEmpty());
+    assertEquals(counts, parsed.get("counts"));
+    assertEquals(map, parsed.get("map"));
+    assertEquals("value", parsed.get("str"));
+    assertTrue(parsed.indexOf("null", 0) >= 0);
+    assertNull(parsed.get("null"));
+    assertEquals(Arrays.asList("a", null), parsed.get("arr"));
+    NamedList<?> parsedGroup = (NamedList<?>) parsed.get("group");
+    assertEquals(2, parsedGroup.size());
+    assertNull(parsedGroup.get("groupValue"));
+    SolrDocument parsedNested = (SolrDocument) parsedGroup.get("doc");
+    assertEquals("2", parsedNested.getFieldValue("id"));
+    assertTrue(parsedNested.containsKey("empty"));
+    assertNull(parsedNested.getFieldValue("empty"));
+    assertEquals(1, parsedNested.getChildDocumentCount());
+    assertEquals("3", parsedNested.getChildDocuments().get(0).getFieldValue("id"));
+  }
+
   public void testParsingWithChildDocs() throws IOException {
     SolrDocument d1 = TestJavaBinCodec.generateSolrDocumentWithChildDocs();
     d1.setField("id", "101");